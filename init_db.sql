@@ -1,3 +1,10 @@
+DROP TABLE IF EXISTS activity_log;
+DROP TABLE IF EXISTS qr_token_revocation;
+DROP TABLE IF EXISTS qr_signing_key;
+DROP TABLE IF EXISTS upload_blob;
+DROP TABLE IF EXISTS stat_sales_cube;
+DROP TABLE IF EXISTS stat_rollup_total;
+DROP TABLE IF EXISTS stat_daily_rollup;
 DROP TABLE IF EXISTS reponse;
 DROP TABLE IF EXISTS commentaire;
 DROP TABLE IF EXISTS choix_sondage;
@@ -32,6 +39,7 @@ CREATE TABLE user (
     created_at DATETIME,
     last_login_at DATETIME,
     warning_count INT DEFAULT 0,
+    toxic_comment_count INT NOT NULL DEFAULT 0,
     verification_attempts INT DEFAULT 0,
     last_code_sent_time DATETIME
 );
@@ -81,6 +89,7 @@ CREATE TABLE evenement (
     start_date DATETIME,
     end_date DATETIME,
     lieux VARCHAR(100),
+    INDEX idx_evenement_dates (start_date, end_date),
     FOREIGN KEY (club_id) REFERENCES club(id) ON DELETE CASCADE,
     FOREIGN KEY (categorie_id) REFERENCES categorie(id)
 );
@@ -90,6 +99,7 @@ CREATE TABLE participation_event (
     user_id INT,
     evenement_id INT,
     date_participation DATETIME,
+    checked_in_at DATETIME NULL,
     PRIMARY KEY (user_id, evenement_id),
     FOREIGN KEY (user_id) REFERENCES user(id) ON DELETE CASCADE,
     FOREIGN KEY (evenement_id) REFERENCES evenement(id) ON DELETE CASCADE
@@ -98,14 +108,19 @@ CREATE TABLE participation_event (
 -- Produit Table (with all fields from Produit.java)
 CREATE TABLE produit (
     id INT PRIMARY KEY AUTO_INCREMENT,
-    nom_prod VARCHAR(100),
+    nom_prod VARCHAR(100) NOT NULL,
     desc_prod TEXT,
-    prix FLOAT,
+    prix FLOAT NOT NULL DEFAULT 0,
     img_prod VARCHAR(255),
-    created_at DATETIME,
-    quantity VARCHAR(20),
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    quantity INT NOT NULL DEFAULT 0,
     club_id INT,
-    FOREIGN KEY (club_id) REFERENCES club(id) ON DELETE CASCADE
+    FOREIGN KEY (club_id) REFERENCES club(id) ON DELETE CASCADE,
+    CONSTRAINT chk_produit_quantity CHECK (quantity >= 0),
+    INDEX idx_produit_club_created (club_id, created_at, id),
+    INDEX idx_produit_created (created_at, id),
+    INDEX idx_produit_prix (prix, id),
+    INDEX idx_produit_nom (nom_prod, id)
 );
 
 -- Commande Table (with all fields from Commande.java)
@@ -115,7 +130,12 @@ CREATE TABLE commande (
     statut VARCHAR(20),
     user_id INT,
     total DOUBLE,
-    FOREIGN KEY (user_id) REFERENCES user(id)
+    -- Cart of CartService, not a placed order
+    is_cart TINYINT(1) NOT NULL DEFAULT 0,
+    -- Placed by checkout and still holding its stock (EN_COURS)
+    stock_reserved TINYINT(1) NOT NULL DEFAULT 0,
+    FOREIGN KEY (user_id) REFERENCES user(id),
+    INDEX idx_commande_cart (user_id, is_cart)
 );
 
 -- Order_details Table (with all fields from Orderdetails.java)
@@ -175,7 +195,9 @@ CREATE TABLE sondage (
     user_id INT,
     club_id INT,
     FOREIGN KEY (user_id) REFERENCES user(id),
-    FOREIGN KEY (club_id) REFERENCES club(id) ON DELETE CASCADE
+    FOREIGN KEY (club_id) REFERENCES club(id) ON DELETE CASCADE,
+    INDEX idx_sondage_created (created_at, id),
+    INDEX idx_sondage_club_created (club_id, created_at, id)
 );
 
 -- ChoixSondage Table (with all fields from ChoixSondage.java)
@@ -193,8 +215,13 @@ CREATE TABLE commentaire (
     date_comment DATE,
     user_id INT,
     sondage_id INT,
+    status VARCHAR(20) NOT NULL DEFAULT 'VISIBLE',
+    toxicity_score DECIMAL(4,3) NULL,
     FOREIGN KEY (user_id) REFERENCES user(id),
-    FOREIGN KEY (sondage_id) REFERENCES sondage(id) ON DELETE CASCADE
+    FOREIGN KEY (sondage_id) REFERENCES sondage(id) ON DELETE CASCADE,
+    INDEX idx_commentaire_user_status (user_id, status),
+    INDEX idx_commentaire_sondage_status (sondage_id, status),
+    INDEX idx_commentaire_status_date (status, date_comment)
 );
 
 -- Reponse Table (with all fields from Reponse.java)
@@ -209,6 +236,81 @@ CREATE TABLE reponse (
     FOREIGN KEY (sondage_id) REFERENCES sondage(id) ON DELETE CASCADE
 );
 
+-- Dashboard rollups: per-day counters and running totals (see DashboardRollupService)
+CREATE TABLE stat_daily_rollup (
+    metric VARCHAR(30) NOT NULL,
+    day DATE NOT NULL,
+    dim_id INT NOT NULL DEFAULT 0,
+    value BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (metric, day, dim_id)
+);
+
+CREATE TABLE stat_rollup_total (
+    metric VARCHAR(30) NOT NULL,
+    dim_id INT NOT NULL DEFAULT 0,
+    value BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (metric, dim_id),
+    INDEX idx_rollup_total_top (metric, value)
+);
+
+-- Sales cube: units, order lines and revenue by day, product, club and status (see SalesCubeService)
+CREATE TABLE stat_sales_cube (
+    day DATE NOT NULL,
+    produit_id INT NOT NULL,
+    club_id INT NOT NULL DEFAULT 0,
+    statut VARCHAR(20) NOT NULL,
+    units BIGINT NOT NULL DEFAULT 0,
+    line_count BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,3) NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, produit_id, club_id, statut),
+    INDEX idx_sales_cube_produit (produit_id, statut, day),
+    INDEX idx_sales_cube_club (club_id, statut, day)
+);
+
+-- Content-addressed uploads: one row per stored file (see UploadStore)
+CREATE TABLE upload_blob (
+    area VARCHAR(20) NOT NULL,
+    file_name VARCHAR(80) NOT NULL,
+    sha256 CHAR(64) NOT NULL,
+    size_bytes BIGINT NOT NULL DEFAULT 0,
+    ref_count INT NOT NULL DEFAULT 0,
+    created_at DATETIME NOT NULL,
+    released_at DATETIME NULL,
+    PRIMARY KEY (area, file_name),
+    INDEX idx_upload_blob_orphans (ref_count, released_at)
+);
+
+-- HMAC keys signing the participation QR codes (newest non-retired key signs)
+CREATE TABLE qr_signing_key (
+    kid VARCHAR(16) PRIMARY KEY,
+    secret VARBINARY(64) NOT NULL,
+    created_at DATETIME NOT NULL,
+    retired_at DATETIME NULL
+);
+
+-- Cancelled participations: QR tokens issued before revoked_at are refused
+CREATE TABLE qr_token_revocation (
+    user_id INT NOT NULL,
+    evenement_id INT NOT NULL,
+    revoked_at DATETIME(3) NOT NULL,
+    PRIMARY KEY (user_id, evenement_id),
+    INDEX idx_qr_revocation_time (revoked_at)
+);
+
+-- Admin activity feed, append-only (see ActivityLogService)
+CREATE TABLE activity_log (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    created_at DATETIME(3) NOT NULL,
+    activity_type VARCHAR(30) NOT NULL,
+    entity_type VARCHAR(30) NOT NULL,
+    entity_id INT NOT NULL DEFAULT 0,
+    actor_id INT NULL,
+    description VARCHAR(500) NOT NULL,
+    ip_address VARCHAR(45) NULL,
+    INDEX idx_activity_log_time (created_at, id),
+    INDEX idx_activity_log_type_time (activity_type, created_at, id)
+);
+
 -- =============================================
 -- ENRICHED TEST DATA
 -- =============================================
@@ -381,40 +483,40 @@ INSERT INTO participation_event (user_id, evenement_id, date_participation) VALU
 -- Produits (merchandise from different clubs, various stock levels)
 INSERT INTO produit (nom_prod, desc_prod, prix, img_prod, created_at, quantity, club_id) VALUES
 -- Club Informatique
-('T-shirt InfoTech 2025', 'T-shirt noir avec logo du club en blanc, 100% coton', 25.00, 'products/tshirt_infotech.jpg', '2025-09-20 10:00:00', '45', 1),
-('Hoodie InfoTech', 'Sweat à capuche gris avec logo brodé', 55.00, 'products/hoodie_infotech.jpg', '2025-09-25 11:00:00', '20', 1),
-('Casquette InfoTech', 'Casquette noire ajustable avec logo', 18.00, 'products/cap_infotech.jpg', '2025-10-01 12:00:00', '30', 1),
-('Stickers Pack InfoTech', 'Pack de 10 stickers variés', 5.00, 'products/stickers_infotech.jpg', '2025-10-05 14:00:00', '100', 1),
-('Clé USB 32GB InfoTech', 'Clé USB personnalisée avec logo du club', 15.00, 'products/usb_infotech.jpg', '2025-10-10 09:00:00', '0', 1),
+('T-shirt InfoTech 2025', 'T-shirt noir avec logo du club en blanc, 100% coton', 25.00, 'products/tshirt_infotech.jpg', '2025-09-20 10:00:00', 45, 1),
+('Hoodie InfoTech', 'Sweat à capuche gris avec logo brodé', 55.00, 'products/hoodie_infotech.jpg', '2025-09-25 11:00:00', 20, 1),
+('Casquette InfoTech', 'Casquette noire ajustable avec logo', 18.00, 'products/cap_infotech.jpg', '2025-10-01 12:00:00', 30, 1),
+('Stickers Pack InfoTech', 'Pack de 10 stickers variés', 5.00, 'products/stickers_infotech.jpg', '2025-10-05 14:00:00', 100, 1),
+('Clé USB 32GB InfoTech', 'Clé USB personnalisée avec logo du club', 15.00, 'products/usb_infotech.jpg', '2025-10-10 09:00:00', 0, 1),
 
 -- Club Sportif
-('Maillot CSU Home', 'Maillot de football domicile, plusieurs tailles', 35.00, 'products/jersey_csu_home.jpg', '2025-09-22 10:00:00', '60', 2),
-('Maillot CSU Away', 'Maillot de football extérieur, plusieurs tailles', 35.00, 'products/jersey_csu_away.jpg', '2025-09-22 10:30:00', '40', 2),
-('Short de Sport CSU', 'Short de sport respirant', 22.00, 'products/shorts_csu.jpg', '2025-09-28 11:00:00', '35', 2),
-('Ballon de Football CSU', 'Ballon officiel taille 5', 30.00, 'products/ball_csu.jpg', '2025-10-02 14:00:00', '15', 2),
-('Gourde CSU', 'Gourde isotherme 750ml', 20.00, 'products/bottle_csu.jpg', '2025-10-08 10:00:00', '50', 2),
-('Sac de Sport CSU', 'Sac de sport grande capacité', 45.00, 'products/bag_csu.jpg', '2025-10-15 11:00:00', '25', 2),
+('Maillot CSU Home', 'Maillot de football domicile, plusieurs tailles', 35.00, 'products/jersey_csu_home.jpg', '2025-09-22 10:00:00', 60, 2),
+('Maillot CSU Away', 'Maillot de football extérieur, plusieurs tailles', 35.00, 'products/jersey_csu_away.jpg', '2025-09-22 10:30:00', 40, 2),
+('Short de Sport CSU', 'Short de sport respirant', 22.00, 'products/shorts_csu.jpg', '2025-09-28 11:00:00', 35, 2),
+('Ballon de Football CSU', 'Ballon officiel taille 5', 30.00, 'products/ball_csu.jpg', '2025-10-02 14:00:00', 15, 2),
+('Gourde CSU', 'Gourde isotherme 750ml', 20.00, 'products/bottle_csu.jpg', '2025-10-08 10:00:00', 50, 2),
+('Sac de Sport CSU', 'Sac de sport grande capacité', 45.00, 'products/bag_csu.jpg', '2025-10-15 11:00:00', 25, 2),
 
 -- Club Théâtre
-('T-shirt ThéâtrePlus', 'T-shirt blanc avec citation théâtrale', 23.00, 'products/tshirt_theatre.jpg', '2025-10-05 10:00:00', '40', 3),
-('Tote Bag ThéâtrePlus', 'Sac en toile réutilisable', 12.00, 'products/totebag_theatre.jpg', '2025-10-10 11:00:00', '55', 3),
-('Affiche Festival 2025', 'Affiche collector du festival', 8.00, 'products/poster_theatre.jpg', '2025-11-01 14:00:00', '30', 3),
+('T-shirt ThéâtrePlus', 'T-shirt blanc avec citation théâtrale', 23.00, 'products/tshirt_theatre.jpg', '2025-10-05 10:00:00', 40, 3),
+('Tote Bag ThéâtrePlus', 'Sac en toile réutilisable', 12.00, 'products/totebag_theatre.jpg', '2025-10-10 11:00:00', 55, 3),
+('Affiche Festival 2025', 'Affiche collector du festival', 8.00, 'products/poster_theatre.jpg', '2025-11-01 14:00:00', 30, 3),
 
 -- Club Entrepreneuriat
-('T-shirt StartUp Lab', 'T-shirt premium avec slogan motivant', 28.00, 'products/tshirt_startup.jpg', '2025-10-12 10:00:00', '35', 4),
-('Carnet de Notes StartUp Lab', 'Carnet moleskine personnalisé', 15.00, 'products/notebook_startup.jpg', '2025-10-15 11:00:00', '50', 4),
-('Stylo Luxe StartUp Lab', 'Stylo métallique avec gravure', 25.00, 'products/pen_startup.jpg', '2025-10-20 12:00:00', '20', 4),
+('T-shirt StartUp Lab', 'T-shirt premium avec slogan motivant', 28.00, 'products/tshirt_startup.jpg', '2025-10-12 10:00:00', 35, 4),
+('Carnet de Notes StartUp Lab', 'Carnet moleskine personnalisé', 15.00, 'products/notebook_startup.jpg', '2025-10-15 11:00:00', 50, 4),
+('Stylo Luxe StartUp Lab', 'Stylo métallique avec gravure', 25.00, 'products/pen_startup.jpg', '2025-10-20 12:00:00', 20, 4),
 
 -- Club Environnement
-('T-shirt Bio Green Campus', 'T-shirt 100% coton bio', 30.00, 'products/tshirt_green.jpg', '2025-10-18 10:00:00', '40', 5),
-('Gourde Écologique', 'Gourde en inox réutilisable 1L', 22.00, 'products/bottle_green.jpg', '2025-10-22 11:00:00', '45', 5),
-('Sac Shopping Réutilisable', 'Sac shopping en coton bio', 10.00, 'products/bag_green.jpg', '2025-10-25 12:00:00', '60', 5),
-('Graines à Planter', 'Kit de graines bio variées', 8.00, 'products/seeds_green.jpg', '2025-11-01 10:00:00', '75', 5),
+('T-shirt Bio Green Campus', 'T-shirt 100% coton bio', 30.00, 'products/tshirt_green.jpg', '2025-10-18 10:00:00', 40, 5),
+('Gourde Écologique', 'Gourde en inox réutilisable 1L', 22.00, 'products/bottle_green.jpg', '2025-10-22 11:00:00', 45, 5),
+('Sac Shopping Réutilisable', 'Sac shopping en coton bio', 10.00, 'products/bag_green.jpg', '2025-10-25 12:00:00', 60, 5),
+('Graines à Planter', 'Kit de graines bio variées', 8.00, 'products/seeds_green.jpg', '2025-11-01 10:00:00', 75, 5),
 
 -- Club Musique
-('T-shirt Harmony', 'T-shirt avec design musical', 24.00, 'products/tshirt_harmony.jpg', '2025-11-05 10:00:00', '35', 6),
-('Album CD Harmony Live', 'Enregistrement du concert 2024', 12.00, 'products/cd_harmony.jpg', '2025-11-10 11:00:00', '40', 6),
-('Médiators Personnalisés', 'Set de 5 médiators avec logo', 6.00, 'products/picks_harmony.jpg', '2025-11-12 14:00:00', '80', 6);
+('T-shirt Harmony', 'T-shirt avec design musical', 24.00, 'products/tshirt_harmony.jpg', '2025-11-05 10:00:00', 35, 6),
+('Album CD Harmony Live', 'Enregistrement du concert 2024', 12.00, 'products/cd_harmony.jpg', '2025-11-10 11:00:00', 40, 6),
+('Médiators Personnalisés', 'Set de 5 médiators avec logo', 6.00, 'products/picks_harmony.jpg', '2025-11-12 14:00:00', 80, 6);
 
 -- Commandes (various statuses and time periods)
 INSERT INTO commande (date_comm, statut, user_id, total) VALUES
@@ -707,4 +809,32 @@ INSERT INTO mission_progress (club_id, competition_id, progress, is_completed) V
 (1, 2, 60, false),
 (2, 3, 100, true),
 (3, 4, 10, false),
-(4, 5, 90, false);
\ No newline at end of file
+(4, 5, 90, false);
+
+-- Activity log history, derived from the data above (same as migrations/012_activity_log.sql)
+INSERT INTO activity_log (created_at, activity_type, entity_type, entity_id, description)
+SELECT created_at, 'USER_MANAGEMENT', 'User', id, CONCAT('User account created (ID: ', id, ')')
+FROM user WHERE created_at IS NOT NULL;
+
+INSERT INTO activity_log (created_at, activity_type, entity_type, entity_id, description)
+SELECT date_request, 'CLUB_MANAGEMENT', 'Club', club_id,
+       CONCAT('Club membership ', LOWER(statut), ' for user ', user_id, ' in club ', club_id)
+FROM participation_membre WHERE date_request IS NOT NULL;
+
+INSERT INTO activity_log (created_at, activity_type, entity_type, entity_id, description)
+SELECT start_date - INTERVAL 3 DAY, 'EVENT_MANAGEMENT', 'Event', id,
+       CONCAT('Event created: ', nom_event, ' for club ', club_id)
+FROM evenement WHERE start_date IS NOT NULL;
+
+INSERT INTO activity_log (created_at, activity_type, entity_type, entity_id, description)
+SELECT created_at, 'POLL_MANAGEMENT', 'Poll', id, LEFT(CONCAT('Poll created: "', question, '" for club ', club_id), 500)
+FROM sondage WHERE created_at IS NOT NULL;
+
+INSERT INTO activity_log (created_at, activity_type, entity_type, entity_id, description)
+SELECT date_comm, 'ORDER_MANAGEMENT', 'Order', id, CONCAT('Order ', statut, ' for user ', user_id)
+FROM commande WHERE date_comm IS NOT NULL;
+
+INSERT INTO activity_log (created_at, activity_type, entity_type, entity_id, description)
+SELECT start_date - INTERVAL 3 DAY, 'COMPETITION_MANAGEMENT', 'Competition', id,
+       CONCAT('Competition created: ', nom_comp, ' for season ', saison_id)
+FROM competition WHERE start_date IS NOT NULL;
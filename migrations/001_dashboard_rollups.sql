@@ -0,0 +1,19 @@
+-- Dashboard rollup tables for existing databases.
+-- Counters are filled by DashboardRollupService: the first start with empty
+-- tables runs the backfill, later writes update them incrementally.
+
+CREATE TABLE IF NOT EXISTS stat_daily_rollup (
+    metric VARCHAR(30) NOT NULL,
+    day DATE NOT NULL,
+    dim_id INT NOT NULL DEFAULT 0,
+    value BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (metric, day, dim_id)
+);
+
+CREATE TABLE IF NOT EXISTS stat_rollup_total (
+    metric VARCHAR(30) NOT NULL,
+    dim_id INT NOT NULL DEFAULT 0,
+    value BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (metric, dim_id),
+    INDEX idx_rollup_total_top (metric, value)
+);
@@ -0,0 +1,39 @@
+-- First-class moderation status for comments.
+-- Toxic comments used to be recognised only by the warning prefix written in
+-- contenu_comment; this adds an indexed status column and backfills it.
+
+ALTER TABLE commentaire
+    ADD COLUMN status VARCHAR(20) NOT NULL DEFAULT 'VISIBLE',
+    ADD COLUMN toxicity_score DECIMAL(4,3) NULL;
+
+UPDATE commentaire
+SET status = 'FLAGGED'
+WHERE contenu_comment LIKE '⚠️ Comment hidden:%';
+
+UPDATE commentaire
+SET status = 'APPROVED'
+WHERE contenu_comment = '[Comment was reviewed and approved by moderator]';
+
+-- Score unknown for historical rows: 1 for flagged ones, left NULL otherwise
+UPDATE commentaire
+SET toxicity_score = 1.000
+WHERE status = 'FLAGGED';
+
+CREATE INDEX idx_commentaire_user_status ON commentaire (user_id, status);
+CREATE INDEX idx_commentaire_sondage_status ON commentaire (sondage_id, status);
+CREATE INDEX idx_commentaire_status_date ON commentaire (status, date_comment);
+
+-- Flagged counters were computed from the content prefix, recompute them from the status
+DELETE FROM stat_daily_rollup WHERE metric = 'FLAGGED_COMMENTS';
+INSERT INTO stat_daily_rollup (metric, day, dim_id, value)
+SELECT 'FLAGGED_COMMENTS', DATE(date_comment), 0, COUNT(*)
+FROM commentaire
+WHERE status = 'FLAGGED' AND date_comment IS NOT NULL
+GROUP BY DATE(date_comment);
+
+DELETE FROM stat_rollup_total WHERE metric = 'FLAGGED_COMMENTS';
+INSERT INTO stat_rollup_total (metric, dim_id, value)
+SELECT metric, dim_id, SUM(value)
+FROM stat_daily_rollup
+WHERE metric = 'FLAGGED_COMMENTS'
+GROUP BY metric, dim_id;
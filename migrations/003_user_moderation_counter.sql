@@ -0,0 +1,15 @@
+-- Per-user count of flagged comments.
+-- The comment ban check used to run a COUNT(*) over commentaire on every new
+-- comment; the counter is now maintained with the comment writes.
+
+ALTER TABLE user
+    ADD COLUMN toxic_comment_count INT NOT NULL DEFAULT 0;
+
+UPDATE user u
+JOIN (
+    SELECT user_id, COUNT(*) AS flagged
+    FROM commentaire
+    WHERE status = 'FLAGGED' AND user_id IS NOT NULL
+    GROUP BY user_id
+) c ON c.user_id = u.id
+SET u.toxic_comment_count = c.flagged;
@@ -0,0 +1,5 @@
+-- Indexes for the paged poll feed.
+-- Pages are read newest first, for all clubs or for a single club.
+
+CREATE INDEX idx_sondage_created ON sondage (created_at, id);
+CREATE INDEX idx_sondage_club_created ON sondage (club_id, created_at, id);
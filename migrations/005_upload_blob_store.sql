@@ -0,0 +1,15 @@
+-- Reference counts for content-addressed uploads.
+-- New uploads are stored under the SHA-256 of their content; files uploaded
+-- before this change keep their names and are not tracked.
+
+CREATE TABLE IF NOT EXISTS upload_blob (
+    area VARCHAR(20) NOT NULL,
+    file_name VARCHAR(80) NOT NULL,
+    sha256 CHAR(64) NOT NULL,
+    size_bytes BIGINT NOT NULL DEFAULT 0,
+    ref_count INT NOT NULL DEFAULT 0,
+    created_at DATETIME NOT NULL,
+    released_at DATETIME NULL,
+    PRIMARY KEY (area, file_name),
+    INDEX idx_upload_blob_orphans (ref_count, released_at)
+);
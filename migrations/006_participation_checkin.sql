@@ -0,0 +1,4 @@
+-- Door check-in time of a participant, written in batches by the QR scanner
+-- continuous mode. NULL until the participant is scanned.
+
+ALTER TABLE participation_event ADD COLUMN checked_in_at DATETIME NULL;
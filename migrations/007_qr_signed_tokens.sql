@@ -0,0 +1,17 @@
+-- Signed participation QR codes: signing keys (rotated, retired when leaked)
+-- and the revocation list fed by cancelled participations.
+
+CREATE TABLE qr_signing_key (
+    kid VARCHAR(16) PRIMARY KEY,
+    secret VARBINARY(64) NOT NULL,
+    created_at DATETIME NOT NULL,
+    retired_at DATETIME NULL
+);
+
+CREATE TABLE qr_token_revocation (
+    user_id INT NOT NULL,
+    evenement_id INT NOT NULL,
+    revoked_at DATETIME NOT NULL,
+    PRIMARY KEY (user_id, evenement_id),
+    INDEX idx_qr_revocation_time (revoked_at)
+);
@@ -0,0 +1,4 @@
+-- Calendar view: events overlapping a month window are selected with
+-- start_date < window end AND end_date >= window start.
+
+CREATE INDEX idx_evenement_dates ON evenement (start_date, end_date);
@@ -0,0 +1,8 @@
+-- Stock as an integer: checkout decrements it in SQL
+-- (quantity = quantity - ? WHERE quantity >= ?) and the CHECK keeps it from
+-- going negative. Values that are not a whole number are reset to 0.
+
+UPDATE produit SET quantity = '0' WHERE quantity IS NULL OR quantity NOT REGEXP '^[0-9]+$';
+
+ALTER TABLE produit MODIFY quantity INT NOT NULL DEFAULT 0;
+ALTER TABLE produit ADD CONSTRAINT chk_produit_quantity CHECK (quantity >= 0);
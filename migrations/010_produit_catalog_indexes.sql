@@ -0,0 +1,20 @@
+-- Product catalog pages are read with keyset pagination
+-- (ORDER BY sort key, id; WHERE (key, id) after the last row of the
+-- previous page). The sort keys must not be NULL for the cursor to work.
+
+UPDATE produit SET created_at = NOW() WHERE created_at IS NULL;
+UPDATE produit SET prix = 0 WHERE prix IS NULL;
+UPDATE produit SET nom_prod = '' WHERE nom_prod IS NULL;
+
+ALTER TABLE produit
+    MODIFY nom_prod VARCHAR(100) NOT NULL,
+    MODIFY prix FLOAT NOT NULL DEFAULT 0,
+    MODIFY created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+-- Club filter + newest first; newest first over all clubs
+CREATE INDEX idx_produit_club_created ON produit (club_id, created_at, id);
+CREATE INDEX idx_produit_created ON produit (created_at, id);
+-- Price range filter and price sorts
+CREATE INDEX idx_produit_prix ON produit (prix, id);
+-- Name sort
+CREATE INDEX idx_produit_nom ON produit (nom_prod, id);
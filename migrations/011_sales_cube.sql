@@ -0,0 +1,22 @@
+-- Sales cube: units, order lines and revenue by (day, product, club, status).
+-- Filled by SalesCubeService: the first start with an empty cube runs the
+-- backfill from orderdetails, later order writes update it incrementally.
+-- club_id is 0 for products without a club.
+
+CREATE TABLE IF NOT EXISTS stat_sales_cube (
+    day DATE NOT NULL,
+    produit_id INT NOT NULL,
+    club_id INT NOT NULL DEFAULT 0,
+    statut VARCHAR(20) NOT NULL,
+    units BIGINT NOT NULL DEFAULT 0,
+    line_count BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,3) NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, produit_id, club_id, statut),
+    -- Per product / per club series and breakdowns
+    INDEX idx_sales_cube_produit (produit_id, statut, day),
+    INDEX idx_sales_cube_club (club_id, statut, day)
+);
+
+-- Product and club sales moved from the dashboard rollups to the cube
+DELETE FROM stat_daily_rollup WHERE metric IN ('PRODUCT_SALES', 'CLUB_SALES');
+DELETE FROM stat_rollup_total WHERE metric IN ('PRODUCT_SALES', 'CLUB_SALES');
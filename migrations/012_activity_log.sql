@@ -0,0 +1,48 @@
+-- Admin activity feed: one append-only row per mutating operation, written in
+-- batches by ActivityLogService. The feed, its type filter and the export read
+-- one range of idx_activity_log_time (or idx_activity_log_type_time), newest
+-- first, paged with a (created_at, id) cursor.
+-- activity_type holds an ActivityTypeEnum name; actor_id is the logged-in user
+-- (no foreign key, entries outlive the accounts they mention).
+
+CREATE TABLE IF NOT EXISTS activity_log (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    created_at DATETIME(3) NOT NULL,
+    activity_type VARCHAR(30) NOT NULL,
+    entity_type VARCHAR(30) NOT NULL,
+    entity_id INT NOT NULL DEFAULT 0,
+    actor_id INT NULL,
+    description VARCHAR(500) NOT NULL,
+    ip_address VARCHAR(45) NULL,
+    INDEX idx_activity_log_time (created_at, id),
+    INDEX idx_activity_log_type_time (activity_type, created_at, id)
+);
+
+-- History: the entries the activity dialog used to derive from each table on
+-- every open (run once, right after creating the table)
+INSERT INTO activity_log (created_at, activity_type, entity_type, entity_id, description)
+SELECT created_at, 'USER_MANAGEMENT', 'User', id, CONCAT('User account created (ID: ', id, ')')
+FROM user WHERE created_at IS NOT NULL;
+
+INSERT INTO activity_log (created_at, activity_type, entity_type, entity_id, description)
+SELECT date_request, 'CLUB_MANAGEMENT', 'Club', club_id,
+       CONCAT('Club membership ', LOWER(statut), ' for user ', user_id, ' in club ', club_id)
+FROM participation_membre WHERE date_request IS NOT NULL;
+
+INSERT INTO activity_log (created_at, activity_type, entity_type, entity_id, description)
+SELECT start_date - INTERVAL 3 DAY, 'EVENT_MANAGEMENT', 'Event', id,
+       CONCAT('Event created: ', nom_event, ' for club ', club_id)
+FROM evenement WHERE start_date IS NOT NULL;
+
+INSERT INTO activity_log (created_at, activity_type, entity_type, entity_id, description)
+SELECT created_at, 'POLL_MANAGEMENT', 'Poll', id, LEFT(CONCAT('Poll created: "', question, '" for club ', club_id), 500)
+FROM sondage WHERE created_at IS NOT NULL;
+
+INSERT INTO activity_log (created_at, activity_type, entity_type, entity_id, description)
+SELECT date_comm, 'ORDER_MANAGEMENT', 'Order', id, CONCAT('Order ', statut, ' for user ', user_id)
+FROM commande WHERE date_comm IS NOT NULL;
+
+INSERT INTO activity_log (created_at, activity_type, entity_type, entity_id, description)
+SELECT start_date - INTERVAL 3 DAY, 'COMPETITION_MANAGEMENT', 'Competition', id,
+       CONCAT('Competition created: ', nom_comp, ' for season ', saison_id)
+FROM competition WHERE start_date IS NOT NULL;
@@ -0,0 +1,4 @@
+-- Revocations are compared with the token issue time in milliseconds: a
+-- participation cancelled then registered again within the same second must
+-- not revoke the new token. DATETIME(0) would also round the value up.
+ALTER TABLE qr_token_revocation MODIFY revoked_at DATETIME(3) NOT NULL;
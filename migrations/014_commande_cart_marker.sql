@@ -0,0 +1,9 @@
+-- Carts get their own marker: placed orders are also inserted EN_COURS by
+-- checkout, so "latest EN_COURS commande of the user" could pick a placed
+-- order as the cart. CartService reads, writes and deletes is_cart = 1 rows
+-- only, through idx_commande_cart.
+-- Existing carts are the EN_COURS rows without a total (checkout sets it).
+
+ALTER TABLE commande ADD COLUMN is_cart TINYINT(1) NOT NULL DEFAULT 0;
+UPDATE commande SET is_cart = 1 WHERE statut = 'EN_COURS' AND total IS NULL;
+CREATE INDEX idx_commande_cart ON commande (user_id, is_cart);
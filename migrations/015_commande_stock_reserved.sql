@@ -0,0 +1,7 @@
+-- Stock reservation recorded on the order: checkout sets stock_reserved when
+-- it takes the stock, and validating, cancelling or deleting the order clears
+-- it under the row lock. Only an order still holding it gives stock back, so
+-- deleting a confirmed order or a seeded one no longer inflates the stock.
+-- Existing orders cannot be told apart from seeded ones and hold nothing.
+
+ALTER TABLE commande ADD COLUMN stock_reserved TINYINT(1) NOT NULL DEFAULT 0;
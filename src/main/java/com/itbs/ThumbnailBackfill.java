@@ -0,0 +1,39 @@
+package com.itbs;
+
+import com.itbs.utils.ThumbnailService;
+
+import java.io.File;
+
+/**
+ * Generates the missing or outdated thumbnails of the images already stored.
+ *
+ * Usage: ThumbnailBackfill [directory...]
+ * Without arguments the upload directories of the application are processed.
+ */
+public class ThumbnailBackfill {
+
+    private static final String[] DEFAULT_DIRECTORIES = {
+            "uploads/clubs",
+            "uploads/profiles",
+            "uploads/images",
+            "src/main/resources/images"
+    };
+
+    public static void main(String[] args) {
+        String[] directories = args.length > 0 ? args : DEFAULT_DIRECTORIES;
+        ThumbnailService thumbnails = ThumbnailService.getInstance();
+
+        int total = 0;
+        for (String path : directories) {
+            File directory = new File(path);
+            if (!directory.isDirectory()) {
+                System.out.println("Skipping " + path + " (not a directory)");
+                continue;
+            }
+            int processed = thumbnails.backfill(directory);
+            System.out.println(path + ": " + processed + " image(s) processed");
+            total += processed;
+        }
+        System.out.println("Thumbnail backfill done, " + total + " image(s) processed");
+    }
+}
@@ -0,0 +1,25 @@
+package com.itbs;
+
+import com.itbs.services.UploadStore;
+
+import java.sql.SQLException;
+
+/**
+ * Deletes the stored uploads that no club, product, event, season or user
+ * references anymore (after a grace period), together with their thumbnails.
+ *
+ * Usage: UploadGarbageCollector
+ */
+public class UploadGarbageCollector {
+
+    public static void main(String[] args) {
+        try {
+            int deleted = UploadStore.getInstance().collectOrphans();
+            System.out.println("Upload GC done, " + deleted + " orphan file(s) deleted");
+        } catch (SQLException e) {
+            System.err.println("Upload GC failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
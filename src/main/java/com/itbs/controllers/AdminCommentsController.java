@@ -3,10 +3,13 @@ package com.itbs.controllers;
 import com.itbs.models.Commentaire;
 import com.itbs.MainApp;
 import com.itbs.models.Club;
+import com.itbs.services.ChangeEventBus;
 import com.itbs.services.ClubService;
 import com.itbs.services.CommentaireService;
+import com.itbs.services.ExportService;
 import com.itbs.utils.AlertUtils;
 import com.itbs.utils.CommentStatsService;
+import com.itbs.utils.ExportRunner;
 import com.itbs.utils.SessionManager;
 import com.itbs.visualization.CommentBarChartVisualization;
 
@@ -145,6 +148,8 @@ public class AdminCommentsController implements Initializable {
     private ClubService clubService;
     private CommentStatsService statsService;
 
+    // Tous les commentaires, lus une fois puis tenus à jour par le bus de changements
+    private final List<Commentaire> allComments = new ArrayList<>();
     private ObservableList<Commentaire> commentsList = FXCollections.observableArrayList();
     private ObservableList<String> clubsList = FXCollections.observableArrayList();
 
@@ -180,6 +185,7 @@ public class AdminCommentsController implements Initializable {
         loadClubs();
         setupComboBoxCellFactory(clubFilterComboBox);
         setupComboBoxCellFactory(insightsClubComboBox);
+        loadAllComments();
         loadComments();
         setupPagination();
         setupEventHandlers();
@@ -202,6 +208,84 @@ public class AdminCommentsController implements Initializable {
                         updateBarChart();
                     }
                 });
+
+        // Table, stats and chart follow the changes without reading the table again
+        ChangeEventBus bus = ChangeEventBus.getInstance();
+        bus.subscribeWhileShowing(commentsTable, ChangeEventBus.Entity.COMMENTAIRE, this::onCommentChanged);
+        bus.subscribeWhileShowing(commentsTable, ChangeEventBus.Entity.SONDAGE, this::onPollChanged);
+    }
+
+    /**
+     * Lit tous les commentaires (au chargement de l'écran et sur refreshData)
+     */
+    private void loadAllComments() {
+        try {
+            allComments.clear();
+            allComments.addAll(commentaireService.getAllComments());
+        } catch (SQLException e) {
+            commentsTable.setPlaceholder(new Label("Error loading comments: " + e.getMessage()));
+            AlertUtils.showError("Error", "Unable to load comments: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Remplace, ajoute ou retire le commentaire modifié, puis met à jour l'écran
+     */
+    private void onCommentChanged(ChangeEventBus.ChangeEvent event) {
+        int index = -1;
+        for (int i = 0; i < allComments.size(); i++) {
+            if (allComments.get(i).getId() == event.getId()) {
+                index = i;
+                break;
+            }
+        }
+
+        try {
+            Commentaire commentaire = event.getOperation() == ChangeEventBus.Operation.DELETED ? null
+                    : commentaireService.getById(event.getId());
+            if (commentaire == null) {
+                if (index < 0) {
+                    return;
+                }
+                allComments.remove(index);
+            } else if (index >= 0 && Objects.equals(allComments.get(index).getDateComment(),
+                    commentaire.getDateComment())) {
+                allComments.set(index, commentaire);
+            } else {
+                if (index >= 0) {
+                    allComments.remove(index);
+                }
+                // Newest first, as read by getAllComments
+                int position = 0;
+                while (position < allComments.size() && allComments.get(position).getDateComment() != null
+                        && commentaire.getDateComment() != null
+                        && allComments.get(position).getDateComment().isAfter(commentaire.getDateComment())) {
+                    position++;
+                }
+                allComments.add(position, commentaire);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return;
+        }
+        commentsChanged();
+    }
+
+    /**
+     * A deleted poll takes its comments with it (ON DELETE CASCADE)
+     */
+    private void onPollChanged(ChangeEventBus.ChangeEvent event) {
+        if (event.getOperation() == ChangeEventBus.Operation.DELETED
+                && allComments.removeIf(c -> c.getSondage() != null && c.getSondage().getId() == event.getId())) {
+            commentsChanged();
+        }
+    }
+
+    private void commentsChanged() {
+        loadComments();
+        calculateStats();
+        updateBarChart();
     }
 
     private void setupTableColumns() {
@@ -370,8 +454,7 @@ public class AdminCommentsController implements Initializable {
                         } else {
                             // Check if the comment is flagged and highlight
                             Commentaire comment = getTableView().getItems().get(getIndex());
-                            if (comment.getContenuComment() != null &&
-                                    comment.getContenuComment().contains("⚠️")) {
+                            if (comment.isFlagged()) {
                                 // Visual indicator for flagged comments
                                 HBox container = new HBox(5);
                                 container.setAlignment(Pos.CENTER);
@@ -496,69 +579,50 @@ public class AdminCommentsController implements Initializable {
     }
 
     private void loadComments() {
-        try {
-            // Show a loading indicator (can be implemented later)
-            commentsTable.setPlaceholder(new Label("Loading comments..."));
-
-            List<Commentaire> comments;
-
-            // Get comments based on selected club
-            if ("All Clubs".equals(selectedClub) || selectedClub.equals("all")) {
-                // Get all comments
-                ObservableList<Commentaire> allComments = commentaireService.getAllComments();
-                comments = new ArrayList<>(allComments);
-                System.out.println("Loaded " + comments.size() + " comments (all clubs)");
-            } else {
-                // Filter by club name
-                ObservableList<Commentaire> allComments = commentaireService.getAllComments();
-                comments = allComments.stream()
-                        .filter(comment -> comment.getSondage() != null &&
-                                comment.getSondage().getClub() != null &&
-                                comment.getSondage().getClub().getNomC().equals(selectedClub))
-                        .collect(Collectors.toList());
-                System.out.println("Loaded " + comments.size() + " comments for club: " + selectedClub);
-            }
+        List<Commentaire> comments;
 
-            commentsList.clear();
-
-            if (comments.isEmpty()) {
-                commentsTable.setVisible(true);
-                commentsTable.setPlaceholder(new Label("No comments found for the selected filter"));
-                noCommentsContainer.setVisible(true);
-                paginationContainer.setVisible(false);
-            } else {
-                commentsTable.setVisible(true);
-                noCommentsContainer.setVisible(false);
-                paginationContainer.setVisible(true);
+        // Get comments based on selected club
+        if ("All Clubs".equals(selectedClub) || selectedClub.equals("all")) {
+            comments = allComments;
+        } else {
+            // Filter by club name
+            comments = allComments.stream()
+                    .filter(comment -> comment.getSondage() != null &&
+                            comment.getSondage().getClub() != null &&
+                            selectedClub.equals(comment.getSondage().getClub().getNomC()))
+                    .collect(Collectors.toList());
+        }
 
-                // Pagination
-                int fromIndex = (currentPage - 1) * PAGE_SIZE;
-                int toIndex = Math.min(fromIndex + PAGE_SIZE, comments.size());
+        commentsList.clear();
 
-                if (fromIndex <= toIndex) {
-                    commentsList.addAll(comments.subList(fromIndex, toIndex));
-                }
+        if (comments.isEmpty()) {
+            totalPages = 1;
+            commentsTable.setVisible(true);
+            commentsTable.setPlaceholder(new Label("No comments found for the selected filter"));
+            noCommentsContainer.setVisible(true);
+            paginationContainer.setVisible(false);
+        } else {
+            commentsTable.setVisible(true);
+            noCommentsContainer.setVisible(false);
+            paginationContainer.setVisible(true);
 
-                totalPages = (int) Math.ceil((double) comments.size() / PAGE_SIZE);
-            }
+            // Pagination (the last page may have been emptied by a deletion)
+            totalPages = (int) Math.ceil((double) comments.size() / PAGE_SIZE);
+            currentPage = Math.min(currentPage, totalPages);
+            int fromIndex = (currentPage - 1) * PAGE_SIZE;
+            int toIndex = Math.min(fromIndex + PAGE_SIZE, comments.size());
 
-            commentsTable.setItems(commentsList);
+            commentsList.addAll(comments.subList(fromIndex, toIndex));
+        }
 
-            // Update pagination
-            setupPagination();
+        commentsTable.setItems(commentsList);
 
-        } catch (SQLException e) {
-            commentsTable.setPlaceholder(new Label("Error loading comments: " + e.getMessage()));
-            AlertUtils.showError("Error", "Unable to load comments: " + e.getMessage());
-            e.printStackTrace();
-        }
+        // Update pagination
+        setupPagination();
     }
 
     private void calculateStats() {
         try {
-            // Récupérer tous les commentaires
-            List<Commentaire> allComments = commentaireService.getAllComments();
-
             // Calculer le nombre total de commentaires
             totalComments = allComments.size();
             totalCommentsLabel.setText(String.valueOf(totalComments));
@@ -570,14 +634,8 @@ public class AdminCommentsController implements Initializable {
                     .count();
             todayCommentsLabel.setText(String.valueOf(todayComments));
 
-            // Calculer le nombre de commentaires signalés (à implémenter selon votre
-            // logique métier)
-            // Pour l'exemple, on considère qu'un commentaire contenant le mot "hidden" est
-            // signalé
-            flaggedComments = (int) allComments.stream()
-                    .filter(c -> c.getContenuComment() != null
-                            && c.getContenuComment().toLowerCase().contains("hidden"))
-                    .count();
+            // Commentaires signalés : statut de modération FLAGGED (compteur du tableau de bord)
+            flaggedComments = commentaireService.getFlaggedComments();
             flaggedCommentsLabel.setText(String.valueOf(flaggedComments));
 
             // Trouver l'utilisateur le plus actif
@@ -763,9 +821,8 @@ public class AdminCommentsController implements Initializable {
             // Show dialog and process result
             if (confirmDialog.showAndWait().filter(response -> response == ButtonType.OK).isPresent()) {
                 commentaireService.delete(commentaire.getId());
+                // Table and stats are updated by onCommentChanged
                 showToast("Comment deleted successfully", "success");
-                loadComments();
-                calculateStats();
             }
         } catch (SQLException e) {
             showToast("Error deleting comment: " + e.getMessage(), "error");
@@ -821,6 +878,7 @@ public class AdminCommentsController implements Initializable {
 
     // Méthode pour rafraîchir les données
     public void refreshData() {
+        loadAllComments();
         loadComments();
         calculateStats();
         setupPagination();
@@ -1082,6 +1140,18 @@ profileBtn.setOnAction(event -> {
         }
     }
 
+    @FXML
+    private void exportCsv() {
+        ExportRunner.run(commentsTable.getScene().getWindow(), ExportService.getInstance().comments(),
+                ExportService.Format.CSV, "commentaires");
+    }
+
+    @FXML
+    private void exportPdf() {
+        ExportRunner.run(commentsTable.getScene().getWindow(), ExportService.getInstance().comments(),
+                ExportService.Format.PDF, "commentaires");
+    }
+
     private void showAlert(String title, String header, String content) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle(title);
@@ -1128,13 +1198,12 @@ profileBtn.setOnAction(event -> {
         insightsLoadingLabel.setText("Chargement des données...");
         insightsLoadingLabel.setVisible(true);
 
+        // Comments as of now; the list itself is only changed on the JavaFX thread
+        List<Commentaire> allComments = new ArrayList<>(this.allComments);
+
         // Run in background thread to avoid freezing UI
         new Thread(() -> {
             try {
-                // Get all comments to be processed
-                List<Commentaire> allComments = commentaireService.getAllComments();
-                System.out.println("Total comments retrieved: " + allComments.size());
-
                 // Filter comments for the selected club if necessary
                 List<Commentaire> filteredComments;
                 if (selectedClub == null || selectedClub.equals("all")) {
@@ -45,11 +45,13 @@ import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import com.itbs.services.AuthService;
+import com.itbs.services.ChangeEventBus;
+import com.itbs.services.ExportService;
 import com.itbs.services.UserService;
+import com.itbs.utils.ExportRunner;
 import com.itbs.utils.ProfanityLogManager;
 import com.itbs.MainApp;
 import com.itbs.utils.SessionManager;
-import javafx.application.Platform;
 
 public class AdminDashboardController {
 
@@ -173,6 +175,8 @@ public class AdminDashboardController {
     private final AuthService authService = new AuthService();
     private UserService userService;
     private User currentUser;
+    // User shown in the details view
+    private User detailedUser;
     private ObservableList<User> usersList = FXCollections.observableArrayList();
     private FilteredList<User> filteredUsers;
 
@@ -230,8 +234,10 @@ public class AdminDashboardController {
                 createUserButton.setManaged(false);
             }
 
-            // Load initial data
+            // Load initial data, then follow the changes row by row
             loadUserData();
+            ChangeEventBus.getInstance().subscribeWhileShowing(usersTable, ChangeEventBus.Entity.USER,
+                    this::onUserChanged);
 
             // Setup search field event handler
             searchField.textProperty().addListener((observable, oldValue, newValue) -> {
@@ -340,6 +346,18 @@ public class AdminDashboardController {
         applyFilters();
     }
 
+    @FXML
+    private void handleExportCsv() {
+        ExportRunner.run(usersTable.getScene().getWindow(), ExportService.getInstance().users(),
+                ExportService.Format.CSV, "utilisateurs");
+    }
+
+    @FXML
+    private void handleExportPdf() {
+        ExportRunner.run(usersTable.getScene().getWindow(), ExportService.getInstance().users(),
+                ExportService.Format.PDF, "utilisateurs");
+    }
+
     private void setupUserManagementView() {
         // Set column value factories
         idColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
@@ -515,64 +533,15 @@ public class AdminDashboardController {
         Optional<ButtonType> result = confirmDialog.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
             try {
-                // Store user ID to locate them after reload
-                int userId = user.getId();
-
                 // Update user status in memory
                 user.setStatus(newStatus);
 
-                // Update in database
+                // Update in database; the row is refreshed by onUserChanged
                 userService.modifier(user);
 
-                // Reload all user data from database
-                List<User> updatedUsers = userService.recuperer();
-                usersList.clear();
-                for (User u : updatedUsers) {
-                    if (!"ADMINISTRATEUR".equals(u.getRole().toString())) {
-                        usersList.add(u);
-                    }
-                }
-
-                // Create a fresh filtered list
-                filteredUsers = new FilteredList<>(usersList, p -> true);
-
-                // Apply current search filter if any
-                String currentSearch = searchField.getText();
-                if (currentSearch != null && !currentSearch.isEmpty()) {
-                    String lowerCaseFilter = currentSearch.toLowerCase();
-                    filteredUsers.setPredicate(u -> {
-                        return u.getFirstName().toLowerCase().contains(lowerCaseFilter) ||
-                                u.getLastName().toLowerCase().contains(lowerCaseFilter) ||
-                                u.getEmail().toLowerCase().contains(lowerCaseFilter) ||
-                                (u.getPhone() != null && u.getPhone().toLowerCase().contains(lowerCaseFilter));
-                    });
-                }
-
-                // Find the page containing the updated user
-                User updatedUser = null;
-                int userIndex = -1;
-                for (int i = 0; i < filteredUsers.size(); i++) {
-                    if (filteredUsers.get(i).getId() == userId) {
-                        updatedUser = filteredUsers.get(i);
-                        userIndex = i;
-                        break;
-                    }
-                }
-
-                // Calculate which page contains this user
-                if (userIndex >= 0) {
-                    currentPage = userIndex / ROWS_PER_PAGE;
-                }
-
-                // Update pagination and force UI refresh
-                updatePagination();
-
-                // Explicitly refresh the table
-                usersTable.refresh();
-
                 // If in details view, update the details content
-                if (userDetailsView.isVisible() && updatedUser != null) {
-                    showUserDetails(updatedUser);
+                if (userDetailsView.isVisible()) {
+                    showUserDetails(user);
                 }
 
                 // Updated success message to match new terminology
@@ -607,11 +576,9 @@ public class AdminDashboardController {
         Optional<ButtonType> result = confirmDialog.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
             try {
+                // The row is removed by onUserChanged
                 userService.supprimer(user);
 
-                // Refresh the table
-                loadUserData();
-
                 showAlert("Success", "User Deleted",
                         "User " + user.getFirstName() + " " + user.getLastName() +
                                 " has been deleted successfully.");
@@ -627,6 +594,7 @@ public class AdminDashboardController {
     private void showUserDetails(User user) {
         if (user == null)
             return;
+        detailedUser = user;
 
         // Update content title
         contentTitle.setText("User Details: " + user.getFirstName() + " " + user.getLastName());
@@ -995,31 +963,7 @@ public class AdminDashboardController {
 
             // Apply default filter (excludes admin users from view)
             applyFilters();
-
-            // Gather statistics for info cards
-            int totalUsers = (int) usersList.stream()
-                    .filter(u -> !"ADMINISTRATEUR".equals(u.getRole().toString()))
-                    .count();
-
-            int activeUsers = (int) usersList.stream()
-                    .filter(u -> !"ADMINISTRATEUR".equals(u.getRole().toString()) && 
-                           "active".equalsIgnoreCase(u.getStatus()))
-                    .count();
-
-            int unverifiedUsers = (int) usersList.stream()
-                    .filter(u -> !"ADMINISTRATEUR".equals(u.getRole().toString()) && 
-                           !u.isVerified())
-                    .count();
-
-            // Update the stat cards with current counts
-            Platform.runLater(() -> {
-                totalUsersLabel.setText(String.valueOf(totalUsers));
-                activeUsersLabel.setText(String.valueOf(activeUsers));
-                unverifiedUsersLabel.setText(String.valueOf(unverifiedUsers));
-                
-                // Make sure the labels have the correct titles
-                updateStatCardLabels();
-            });
+            updateStatCards();
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -1027,6 +971,70 @@ public class AdminDashboardController {
         }
     }
 
+    /**
+     * Patches the row of a created, updated or deleted user (change bus)
+     */
+    private void onUserChanged(ChangeEventBus.ChangeEvent event) {
+        int index = -1;
+        for (int i = 0; i < usersList.size(); i++) {
+            if (usersList.get(i).getId() == event.getId()) {
+                index = i;
+                break;
+            }
+        }
+
+        User user = event.getOperation() == ChangeEventBus.Operation.DELETED ? null
+                : userService.getById(event.getId());
+        if (user == null) {
+            if (index >= 0) {
+                usersList.remove(index);
+            }
+        } else if (index >= 0) {
+            // Also re-evaluates the filters for this row
+            usersList.set(index, user);
+        } else {
+            usersList.add(user);
+        }
+
+        // Same page, refreshed
+        updatePagination();
+        usersTable.refresh();
+        updateStatCards();
+
+        if (userDetailsView.isVisible() && detailedUser != null && detailedUser.getId() == event.getId()) {
+            if (user != null) {
+                showUserDetails(user);
+            } else {
+                showUserManagement();
+            }
+        }
+    }
+
+    private void updateStatCards() {
+        // Gather statistics for info cards
+        int totalUsers = (int) usersList.stream()
+                .filter(u -> !"ADMINISTRATEUR".equals(u.getRole().toString()))
+                .count();
+
+        int activeUsers = (int) usersList.stream()
+                .filter(u -> !"ADMINISTRATEUR".equals(u.getRole().toString()) &&
+                       "active".equalsIgnoreCase(u.getStatus()))
+                .count();
+
+        int unverifiedUsers = (int) usersList.stream()
+                .filter(u -> !"ADMINISTRATEUR".equals(u.getRole().toString()) &&
+                       !u.isVerified())
+                .count();
+
+        // Update the stat cards with current counts
+        totalUsersLabel.setText(String.valueOf(totalUsers));
+        activeUsersLabel.setText(String.valueOf(activeUsers));
+        unverifiedUsersLabel.setText(String.valueOf(unverifiedUsers));
+
+        // Make sure the labels have the correct titles
+        updateStatCardLabels();
+    }
+
     @FXML
     private void showCreateUser() {
         // Show a placeholder alert for now
@@ -1056,8 +1064,8 @@ public class AdminDashboardController {
             node.setManaged(isUserManagementView);
         });
 
-        // Refresh user data
-        loadUserData();
+        // The table is kept up to date by onUserChanged
+        updatePagination();
     }
 
     // Method to update the labels of the stat cards
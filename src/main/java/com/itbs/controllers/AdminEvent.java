@@ -7,8 +7,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
@@ -16,8 +20,12 @@ import com.itbs.MainApp;
 import com.itbs.models.Evenement;
 import com.itbs.models.User;
 import com.itbs.models.enums.RoleEnum;
+import com.itbs.services.ReferenceDataCache;
 import com.itbs.services.ServiceEvent;
+import com.itbs.services.ServiceParticipation;
+import com.itbs.services.ServiceParticipation.ParticipationSummary;
 import com.itbs.utils.DataSource;
+import com.itbs.utils.ReferenceDataBinding;
 import com.itbs.utils.SessionManager;
 
 import javafx.collections.FXCollections;
@@ -88,6 +96,9 @@ public class AdminEvent implements Initializable {
     private Label adminNameLabel;
 
     private ServiceEvent serviceEvent;
+    private final ServiceParticipation serviceParticipation = new ServiceParticipation();
+    // Participant count per event id, loaded with the list in one grouped query
+    private Map<Integer, ParticipationSummary> participationSummaries = new HashMap<>();
     private ObservableList<Evenement> eventsList = FXCollections.observableArrayList();
     private SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy");
 
@@ -130,14 +141,13 @@ public class AdminEvent implements Initializable {
 
     private void initializeFilters() {
         // Category filter
-        categoryFilter.getItems().add("All Categories");
-        categoryFilter.getItems().addAll(serviceEvent.getAllCategoriesNames());
+        ReferenceDataBinding.bind(categoryFilter, ReferenceDataCache.getInstance().observeCategoryNames(),
+                "All Categories");
         categoryFilter.setValue("All Categories");
         categoryFilter.setOnAction(e -> applyFilters());
 
         // Club filter
-        clubFilter.getItems().add("All Clubs");
-        clubFilter.getItems().addAll(serviceEvent.getAllClubsNames());
+        ReferenceDataBinding.bind(clubFilter, ReferenceDataCache.getInstance().observeClubNames(), "All Clubs");
         clubFilter.setValue("All Clubs");
         clubFilter.setOnAction(e -> applyFilters());
 
@@ -221,7 +231,10 @@ content.maxWidthProperty().bind(eventListView.widthProperty().subtract(30));
 
                     String categoryName = serviceEvent.getCategoryNameById(event.getCategorie_id());
                     String clubName = serviceEvent.getClubNameById(event.getClub_id());
-                    detailsLabel.setText(categoryName + " • " + clubName + " • " + event.getLieux());
+                    int participants = participationSummaries
+                            .getOrDefault(event.getId(), ParticipationSummary.EMPTY).getParticipantCount();
+                    detailsLabel.setText(categoryName + " • " + clubName + " • " + event.getLieux() +
+                            " • " + participants + " participant" + (participants > 1 ? "s" : ""));
 
                     // Format dates
                     dateLabel.setText(dateFormat.format(event.getStart_date()) + " - " +
@@ -269,6 +282,14 @@ content.maxWidthProperty().bind(eventListView.widthProperty().subtract(30));
                 eventsList.add(event);
             }
 
+            List<Integer> eventIds = new ArrayList<>();
+            for (Evenement event : eventsList) {
+                eventIds.add(event.getId());
+            }
+            User user = SessionManager.getInstance().getCurrentUser();
+            participationSummaries = serviceParticipation.getParticipationSummaries(
+                    eventIds, user != null ? user.getId() : 0);
+
             eventListView.setItems(eventsList);
             updateStatistics();
 
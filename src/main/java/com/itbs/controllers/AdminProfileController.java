@@ -13,6 +13,7 @@ import com.itbs.models.User;
 import com.itbs.services.AuthService;
 import com.itbs.services.EmailService;
 import com.itbs.utils.SessionManager;
+import com.itbs.services.UploadStore;
 
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
@@ -437,16 +438,10 @@ public class AdminProfileController {
                 showLoading("Validating image content with AI...");
                 changeImageBtn.setDisable(true);
                 
-                // Create a unique file for this validation attempt to prevent caching issues
-                File tempFile = new File(selectedFile.getAbsolutePath() + "_" + System.currentTimeMillis());
-                Files.copy(selectedFile.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                
-                com.itbs.utils.AiContentValidator.validateImageAsync(tempFile, new com.itbs.utils.AiContentValidator.ValidationCallback() {
+                // Validation results are cached by content hash, the same image is not sent twice
+                com.itbs.utils.AiContentValidator.validateImageAsync(selectedFile, new com.itbs.utils.AiContentValidator.ValidationCallback() {
                     @Override
                     public void onValidationComplete(boolean isValid, String message) {
-                        // Delete temp file
-                        tempFile.delete();
-                        
                         // Re-enable button
                         changeImageBtn.setDisable(false);
                         
@@ -502,20 +497,19 @@ public class AdminProfileController {
                                 directory.mkdirs();
                             }
                             
-                            // Generate unique filename
-                            String fileName = currentUser.getId() + "_" + System.currentTimeMillis() + 
-                                            selectedFile.getName().substring(selectedFile.getName().lastIndexOf("."));
-                            
-                            // Copy file to uploads directory
-                            Path sourcePath = selectedFile.toPath();
+                            // Store under the content hash (an identical picture is stored once)
+                            String previousPicture = currentUser.getProfilePicture();
+                            String fileName = UploadStore.getInstance().store(selectedFile, UploadStore.Area.PROFILES);
                             Path targetPath = Paths.get(UPLOADS_DIRECTORY + fileName);
-                            Files.copy(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
-                            
+
                             // Update user profile picture in database
                             currentUser.setProfilePicture(fileName);
                             boolean updateSuccess = authService.updateUserProfile(currentUser);
                             
                             if (updateSuccess) {
+                                // The old picture is released only once the user row points to the new one
+                                UploadStore.getInstance().release(UploadStore.Area.PROFILES, previousPicture);
+
                                 // Update image in UI
                                 Image image = new Image(targetPath.toUri().toString());
                                 profileImageView.setImage(image);
@@ -523,6 +517,8 @@ public class AdminProfileController {
                                 // Show success message
                                 showSuccess("Profile picture updated successfully");
                             } else {
+                                currentUser.setProfilePicture(previousPicture);
+                                UploadStore.getInstance().release(UploadStore.Area.PROFILES, fileName);
                                 showError("Failed to update profile picture in database");
                             }
                         } catch (IOException e) {
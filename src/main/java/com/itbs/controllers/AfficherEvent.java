@@ -12,9 +12,15 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import com.itbs.models.Evenement;
+import com.itbs.services.ReferenceDataCache;
+import com.itbs.services.SearchService;
 import com.itbs.services.ServiceEvent;
+import com.itbs.services.ServiceParticipation;
+import com.itbs.services.ServiceParticipation.ParticipationSummary;
 import com.itbs.MainApp;
 import com.itbs.models.User;
+import com.itbs.utils.ImageCache;
+import com.itbs.utils.ReferenceDataBinding;
 import com.itbs.utils.SessionManager;
 
 import java.io.File;
@@ -26,7 +32,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 import com.itbs.utils.DataSource;
 import javafx.stage.Stage;
@@ -88,6 +97,7 @@ public class AfficherEvent implements Initializable {
     private VBox clubsDropdown;
 
     private ServiceEvent serviceEvent;
+    private final ServiceParticipation serviceParticipation = new ServiceParticipation();
     private List<Evenement> allEvents;
     private User currentUser; // Added for user profile
 
@@ -151,22 +161,11 @@ public class AfficherEvent implements Initializable {
             // Set user name
             userNameLabel.setText(currentUser.getFirstName() + " " + currentUser.getLastName());
 
-            // Load profile picture
-            String profilePicture = currentUser.getProfilePicture();
-            if (profilePicture != null && !profilePicture.isEmpty()) {
-                try {
-                    File imageFile = new File("uploads/profiles/" + profilePicture);
-                    if (imageFile.exists()) {
-                        Image image = new Image(imageFile.toURI().toString());
-                        userProfilePic.setImage(image);
-                    } else {
-                        loadDefaultProfilePic();
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    loadDefaultProfilePic();
-                }
-            } else {
+            // Load profile picture (background decode, default picture meanwhile)
+            try {
+                ImageCache.getInstance().loadProfilePicture(userProfilePic, currentUser.getProfilePicture(), 45);
+            } catch (Exception e) {
+                e.printStackTrace();
                 loadDefaultProfilePic();
             }
 
@@ -181,12 +180,7 @@ public class AfficherEvent implements Initializable {
      * Added method from HomeController integration
      */
     private void loadDefaultProfilePic() {
-        try {
-            Image defaultImage = new Image(getClass().getResourceAsStream("/com/itbs/images/default-profile.png"));
-            userProfilePic.setImage(defaultImage);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        userProfilePic.setImage(ImageCache.getInstance().getPlaceholder(ImageCache.DEFAULT_PROFILE));
     }
 
     @FXML
@@ -443,13 +437,23 @@ public class AfficherEvent implements Initializable {
     private void displayEvents(List<Evenement> events) {
         eventsContainer.getChildren().clear();
 
+        // Participants and registration of the connected user for the whole page, one query
+        List<Integer> eventIds = new ArrayList<>();
+        for (Evenement event : events) {
+            eventIds.add(event.getId());
+        }
+        User user = SessionManager.getInstance().getCurrentUser();
+        Map<Integer, ParticipationSummary> summaries = serviceParticipation.getParticipationSummaries(
+                eventIds, user != null ? user.getId() : 0);
+
         for (Evenement event : events) {
-            VBox eventCard = createEventCard(event);
+            VBox eventCard = createEventCard(event,
+                    summaries.getOrDefault(event.getId(), ParticipationSummary.EMPTY));
             eventsContainer.getChildren().add(eventCard);
         }
     }
 
-    private VBox createEventCard(Evenement event) {
+    private VBox createEventCard(Evenement event, ParticipationSummary participation) {
         // Debug logging to help understand event image paths
         System.out.println("==========================================");
         System.out.println("Creating card for event ID: " + event.getId());
@@ -576,6 +580,25 @@ public class AfficherEvent implements Initializable {
 
         locationBox.getChildren().addAll(locationIconLabel, locationTextLabel);
 
+        // Participants display
+        HBox participantsBox = new HBox();
+        participantsBox.setAlignment(javafx.geometry.Pos.CENTER_LEFT);
+        participantsBox.setSpacing(5);
+
+        int participantCount = participation.getParticipantCount();
+        Label participantsLabel = new Label("👥 " + participantCount + " participant" + (participantCount > 1 ? "s" : ""));
+        participantsLabel.setStyle("-fx-text-fill: #666666;");
+        participantsLabel.setFont(new javafx.scene.text.Font("Arial", 13));
+        participantsBox.getChildren().add(participantsLabel);
+
+        if (participation.isRegistered()) {
+            Label registeredLabel = new Label("✓ Registered");
+            registeredLabel.setStyle(
+                    "-fx-background-color: #e6f7e6; -fx-text-fill: #2e8b57; -fx-background-radius: 10; -fx-padding: 2 8;");
+            registeredLabel.setFont(new javafx.scene.text.Font("Arial Bold", 12));
+            participantsBox.getChildren().add(registeredLabel);
+        }
+
         // Buttons
         HBox buttonsBox = new HBox();
         buttonsBox.setAlignment(javafx.geometry.Pos.CENTER);
@@ -617,6 +640,7 @@ public class AfficherEvent implements Initializable {
                 descriptionLabel,
                 dateBox,
                 locationBox,
+                participantsBox,
                 buttonsBox);
 
         // Add image and details to event card
@@ -667,16 +691,6 @@ public class AfficherEvent implements Initializable {
 
     private void setupFilters() {
         // Initialize ComboBox items if they're null
-        if (categoryFilter.getItems() == null || categoryFilter.getItems().isEmpty()) {
-            categoryFilter.getItems().add("All Categories");
-            categoryFilter.setValue("All Categories");
-        }
-
-        if (clubFilter.getItems() == null || clubFilter.getItems().isEmpty()) {
-            clubFilter.getItems().add("All Clubs");
-            clubFilter.setValue("All Clubs");
-        }
-
         if (dateFilter.getItems() == null || dateFilter.getItems().isEmpty()) {
             dateFilter.getItems().addAll(
                     "All Dates",
@@ -688,47 +702,14 @@ public class AfficherEvent implements Initializable {
             dateFilter.setValue("All Dates");
         }
 
-        // Setup Category Filter
-        try {
-            Connection conn = DataSource.getInstance().getCnx();
-
-            // Populate category filter
-            List<String> categories = new ArrayList<>();
-            categories.add("All Categories"); // Default option
-
-            // Use your existing method to get categories, but check the column name
-            String categoryQuery = "SELECT nom_cat FROM categorie ORDER BY nom_cat";
-            PreparedStatement categoryPst = conn.prepareStatement(categoryQuery);
-            ResultSet categoryRs = categoryPst.executeQuery();
-
-            while (categoryRs.next()) {
-                categories.add(categoryRs.getString("nom_cat"));
-            }
-
-            categoryFilter.getItems().clear();
-            categoryFilter.getItems().addAll(categories);
-            categoryFilter.setValue("All Categories");
-
-            // Populate club filter
-            List<String> clubs = new ArrayList<>();
-            clubs.add("All Clubs"); // Default option
-
-            // Use your existing method to get clubs, but check the column name
-            String clubQuery = "SELECT nom_c FROM club ORDER BY nom_c";
-            PreparedStatement clubPst = conn.prepareStatement(clubQuery);
-            ResultSet clubRs = clubPst.executeQuery();
-
-            while (clubRs.next()) {
-                clubs.add(clubRs.getString("nom_c"));
-            }
-
-            clubFilter.getItems().clear();
-            clubFilter.getItems().addAll(clubs);
-            clubFilter.setValue("All Clubs");
-
-        } catch (SQLException ex) {
-            System.err.println("Error setting up filters: " + ex.getMessage());
-        }
+        // Setup Category and Club Filters (sorted by name, refreshed when categories or clubs change)
+        ReferenceDataCache referenceData = ReferenceDataCache.getInstance();
+        ReferenceDataBinding.bind(categoryFilter,
+                referenceData.observeCategoryNames().sorted(String.CASE_INSENSITIVE_ORDER), "All Categories");
+        categoryFilter.setValue("All Categories");
+        ReferenceDataBinding.bind(clubFilter,
+                referenceData.observeClubNames().sorted(String.CASE_INSENSITIVE_ORDER), "All Clubs");
+        clubFilter.setValue("All Clubs");
     }
 
     private void addFilterListeners() {
@@ -747,7 +728,7 @@ public class AfficherEvent implements Initializable {
 
     private void applyFilters() {
         // Get filter values
-        String searchText = searchField.getText().toLowerCase().trim();
+        String searchText = searchField.getText().trim();
         String categoryValue = categoryFilter.getValue();
         String clubValue = clubFilter.getValue();
         String dateValue = dateFilter.getValue();
@@ -779,11 +760,15 @@ public class AfficherEvent implements Initializable {
             filteredEvents = filterEventsByDate(filteredEvents, dateValue);
         }
 
-        // Apply search text if not empty
-        if (!searchText.isEmpty()) {
-            filteredEvents.removeIf(event -> !event.getNom_event().toLowerCase().contains(searchText) &&
-                    !event.getDesc_event().toLowerCase().contains(searchText) &&
-                    !event.getLieux().toLowerCase().contains(searchText));
+        // Apply search text: ranked ids from the text index (name, description, location)
+        if (SearchService.hasQuery(searchText)) {
+            List<Integer> ids = SearchService.getInstance().search(SearchService.Domain.EVENEMENT, searchText, 0);
+            Map<Integer, Integer> rank = new HashMap<>();
+            for (int i = 0; i < ids.size(); i++) {
+                rank.put(ids.get(i), i);
+            }
+            filteredEvents.removeIf(event -> !rank.containsKey(event.getId()));
+            filteredEvents.sort(Comparator.comparing(event -> rank.get(event.getId())));
         }
 
         // Update allEvents with filtered list
@@ -926,19 +911,7 @@ public class AfficherEvent implements Initializable {
 
     // Helper method for loading default image
     private void loadDefaultImage(ImageView imageView) {
-        try {
-            URL defaultImageUrl = getClass().getResource("/images/default-profile.png");
-            if (defaultImageUrl != null) {
-                Image defaultImage = new Image(defaultImageUrl.toString());
-                imageView.setImage(defaultImage);
-                System.out.println("Loaded default image");
-            } else {
-                System.err.println("Default image not found in resources");
-            }
-        } catch (Exception e) {
-            System.err.println("Error loading default image: " + e.getMessage());
-            e.printStackTrace();
-        }
+        imageView.setImage(ImageCache.getInstance().getPlaceholder(ImageCache.DEFAULT_EVENT));
     }
     
     // Image setup methods for event cards
@@ -975,8 +948,9 @@ public class AfficherEvent implements Initializable {
                     File imageFile = new File(path);
                     if (imageFile.exists() && imageFile.isFile() && imageFile.length() > 0) {
                         try {
-                            Image image = new Image(imageFile.toURI().toString());
-                            imageView.setImage(image);
+                            // Decoded in the background at card size
+                            ImageCache.getInstance().loadInto(imageView, imageFile, 300, 180,
+                                    ImageCache.getInstance().getPlaceholder(ImageCache.DEFAULT_EVENT));
                             System.out.println("SUCCESS: Loaded image from: " + path);
                             imageLoaded = true;
                             break; // Exit the loop if successful
@@ -1001,8 +975,8 @@ public class AfficherEvent implements Initializable {
                         File symFile = new File("uploads/images/" + symFilename);
                         if (symFile.exists() && symFile.isFile() && symFile.length() > 0) {
                             try {
-                                Image image = new Image(symFile.toURI().toString());
-                                imageView.setImage(image);
+                                ImageCache.getInstance().loadInto(imageView, symFile, 300, 180,
+                                        ImageCache.getInstance().getPlaceholder(ImageCache.DEFAULT_EVENT));
                                 System.out.println("SUCCESS: Loaded Symfony image from: " + symFile.getPath());
                                 imageLoaded = true;
                             } catch (Exception e) {
@@ -2,6 +2,7 @@ package com.itbs.controllers;
 
 import com.itbs.MainApp;
 import com.itbs.models.User;
+import com.itbs.utils.ReferenceDataBinding;
 import com.itbs.utils.SessionManager;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -15,10 +16,11 @@ import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
-import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import com.itbs.models.Evenement;
+import com.itbs.services.ReferenceDataCache;
 import com.itbs.services.ServiceEvent;
+import com.itbs.services.UploadStore;
 
 import java.io.File;
 import java.io.IOException;
@@ -149,14 +151,13 @@ public class AjouterEvent implements Initializable {
         control.setStyle("");
     }
 
+    // Listes mises à jour automatiquement quand une catégorie ou un club change
     private void loadCategories() {
-        ObservableList<String> categories = serviceEvent.getAllCategoriesNames();
-        categorie_combo.setItems(categories);
+        ReferenceDataBinding.bind(categorie_combo, ReferenceDataCache.getInstance().observeCategoryNames(), null);
     }
 
     private void loadClubs() {
-        ObservableList<String> clubs = serviceEvent.getAllClubsNames();
-        club_combo.setItems(clubs);
+        ReferenceDataBinding.bind(club_combo, ReferenceDataCache.getInstance().observeClubNames(), null);
     }
 
     @FXML
@@ -337,7 +338,9 @@ public class AjouterEvent implements Initializable {
 
             // Gestion de l'image si une image a été sélectionnée
             if (selectedImagePath != null && !selectedImagePath.isEmpty()) {
-                e.setImage_description(selectedImagePath);
+                // Copie dédupliquée dans uploads/images (nom = empreinte du contenu)
+                String storedName = UploadStore.getInstance().store(new File(selectedImagePath), UploadStore.Area.IMAGES);
+                e.setImage_description(UploadStore.Area.IMAGES.toColumnValue(storedName));
             }
 
             // Ajouter l'événement
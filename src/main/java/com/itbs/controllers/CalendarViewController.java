@@ -12,15 +12,13 @@ import javafx.scene.text.FontWeight;
 import javafx.scene.paint.Color;
 
 import com.itbs.models.Evenement;
+import com.itbs.services.ReferenceDataCache;
 import com.itbs.services.ServiceEvent;
-import com.itbs.utils.DataSource;
+import com.itbs.utils.IntervalIndex;
+import com.itbs.utils.ReferenceDataBinding;
 
 import java.io.IOException;
 import java.net.URL;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
@@ -64,15 +62,21 @@ public class CalendarViewController implements Initializable {
     private ComboBox<String> clubFilter;
 
     private YearMonth currentYearMonth;
-    private Map<LocalDate, List<Evenement>> eventsByDate;
+    // Events of the loaded window [loadedFrom, loadedTo], queried by day
+    private IntervalIndex<Evenement> eventIndex;
+    private LocalDate loadedFrom;
+    private LocalDate loadedTo;
     private ServiceEvent serviceEvent;
 
+    private static final int GRID_DAYS = 42;
+    // Months loaded on each side of the visible one
+    private static final int PREFETCH_MONTHS = 1;
+
     @Override
     public void initialize(URL url, ResourceBundle rb) {
         // Initialize the service and current date
         serviceEvent = new ServiceEvent();
         currentYearMonth = YearMonth.now();
-        eventsByDate = new HashMap<>();
 
         // Set up UI components
         setupWeekdaysHeader();
@@ -88,8 +92,7 @@ public class CalendarViewController implements Initializable {
         categoryFilter.valueProperty().addListener((obs, oldVal, newVal) -> refreshCalendar());
         clubFilter.valueProperty().addListener((obs, oldVal, newVal) -> refreshCalendar());
 
-        // Load all events and populate calendar
-        loadEvents();
+        // Load the events around the current month and populate calendar
         populateCalendar();
     }
 
@@ -108,76 +111,60 @@ public class CalendarViewController implements Initializable {
     }
 
     private void setupFilters() {
-        // Set up category filter
-        categoryFilter.getItems().add("All Categories");
-        categoryFilter.getItems().addAll(serviceEvent.getAllCategoriesNames());
+        // Set up category and club filters, refreshed when categories or clubs change
+        ReferenceDataCache referenceData = ReferenceDataCache.getInstance();
+        ReferenceDataBinding.bind(categoryFilter, referenceData.observeCategoryNames(), "All Categories");
         categoryFilter.setValue("All Categories");
-
-        // Set up club filter
-        clubFilter.getItems().add("All Clubs");
-        clubFilter.getItems().addAll(serviceEvent.getAllClubsNames());
+        ReferenceDataBinding.bind(clubFilter, referenceData.observeClubNames(), "All Clubs");
         clubFilter.setValue("All Clubs");
     }
 
+    // Loads the events overlapping the visible grid and the adjacent months, unless already loaded
+    private void ensureEventsLoaded() {
+        LocalDate visibleFrom = gridStart(currentYearMonth);
+        LocalDate visibleTo = visibleFrom.plusDays(GRID_DAYS - 1);
+        if (eventIndex != null && !visibleFrom.isBefore(loadedFrom) && !visibleTo.isAfter(loadedTo)) {
+            return;
+        }
+        loadedFrom = gridStart(currentYearMonth.minusMonths(PREFETCH_MONTHS));
+        loadedTo = gridStart(currentYearMonth.plusMonths(PREFETCH_MONTHS)).plusDays(GRID_DAYS - 1);
+        loadEvents();
+    }
+
     private void loadEvents() {
-        try {
-            Connection conn = DataSource.getInstance().getCnx();
-            String categoryCondition = "";
-            String clubCondition = "";
-
-            // Apply category filter if selected
-            if (categoryFilter.getValue() != null && !categoryFilter.getValue().equals("All Categories")) {
-                int categoryId = serviceEvent.getCategorieIdByName(categoryFilter.getValue());
-                categoryCondition = " AND categorie_id = " + categoryId;
-            }
+        int categoryId = 0;
+        int clubId = 0;
 
-            // Apply club filter if selected
-            if (clubFilter.getValue() != null && !clubFilter.getValue().equals("All Clubs")) {
-                int clubId = serviceEvent.getClubIdByName(clubFilter.getValue());
-                clubCondition = " AND club_id = " + clubId;
-            }
+        // Apply category filter if selected
+        if (categoryFilter.getValue() != null && !categoryFilter.getValue().equals("All Categories")) {
+            categoryId = serviceEvent.getCategorieIdByName(categoryFilter.getValue());
+        }
 
-            String query = "SELECT * FROM evenement WHERE 1=1" + categoryCondition + clubCondition + " ORDER BY start_date";
-            PreparedStatement pst = conn.prepareStatement(query);
-            ResultSet rs = pst.executeQuery();
-
-            // Clear existing events
-            eventsByDate.clear();
-
-            while (rs.next()) {
-                Evenement event = new Evenement();
-                event.setId(rs.getInt("id"));
-                event.setNom_event(rs.getString("nom_event"));
-                event.setType(rs.getString("type"));
-                event.setDesc_event(rs.getString("desc_event"));
-                event.setImage_description(rs.getString("image_description"));
-                event.setLieux(rs.getString("lieux"));
-                event.setClub_id(rs.getInt("club_id"));
-                event.setCategorie_id(rs.getInt("categorie_id"));
-                event.setStart_date(rs.getDate("start_date"));
-                event.setEnd_date(rs.getDate("end_date"));
-
-                // Convert java.sql.Date to LocalDate
-                // Convert java.sql.Date to LocalDate
-                LocalDate startDate = event.getStart_date() != null ?
-                        LocalDate.parse(event.getStart_date().toString()) : null;
-                LocalDate endDate = event.getEnd_date() != null ?
-                        LocalDate.parse(event.getEnd_date().toString()) : null;
-
-                // Add event to all dates in its range
-                LocalDate date = startDate;
-                while (!date.isAfter(endDate)) {
-                    if (!eventsByDate.containsKey(date)) {
-                        eventsByDate.put(date, new ArrayList<>());
-                    }
-                    eventsByDate.get(date).add(event);
-                    date = date.plusDays(1);
-                }
-            }
+        // Apply club filter if selected
+        if (clubFilter.getValue() != null && !clubFilter.getValue().equals("All Clubs")) {
+            clubId = serviceEvent.getClubIdByName(clubFilter.getValue());
+        }
+
+        List<Evenement> events = serviceEvent.getEventsOverlapping(loadedFrom, loadedTo, categoryId, clubId);
+        eventIndex = new IntervalIndex<>(events,
+                event -> toLocalDate(event.getStart_date()),
+                event -> toLocalDate(event.getEnd_date()));
+    }
 
-        } catch (SQLException ex) {
-            System.err.println("Error loading events for calendar: " + ex.getMessage());
+    private static LocalDate toLocalDate(Date date) {
+        if (date == null) {
+            return null;
+        }
+        if (date instanceof java.sql.Date) {
+            return ((java.sql.Date) date).toLocalDate();
         }
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    // First day shown in the grid of a month (weeks start on Sunday)
+    private static LocalDate gridStart(YearMonth yearMonth) {
+        LocalDate firstOfMonth = yearMonth.atDay(1);
+        return firstOfMonth.minusDays(firstOfMonth.getDayOfWeek().getValue() % 7);
     }
 
     private void populateCalendar() {
@@ -185,15 +172,13 @@ public class CalendarViewController implements Initializable {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMMM yyyy");
         monthYearLabel.setText(currentYearMonth.format(formatter));
 
+        ensureEventsLoaded();
+
         // Clear the calendar grid
         calendarGrid.getChildren().clear();
 
-        // Determine the date for cell (0, 0)
-        LocalDate firstOfMonth = currentYearMonth.atDay(1);
-        int dayOfWeek = firstOfMonth.getDayOfWeek().getValue() % 7; // Adjust for Sunday as the first day (0)
-
-        // Fill the calendar with day cells
-        LocalDate date = firstOfMonth.minusDays(dayOfWeek);
+        // Fill the calendar with day cells, starting from the date for cell (0, 0)
+        LocalDate date = gridStart(currentYearMonth);
         for (int row = 0; row < 6; row++) {
             for (int col = 0; col < 7; col++) {
                 VBox dayCell = createDayCell(date);
@@ -228,8 +213,8 @@ public class CalendarViewController implements Initializable {
         dayCell.getChildren().add(dateLabel);
 
         // Add events for this date
-        if (eventsByDate.containsKey(date)) {
-            List<Evenement> events = eventsByDate.get(date);
+        List<Evenement> events = eventIndex.on(date);
+        if (!events.isEmpty()) {
             for (Evenement event : events.stream().limit(3).collect(Collectors.toList())) {
                 HBox eventIndicator = createEventIndicator(event);
                 dayCell.getChildren().add(eventIndicator);
@@ -332,12 +317,10 @@ public class CalendarViewController implements Initializable {
         Button backButton = new Button("« Back to Day View");
         backButton.setStyle("-fx-background-color: transparent; -fx-text-fill: #1e90ff;");
         backButton.setOnAction(e -> {
-            LocalDate eventDate = event.getStart_date().toInstant()
-                    .atZone(ZoneId.systemDefault())
-                    .toLocalDate();
-
-            if (eventsByDate.containsKey(eventDate)) {
-                showEventsForDay(eventDate, eventsByDate.get(eventDate));
+            LocalDate eventDate = toLocalDate(event.getStart_date());
+            List<Evenement> dayEvents = eventIndex.on(eventDate);
+            if (!dayEvents.isEmpty()) {
+                showEventsForDay(eventDate, dayEvents);
             }
         });
 
@@ -500,8 +483,9 @@ public class CalendarViewController implements Initializable {
 
         // Check if there are events today and show them
         LocalDate today = LocalDate.now();
-        if (eventsByDate.containsKey(today)) {
-            showEventsForDay(today, eventsByDate.get(today));
+        List<Evenement> todayEvents = eventIndex.on(today);
+        if (!todayEvents.isEmpty()) {
+            showEventsForDay(today, todayEvents);
         } else {
             // Clear details if no events today
             eventDetailsPane.getChildren().clear();
@@ -523,7 +507,8 @@ public class CalendarViewController implements Initializable {
     }
 
     private void refreshCalendar() {
-        loadEvents();
+        // Filters changed: the loaded window is reloaded
+        eventIndex = null;
         populateCalendar();
         eventDetailsPane.getChildren().clear();
     }
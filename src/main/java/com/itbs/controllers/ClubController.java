@@ -3,6 +3,7 @@ package com.itbs.controllers;
 import com.itbs.MainApp;
 import com.itbs.models.Club;
 import com.itbs.services.ClubService;
+import com.itbs.services.SearchService;
 import com.itbs.utils.SessionManager;
 
 import javafx.application.Platform;
@@ -25,6 +26,7 @@ import javafx.stage.Stage;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -197,12 +199,14 @@ public class ClubController {
 
     @FXML
     private void searchClubs() {
-        String searchText = searchField.getText().trim().toLowerCase();
-        if (searchText.isEmpty()) {
+        String searchText = searchField.getText().trim();
+        if (!SearchService.hasQuery(searchText)) {
             clubs.setAll(allClubs);
         } else {
+            Set<Integer> ids = new HashSet<>(
+                    SearchService.getInstance().search(SearchService.Domain.CLUB, searchText, 0));
             List<Club> filteredClubs = allClubs.stream()
-                    .filter(club -> club.getNomC().toLowerCase().contains(searchText))
+                    .filter(club -> ids.contains(club.getId()))
                     .collect(Collectors.toList());
             clubs.setAll(filteredClubs);
         }
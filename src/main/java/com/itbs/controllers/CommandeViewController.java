@@ -5,9 +5,10 @@ import com.itbs.models.Commande;
 import com.itbs.models.Orderdetails;
 import com.itbs.models.Produit;
 import com.itbs.models.User;
-import com.itbs.models.enums.StatutCommandeEnum;
-import com.itbs.services.CommandeService;
+import com.itbs.services.CartService;
+import com.itbs.services.CheckoutService;
 import com.itbs.utils.AlertUtilsSirine;
+import com.itbs.utils.ImageCache;
 import com.itbs.utils.SessionManager;
 
 import javafx.beans.property.SimpleDoubleProperty;
@@ -30,6 +31,8 @@ import javafx.util.Callback;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.ResourceBundle;
 
 public class CommandeViewController implements Initializable {
@@ -60,14 +63,10 @@ public class CommandeViewController implements Initializable {
     @FXML
     private VBox clubsDropdown;
     
-    private CommandeService commandeService;
+    private final CartService cartService = CartService.getInstance();
     private Commande currentCart;
     private User currentUser;
     
-    public CommandeViewController() {
-        this.commandeService = new CommandeService();
-    }
-    
     @Override
     public void initialize(URL url, ResourceBundle rb) {
         // Get current user
@@ -89,21 +88,10 @@ public class CommandeViewController implements Initializable {
             
             // Load profile picture if available
             if (userProfilePic != null) {
-                String profilePicture = currentUser.getProfilePicture();
-                if (profilePicture != null && !profilePicture.isEmpty()) {
-                    try {
-                        File imageFile = new File("uploads/profiles/" + profilePicture);
-                        if (imageFile.exists()) {
-                            Image image = new Image(imageFile.toURI().toString());
-                            userProfilePic.setImage(image);
-                        } else {
-                            loadDefaultProfilePic();
-                        }
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        loadDefaultProfilePic();
-                    }
-                } else {
+                try {
+                    ImageCache.getInstance().loadProfilePicture(userProfilePic, currentUser.getProfilePicture(), 45);
+                } catch (Exception e) {
+                    e.printStackTrace();
                     loadDefaultProfilePic();
                 }
                 
@@ -132,12 +120,7 @@ public class CommandeViewController implements Initializable {
     }
     
     private void loadDefaultProfilePic() {
-        try {
-            Image defaultImage = new Image(getClass().getResourceAsStream("/com/itbs/images/default-profile.png"));
-            userProfilePic.setImage(defaultImage);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        userProfilePic.setImage(ImageCache.getInstance().getPlaceholder(ImageCache.DEFAULT_PROFILE));
     }
     
     private void setupTableColumns() {
@@ -150,22 +133,8 @@ public class CommandeViewController implements Initializable {
             imageView.setPreserveRatio(true);
             
             try {
-                String imagePath = produit.getImgProd();
-                if (imagePath != null && !imagePath.isEmpty()) {
-                    // Try first as a resource
-                    URL imageUrl = getClass().getResource("/" + imagePath);
-                    if (imageUrl != null) {
-                        Image image = new Image(imageUrl.toString(), true);
-                        imageView.setImage(image);
-                    } else {
-                        // Then try as a file path
-                        File file = new File(imagePath);
-                        if (file.exists()) {
-                            Image image = new Image(file.toURI().toString(), true);
-                            imageView.setImage(image);
-                        }
-                    }
-                }
+                // Resource or file path, decoded in the background at 50px
+                ImageCache.getInstance().loadProductImage(imageView, produit.getImgProd(), 50, 50);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -211,6 +180,7 @@ public class CommandeViewController implements Initializable {
                         Orderdetails item = getTableRow().getItem();
                         item.setQuantity(newValue);
                         item.calculateTotal();
+                        cartService.setQuantity(currentUser.getId(), item.getProduit().getId(), newValue);
                         updateCart();
                     });
                     
@@ -252,6 +222,7 @@ public class CommandeViewController implements Initializable {
                             Orderdetails item = getTableRow().getItem();
                             if (item != null) {
                                 currentCart.getOrderDetails().remove(item);
+                                cartService.remove(currentUser.getId(), item.getProduit().getId());
                                 updateCart();
                             }
                         });
@@ -277,7 +248,7 @@ public class CommandeViewController implements Initializable {
         try {
             if (currentUser == null) return;
             
-            currentCart = commandeService.getCartForUser(currentUser.getId());
+            currentCart = cartService.getCart(currentUser.getId());
             
             if (currentCart == null || currentCart.getOrderDetails().isEmpty()) {
                 // Show empty cart state
@@ -304,18 +275,15 @@ public class CommandeViewController implements Initializable {
         }
     }
     
+    // The change itself is already in CartService, written in the background
     private void updateCart() {
         try {
             if (currentCart.getOrderDetails().isEmpty()) {
                 // If cart is empty after removing item, show empty state
-                commandeService.supprimerCommande(currentCart.getId());
                 loadCartData();
                 return;
             }
             
-            // Update cart in database
-            commandeService.updateCommande(currentCart);
-            
             // Refresh the table
             cartItemsTable.refresh();
             
@@ -353,15 +321,24 @@ public class CommandeViewController implements Initializable {
                 return;
             }
             
-            // Update the cart status to CONFIRMEE (confirmed)
-            currentCart.setStatut(StatutCommandeEnum.CONFIRMEE);
-            commandeService.updateCommande(currentCart);
+            // Same path as CartController: stock reservation, order and line items in one transaction
+            Commande commande = cartService.getCart(currentUser.getId());
+            commande.setDateComm(LocalDate.now());
+            CheckoutService.CheckoutResult result = CheckoutService.getInstance().checkout(commande);
+            if (!result.isPlaced()) {
+                AlertUtilsSirine.showError("Checkout Failed", "Some products are not available",
+                        describeFailures(commande, result.getFailures()));
+                loadCartData();
+                return;
+            }
+            // The placed order is a new commande, the cart is emptied and deleted by its next flush
+            cartService.clear(currentUser.getId());
             
             // Show success message
             Alert success = new Alert(Alert.AlertType.INFORMATION);
             success.setTitle("Order Confirmed");
             success.setHeaderText("Thank you for your order!");
-            success.setContentText("Your order has been successfully placed.\nOrder ID: " + currentCart.getId());
+            success.setContentText("Your order has been successfully placed.\nOrder ID: " + result.getCommandeId());
             
             DialogPane successPane = success.getDialogPane();
             successPane.setStyle("-fx-background-color: white;");
@@ -380,6 +357,28 @@ public class CommandeViewController implements Initializable {
         }
     }
     
+    /**
+     * One line per product that could not be ordered, with the stock left
+     */
+    private String describeFailures(Commande commande, List<CheckoutService.LineFailure> failures) {
+        StringBuilder message = new StringBuilder();
+        for (CheckoutService.LineFailure failure : failures) {
+            String name = commande.getOrderDetails().stream()
+                    .map(Orderdetails::getProduit)
+                    .filter(produit -> produit.getId() == failure.getProduitId())
+                    .map(Produit::getNomProd)
+                    .findFirst()
+                    .orElse("Product #" + failure.getProduitId());
+            if (failure.getReason() == CheckoutService.FailureReason.INSUFFICIENT_STOCK) {
+                message.append(name).append(": ").append(failure.getRequested())
+                        .append(" requested, ").append(failure.getAvailable()).append(" in stock\n");
+            } else {
+                message.append(name).append(": not available\n");
+            }
+        }
+        return message.toString();
+    }
+    
     // Navbar navigation methods
     @FXML
     public void showProfileDropdown() {
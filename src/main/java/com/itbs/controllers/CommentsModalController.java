@@ -4,6 +4,7 @@ import com.itbs.models.Commentaire;
 import com.itbs.models.Sondage;
 import com.itbs.models.User;
 import com.itbs.services.CommentaireService;
+import com.itbs.utils.ImageCache;
 import com.itbs.utils.AlertUtils;
 import com.itbs.utils.SessionManager;
 import com.itbs.utils.TranslationService;
@@ -563,25 +564,18 @@ public class CommentsModalController implements Initializable {
         avatar.setPreserveRatio(true);
         avatar.getStyleClass().add("comment-avatar");
 
-        // Load user profile image with fallback to default
+        // Load user profile image with fallback to default (shared, decoded in the background)
+        ImageCache cache = ImageCache.getInstance();
         try {
             String profilePicPath = user.getProfilePicture();
-            if (profilePicPath != null && !profilePicPath.isEmpty()) {
-                File imageFile = new File("uploads/profiles/" + profilePicPath);
-                if (imageFile.exists()) {
-                    avatar.setImage(new Image(imageFile.toURI().toString()));
-                } else {
-                    // Fall back to default if file doesn't exist
-                    avatar.setImage(new Image(getClass().getResourceAsStream("/com/itbs/images/user.png")));
-                }
-            } else {
-                // Fall back to default if no profile pic
-                avatar.setImage(new Image(getClass().getResourceAsStream("/com/itbs/images/user.png")));
-            }
+            File imageFile = profilePicPath != null && !profilePicPath.isEmpty()
+                    ? new File("uploads/profiles/" + profilePicPath)
+                    : null;
+            cache.loadInto(avatar, imageFile, 40, 40, cache.getPlaceholder(ImageCache.DEFAULT_USER));
         } catch (Exception e) {
             e.printStackTrace();
             // Fall back to default on any error
-            avatar.setImage(new Image(getClass().getResourceAsStream("/com/itbs/images/user.png")));
+            avatar.setImage(cache.getPlaceholder(ImageCache.DEFAULT_USER));
         }
 
         // Add drop shadow effect to avatar
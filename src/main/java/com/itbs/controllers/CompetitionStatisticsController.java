@@ -4,6 +4,7 @@ import com.itbs.MainApp;
 import com.itbs.models.*;
 import com.itbs.models.enums.GoalTypeEnum;
 import com.itbs.services.*;
+import com.itbs.utils.ExportRunner;
 import com.itbs.utils.SessionManager;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -636,14 +637,17 @@ public class CompetitionStatisticsController implements Initializable {
 
     @FXML
     private void handleExportPDF() {
-        // TODO: Implement PDF export functionality
-        showInfo("PDF export functionality coming soon!");
+        exportMissionProgress(ExportService.Format.PDF);
     }
 
     @FXML
     private void handleExportCSV() {
-        // TODO: Implement CSV export functionality
-        showInfo("CSV export functionality coming soon!");
+        exportMissionProgress(ExportService.Format.CSV);
+    }
+
+    private void exportMissionProgress(ExportService.Format format) {
+        ExportRunner.run(totalClubsText.getScene().getWindow(), ExportService.getInstance().missionProgress(),
+                format, "mission_progress");
     }
 
     private void showError(String title, String content) {
@@ -6,6 +6,7 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.Tooltip;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.StackPane;
@@ -15,6 +16,7 @@ import java.io.File;
 import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.ResourceBundle;
 import com.itbs.models.Evenement;
 import com.itbs.models.Participation_event;
@@ -102,6 +104,8 @@ public class DetailsEvent implements Initializable {
 
     // Changed from long to Long to match the required type
     private Long currentUserId = 1L; // Replace with the connected user's ID
+    // Participant count and registration of the current user for the displayed event
+    private ServiceParticipation.ParticipationSummary participationSummary = ServiceParticipation.ParticipationSummary.EMPTY;
 
     @Override
     public void initialize(URL url, ResourceBundle rb) {
@@ -257,6 +261,7 @@ public class DetailsEvent implements Initializable {
         loadEventImage(event.getImage_description());
 
         // Check if the user is already participating in this event
+        refreshParticipationSummary();
         updateRegisterButtonStatus();
         setupUserPermissions();
 
@@ -412,7 +417,7 @@ public class DetailsEvent implements Initializable {
 
         try {
             // Check if the user is registered first
-            boolean isRegistered = serviceParticipation.participationExists(currentUserId, currentEvent.getId());
+            boolean isRegistered = participationSummary.isRegistered();
 
             if (!isRegistered) {
                 Alert alert = new Alert(Alert.AlertType.INFORMATION);
@@ -478,6 +483,19 @@ public class DetailsEvent implements Initializable {
         }
     }
 
+    /**
+     * Loads the participant count and the registration of the current user in one query
+     */
+    private void refreshParticipationSummary() {
+        if (currentEvent == null)
+            return;
+
+        participationSummary = serviceParticipation
+                .getParticipationSummaries(List.of(currentEvent.getId()), currentUserId)
+                .getOrDefault(currentEvent.getId(), ServiceParticipation.ParticipationSummary.EMPTY);
+        registerButton.setTooltip(new Tooltip(participationSummary.getParticipantCount() + " participant(s)"));
+    }
+
     /**
      * Updates the registration button status based on user participation
      */
@@ -485,7 +503,7 @@ public class DetailsEvent implements Initializable {
         if (currentEvent == null)
             return;
 
-        boolean isAlreadyRegistered = serviceParticipation.participationExists(currentUserId, currentEvent.getId());
+        boolean isAlreadyRegistered = participationSummary.isRegistered();
 
         if (isAlreadyRegistered) {
             registerButton.setText("✓ Cancel Registration");
@@ -526,7 +544,8 @@ public class DetailsEvent implements Initializable {
         this.currentUserId = Long.valueOf(userId);
 
         // Check if the user is already registered
-        boolean isAlreadyRegistered = serviceParticipation.participationExists(currentUserId, currentEvent.getId());
+        refreshParticipationSummary();
+        boolean isAlreadyRegistered = participationSummary.isRegistered();
 
         if (isAlreadyRegistered) {
             // User is already registered, offer to cancel registration
@@ -544,6 +563,7 @@ public class DetailsEvent implements Initializable {
                 if (cancelled) {
                     showAlert(Alert.AlertType.INFORMATION, "Success", "Registration Cancelled",
                             "Your registration for the event has been successfully cancelled.");
+                    refreshParticipationSummary();
                     updateRegisterButtonStatus(); // Met à jour le bouton (devient bleu "Register for Event")
                 } else {
                     showAlert(Alert.AlertType.ERROR, "Error", "Cancellation Failed",
@@ -573,6 +593,7 @@ public class DetailsEvent implements Initializable {
             if (registered) {
                 showAlert(Alert.AlertType.INFORMATION, "Success", "Registration Confirmed",
                         "You are now registered for the event.");
+                refreshParticipationSummary();
                 updateRegisterButtonStatus(); // Met à jour le bouton (devient rouge "Cancel Registration")
             } else {
                 showAlert(Alert.AlertType.ERROR, "Error", "Registration Failed",
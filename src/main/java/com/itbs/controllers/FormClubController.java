@@ -13,6 +13,7 @@ import java.sql.SQLException;
 
 import com.itbs.models.Club;
 import com.itbs.services.ClubService;
+import com.itbs.services.UploadStore;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
@@ -131,17 +132,11 @@ public class FormClubController {
                 directory.mkdirs();
             }
 
-            // Generate unique filename
-            String fileName = "club_" + System.currentTimeMillis() +
-                    selectedImageFile.getName().substring(selectedImageFile.getName().lastIndexOf("."));
-
-            // Copy file to uploads directory
-            Path sourcePath = selectedImageFile.toPath();
-            Path targetPath = Paths.get(UPLOADS_DIRECTORY + fileName);
-            Files.copy(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            // Store the file under its content hash (an identical image is stored once)
+            String fileName = UploadStore.getInstance().store(selectedImageFile, UploadStore.Area.CLUBS);
 
             // Save the file path in the database
-            String imagePath = UPLOADS_DIRECTORY + fileName;
+            String imagePath = UploadStore.Area.CLUBS.toColumnValue(fileName);
 
             String status = "en_attente";
             int points = 0;
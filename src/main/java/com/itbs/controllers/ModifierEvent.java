@@ -7,9 +7,11 @@ import java.time.LocalDate;
 import java.util.ResourceBundle;
 
 import com.itbs.models.Evenement;
+import com.itbs.services.ReferenceDataCache;
 import com.itbs.services.ServiceEvent;
+import com.itbs.services.UploadStore;
+import com.itbs.utils.ReferenceDataBinding;
 
-import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -167,14 +169,13 @@ public class ModifierEvent implements Initializable {
         }
     }
 
+    // Listes mises à jour automatiquement quand une catégorie ou un club change
     private void loadCategories() {
-        ObservableList<String> categories = serviceEvent.getAllCategoriesNames();
-        categorie_combo.setItems(categories);
+        ReferenceDataBinding.bind(categorie_combo, ReferenceDataCache.getInstance().observeCategoryNames(), null);
     }
 
     private void loadClubs() {
-        ObservableList<String> clubs = serviceEvent.getAllClubsNames();
-        club_combo.setItems(clubs);
+        ReferenceDataBinding.bind(club_combo, ReferenceDataCache.getInstance().observeClubNames(), null);
     }
 
     @FXML
@@ -276,8 +277,11 @@ public class ModifierEvent implements Initializable {
             e.setEnd_date(java.sql.Date.valueOf(end_date.getValue()));
 
             // Gestion de l'image si une image a été sélectionnée
-            if (selectedImagePath != null && !selectedImagePath.isEmpty()) {
-                e.setImage_description(selectedImagePath);
+            if (selectedImagePath != null && !selectedImagePath.isEmpty() && !selectedImagePath.equals(e.getImage_description())) {
+                // Copie dédupliquée dans uploads/images (nom = empreinte du contenu)
+                String storedName = UploadStore.getInstance().store(new File(selectedImagePath), UploadStore.Area.IMAGES);
+                UploadStore.getInstance().release(UploadStore.Area.IMAGES, e.getImage_description());
+                e.setImage_description(UploadStore.Area.IMAGES.toColumnValue(storedName));
             }
 
             // Mettre à jour l'événement
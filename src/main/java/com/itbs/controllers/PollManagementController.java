@@ -4,8 +4,10 @@ import java.io.IOException;
 import java.net.URL;
 import java.sql.SQLException;
 import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
 
@@ -17,9 +19,11 @@ import com.itbs.models.User;
 import com.itbs.services.ClubService;
 import com.itbs.services.OpenAIService;
 import com.itbs.services.ReponseService;
+import com.itbs.services.SearchService;
 import com.itbs.services.SondageService;
 import com.itbs.services.UserService;
 import com.itbs.utils.AlertUtils;
+import com.itbs.utils.ImageCache;
 import com.itbs.utils.SessionManager;
 
 import javafx.application.Platform;
@@ -427,13 +431,14 @@ public class PollManagementController implements Initializable {
      * Exécute la recherche dans les sondages
      */
     private void performSearch() {
-        String searchTerm = searchField.getText().toLowerCase().trim();
+        String searchTerm = searchField.getText().trim();
 
-        if (searchTerm.isEmpty()) {
+        if (!SearchService.hasQuery(searchTerm)) {
             filteredPolls = null;
         } else {
-            filteredPolls = new FilteredList<>(this.allPolls,
-                    sondage -> sondage.getQuestion().toLowerCase().contains(searchTerm));
+            Set<Integer> ids = new HashSet<>(
+                    SearchService.getInstance().search(SearchService.Domain.SONDAGE, searchTerm, 0));
+            filteredPolls = new FilteredList<>(this.allPolls, sondage -> ids.contains(sondage.getId()));
         }
 
         // Reset to first page and update pagination
@@ -1037,18 +1042,8 @@ public class PollManagementController implements Initializable {
 
         // Charger l'image de profil
         try {
-            if (profilePic != null && !profilePic.isEmpty()) {
-                File profileImageFile = new File("uploads/profiles/" + profilePic);
-                if (profileImageFile.exists()) {
-                    Image profileImage = new Image(profileImageFile.toURI().toString());
-                    avatar.setImage(profileImage);
-                } else {
-                    avatar.setImage(
-                            new Image(getClass().getResourceAsStream("/com/itbs/images/default-profile.png")));
-                }
-            } else {
-                avatar.setImage(new Image(getClass().getResourceAsStream("/com/itbs/images/default-profile.png")));
-            }
+            // Décodé en arrière-plan à 40px, image par défaut partagée en attendant
+            ImageCache.getInstance().loadProfilePicture(avatar, profilePic, 40);
 
             // Rendre l'avatar circulaire
             Circle clip = new Circle(20, 20, 20);
@@ -1056,11 +1051,7 @@ public class PollManagementController implements Initializable {
 
         } catch (Exception e) {
             System.err.println("Error loading profile image: " + e.getMessage());
-            try {
-                avatar.setImage(new Image(getClass().getResourceAsStream("/com/itbs/images/default-profile.png")));
-            } catch (Exception ex) {
-                System.err.println("Error loading default profile image: " + ex.getMessage());
-            }
+            avatar.setImage(ImageCache.getInstance().getPlaceholder(ImageCache.DEFAULT_PROFILE));
         }
 
         // Information de l'utilisateur
@@ -1156,11 +1147,8 @@ public class PollManagementController implements Initializable {
             try {
                 String profilePic = currentUser.getProfilePicture();
                 if (profilePic != null && !profilePic.isEmpty()) {
-                    File profileImageFile = new File("uploads/profiles/" + profilePic);
-                    if (profileImageFile.exists()) {
-                        Image profileImage = new Image(profileImageFile.toURI().toString());
-                        userProfilePic.setImage(profileImage);
-                    }
+                    ImageCache.getInstance().loadInto(userProfilePic, new File("uploads/profiles/" + profilePic),
+                            45, 45, userProfilePic.getImage());
                 }
             } catch (Exception e) {
                 System.err.println("Error loading profile image: " + e.getMessage());
@@ -2,19 +2,17 @@ package com.itbs.controllers;
 
 import com.itbs.ProduitApp;
 import com.itbs.models.Produit;
+import com.itbs.services.InventoryCache;
 import com.itbs.services.ProduitService;
 import com.itbs.utils.AlertUtilsSirine;
+import com.itbs.utils.ImageCache;
 
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 
-import java.net.URL;
-import java.util.HashMap;
-import java.util.Map;
 
 public class ProduitCardItemController {
 
@@ -29,11 +27,6 @@ public class ProduitCardItemController {
 
     private Produit produit;
     private final ProduitService produitService;
-    // Static cart shared across all instances
-    private static final Map<Integer, Integer> cart = new HashMap<>();
-    public static Map<Integer, Integer> getCart() {
-        return new HashMap<>(cart); // Return a copy for encapsulation
-    }
 
     public ProduitCardItemController() {
         this.produitService = ProduitService.getInstance();
@@ -49,7 +42,8 @@ public class ProduitCardItemController {
             lblNom.setText(produit.getNomProd());
             lblDescription.setText(produit.getDescProd());
             lblPrix.setText(String.format("%.2f tnd", produit.getPrix()));
-            lblQuantity.setText("Stock: " + produit.getQuantity());
+            // Live stock, follows checkouts and edits without reloading the catalog
+            lblQuantity.textProperty().bind(InventoryCache.getInstance().availableProperty(produit.getId()).asString("Stock: %d"));
             
             if (produit.getClub() != null) {
                 lblClub.setText(produit.getClub().getNomC().toUpperCase());
@@ -57,26 +51,13 @@ public class ProduitCardItemController {
                 lblClub.setText("");
             }
 
-            // Load image if available
+            // Load image if available (background decode at card size, shared default image)
             try {
-                String imagePath = produit.getImgProd();
-                if (imagePath != null && !imagePath.isEmpty()) {
-                    URL imageUrl = getClass().getResource("/" + imagePath);
-                    if (imageUrl != null) {
-                        Image image = new Image(imageUrl.toString());
-                        imgProduct.setImage(image);
-                    } else {
-                        // Set default image if product image not found
-                        imgProduct.setImage(new Image(getClass().getResourceAsStream("/images/default-product.png")));
-                    }
-                } else {
-                    // Set default image if no image path
-                    imgProduct.setImage(new Image(getClass().getResourceAsStream("/images/default-product.png")));
-                }
+                ImageCache.getInstance().loadProductImage(imgProduct, produit.getImgProd(), 120, 120);
             } catch (Exception e) {
                 e.printStackTrace();
                 // Set default image in case of error
-                imgProduct.setImage(new Image(getClass().getResourceAsStream("/images/default-product.png")));
+                imgProduct.setImage(ImageCache.getInstance().getPlaceholder(ImageCache.DEFAULT_PRODUCT));
             }
         }
     }
@@ -96,10 +77,6 @@ public class ProduitCardItemController {
             }
         }
     }
-    public static void updateCart(Map<Integer, Integer> newCart) {
-        cart.clear();
-        cart.putAll(newCart);
-    }
 
 
     @FXML
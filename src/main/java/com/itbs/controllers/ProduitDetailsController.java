@@ -2,7 +2,10 @@ package com.itbs.controllers;
 
 import com.itbs.ProduitApp;
 import com.itbs.models.Produit;
+import com.itbs.models.User;
+import com.itbs.services.CartService;
 import com.itbs.utils.AlertUtilsSirine;
+import com.itbs.utils.SessionManager;
 
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
@@ -16,8 +19,6 @@ import javafx.scene.image.ImageView;
 import java.net.URL;
 import java.util.ResourceBundle;
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
 
 public class ProduitDetailsController implements Initializable {
 
@@ -63,21 +64,15 @@ public class ProduitDetailsController implements Initializable {
         lblDescription.setText(selectedProduit.getDescProd());
 
         // Afficher la quantité disponible
-        String quantity = selectedProduit.getQuantity();
-        int quantityInt;
-        try {
-            quantityInt = Integer.parseInt(quantity);
-            if (quantityInt > 0) {
-                lblQuantity.setText(String.format("En stock (%s disponibles)", quantity));
-                lblQuantity.setStyle("-fx-text-fill: #006400;"); // Vert
-            } else {
-                lblQuantity.setText("Rupture de stock");
-                lblQuantity.setStyle("-fx-text-fill: #B00020;"); // Rouge
-                btnAddToCart.setDisable(true);
-                btnBuyNow.setDisable(true);
-            }
-        } catch (NumberFormatException e) {
-            lblQuantity.setText("Disponibilité: " + quantity);
+        int quantity = selectedProduit.getQuantity();
+        if (quantity > 0) {
+            lblQuantity.setText(String.format("En stock (%d disponibles)", quantity));
+            lblQuantity.setStyle("-fx-text-fill: #006400;"); // Vert
+        } else {
+            lblQuantity.setText("Rupture de stock");
+            lblQuantity.setStyle("-fx-text-fill: #B00020;"); // Rouge
+            btnAddToCart.setDisable(true);
+            btnBuyNow.setDisable(true);
         }
 
         // Afficher le club
@@ -125,11 +120,7 @@ public class ProduitDetailsController implements Initializable {
         // tout en gardant la référence finale
         final int[] maxQuantityHolder = new int[1];
 
-        try {
-            maxQuantityHolder[0] = Integer.parseInt(selectedProduit.getQuantity());
-        } catch (NumberFormatException e) {
-            maxQuantityHolder[0] = 10; // Valeur par défaut si la quantité n'est pas un nombre
-        }
+        maxQuantityHolder[0] = Math.max(1, selectedProduit.getQuantity());
 
         // Limiter la quantité maximum à la disponibilité
         SpinnerValueFactory<Integer> valueFactory =
@@ -162,7 +153,7 @@ public class ProduitDetailsController implements Initializable {
         if (selectedProduit != null) {
             try {
                 // Vérifier si le produit a du stock disponible
-                int availableQuantity = Integer.parseInt(selectedProduit.getQuantity());
+                int availableQuantity = selectedProduit.getQuantity();
                 if (availableQuantity <= 0) {
                     AlertUtilsSirine.showError("Erreur", "Stock épuisé",
                             "Ce produit n'est plus disponible en stock.");
@@ -176,15 +167,9 @@ public class ProduitDetailsController implements Initializable {
                     return;
                 }
 
-                // Obtenir la quantité actuelle dans le panier
-                int currentCartQuantity = ProduitCardItemController.getCart().getOrDefault(selectedProduit.getId(), 0);
-
-                // Mettre à jour la quantité dans le panier
-                Map<Integer, Integer> cart = new HashMap<>(ProduitCardItemController.getCart());
-                cart.put(selectedProduit.getId(), currentCartQuantity + quantity);
-
-                // Mettre à jour le panier dans ProduitCardItemController
-                ProduitCardItemController.updateCart(cart);
+                // Ajouter au panier (écrit en base en arrière-plan)
+                User currentUser = SessionManager.getInstance().getCurrentUser();
+                CartService.getInstance().add(currentUser != null ? currentUser.getId() : 0, selectedProduit, quantity);
 
                 // Afficher un message de succès
                 AlertUtilsSirine.showInfo("Panier", "Produit ajouté",
@@ -193,9 +178,6 @@ public class ProduitDetailsController implements Initializable {
                 // Navigation vers la page du panier
                 ProduitApp.navigateTo("/com/itbs/views/produit/produit_card.fxml");
 
-            } catch (NumberFormatException e) {
-                AlertUtilsSirine.showError("Erreur", "Problème de quantité",
-                        "La quantité disponible pour ce produit est invalide.");
             } catch (Exception e) {
                 e.printStackTrace();
                 AlertUtilsSirine.showError("Erreur", "Impossible d'ajouter au panier", e.getMessage());
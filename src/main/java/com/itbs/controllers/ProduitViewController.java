@@ -2,14 +2,13 @@ package com.itbs.controllers;
 
 import com.itbs.ProduitApp;
 import com.itbs.models.Club;
-import com.itbs.models.Commande;
-import com.itbs.models.Orderdetails;
 import com.itbs.models.Produit;
-import com.itbs.models.enums.StatutCommandeEnum;
 import com.itbs.services.ClubService;
-import com.itbs.services.CommandeService;
+import com.itbs.services.CartService;
+import com.itbs.services.InventoryCache;
 import com.itbs.services.ProduitService;
 import com.itbs.utils.AlertUtilsSirine;
+import com.itbs.utils.DataSource;
 import com.itbs.MainApp;
 import com.itbs.models.User;
 import com.itbs.utils.SessionManager;
@@ -30,26 +29,34 @@ import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.StringConverter;
 import javafx.geometry.Pos;
 import com.itbs.models.enums.RoleEnum;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.sql.Connection;
 import java.sql.SQLException;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ProduitViewController implements Initializable {
 
     @FXML private FlowPane productContainer;
     @FXML private ComboBox<Club> comboFilterClub;
     @FXML private TextField txtSearch;
+    @FXML private ComboBox<ProduitService.CatalogSort> comboSort;
+    @FXML private TextField txtMinPrice;
+    @FXML private TextField txtMaxPrice;
+    @FXML private CheckBox chkInStock;
     @FXML private Button btnSearch;
     @FXML private VBox emptyState;
     @FXML private Button btnPanier;
@@ -67,12 +74,24 @@ public class ProduitViewController implements Initializable {
 
     private final ProduitService produitService;
     private final ClubService clubService;
-    private List<Produit> allProduits = new ArrayList<>();
-    private List<Produit> filteredProducts = new ArrayList<>(); // To store filtered products
     // Pagination variables
     private int currentPage = 1;
     private static final int ITEMS_PER_PAGE = 2; // Number of products per page (adjust as needed)
-    private int totalPages = 1;
+    // Catalog read a page at a time (keyset pagination, see ProduitService.getCatalogPage)
+    private ProduitService.CatalogQuery catalogQuery = new ProduitService.CatalogQuery();
+    // Cursor at the start of each page reached so far, the first page starts at null
+    private final List<ProduitService.CatalogCursor> pageCursors = new ArrayList<>();
+    private boolean hasNextPage;
+    // Next page loaded in the background while the current one is displayed
+    private ProduitService.CatalogCursor prefetchedCursor;
+    private CompletableFuture<ProduitService.CatalogPage> prefetchedPage;
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Own connection of the prefetch thread, the shared one belongs to the FX thread
+    private static Connection prefetchConnection;
     
     private User currentUser;
 
@@ -96,6 +115,7 @@ public class ProduitViewController implements Initializable {
         }
         
         setupClubFilter();
+        setupCatalogFilters();
         loadAllProduits();
         
         if (currentUser != null && userNameLabel != null) {
@@ -285,6 +305,49 @@ FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/itbs/views/login
         });
     }
 
+    /**
+     * Tri, fourchette de prix et disponibilité
+     */
+    private void setupCatalogFilters() {
+        if (comboSort != null) {
+            comboSort.getItems().setAll(ProduitService.CatalogSort.values());
+            comboSort.setConverter(new StringConverter<ProduitService.CatalogSort>() {
+                @Override
+                public String toString(ProduitService.CatalogSort sort) {
+                    if (sort == null) {
+                        return "";
+                    }
+                    switch (sort) {
+                        case PRICE_ASC:
+                            return "Price ↑";
+                        case PRICE_DESC:
+                            return "Price ↓";
+                        case NAME:
+                            return "Name";
+                        default:
+                            return "Newest";
+                    }
+                }
+
+                @Override
+                public ProduitService.CatalogSort fromString(String text) {
+                    return null;
+                }
+            });
+            comboSort.getSelectionModel().select(ProduitService.CatalogSort.NEWEST);
+            comboSort.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> filterProducts());
+        }
+        if (chkInStock != null) {
+            chkInStock.selectedProperty().addListener((obs, oldVal, newVal) -> filterProducts());
+        }
+        if (txtMinPrice != null) {
+            txtMinPrice.setOnAction(e -> filterProducts());
+        }
+        if (txtMaxPrice != null) {
+            txtMaxPrice.setOnAction(e -> filterProducts());
+        }
+    }
+
     /**
      * Show the dialog to add a new product
      */
@@ -403,7 +466,18 @@ FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/itbs/views/login
                         return null;
                     }
 
-                    produit.setQuantity(quantityField.getText());
+                    // Validate and convert quantity
+                    try {
+                        int quantity = Integer.parseInt(quantityField.getText().trim());
+                        if (quantity < 0) {
+                            throw new NumberFormatException();
+                        }
+                        produit.setQuantity(quantity);
+                    } catch (NumberFormatException ex) {
+                        AlertUtilsSirine.showError("Erreur", "Quantité invalide",
+                                "Veuillez entrer un nombre entier positif (exemple: 10)");
+                        return null;
+                    }
                     produit.setDescProd(descriptionArea.getText());
                     produit.setImgProd(imageField.getText());
                     produit.setCreatedAt(LocalDateTime.now());
@@ -438,82 +512,140 @@ FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/itbs/views/login
     }
 
     /**
-     * Charge tous les produits
+     * Recharge le catalogue depuis la première page
      */
     private void loadAllProduits() {
-        try {
-            allProduits = produitService.getAll();
-            filterProducts();
-        } catch (SQLException e) {
-            e.printStackTrace();
-            AlertUtilsSirine.showError("Erreur", "Erreur lors du chargement des produits", e.getMessage());
-        }
+        filterProducts();
     }
 
     /**
-     * Filtre les produits selon les critères et met à jour la pagination
+     * Applique les filtres en base et revient à la première page
      */
     private void filterProducts() {
-        String searchText = txtSearch.getText().toLowerCase();
         Club selectedClub = comboFilterClub.getSelectionModel().getSelectedItem();
-
-        filteredProducts = allProduits.stream()
-                .filter(p -> (searchText.isEmpty() ||
-                        p.getNomProd().toLowerCase().contains(searchText) ||
-                        p.getDescProd().toLowerCase().contains(searchText)))
-                .filter(p -> (selectedClub == null || selectedClub.getId() == -1 ||
-                        (p.getClub() != null && p.getClub().getId() == selectedClub.getId())))
-                .collect(Collectors.toList());
+        catalogQuery = new ProduitService.CatalogQuery()
+                .club(selectedClub == null || selectedClub.getId() == -1 ? null : selectedClub.getId())
+                .text(txtSearch.getText())
+                .priceBetween(parsePrice(txtMinPrice), parsePrice(txtMaxPrice))
+                .inStockOnly(chkInStock != null && chkInStock.isSelected())
+                .sort(comboSort != null ? comboSort.getValue() : null)
+                .pageSize(ITEMS_PER_PAGE);
 
         // Reset pagination to the first page
+        pageCursors.clear();
+        pageCursors.add(null);
+        prefetchedCursor = null;
+        prefetchedPage = null;
         currentPage = 1;
         updatePagination();
     }
 
+    private static Float parsePrice(TextField field) {
+        if (field == null || field.getText() == null || field.getText().isBlank()) {
+            return null;
+        }
+        try {
+            return Float.parseFloat(field.getText().trim().replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
-     * Met à jour la pagination en fonction des produits filtrés
+     * Charge et affiche la page courante, puis précharge la suivante
      */
     private void updatePagination() {
-        if (paginationContainer != null) {
-            int itemCount = filteredProducts.size();
-            totalPages = (itemCount + ITEMS_PER_PAGE - 1) / ITEMS_PER_PAGE; // Ceiling division
+        ProduitService.CatalogCursor cursor = pageCursors.get(currentPage - 1);
+        ProduitService.CatalogPage page;
+        try {
+            page = takePrefetched(cursor);
+            if (page == null) {
+                page = produitService.getCatalogPage(catalogQuery, cursor);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            AlertUtilsSirine.showError("Erreur", "Erreur lors du chargement des produits", e.getMessage());
+            return;
+        }
 
-            if (totalPages < 1) {
-                totalPages = 1;
+        hasNextPage = page.hasNext();
+        if (hasNextPage) {
+            if (pageCursors.size() == currentPage) {
+                pageCursors.add(page.getNext());
             }
+            prefetch(page.getNext());
+        }
+
+        // Update the displayed products
+        displayProducts(page.getProduits());
+
+        // Update pagination controls
+        setupPagination();
+    }
 
-            if (currentPage > totalPages) {
-                currentPage = totalPages;
+    // The prefetched page is only used if it was loaded for the same filters and position
+    private ProduitService.CatalogPage takePrefetched(ProduitService.CatalogCursor cursor) {
+        if (cursor == null || cursor != prefetchedCursor || prefetchedPage == null) {
+            return null;
+        }
+        CompletableFuture<ProduitService.CatalogPage> future = prefetchedPage;
+        prefetchedCursor = null;
+        prefetchedPage = null;
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Loaded again synchronously
+            return null;
+        }
+    }
+
+    private void prefetch(ProduitService.CatalogCursor cursor) {
+        ProduitService.CatalogQuery query = catalogQuery;
+        prefetchedCursor = cursor;
+        prefetchedPage = CompletableFuture.supplyAsync(() -> {
+            try {
+                return produitService.getCatalogPage(getPrefetchConnection(), query, cursor);
+            } catch (SQLException e) {
+                closePrefetchConnection();
+                throw new CompletionException(e);
             }
+        }, PREFETCH_EXECUTOR);
+    }
 
-            // Update the displayed products based on the current page
-            displayProducts();
+    // Only called on the prefetch thread
+    private static Connection getPrefetchConnection() throws SQLException {
+        if (prefetchConnection == null || prefetchConnection.isClosed()) {
+            prefetchConnection = DataSource.getInstance().openConnection();
+            prefetchConnection.setReadOnly(true);
+        }
+        return prefetchConnection;
+    }
 
-            // Update pagination controls
-            setupPagination();
+    private static void closePrefetchConnection() {
+        if (prefetchConnection != null) {
+            try {
+                prefetchConnection.close();
+            } catch (SQLException ignored) {
+                // Reopened on the next prefetch
+            }
+            prefetchConnection = null;
         }
     }
 
     /**
      * Affiche les produits de la page actuelle
      */
-    private void displayProducts() {
+    private void displayProducts(List<Produit> produits) {
         productContainer.getChildren().clear();
 
-        if (filteredProducts.isEmpty()) {
+        if (produits.isEmpty()) {
             emptyState.setVisible(true);
             return;
         }
 
         emptyState.setVisible(false);
 
-        // Calculate the range of products to display for the current page
-        int fromIndex = (currentPage - 1) * ITEMS_PER_PAGE;
-        int toIndex = Math.min(fromIndex + ITEMS_PER_PAGE, filteredProducts.size());
-
-        // Display only the products for the current page
-        for (int i = fromIndex; i < toIndex; i++) {
-            Produit produit = filteredProducts.get(i);
+        for (Produit produit : produits) {
             try {
                 // Charger le composant card pour chaque produit
                 FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/itbs/views/produit/ProduitCardItem.fxml"));
@@ -542,7 +674,7 @@ FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/itbs/views/login
 
         paginationContainer.getChildren().clear();
 
-        if (totalPages <= 1) {
+        if (currentPage == 1 && !hasNextPage) {
             // Hide pagination if there's only one page
             paginationContainer.setVisible(false);
             paginationContainer.setManaged(false);
@@ -568,9 +700,9 @@ FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/itbs/views/login
 
         paginationContainer.getChildren().add(prevButton);
 
-        // Pages numbered buttons - show max 5 pages around current page
+        // Pages already reached can be opened directly, the total is not counted
         int startPage = Math.max(1, currentPage - 2);
-        int endPage = Math.min(startPage + 4, totalPages);
+        int endPage = Math.min(startPage + 4, pageCursors.size());
 
         for (int i = startPage; i <= endPage; i++) {
             Button pageButton = new Button(String.valueOf(i));
@@ -590,12 +722,12 @@ FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/itbs/views/login
 
         // Next button
         Button nextButton = new Button("»");
-        nextButton.setStyle(currentPage == totalPages ?
+        nextButton.setStyle(!hasNextPage ?
                 "-fx-background-color: #E0E0E0; -fx-text-fill: #999999; -fx-background-radius: 50; -fx-min-width: 36; -fx-min-height: 36; -fx-max-width: 36; -fx-max-height: 36; -fx-font-weight: bold;" :
                 "-fx-background-color: #6200EE; -fx-text-fill: white; -fx-background-radius: 50; -fx-min-width: 36; -fx-min-height: 36; -fx-max-width: 36; -fx-max-height: 36; -fx-font-weight: bold;");
-        nextButton.setDisable(currentPage == totalPages);
+        nextButton.setDisable(!hasNextPage);
         nextButton.setOnAction(e -> {
-            if (currentPage < totalPages) {
+            if (hasNextPage) {
                 currentPage++;
                 updatePagination();
             }
@@ -603,8 +735,8 @@ FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/itbs/views/login
 
         paginationContainer.getChildren().add(nextButton);
 
-        // Add page count information
-        Label pageInfoLabel = new Label(String.format("Page %d of %d", currentPage, totalPages));
+        // Add page information
+        Label pageInfoLabel = new Label(String.format("Page %d", currentPage));
         pageInfoLabel.setStyle("-fx-text-fill: #6c757d; -fx-padding: 0 0 0 10;");
         paginationContainer.getChildren().add(pageInfoLabel);
     }
@@ -654,7 +786,8 @@ FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/itbs/views/login
         }
 
         lblPrix.setText(String.format("%.2f tnd", produit.getPrix()));
-        lblQuantity.setText("Stock: " + produit.getQuantity());
+        // Live stock, follows checkouts and edits without reloading the catalog
+        lblQuantity.textProperty().bind(InventoryCache.getInstance().availableProperty(produit.getId()).asString("Stock: %d"));
 
         if (produit.getClub() != null && produit.getClub().getNomC() != null) {
             lblClub.setText(produit.getClub().getNomC().toUpperCase());
@@ -717,46 +850,9 @@ FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/itbs/views/login
         }
 
         try {
-            // Create order detail for the cart
-            CommandeService commandeService = new CommandeService();
-            
-            // Check if there's an existing cart (order with EN_COURS status)
-            Commande existingCart = commandeService.getCartForUser(currentUser.getId());
-            
-            if (existingCart == null) {
-                // Create a new shopping cart
-                existingCart = new Commande();
-                existingCart.setDateComm(LocalDate.now());
-                existingCart.setStatut(StatutCommandeEnum.EN_COURS);
-                existingCart.setUser(currentUser);
-                commandeService.createCommande(existingCart);
-            }
-            
-            // Check if product is already in cart
-            boolean productFound = false;
-            for (Orderdetails detail : existingCart.getOrderDetails()) {
-                if (detail.getProduit().getId() == produit.getId()) {
-                    // Product already in cart, increase quantity
-                    detail.setQuantity(detail.getQuantity() + 1);
-                    detail.calculateTotal();
-                    commandeService.updateCommande(existingCart);
-                    productFound = true;
-                    break;
-                }
-            }
-            
-            if (!productFound) {
-                // Add new product to cart
-                Orderdetails detail = new Orderdetails();
-                detail.setProduit(produit);
-                detail.setQuantity(1);
-                detail.setPrice((int) produit.getPrix());
-                detail.calculateTotal();
-                
-                existingCart.getOrderDetails().add(detail);
-                commandeService.updateCommande(existingCart);
-            }
-            
+            // In-memory cart, the line is written in the background
+            CartService.getInstance().add(currentUser.getId(), produit, 1);
+
             // Update cart count badge
             updateCartBadge();
             
@@ -799,16 +895,8 @@ FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/itbs/views/login
             User currentUser = SessionManager.getInstance().getCurrentUser();
             if (currentUser == null || cartItemCount == null) return;
             
-            CommandeService commandeService = new CommandeService();
-            Commande cart = commandeService.getCartForUser(currentUser.getId());
-            
-            if (cart == null) {
-                cartItemCount.setText("0");
-                cartItemCount.setVisible(false);
-                return;
-            }
-            
-            int itemCount = cart.getOrderDetails().size();
+            // Cached count, no query
+            int itemCount = CartService.getInstance().getItemCount(currentUser.getId());
             cartItemCount.setText(String.valueOf(itemCount));
             cartItemCount.setVisible(itemCount > 0);
             
@@ -859,6 +947,18 @@ FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/itbs/views/login
     @FXML
     private void resetFilters() {
         txtSearch.clear();
+        if (txtMinPrice != null) {
+            txtMinPrice.clear();
+        }
+        if (txtMaxPrice != null) {
+            txtMaxPrice.clear();
+        }
+        if (chkInStock != null) {
+            chkInStock.setSelected(false);
+        }
+        if (comboSort != null) {
+            comboSort.getSelectionModel().select(ProduitService.CatalogSort.NEWEST);
+        }
         comboFilterClub.getSelectionModel().selectFirst();
         filterProducts();
     }
@@ -2,10 +2,10 @@ package com.itbs.controllers;
 
 import com.itbs.models.Evenement;
 import com.itbs.services.ServiceEvent;
+import com.itbs.services.QRTokenService;
 import com.itbs.services.ServiceParticipation;
 import com.itbs.utils.QRCodeUtil;
 import com.google.zxing.WriterException;
-import javafx.embed.swing.SwingFXUtils;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
@@ -14,11 +14,10 @@ import javafx.scene.image.ImageView;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.ResourceBundle;
 
@@ -45,7 +44,8 @@ public class QRConfirmation implements Initializable {
     private Long currentUserId;
     private ServiceEvent serviceEvent = new ServiceEvent();
     private ServiceParticipation serviceParticipation = new ServiceParticipation();
-    private String qrCodeFilePath;
+    // Signed token shown in the QR code, exported as is
+    private String qrPayload;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -108,14 +108,11 @@ public class QRConfirmation implements Initializable {
      */
     private void handleGenerateQR() {
         try {
-            // Generate QR code image
-            Image qrCodeImage = QRCodeUtil.createQRCodeImage(currentUserId, Long.valueOf(currentEvent.getId()));
+            // Generate QR code image from the signed participation token
+            qrPayload = QRTokenService.getInstance().issue(currentUserId, currentEvent.getId(), currentEvent.getEnd_date());
+            Image qrCodeImage = QRCodeUtil.createQRCodeImage(qrPayload);
             qrCodeImageView.setImage(qrCodeImage);
 
-            String fileName = QRCodeUtil.generateQRCodeFileName(currentUserId, Long.valueOf(currentEvent.getId()));
-            qrCodeFilePath = QRCodeUtil.generateQRCode(currentUserId, Long.valueOf(currentEvent.getId()), fileName);
-
-
             // Enable save button
             saveQRButton.setDisable(false);
 
@@ -127,7 +124,7 @@ public class QRConfirmation implements Initializable {
                     "Vous pouvez l'enregistrer ou le capturer d'écran pour le présenter lors de l'événement.");
             alert.showAndWait();
 
-        } catch (WriterException | IOException e) {
+        } catch (WriterException | SQLException e) {
             // Handle error
             Alert alert = new Alert(Alert.AlertType.ERROR);
             alert.setTitle("Erreur");
@@ -142,7 +139,7 @@ public class QRConfirmation implements Initializable {
      * Handles saving the QR code to a user-selected location
      */
     private void handleSaveQR() {
-        if (qrCodeImageView.getImage() == null) {
+        if (qrCodeImageView.getImage() == null || qrPayload == null) {
             return;
         }
 
@@ -162,11 +159,8 @@ public class QRConfirmation implements Initializable {
 
         if (file != null) {
             try {
-                // Convert JavaFX image to BufferedImage
-                BufferedImage bufferedImage = SwingFXUtils.fromFXImage(qrCodeImageView.getImage(), null);
-
-                // Write image to file
-                ImageIO.write(bufferedImage, "png", file);
+                // Encoded again from the cached matrix, the PNG is only written here
+                QRCodeUtil.exportQRCode(qrPayload, file);
 
                 // Show success message
                 Alert alert = new Alert(Alert.AlertType.INFORMATION);
@@ -175,7 +169,7 @@ public class QRConfirmation implements Initializable {
                 alert.setContentText("Le QR code a été enregistré avec succès à l'emplacement spécifié.");
                 alert.showAndWait();
 
-            } catch (IOException e) {
+            } catch (WriterException | IOException e) {
                 Alert alert = new Alert(Alert.AlertType.ERROR);
                 alert.setTitle("Erreur");
                 alert.setHeaderText("Erreur d'enregistrement");
@@ -1,29 +1,44 @@
 package com.itbs.controllers;
 
 import com.itbs.models.Evenement;
-import com.itbs.models.Participation_event;
+import com.itbs.services.EventCheckInService;
 import com.itbs.services.ServiceEvent;
-import com.itbs.services.ServiceParticipation;
 import com.itbs.services.UserService;
 import com.google.zxing.*;
 import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
 import com.google.zxing.common.HybridBinarizer;
+import javafx.application.Platform;
 import javafx.embed.swing.SwingFXUtils;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.stage.WindowEvent;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class QRScanner implements Initializable {
 
@@ -38,19 +53,32 @@ public class QRScanner implements Initializable {
     @FXML
     private Button scanButton;
     @FXML
+    private Button continuousScanButton;
+    @FXML
     private Button closeButton;
     @FXML
     private ProgressBar scanProgressBar;
 
     private Evenement currentEvent;
     private ServiceEvent serviceEvent = new ServiceEvent();
-    private ServiceParticipation serviceParticipation = new ServiceParticipation();
     private UserService serviceUser = new UserService(); // Assuming you have a ServiceUser class
 
+    // Mode continu : nombre de lignes gardées dans le journal affiché
+    private static final int MAX_LOG_LINES = 200;
+    private ExecutorService scanWorker;
+    private volatile boolean continuousScanning;
+    private final Deque<String> scanLog = new ArrayDeque<>();
+    private int acceptedScans;
+    private int rejectedScans;
+    // Check-in session shared by the file scan and the continuous mode
+    private EventCheckInService checkInSession;
+    private boolean windowCloseHandled;
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         // Initialize buttons
         scanButton.setOnAction(event -> handleScanQRCode());
+        continuousScanButton.setOnAction(event -> handleContinuousScan());
         closeButton.setOnAction(event -> handleClose());
 
         // Initialize progress bar
@@ -102,6 +130,7 @@ public class QRScanner implements Initializable {
 
                 if (qrCodeContent != null) {
                     // Process QR code content
+                    closeSessionWithWindow(scanButton.getScene().getWindow());
                     processQRCodeContent(qrCodeContent);
                 } else {
                     statusLabel.setText("QR Code invalide ou non reconnu");
@@ -152,132 +181,274 @@ public class QRScanner implements Initializable {
     }
 
     /**
-     * Processes the QR code content and validates participation
+     * Processes the QR code content and validates participation: same check-in
+     * session as the continuous mode, validated against the participants and
+     * revocations loaded when it opened
      * @param qrContent The content decoded from the QR code
      */
     private void processQRCodeContent(String qrContent) {
-        // Expected format: userId:eventId:timestamp
-        String[] parts = qrContent.split(":");
-
-        if (parts.length != 3) {
-            statusLabel.setText("Format QR invalide");
+        EventCheckInService session;
+        try {
+            session = getCheckInSession();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            statusLabel.setText("Erreur de chargement");
             statusLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
-            resultTextArea.setText("Le contenu du QR code n'est pas dans le format attendu.");
+            resultTextArea.setText("Impossible de charger les participants de l'événement: " + e.getMessage());
             return;
         }
 
-        try {
-            Long userId = Long.parseLong(parts[0]);
-            Long eventId = Long.parseLong(parts[1]);
+        EventCheckInService.CheckInResult result = session.checkIn(qrContent);
+        switch (result) {
+            case ACCEPTED:
+                statusLabel.setText("✓ Participation valide");
+                statusLabel.setStyle("-fx-text-fill: green; -fx-font-weight: bold;");
+                break;
+            case ALREADY_CHECKED_IN:
+                statusLabel.setText("⚠ Déjà entré");
+                statusLabel.setStyle("-fx-text-fill: #f57c00; -fx-font-weight: bold;");
+                break;
+            default:
+                statusLabel.setText("⨯ QR code refusé");
+                statusLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
+                break;
+        }
+        resultTextArea.setText(describe(result, qrContent) + "\n\n" +
+                "Événement: " + currentEvent.getNom_event() + "\n" +
+                "Entrées: " + session.getCheckedInCount() + "/" + session.getParticipantCount());
+    }
 
-            // Afficher les valeurs pour le débogage
-            System.out.println("QR Code - ID utilisateur: " + userId);
-            System.out.println("QR Code - ID événement: " + eventId);
-            System.out.println("Événement actuel - ID: " + currentEvent.getId());
+    // Opened on the first scan, kept until the window is closed
+    private synchronized EventCheckInService getCheckInSession() throws SQLException {
+        if (checkInSession == null) {
+            checkInSession = new EventCheckInService(Long.parseLong(String.valueOf(currentEvent.getId())));
+        }
+        return checkInSession;
+    }
 
-            // Obtenir l'ID de l'événement actuel (sans supposer le type)
-            Long currentEventId = null;
-            try {
-                // Si getId() renvoie un Long
-                Object id = currentEvent.getId();
-                if (id instanceof Long) {
-                    currentEventId = (Long) id;
-                } else if (id instanceof Integer) {
-                    currentEventId = ((Integer) id).longValue();
-                } else if (id instanceof String) {
-                    currentEventId = Long.parseLong((String) id);
-                } else {
-                    // Si c'est un type primitif ou autre chose, nous utilisons toString et parseLong
-                    currentEventId = Long.parseLong(id.toString());
+    // Writes the pending check-ins once the scan worker has stopped, off the JavaFX thread
+    private void closeCheckInSession() {
+        ExecutorService worker = scanWorker;
+        stopContinuousScan();
+        EventCheckInService session;
+        synchronized (this) {
+            session = checkInSession;
+            checkInSession = null;
+        }
+        if (session == null) {
+            return;
+        }
+        new Thread(() -> {
+            if (worker != null) {
+                try {
+                    worker.awaitTermination(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
-            } catch (Exception e) {
-                System.out.println("Erreur lors de la conversion de l'ID de l'événement: " + e.getMessage());
-                e.printStackTrace();
             }
+            session.close();
+        }, "qr-checkin-close").start();
+    }
 
-            // Validate that this QR code is for the current event
-            if (!eventId.equals(currentEventId)) {
-                statusLabel.setText("Événement incorrect");
-                statusLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
-                resultTextArea.setText("Ce QR code est pour un autre événement.\n\n" +
-                        "Événement actuel: " + currentEvent.getNom_event() + "\n" +
-                        "ID de l'événement actuel: " + currentEventId + "\n" +
-                        "ID de l'événement du QR: " + eventId);
-                return;
-            }
-
-            // Verify participation
-            boolean isRegistered = serviceParticipation.participationExists(userId, eventId);
-
-            if (isRegistered) {
-                // Get user details for better display
-                String userName = getUserName(userId);
+    // The window can also be closed from its title bar
+    private void closeSessionWithWindow(Window window) {
+        if (!windowCloseHandled) {
+            windowCloseHandled = true;
+            window.addEventHandler(WindowEvent.WINDOW_HIDDEN, event -> closeCheckInSession());
+        }
+    }
 
-                statusLabel.setText("✓ Participation valide");
-                statusLabel.setStyle("-fx-text-fill: green; -fx-font-weight: bold;");
+    /**
+     * Starts or stops the continuous check-in mode: QR frames dropped in a
+     * folder (camera export, scanner app...) are decoded on a worker thread and
+     * validated against the participant list loaded once for the event.
+     */
+    private void handleContinuousScan() {
+        if (continuousScanning) {
+            stopContinuousScan();
+            return;
+        }
 
-                // Format participation date nicely
-                Date participationDate = getParticipationDate(userId, eventId);
-                SimpleDateFormat dateFormat = new SimpleDateFormat("dd MMMM yyyy à HH:mm");
-                String formattedDate = participationDate != null ? dateFormat.format(participationDate) : "Date inconnue";
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Dossier des images scannées");
+        File folder = directoryChooser.showDialog(continuousScanButton.getScene().getWindow());
+        if (folder == null) {
+            return;
+        }
 
-                resultTextArea.setText("Participant: " + userName + "\n" +
-                        "ID Utilisateur: " + userId + "\n" +
-                        "Événement: " + currentEvent.getNom_event() + "\n" +
-                        "Date d'inscription: " + formattedDate + "\n\n" +
-                        "La participation est confirmée. Le participant peut assister à l'événement.");
+        closeSessionWithWindow(continuousScanButton.getScene().getWindow());
+        continuousScanning = true;
+        acceptedScans = 0;
+        rejectedScans = 0;
+        scanLog.clear();
+        resultTextArea.clear();
+        scanButton.setDisable(true);
+        continuousScanButton.setText("Arrêter");
+        statusLabel.setText("Chargement des participants...");
+        statusLabel.setStyle("-fx-text-fill: #1976d2; -fx-font-weight: bold;");
+
+        scanWorker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "qr-checkin-scanner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scanWorker.execute(() -> runContinuousScan(folder.toPath()));
+    }
 
-                // Mark attendance if needed
-                // This could be implemented in a future version to mark the user as having attended
+    private void stopContinuousScan() {
+        continuousScanning = false;
+        if (scanWorker != null) {
+            scanWorker.shutdown();
+            scanWorker = null;
+        }
+        scanButton.setDisable(false);
+        continuousScanButton.setText("Mode continu");
+    }
 
-            } else {
-                statusLabel.setText("⨯ Non inscrit");
-                statusLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
-                resultTextArea.setText("L'utilisateur avec l'ID " + userId + " n'est pas inscrit à cet événement.\n\n" +
-                        "Événement: " + currentEvent.getNom_event() + "\n\n" +
-                        "Ce QR code semble avoir été généré pour un utilisateur non inscrit à l'événement.");
+    // Worker thread: one reader reused for every frame, pending check-ins written when the window closes
+    private void runContinuousScan(Path folder) {
+        MultiFormatReader reader = new MultiFormatReader();
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, List.of(BarcodeFormat.QR_CODE));
+        reader.setHints(hints);
+
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            EventCheckInService session = getCheckInSession();
+            Platform.runLater(() -> updateContinuousStatus(session));
+
+            folder.register(watcher, StandardWatchEventKinds.ENTRY_CREATE);
+            // Images already in the folder, then the new ones as they arrive
+            try (DirectoryStream<Path> frames = Files.newDirectoryStream(folder)) {
+                for (Path frame : frames) {
+                    if (!continuousScanning) {
+                        break;
+                    }
+                    processFrame(reader, frame, session);
+                }
             }
 
-        } catch (NumberFormatException e) {
-            statusLabel.setText("Format QR invalide");
-            statusLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
-            resultTextArea.setText("Le contenu du QR code contient des valeurs invalides.");
+            while (continuousScanning) {
+                WatchKey key = watcher.poll(500, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        continue;
+                    }
+                    processFrame(reader, folder.resolve((Path) event.context()), session);
+                }
+                if (!key.reset()) {
+                    break;
+                }
+            }
+        } catch (SQLException | IOException e) {
             e.printStackTrace();
+            Platform.runLater(() -> {
+                stopContinuousScan();
+                statusLabel.setText("Erreur du mode continu");
+                statusLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
+                resultTextArea.setText("Le mode continu s'est arrêté: " + e.getMessage());
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    /**
-     * Gets a user's name by their ID
-     * @param userId The user ID
-     * @return The user's name or a default string if not found
-     */
-    private String getUserName(Long userId) {
-        // This is a placeholder - implement according to your user service
-        // return serviceUser.getUserNameById(userId);
-        return "Utilisateur #" + userId; // Temporary placeholder
+    private void processFrame(MultiFormatReader reader, Path frame, EventCheckInService session)
+            throws InterruptedException {
+        String name = frame.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (!(name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg"))) {
+            return;
+        }
+
+        BufferedImage image = readFrame(frame);
+        if (image == null) {
+            return;
+        }
+
+        String content;
+        try {
+            LuminanceSource source = new BufferedImageLuminanceSource(image);
+            content = reader.decodeWithState(new BinaryBitmap(new HybridBinarizer(source))).getText();
+        } catch (NotFoundException e) {
+            return; // Pas de QR code dans cette image
+        } finally {
+            reader.reset();
+        }
+
+        EventCheckInService.CheckInResult result = session.checkIn(content);
+        String line = new SimpleDateFormat("HH:mm:ss").format(new Date()) + "  " + describe(result, content);
+        Platform.runLater(() -> {
+            if (result == EventCheckInService.CheckInResult.ACCEPTED) {
+                acceptedScans++;
+            } else {
+                rejectedScans++;
+            }
+            scanLog.addFirst(line);
+            if (scanLog.size() > MAX_LOG_LINES) {
+                scanLog.removeLast();
+            }
+            resultTextArea.setText(String.join("\n", scanLog));
+            updateContinuousStatus(session);
+        });
     }
 
-    /**
-     * Gets the participation date for a user and event
-     * @param userId The user ID
-     * @param eventId The event ID
-     * @return The participation date or null if not found
-     */
-    private Date getParticipationDate(Long userId, Long eventId) {
-        // This would retrieve the actual participation date from your database
-        List<Participation_event> participations = serviceParticipation.getParticipationsByUser(userId);
-        for (Participation_event p : participations) {
-            if (p.getEvenement_id().equals(eventId)) {
-                return p.getDateparticipation();
+    // A frame may still be being written when its creation is notified, read it again once
+    private BufferedImage readFrame(Path frame) throws InterruptedException {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                BufferedImage image = ImageIO.read(frame.toFile());
+                if (image != null) {
+                    return image;
+                }
+            } catch (IOException e) {
+                // Fichier incomplet, nouvel essai
             }
+            Thread.sleep(100);
         }
         return null;
     }
 
+    private String describe(EventCheckInService.CheckInResult result, String content) {
+        long userId = EventCheckInService.scannedUserId(content);
+        switch (result) {
+            case ACCEPTED:
+                return "✓ Utilisateur #" + userId + " enregistré";
+            case ALREADY_CHECKED_IN:
+                return "⚠ Utilisateur #" + userId + " déjà entré";
+            case NOT_REGISTERED:
+                return "⨯ Utilisateur #" + userId + " non inscrit";
+            case WRONG_EVENT:
+                return "⨯ QR code d'un autre événement";
+            case EXPIRED:
+                return "⨯ QR code expiré (utilisateur #" + userId + ")";
+            case REVOKED:
+                return "⨯ Participation annulée (utilisateur #" + userId + ")";
+            case CLOSED:
+                return "⨯ Session de contrôle fermée, scan non enregistré";
+            case UNSIGNED:
+                return "⨯ Ancien QR code non signé, à régénérer depuis l'inscription";
+            default:
+                return "⨯ QR code invalide";
+        }
+    }
+
+    private void updateContinuousStatus(EventCheckInService session) {
+        if (!continuousScanning) {
+            return;
+        }
+        statusLabel.setText("Entrées: " + session.getCheckedInCount() + "/" + session.getParticipantCount() +
+                " (acceptés " + acceptedScans + ", refusés " + rejectedScans + ")");
+        statusLabel.setStyle("-fx-text-fill: #1976d2; -fx-font-weight: bold;");
+    }
+
     /**
      * Handles closing the scanner window
      */
     private void handleClose() {
+        closeCheckInSession();
         Stage stage = (Stage) closeButton.getScene().getWindow();
         stage.close();
     }
@@ -6,6 +6,7 @@ import com.itbs.models.User;
 import com.itbs.services.AuthService;
 import com.itbs.services.SaisonService;
 import com.itbs.services.UserService;
+import com.itbs.services.UploadStore;
 import com.itbs.utils.SessionManager;
 import javafx.animation.FadeTransition;
 import javafx.animation.ScaleTransition;
@@ -1109,6 +1110,9 @@ public class SaisonController {
         // Handle image upload
         if (selectedImageFile != null) {
             String fileName = saveImage(selectedImageFile);
+            if (fileName != null) {
+                UploadStore.getInstance().release(UploadStore.Area.IMAGES, selectedSaison.getImage());
+            }
             selectedSaison.setImage(fileName);
         }
 
@@ -1148,17 +1152,21 @@ public class SaisonController {
         );
 
         if (confirmAlert.showAndWait().get() == ButtonType.OK) {
-            // Delete the image file if it exists
+            saisonService.delete(saison.getId());
+
+            // Stored images may be shared: drop the reference, the upload GC deletes unused files
             if (saison.getImage() != null && !saison.getImage().isEmpty()) {
-                try {
-                    Files.deleteIfExists(Paths.get(uploadDirectory + saison.getImage()));
-                } catch (IOException e) {
-                    System.err.println("Error deleting image file: " + e.getMessage());
+                if (UploadStore.Area.IMAGES.fromColumnValue(saison.getImage()) != null) {
+                    UploadStore.getInstance().release(UploadStore.Area.IMAGES, saison.getImage());
+                } else {
+                    try {
+                        Files.deleteIfExists(Paths.get(uploadDirectory + saison.getImage()));
+                    } catch (IOException e) {
+                        System.err.println("Error deleting image file: " + e.getMessage());
+                    }
                 }
             }
 
-            saisonService.delete(saison.getId());
-
             // Show success alert
             showAlert(AlertType.INFORMATION, "Season Deleted",
                     "The season was deleted successfully.", "");
@@ -1169,12 +1177,9 @@ public class SaisonController {
     }
 
     private String saveImage(File file) {
-        String fileName = UUID.randomUUID().toString() + getFileExtension(file.getName());
-        Path targetPath = Paths.get(uploadDirectory + fileName);
-
         try {
-            Files.copy(file.toPath(), targetPath, StandardCopyOption.REPLACE_EXISTING);
-            return fileName;
+            // Stored in uploads/images under its content hash, identical images are stored once
+            return UploadStore.getInstance().store(file, UploadStore.Area.IMAGES);
         } catch (IOException e) {
             showAlert(AlertType.ERROR, "File Error",
                     "Could not save image", e.getMessage());
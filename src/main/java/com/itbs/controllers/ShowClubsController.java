@@ -4,6 +4,8 @@ import com.itbs.MainApp;
 import com.itbs.models.Club;
 import com.itbs.models.User;
 import com.itbs.services.ClubService;
+import com.itbs.services.SearchService;
+import com.itbs.utils.ImageCache;
 import com.itbs.utils.SessionManager; // Use SessionManager instead of UserSession
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -28,7 +30,10 @@ import javafx.stage.Stage;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
 
@@ -88,22 +93,11 @@ public class ShowClubsController implements Initializable {
             // Set user name
             userNameLabel.setText(currentUser.getFirstName() + " " + currentUser.getLastName());
 
-            // Load profile picture
-            String profilePicture = currentUser.getProfilePicture();
-            if (profilePicture != null && !profilePicture.isEmpty()) {
-                try {
-                    File imageFile = new File("uploads/profiles/" + profilePicture);
-                    if (imageFile.exists()) {
-                        Image image = new Image(imageFile.toURI().toString());
-                        userProfilePic.setImage(image);
-                    } else {
-                        loadDefaultProfilePic();
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    loadDefaultProfilePic();
-                }
-            } else {
+            // Load profile picture (background decode, default picture meanwhile)
+            try {
+                ImageCache.getInstance().loadProfilePicture(userProfilePic, currentUser.getProfilePicture(), 45);
+            } catch (Exception e) {
+                e.printStackTrace();
                 loadDefaultProfilePic();
             }
 
@@ -122,12 +116,7 @@ public class ShowClubsController implements Initializable {
     }
 
     private void loadDefaultProfilePic() {
-        try {
-            Image defaultImage = new Image(getClass().getResourceAsStream("/com/itbs/images/default-profile.png"));
-            userProfilePic.setImage(defaultImage);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        userProfilePic.setImage(ImageCache.getInstance().getPlaceholder(ImageCache.DEFAULT_PROFILE));
     }
 
     private void loadClubs() {
@@ -179,14 +168,21 @@ public class ShowClubsController implements Initializable {
 
     @FXML
     private void handleSearch() {
-        String query = searchField.getText().trim().toLowerCase();
+        String query = searchField.getText().trim();
         currentPage = 1; // Reset to first page on search
 
-        if (query.isEmpty()) {
+        if (!SearchService.hasQuery(query)) {
             filteredClubs = allClubs;
         } else {
+            // Ranked ids from the text index (name, description), best match first
+            List<Integer> ids = SearchService.getInstance().search(SearchService.Domain.CLUB, query, 0);
+            Map<Integer, Integer> rank = new HashMap<>();
+            for (int i = 0; i < ids.size(); i++) {
+                rank.put(ids.get(i), i);
+            }
             filteredClubs = allClubs.stream()
-                    .filter(club -> club.getNomC().toLowerCase().contains(query))
+                    .filter(club -> rank.containsKey(club.getId()))
+                    .sorted(Comparator.comparing(club -> rank.get(club.getId())))
                     .collect(Collectors.toList());
         }
 
@@ -228,11 +224,10 @@ public class ShowClubsController implements Initializable {
         // Club Image
         ImageView imageView = new ImageView();
         try {
-            Image image = loadImage(club.getImage());
-            imageView.setImage(image);
+            loadImage(imageView, club.getImage());
         } catch (Exception e) {
             System.err.println("Erreur de chargement d'image pour le club: " + club.getNomC());
-            imageView.setImage(new Image(getClass().getResourceAsStream("/images/default-club.png")));
+            imageView.setImage(ImageCache.getInstance().getPlaceholder(ImageCache.DEFAULT_CLUB));
         }
         imageView.setFitWidth(300);
         imageView.setFitHeight(180);
@@ -301,23 +296,25 @@ public class ShowClubsController implements Initializable {
         return card;
     }
 
-    private Image loadImage(String imagePath) throws Exception {
+    private void loadImage(ImageView imageView, String imagePath) {
+        Image placeholder = ImageCache.getInstance().getPlaceholder(ImageCache.DEFAULT_CLUB);
         if (imagePath == null || imagePath.trim().isEmpty()) {
-            return new Image(getClass().getResourceAsStream("/images/default-club.png"));
+            imageView.setImage(placeholder);
+            return;
         }
 
-        try {
-            // Essayer comme URL
-            return new Image(imagePath);
-        } catch (Exception e) {
-            // Si échec, essayer comme fichier local
-            try {
-                return new Image("file:" + imagePath);
-            } catch (Exception e2) {
-                System.err.println("Impossible de charger l'image depuis: " + imagePath);
-                return new Image(getClass().getResourceAsStream("/images/default-club.png"));
-            }
+        if (imagePath.startsWith("http://") || imagePath.startsWith("https://")) {
+            // Image distante : chargée en arrière-plan, à la taille de la carte
+            imageView.setImage(new Image(imagePath, 300, 180, true, true, true));
+            return;
+        }
+
+        // Fichier local (uploads/clubs/...) : décodé en arrière-plan et mis en cache
+        File file = new File(imagePath.startsWith("file:") ? imagePath.substring("file:".length()) : imagePath);
+        if (!file.isFile()) {
+            System.err.println("Impossible de charger l'image depuis: " + imagePath);
         }
+        ImageCache.getInstance().loadInto(imageView, file, 300, 180, placeholder);
     }
 
     private void handleParticipate(Club club) {
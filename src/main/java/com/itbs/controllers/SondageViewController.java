@@ -6,6 +6,8 @@ import com.itbs.models.Sondage;
 import com.itbs.models.ChoixSondage;
 import com.itbs.models.User;
 import com.itbs.models.Club;
+import com.itbs.models.enums.CommentStatusEnum;
+import com.itbs.services.ChangeEventBus;
 import com.itbs.services.CommentaireService;
 import com.itbs.services.SondageService;
 import com.itbs.services.ChoixSondageService;
@@ -14,9 +16,11 @@ import com.itbs.services.UserService;
 import com.itbs.services.ClubService;
 import com.itbs.services.ParticipationMembreService;
 import com.itbs.utils.AlertUtils;
+import com.itbs.utils.ImageCache;
 import com.itbs.utils.SessionManager;
 import com.itbs.utils.EmailService;
 import javafx.animation.FadeTransition;
+import javafx.application.Platform;
 import javafx.animation.ParallelTransition;
 import javafx.animation.ScaleTransition;
 import javafx.beans.property.SimpleStringProperty;
@@ -57,9 +61,11 @@ import java.io.IOException;
 import java.net.URL;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
 
@@ -99,6 +105,8 @@ public class SondageViewController implements Initializable {
     @FXML
     private VBox sondagesContainer;
     @FXML
+    private ListView<Sondage> sondagesListView;
+    @FXML
     private TextArea commentTextArea;
     @FXML
     private ComboBox<String> filterClubComboBox;
@@ -146,6 +154,23 @@ public class SondageViewController implements Initializable {
     private final ObservableList<String> clubsList = FXCollections.observableArrayList();
     private int optionCount = 2; // Commence avec 2 options
 
+    // Fil des sondages : chargé par pages au fil du défilement
+    private static final int FEED_PAGE_SIZE = 10;
+    // Order of the feed pages (created_at DESC, id DESC)
+    private static final Comparator<Sondage> FEED_ORDER = Comparator
+            .comparing(Sondage::getCreatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()))
+            .thenComparing(Sondage::getId, Comparator.reverseOrder());
+    private String currentClubFilter = "all";
+    private boolean hasMorePolls = true;
+    private boolean loadingPolls = false;
+    private Integer currentClubId;
+    // Nom affiché dans le filtre -> ID du club
+    private final Map<String, Integer> clubIdsByName = new HashMap<>();
+    // État des cartes (brouillon de commentaire, option cochée) conservé hors des cellules recyclées
+    private final Map<Integer, PollCardState> cardStates = new HashMap<>();
+    // Incrémenté par refreshData : les cartes construites avant sont reconstruites
+    private int renderGeneration;
+
     // Add these FXML field declarations at the top of the class with the other
     // declarations
     @FXML
@@ -174,21 +199,10 @@ public class SondageViewController implements Initializable {
 
             // Load profile picture
             if (userProfilePic != null) {
-                String profilePicture = currentUser.getProfilePicture();
-                if (profilePicture != null && !profilePicture.isEmpty()) {
-                    try {
-                        File imageFile = new File("uploads/profiles/" + profilePicture);
-                        if (imageFile.exists()) {
-                            Image image = new Image(imageFile.toURI().toString());
-                            userProfilePic.setImage(image);
-                        } else {
-                            loadDefaultProfilePic();
-                        }
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        loadDefaultProfilePic();
-                    }
-                } else {
+                try {
+                    ImageCache.getInstance().loadProfilePicture(userProfilePic, currentUser.getProfilePicture(), 40);
+                } catch (Exception e) {
+                    e.printStackTrace();
                     loadDefaultProfilePic();
                 }
 
@@ -208,6 +222,7 @@ public class SondageViewController implements Initializable {
             // Apply CSS styles to components
             sondagesContainer.getStyleClass().add("polls-section");
             sondagesContainer.setSpacing(20);
+            setupPollFeed();
 
             // Check if user is a club president
             Club userClub = clubService.findByPresident(currentUser.getId());
@@ -249,45 +264,19 @@ public class SondageViewController implements Initializable {
      * Load default profile picture when user's profile picture is not available
      */
     private void loadDefaultProfilePic() {
-        try {
-            // Try to load from class resources
-            InputStream stream = getClass().getResourceAsStream("/com/itbs/images/default-profile.png");
-            
-            // Check if stream is null and try alternative paths
-            if (stream == null) {
-                // Try different paths
-                stream = getClass().getResourceAsStream("/images/default-profile.png");
-                
-                if (stream == null) {
-                    // Last resort - create a simple default image
-                    WritableImage defaultImg = new WritableImage(45, 45);
-                    userProfilePic.setImage(defaultImg);
-                    return;
-                }
-            }
-            
-            Image defaultImage = new Image(stream);
-            userProfilePic.setImage(defaultImage);
-        } catch (Exception e) {
-            System.err.println("Failed to load default profile picture: " + e.getMessage());
-            // Create a simple colored circle as fallback
-            WritableImage defaultImg = new WritableImage(45, 45);
-            userProfilePic.setImage(defaultImg);
-        }
+        userProfilePic.setImage(ImageCache.getInstance().getPlaceholder(ImageCache.DEFAULT_PROFILE));
     }
 
     private void setupClubFilter() throws SQLException {
         // Ajouter l'option pour tous les clubs
         clubsList.add("all");
 
-        // Ajouter tous les noms de clubs (correction de la méthode)
-        List<com.itbs.models.Club> clubs = sondageService.getInstance().getAll().stream()
-                .map(sondage -> sondage.getClub())
-                .distinct()
-                .toList();
-
-        for (com.itbs.models.Club club : clubs) {
-            clubsList.add(club.getNomC());
+        // Ajouter les clubs qui ont au moins un sondage (id et nom uniquement)
+        for (Club club : sondageService.getInstance().getClubsWithPolls()) {
+            if (club.getNomC() != null && !clubIdsByName.containsKey(club.getNomC())) {
+                clubIdsByName.put(club.getNomC(), club.getId());
+                clubsList.add(club.getNomC());
+            }
         }
 
         filterClubComboBox.setItems(clubsList);
@@ -305,26 +294,205 @@ public class SondageViewController implements Initializable {
         });
     }
 
+    private void setupPollFeed() {
+        sondagesListView.setItems(sondagesList);
+        sondagesListView.setPlaceholder(new Label("No polls to display"));
+        sondagesListView.setCellFactory(listView -> new SondageCell());
+
+        // Votes, edits and comments repaint only the card of their poll
+        ChangeEventBus bus = ChangeEventBus.getInstance();
+        bus.subscribeWhileShowing(sondagesListView, ChangeEventBus.Entity.SONDAGE, this::onPollChanged);
+        bus.subscribeWhileShowing(sondagesListView, ChangeEventBus.Entity.COMMENTAIRE, this::onCommentChanged);
+    }
+
+    /**
+     * Remplace, ajoute ou retire la carte d'un sondage modifié (bus de changements)
+     */
+    private void onPollChanged(ChangeEventBus.ChangeEvent event) {
+        applyPollChange(event.getId(), event.getOperation());
+    }
+
+    private void applyPollChange(int sondageId, ChangeEventBus.Operation operation) {
+        int index = indexOfPoll(sondageId);
+        if (operation == ChangeEventBus.Operation.DELETED) {
+            if (index >= 0) {
+                sondagesList.remove(index);
+                cardStates.remove(sondageId);
+            }
+            return;
+        }
+
+        try {
+            Sondage sondage = sondageService.getInstance().getById(sondageId);
+            if (sondage == null) {
+                return;
+            }
+            Club club = sondage.getClub();
+            if (club != null && club.getNomC() != null && !clubIdsByName.containsKey(club.getNomC())) {
+                clubIdsByName.put(club.getNomC(), club.getId());
+                clubsList.add(club.getNomC());
+            }
+            // The bus coalesces a CREATED then UPDATED into UPDATED: the filter
+            // decides, not the operation
+            boolean matchesFilter = "all".equals(currentClubFilter)
+                    || (club != null && currentClubId != null && currentClubId == club.getId());
+            if (!matchesFilter) {
+                if (index >= 0) {
+                    sondagesList.remove(index);
+                    cardStates.remove(sondageId);
+                }
+            } else if (index >= 0) {
+                // A new instance: the cell rebuilds this card only
+                sondagesList.set(index, sondage);
+            } else {
+                insertPoll(sondage);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Repaint the card of the poll a comment was written on
+     */
+    private void onCommentChanged(ChangeEventBus.ChangeEvent event) {
+        if (event.getOperation() == ChangeEventBus.Operation.DELETED) {
+            // CommentaireService also publishes the poll of a deleted comment, see onPollChanged
+            return;
+        }
+        try {
+            Commentaire commentaire = commentaireService.getById(event.getId());
+            if (commentaire != null && commentaire.getSondage() != null
+                    && indexOfPoll(commentaire.getSondage().getId()) >= 0) {
+                applyPollChange(commentaire.getSondage().getId(), ChangeEventBus.Operation.UPDATED);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // At its place in the feed (a new poll goes on top); a poll past the
+    // loaded pages is left to the page that will bring it
+    private void insertPoll(Sondage sondage) {
+        int position = 0;
+        while (position < sondagesList.size() && FEED_ORDER.compare(sondagesList.get(position), sondage) < 0) {
+            position++;
+        }
+        if (position == sondagesList.size() && hasMorePolls) {
+            return;
+        }
+        sondagesList.add(position, sondage);
+    }
+
+    private int indexOfPoll(int sondageId) {
+        for (int i = 0; i < sondagesList.size(); i++) {
+            if (sondagesList.get(i).getId() == sondageId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private void loadSondages(String clubFilter) throws SQLException {
-        // Vider le conteneur
-        sondagesContainer.getChildren().clear();
+        // Repartir de la première page
+        currentClubFilter = clubFilter != null ? clubFilter : "all";
+        currentClubId = clubIdsByName.get(currentClubFilter);
+        hasMorePolls = true;
+        cardStates.clear();
+        sondagesList.clear();
+
+        loadNextPollPage();
+    }
 
-        // Récupérer les sondages (filtrer par club si nécessaire)
-        ObservableList<Sondage> sondages;
-        if ("all".equals(clubFilter)) {
-            sondages = sondageService.getInstance().getAll();
-        } else {
-            // Pour simplifier, on va filtre en mémoire plutôt que d'utiliser getByClub
-            sondages = FXCollections.observableArrayList(
-                    sondageService.getInstance().getAll().stream()
-                            .filter(s -> s.getClub().getNomC().equals(clubFilter))
-                            .toList());
+    /**
+     * Ajoute la page suivante de sondages au fil
+     */
+    private void loadNextPollPage() throws SQLException {
+        if (loadingPolls || !hasMorePolls) {
+            return;
+        }
+        loadingPolls = true;
+        try {
+            int offset = sondagesList.size();
+            List<Sondage> page;
+            if ("all".equals(currentClubFilter)) {
+                page = sondageService.getInstance().getPage(offset, FEED_PAGE_SIZE);
+            } else if (currentClubId != null) {
+                // Filtrage par club côté base, page par page
+                page = sondageService.getInstance().getPageByClub(currentClubId, offset, FEED_PAGE_SIZE);
+            } else {
+                page = List.of();
+            }
+
+            hasMorePolls = page.size() == FEED_PAGE_SIZE;
+            sondagesList.addAll(page);
+        } finally {
+            loadingPolls = false;
+        }
+    }
+
+    private PollCardState getCardState(int sondageId) {
+        return cardStates.computeIfAbsent(sondageId, id -> new PollCardState());
+    }
+
+    /**
+     * UI state of a poll card that must survive cell recycling
+     */
+    private static class PollCardState {
+        private String commentDraft = "";
+        private Integer pendingChoiceId;
+    }
+
+    /**
+     * Feed cell: the card is only built while the poll is visible and rebuilt
+     * when the cell is reused for another poll
+     */
+    private class SondageCell extends ListCell<Sondage> {
+        private Sondage renderedSondage;
+        private int renderedGeneration;
+
+        SondageCell() {
+            // Keep the cell at the feed width so long questions wrap
+            setPrefWidth(0);
+            setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
         }
 
-        // Créer les éléments d'interface pour chaque sondage
-        for (Sondage sondage : sondages) {
-            VBox sondageBox = createSondageBox(sondage);
-            sondagesContainer.getChildren().add(sondageBox);
+        @Override
+        protected void updateItem(Sondage sondage, boolean empty) {
+            super.updateItem(sondage, empty);
+
+            if (empty || sondage == null) {
+                renderedSondage = null;
+                setText(null);
+                setGraphic(null);
+                return;
+            }
+
+            if (sondage != renderedSondage || renderedGeneration != renderGeneration) {
+                try {
+                    VBox sondageBox = createSondageBox(sondage);
+                    sondageBox.prefWidthProperty().bind(getListView().widthProperty().subtract(30));
+                    setGraphic(sondageBox);
+                    renderedSondage = sondage;
+                    renderedGeneration = renderGeneration;
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                    renderedSondage = null;
+                    setGraphic(new Label("Failed to load poll: " + e.getMessage()));
+                }
+            }
+
+            // Charger la page suivante quand la fin du fil devient visible
+            if (hasMorePolls && getIndex() >= getListView().getItems().size() - 2) {
+                Platform.runLater(() -> {
+                    try {
+                        loadNextPollPage();
+                    } catch (SQLException e) {
+                        e.printStackTrace();
+                        AlertUtils.showError("Error", "Error loading polls: " + e.getMessage());
+                    }
+                });
+            }
         }
     }
 
@@ -346,48 +514,18 @@ public class SondageViewController implements Initializable {
         // Get user's profile picture path
         String profilePicPath = sondage.getUser().getProfilePicture();
 
-        // Debug - print profile pic path to console
-        System.out.println("User ID: " + sondage.getUser().getId() +
-                ", Name: " + sondage.getUser().getFirstName() +
-                ", Profile Pic Path: " + profilePicPath);
-
         try {
-            // Check if user has a profile picture
+            // Look in uploads/profiles first, then the direct path; decoded in the background
+            // at avatar size, the shared default picture is shown meanwhile
+            ImageCache cache = ImageCache.getInstance();
+            File imageFile = null;
             if (profilePicPath != null && !profilePicPath.isEmpty()) {
-                // Use the same approach as CommentsModalController - look in uploads/profiles
-                // directory
-                File imageFile = new File("uploads/profiles/" + profilePicPath);
-                System.out.println("Trying to load from: " + imageFile.getAbsolutePath());
-
-                if (imageFile.exists()) {
-                    System.out.println("File exists, loading image");
-                    avatar.setImage(new Image(imageFile.toURI().toString()));
-                } else {
-                    System.out.println("File does not exist");
-
-                    // If file doesn't exist in uploads, try the direct path
-                    File directFile = new File(profilePicPath);
-                    if (directFile.exists()) {
-                        System.out.println("Direct file exists, loading image");
-                        avatar.setImage(new Image(directFile.toURI().toString()));
-                    } else {
-                        System.out.println("Direct file does not exist either");
-
-                        // Finally try as a resource path
-                        String resourcePath = "/images/" + profilePicPath;
-                        System.out.println("Trying resource path: " + resourcePath);
-
-                        try {
-                            if (getClass().getResourceAsStream(resourcePath) != null) {
-                                avatar.setImage(new Image(getClass().getResourceAsStream(resourcePath)));
-                                System.out.println("Successfully loaded from resources");
-                            }
-                        } catch (Exception e) {
-                            System.err.println("Failed to load from resources: " + e.getMessage());
-                        }
-                    }
+                imageFile = new File("uploads/profiles/" + profilePicPath);
+                if (!imageFile.isFile()) {
+                    imageFile = new File(profilePicPath);
                 }
             }
+            cache.loadInto(avatar, imageFile, 40, 40, cache.getPlaceholder(ImageCache.DEFAULT_PROFILE));
         } catch (Exception e) {
             System.err.println("Error loading profile image: " + e.getMessage());
             e.printStackTrace();
@@ -506,6 +644,10 @@ public class SondageViewController implements Initializable {
         commentTextArea.setWrapText(true);
         HBox.setHgrow(commentTextArea, Priority.ALWAYS);
 
+        // Restore the draft typed before the card was recycled
+        PollCardState cardState = getCardState(sondage.getId());
+        commentTextArea.setText(cardState.commentDraft);
+
         // Microphone button for voice input
         Button micButton = new Button("🎤");
         micButton.getStyleClass().add("voice-input-btn");
@@ -527,6 +669,7 @@ public class SondageViewController implements Initializable {
 
         // Add real-time validation to the textarea
         commentTextArea.textProperty().addListener((observable, oldValue, newValue) -> {
+            cardState.commentDraft = newValue;
             validateComment(newValue, commentErrorLabel, commentTextArea);
         });
 
@@ -643,6 +786,11 @@ public class SondageViewController implements Initializable {
         // Check if the current user has already voted and what their choice was
         ChoixSondage userChoice = getUserChoice(sondage);
 
+        // An option checked but not submitted yet takes precedence over the saved vote
+        PollCardState cardState = getCardState(sondage.getId());
+        Integer selectedChoiceId = cardState.pendingChoiceId != null ? cardState.pendingChoiceId
+                : userChoice != null ? Integer.valueOf(userChoice.getId()) : null;
+
         // Create option rows with radio buttons and progress bars
         for (int i = 0; i < options.size(); i++) {
             ChoixSondage option = options.get(i);
@@ -658,7 +806,7 @@ public class SondageViewController implements Initializable {
             optionRadio.setUserData(option.getId());
 
             // If user already voted for this option, select it
-            if (userChoice != null && userChoice.getId() == option.getId()) {
+            if (selectedChoiceId != null && selectedChoiceId == option.getId()) {
                 optionRadio.setSelected(true);
             }
 
@@ -695,6 +843,12 @@ public class SondageViewController implements Initializable {
             optionsContainer.getChildren().add(optionRow);
         }
 
+        optionsGroup.selectedToggleProperty().addListener((observable, oldToggle, newToggle) -> {
+            if (newToggle != null) {
+                cardState.pendingChoiceId = (Integer) newToggle.getUserData();
+            }
+        });
+
         // Create a container for the voting controls and user's choice
         HBox controlsContainer = new HBox();
         controlsContainer.setAlignment(Pos.CENTER);
@@ -732,12 +886,10 @@ public class SondageViewController implements Initializable {
                     if (confirmed) {
                         // Delete user's vote
                         reponseService.deleteUserVote(currentUser.getId(), sondage.getId());
+                        cardState.pendingChoiceId = null;
 
-                        // Show confirmation
+                        // Show confirmation; the card is repainted by onPollChanged
                         showToast("Your vote has been deleted successfully!", "success");
-
-                        // Refresh the view
-                        refreshData();
                     }
                 } catch (SQLException ex) {
                     ex.printStackTrace();
@@ -807,17 +959,11 @@ public class SondageViewController implements Initializable {
                     // Update existing vote
                     reponseService.updateUserVote(currentUser.getId(), sondage.getId(), choixId);
                     showToast("Your vote has been updated successfully!", "success");
-
-                    // Refresh the view
-                    refreshData();
                 }
             } else {
                 // Add new vote
                 reponseService.addVote(currentUser.getId(), sondage.getId(), choixId);
                 showToast("Your vote has been recorded successfully!", "success");
-
-                // Refresh the view
-                refreshData();
             }
 
         } catch (SQLException e) {
@@ -854,7 +1000,6 @@ public class SondageViewController implements Initializable {
             commentaireService.add(commentaire);
 
             showToast("Your comment has been added successfully!", "success");
-            refreshData();
         } catch (SecurityException e) {
             // This is thrown when a user is banned
             showCommentBannedDialog();
@@ -1322,9 +1467,8 @@ public class SondageViewController implements Initializable {
             // Reset form
             resetPollForm();
 
-            // Reload sondages properly - using "all" as filter to show all polls
+            // Show all polls; the new one is put on top by onPollChanged
             filterClubComboBox.getSelectionModel().select("all");
-            loadSondages("all");
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -1826,13 +1970,10 @@ public class SondageViewController implements Initializable {
     }
 
     // Méthode appelée par d'autres contrôleurs pour rafraîchir les données
+    // Seules les cartes visibles sont reconstruites, les pages déjà chargées sont conservées
     public void refreshData() {
-        try {
-            loadSondages(filterClubComboBox.getValue());
-        } catch (SQLException e) {
-            e.printStackTrace();
-            AlertUtils.showError("Error", "Error refreshing data: " + e.getMessage());
-        }
+        renderGeneration++;
+        sondagesListView.refresh();
     }
 
     @FXML
@@ -2602,17 +2743,12 @@ public class SondageViewController implements Initializable {
      */
     private void approveComment(Commentaire comment) {
         try {
-            // This is a simplified implementation since we don't have access to original
-            // content
-            // In a real implementation, we would store the original content in a separate
-            // column
-            // For now, we'll just replace the warning message with a generic approved
-            // message
-
-            comment.setContenuComment("[Comment was reviewed and approved by moderator]");
-
+            // The moderation status moves to APPROVED, the warning text is replaced
+            // by a generic approved message (the original content is not kept)
             CommentaireService commentaireService = new CommentaireService();
-            commentaireService.update(comment);
+            commentaireService.approve(comment.getId());
+            comment.setStatus(CommentStatusEnum.APPROVED);
+            comment.setContenuComment("[Comment was reviewed and approved by moderator]");
 
             showToast("Comment approved successfully", "success");
         } catch (SQLException e) {
@@ -2626,13 +2762,9 @@ public class SondageViewController implements Initializable {
     private void refreshFlaggedComments(TableView<Commentaire> table) {
         try {
             CommentaireService commentaireService = new CommentaireService();
-            ObservableList<Commentaire> allComments = commentaireService.getAllComments();
-
-            // Filter only flagged comments
-            ObservableList<Commentaire> flaggedComments = allComments.filtered(
-                    comment -> commentaireService.isCommentFlaggedAsToxic(comment));
 
-            table.setItems(flaggedComments);
+            // Only flagged comments are loaded, through the status index
+            table.setItems(commentaireService.getByStatus(CommentStatusEnum.FLAGGED));
         } catch (SQLException e) {
             showToast("Error refreshing comments: " + e.getMessage(), "error");
         }
@@ -4,8 +4,10 @@ import com.itbs.MainApp;
 import com.itbs.models.Commande;
 import com.itbs.models.enums.StatutCommandeEnum;
 import com.itbs.services.CommandeService;
+import com.itbs.services.ExportService;
 import com.itbs.utils.AlertUtilsSirine;
 import com.itbs.utils.DataSource;
+import com.itbs.utils.ExportRunner;
 import com.itbs.utils.SessionManager;
 
 import jakarta.mail.Message;
@@ -40,6 +42,8 @@ import java.io.IOException;
 import java.net.URL;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class AdminCommandeController implements Initializable {
 
@@ -65,6 +69,16 @@ public class AdminCommandeController implements Initializable {
     @FXML
     private ComboBox<String> filterStatusComboBox;
 
+    // Bulk actions
+    @FXML
+    private CheckBox chkAllFiltered;
+    @FXML
+    private Button btnBulkValidate;
+    @FXML
+    private Button btnBulkCancel;
+    @FXML
+    private Button btnBulkDelete;
+
     // Statistics labels
     @FXML
     private Label totalCommandesLabel;
@@ -116,6 +130,13 @@ public class AdminCommandeController implements Initializable {
     // Service
     private final CommandeService commandeService;
 
+    // Confirmation emails of bulk validations, sent off the JavaFX thread
+    private static final ExecutorService MAIL_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-mail");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     // Data lists
     private ObservableList<Commande> commandeList;
     private FilteredList<Commande> filteredList;
@@ -239,6 +260,7 @@ public class AdminCommandeController implements Initializable {
 
         colDate.setCellValueFactory(new PropertyValueFactory<>("dateComm"));
 
+        tableView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         setupActionsColumn();
     }
 
@@ -393,7 +415,13 @@ public class AdminCommandeController implements Initializable {
 
         if (confirmDialog.showAndWait().filter(response -> response == ButtonType.OK).isPresent()) {
             try {
-                commandeService.validerCommande(commande.getId());
+                Map<Integer, CommandeService.BulkOutcome> outcomes =
+                        commandeService.validerCommandes(Collections.singletonList(commande.getId()));
+                if (outcomes.get(commande.getId()) != CommandeService.BulkOutcome.DONE) {
+                    showToast("Cette commande n'est plus en cours", "error");
+                    applyOutcomes(outcomes, StatutCommandeEnum.CONFIRMEE);
+                    return;
+                }
 
                 String userEmail = commande.getUser().getEmail();
                 if (userEmail != null && !userEmail.isEmpty()) {
@@ -406,8 +434,7 @@ public class AdminCommandeController implements Initializable {
                 }
 
                 showToast("Commande validée avec succès", "success");
-                loadAllCommandes();
-                calculateStats();
+                applyOutcomes(outcomes, StatutCommandeEnum.CONFIRMEE);
             } catch (Exception e) {
                 showToast("Erreur lors de la validation : " + e.getMessage(), "error");
                 e.printStackTrace();
@@ -423,10 +450,10 @@ public class AdminCommandeController implements Initializable {
 
         if (confirmDialog.showAndWait().filter(response -> response == ButtonType.OK).isPresent()) {
             try {
-                commandeService.supprimerCommande(commande.getId());
+                Map<Integer, CommandeService.BulkOutcome> outcomes =
+                        commandeService.supprimerCommandes(Collections.singletonList(commande.getId()));
                 showToast("Commande annulée avec succès", "success");
-                loadAllCommandes();
-                calculateStats();
+                applyOutcomes(outcomes, null);
             } catch (Exception e) {
                 showToast("Erreur lors de l'annulation : " + e.getMessage(), "error");
                 e.printStackTrace();
@@ -434,6 +461,161 @@ public class AdminCommandeController implements Initializable {
         }
     }
 
+    @FXML
+    private void bulkValidate() {
+        runBulk("valider", StatutCommandeEnum.CONFIRMEE);
+    }
+
+    @FXML
+    private void bulkCancel() {
+        runBulk("annuler", StatutCommandeEnum.ANNULEE);
+    }
+
+    @FXML
+    private void bulkDelete() {
+        runBulk("supprimer", null);
+    }
+
+    @FXML
+    private void exportCsv() {
+        exportCommandes(ExportService.Format.CSV);
+    }
+
+    @FXML
+    private void exportPdf() {
+        exportCommandes(ExportService.Format.PDF);
+    }
+
+    /**
+     * Exports the orders of the selected status straight from the database,
+     * not only the loaded page
+     */
+    private void exportCommandes(ExportService.Format format) {
+        String selected = filterStatusComboBox != null ? filterStatusComboBox.getValue() : null;
+        StatutCommandeEnum statut = selected == null || "Tous les statuts".equals(selected)
+                ? null : StatutCommandeEnum.valueOf(selected);
+        ExportRunner.run(tableView.getScene().getWindow(), ExportService.getInstance().orders(statut),
+                format, "commandes");
+    }
+
+    /**
+     * Applique une transition à la sélection (ou à toute la liste filtrée) en
+     * une seule transaction, puis met à jour uniquement les lignes concernées.
+     * @param target New status, null to delete
+     */
+    private void runBulk(String verb, StatutCommandeEnum target) {
+        List<Commande> targets = chkAllFiltered != null && chkAllFiltered.isSelected()
+                ? new ArrayList<>(filteredList)
+                : new ArrayList<>(tableView.getSelectionModel().getSelectedItems());
+        if (targets.isEmpty()) {
+            showToast("Aucune commande sélectionnée", "error");
+            return;
+        }
+
+        Alert confirmDialog = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmDialog.setTitle("Opération groupée");
+        confirmDialog.setHeaderText("Êtes-vous sûr de vouloir " + verb + " " + targets.size() + " commande(s) ?");
+        confirmDialog.setContentText("Cette action ne peut pas être annulée.");
+        if (!confirmDialog.showAndWait().filter(response -> response == ButtonType.OK).isPresent()) {
+            return;
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        for (Commande commande : targets) {
+            ids.add(commande.getId());
+        }
+
+        Map<Integer, CommandeService.BulkOutcome> outcomes;
+        try {
+            if (target == StatutCommandeEnum.CONFIRMEE) {
+                outcomes = commandeService.validerCommandes(ids);
+            } else if (target == StatutCommandeEnum.ANNULEE) {
+                outcomes = commandeService.annulerCommandes(ids);
+            } else {
+                outcomes = commandeService.supprimerCommandes(ids);
+            }
+        } catch (Exception e) {
+            showToast("Erreur lors de l'opération groupée : " + e.getMessage(), "error");
+            e.printStackTrace();
+            return;
+        }
+
+        int done = 0;
+        int skipped = 0;
+        List<Commande> validated = new ArrayList<>();
+        for (Commande commande : targets) {
+            if (outcomes.get(commande.getId()) == CommandeService.BulkOutcome.DONE) {
+                done++;
+                if (target == StatutCommandeEnum.CONFIRMEE) {
+                    validated.add(commande);
+                }
+            } else {
+                skipped++;
+            }
+        }
+        applyOutcomes(outcomes, target);
+        sendConfirmationEmails(validated);
+
+        String message = done + " commande(s) traitée(s)";
+        if (skipped > 0) {
+            message += ", " + skipped + " ignorée(s) (statut modifié ou introuvable)";
+        }
+        showToast(message, "success");
+    }
+
+    /**
+     * Rafraîchit uniquement les commandes traitées: changement de statut en
+     * place ou retrait de la liste, puis compteurs et page courante.
+     * @param target New status, null if the orders were deleted
+     */
+    private void applyOutcomes(Map<Integer, CommandeService.BulkOutcome> outcomes, StatutCommandeEnum target) {
+        if (target == null) {
+            commandeList.removeIf(commande ->
+                    outcomes.get(commande.getId()) == CommandeService.BulkOutcome.DONE
+                            || outcomes.get(commande.getId()) == CommandeService.BulkOutcome.NOT_FOUND);
+        } else {
+            for (int i = 0; i < commandeList.size(); i++) {
+                Commande commande = commandeList.get(i);
+                CommandeService.BulkOutcome outcome = outcomes.get(commande.getId());
+                if (outcome == CommandeService.BulkOutcome.DONE) {
+                    commande.setStatut(target);
+                    // Replacing the element notifies the filtered list and the table
+                    commandeList.set(i, commande);
+                } else if (outcome == CommandeService.BulkOutcome.NOT_FOUND) {
+                    commandeList.remove(i--);
+                }
+            }
+        }
+        tableView.getSelectionModel().clearSelection();
+        calculateStats();
+        updatePagination();
+    }
+
+    private void sendConfirmationEmails(List<Commande> commandes) {
+        if (commandes.isEmpty()) {
+            return;
+        }
+        MAIL_EXECUTOR.execute(() -> {
+            int failed = 0;
+            for (Commande commande : commandes) {
+                String userEmail = commande.getUser() != null ? commande.getUser().getEmail() : null;
+                if (userEmail == null || userEmail.isEmpty()) {
+                    continue;
+                }
+                try {
+                    sendEmail(userEmail, commande);
+                } catch (MessagingException e) {
+                    failed++;
+                    System.err.println("Échec de l'envoi de l'email à " + userEmail + " : " + e.getMessage());
+                }
+            }
+            if (failed > 0) {
+                int failedCount = failed;
+                Platform.runLater(() -> showToast(failedCount + " email(s) de confirmation non envoyé(s)", "error"));
+            }
+        });
+    }
+
     private void sendEmail(String userEmail, Commande commande) throws MessagingException {
         Properties props = new Properties();
         props.put("mail.smtp.auth", "true");
@@ -468,32 +650,18 @@ public class AdminCommandeController implements Initializable {
 
     private void calculateStats() {
         try {
-            List<Commande> allCommandes = commandeService.getAllCommandes(null);
+            // Comptage par statut en base, sans charger les commandes et leurs lignes
+            Map<StatutCommandeEnum, Integer> counts = commandeService.countByStatut();
 
-            int totalCommandes = allCommandes.size();
-            totalCommandesLabel.setText(String.valueOf(totalCommandes));
-
-            int pendingCommandes = 0;
-            int completedCommandes = 0;
-            int cancelledCommandes = 0;
-
-            for (Commande commande : allCommandes) {
-                switch (commande.getStatut()) {
-                    case EN_COURS:
-                        pendingCommandes++;
-                        break;
-                    case CONFIRMEE:
-                        completedCommandes++;
-                        break;
-                    case ANNULEE:
-                        cancelledCommandes++;
-                        break;
-                }
+            int totalCommandes = 0;
+            for (int count : counts.values()) {
+                totalCommandes += count;
             }
+            totalCommandesLabel.setText(String.valueOf(totalCommandes));
 
-            pendingCommandesLabel.setText(String.valueOf(pendingCommandes));
-            completedCommandesLabel.setText(String.valueOf(completedCommandes));
-            cancelledCommandesLabel.setText(String.valueOf(cancelledCommandes));
+            pendingCommandesLabel.setText(String.valueOf(counts.get(StatutCommandeEnum.EN_COURS)));
+            completedCommandesLabel.setText(String.valueOf(counts.get(StatutCommandeEnum.CONFIRMEE)));
+            cancelledCommandesLabel.setText(String.valueOf(counts.get(StatutCommandeEnum.ANNULEE)));
 
         } catch (Exception e) {
             e.printStackTrace();
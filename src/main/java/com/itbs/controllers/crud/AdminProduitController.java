@@ -1033,16 +1033,10 @@ public class AdminProduitController implements Initializable {
 
             for (Produit produit : allProducts) {
                 // Count stock status
-                try {
-                    int quantity = Integer.parseInt(produit.getQuantity());
-                    if (quantity > 0) {
-                        inStockProducts++;
-                    } else {
-                        outOfStockProducts++;
-                    }
-                } catch (NumberFormatException e) {
-                    // Skip if quantity is not a number
+                if (produit.getQuantity() > 0) {
                     inStockProducts++;
+                } else {
+                    outOfStockProducts++;
                 }
 
                 // Count products by club
@@ -1198,7 +1192,18 @@ public class AdminProduitController implements Initializable {
                         return null;
                     }
 
-                    produit.setQuantity(quantityField.getText());
+                    // Validate and convert quantity
+                    try {
+                        int quantity = Integer.parseInt(quantityField.getText().trim());
+                        if (quantity < 0) {
+                            throw new NumberFormatException();
+                        }
+                        produit.setQuantity(quantity);
+                    } catch (NumberFormatException ex) {
+                        AlertUtilsSirine.showError("Erreur", "Quantité invalide",
+                                "Veuillez entrer un nombre entier positif (exemple: 10)");
+                        return null;
+                    }
                     produit.setDescProd(descriptionArea.getText());
                     produit.setImgProd(imageField.getText());
                     produit.setCreatedAt(LocalDateTime.now());
@@ -1260,7 +1265,7 @@ public class AdminProduitController implements Initializable {
 
         TextField prixField = new TextField(String.valueOf(produit.getPrix()).replace('.', ','));
 
-        TextField quantityField = new TextField(produit.getQuantity());
+        TextField quantityField = new TextField(String.valueOf(produit.getQuantity()));
 
         TextArea descriptionArea = new TextArea(produit.getDescProd());
         descriptionArea.setPrefRowCount(4);
@@ -1350,7 +1355,18 @@ public class AdminProduitController implements Initializable {
                         return null;
                     }
 
-                    produit.setQuantity(quantityField.getText());
+                    // Validate and convert quantity
+                    try {
+                        int quantity = Integer.parseInt(quantityField.getText().trim());
+                        if (quantity < 0) {
+                            throw new NumberFormatException();
+                        }
+                        produit.setQuantity(quantity);
+                    } catch (NumberFormatException ex) {
+                        AlertUtilsSirine.showError("Erreur", "Quantité invalide",
+                                "Veuillez entrer un nombre entier positif (exemple: 10)");
+                        return null;
+                    }
                     produit.setDescProd(descriptionArea.getText());
                     produit.setImgProd(imageField.getText());
                     produit.setClub(clubComboBox.getValue());
@@ -1,13 +1,12 @@
 package com.itbs.controllers.crud;
 
-import com.itbs.controllers.ProduitCardItemController;
 import com.itbs.models.Commande;
 import com.itbs.models.Orderdetails;
 import com.itbs.models.Produit;
 import com.itbs.models.User;
 import com.itbs.models.enums.StatutCommandeEnum;
-import com.itbs.services.CommandeService;
-import com.itbs.services.ProduitService;
+import com.itbs.services.CartService;
+import com.itbs.services.CheckoutService;
 import com.itbs.utils.AlertUtilsSirine;
 import com.itbs.utils.SessionManager;
 import javafx.collections.FXCollections;
@@ -47,7 +46,7 @@ public class CartController implements Initializable {
     @FXML private TableColumn<CartItem, Void> colActions;
     @FXML private Label lblTotal;
 
-    private final ProduitService produitService = ProduitService.getInstance();
+    private final CartService cartService = CartService.getInstance();
     private final ObservableList<CartItem> cartItems = FXCollections.observableArrayList();
     //private User currentUser = new User(1); // Replace with actual current user from session/login
 
@@ -69,7 +68,7 @@ public class CartController implements Initializable {
             int newValue = event.getNewValue();
             if (newValue > 0) {
                 item.setQuantity(newValue);
-                updateCartInController();
+                updateCartInService(item);
                 updateTotalLabel();
             }
         });
@@ -121,37 +120,33 @@ public class CartController implements Initializable {
 
     private void loadCartItems() throws SQLException {
         cartItems.clear();
-        Map<Integer, Integer> cart = ProduitCardItemController.getCart();
-
-        for (Map.Entry<Integer, Integer> entry : cart.entrySet()) {
-            int productId = entry.getKey();
-            int quantity = entry.getValue();
-
-            Produit produit = produitService.getProduitById(productId);
-            if (produit != null) {
-                ImageView imageView = new ImageView();
-                try {
-                    URL imageUrl = getClass().getResource("/" + produit.getImgProd());
-                    if (imageUrl != null) {
-                        imageView.setImage(new Image(imageUrl.toString()));
-                        imageView.setFitWidth(50);
-                        imageView.setFitHeight(50);
-                        imageView.setPreserveRatio(true);
-                    }
-                } catch (Exception e) {
-                    imageView.setImage(new Image(getClass().getResourceAsStream("/images/default-product.png")));
+        // Served from the in-memory cart, product data included
+        Commande cart = cartService.getCart(currentUserId());
+
+        for (Orderdetails detail : cart.getOrderDetails()) {
+            Produit produit = detail.getProduit();
+            ImageView imageView = new ImageView();
+            try {
+                URL imageUrl = getClass().getResource("/" + produit.getImgProd());
+                if (imageUrl != null) {
+                    imageView.setImage(new Image(imageUrl.toString()));
+                    imageView.setFitWidth(50);
+                    imageView.setFitHeight(50);
+                    imageView.setPreserveRatio(true);
                 }
+            } catch (Exception e) {
+                imageView.setImage(new Image(getClass().getResourceAsStream("/images/default-product.png")));
+            }
 
-                CartItem item = new CartItem();
-                item.setProductId(productId);
-                item.setName(produit.getNomProd());
-                item.setQuantity(quantity);
-                item.setPrice((int) produit.getPrix());
-                item.setImageView(imageView);
-                item.calculateTotal();
+            CartItem item = new CartItem();
+            item.setProductId(produit.getId());
+            item.setName(produit.getNomProd());
+            item.setQuantity(detail.getQuantity());
+            item.setPrice((int) produit.getPrix());
+            item.setImageView(imageView);
+            item.calculateTotal();
 
-                cartItems.add(item);
-            }
+            cartItems.add(item);
         }
     }
 
@@ -161,14 +156,14 @@ public class CartController implements Initializable {
             removeFromCart(item);
         } else {
             item.setQuantity(newQuantity);
-            updateCartInController();
+            updateCartInService(item);
             updateTotalLabel();
         }
     }
 
     private void removeFromCart(CartItem item) {
         cartItems.remove(item);
-        updateCartInController();
+        cartService.remove(currentUserId(), item.getProductId());
         updateTotalLabel();
     }
 
@@ -180,12 +175,14 @@ public class CartController implements Initializable {
         return cartItems.stream().mapToDouble(CartItem::getTotal).sum();
     }
 
-    private void updateCartInController() {
-        Map<Integer, Integer> updatedCart = new HashMap<>();
-        for (CartItem item : cartItems) {
-            updatedCart.put(item.getProductId(), item.getQuantity());
-        }
-        ProduitCardItemController.updateCart(updatedCart);
+    // Quantity changes are coalesced and written in the background by CartService
+    private void updateCartInService(CartItem item) {
+        cartService.setQuantity(currentUserId(), item.getProductId(), item.getQuantity());
+    }
+
+    private int currentUserId() {
+        User currentUser = SessionManager.getInstance().getCurrentUser();
+        return currentUser != null ? currentUser.getId() : 0;
     }
 
     @FXML
@@ -209,27 +206,27 @@ public class CartController implements Initializable {
             commande.setStatut(StatutCommandeEnum.EN_COURS);
             commande.setUser(currentUser);
 
-            CommandeService commandeService = new CommandeService();
-
             for (CartItem item : cartItems) {
-                Produit produit = produitService.getProduitById(item.getProductId());
-
                 Orderdetails detail = new Orderdetails();
-                detail.setProduit(produit);
+                detail.setProduit(new Produit(item.getProductId(), item.getName()));
                 detail.setQuantity(item.getQuantity());
                 detail.setPrice(item.getPrice());
                 detail.calculateTotal();
 
                 commande.getOrderDetails().add(detail);
+            }
 
-                int newStock = Integer.parseInt(produit.getQuantity()) - item.getQuantity();
-                produit.setQuantity(String.valueOf(newStock));
-                produitService.updateProduit(produit);
+            // Stock reservation, order and line items in one transaction
+            CheckoutService.CheckoutResult result = CheckoutService.getInstance().checkout(commande);
+            if (!result.isPlaced()) {
+                AlertUtilsSirine.showError("Erreur", "Commande impossible", describeFailures(result.getFailures()));
+                loadCartItems();
+                updateTotalLabel();
+                return;
             }
-            commandeService.createCommande(commande);
 
             cartItems.clear();
-            ProduitCardItemController.updateCart(new HashMap<>());
+            cartService.clear(currentUser.getId());
             updateTotalLabel();
 
             showSuccessPopup(commande.getId());
@@ -238,6 +235,33 @@ public class CartController implements Initializable {
             AlertUtilsSirine.showError("Erreur", "Erreur lors de la commande", e.getMessage());
         }
     }
+    /**
+     * One line per product that could not be ordered, with the stock left
+     */
+    private String describeFailures(List<CheckoutService.LineFailure> failures) {
+        StringBuilder message = new StringBuilder();
+        for (CheckoutService.LineFailure failure : failures) {
+            String name = cartItems.stream()
+                    .filter(item -> item.getProductId() == failure.getProduitId())
+                    .map(CartItem::getName)
+                    .findFirst()
+                    .orElse("Produit #" + failure.getProduitId());
+            switch (failure.getReason()) {
+                case INSUFFICIENT_STOCK:
+                    message.append(name).append(" : ").append(failure.getRequested())
+                            .append(" demandé(s), ").append(failure.getAvailable()).append(" en stock\n");
+                    break;
+                case UNKNOWN_PRODUCT:
+                    message.append(name).append(" : produit indisponible\n");
+                    break;
+                default:
+                    message.append(name).append(" : quantité invalide\n");
+                    break;
+            }
+        }
+        return message.toString().trim();
+    }
+
     /**
      * Shows a custom success popup with an option to return to the catalog
      * @param commandeId The ID of the created order
@@ -5,6 +5,7 @@ import com.itbs.models.Club;
 import com.itbs.models.Produit;
 import com.itbs.services.ClubService;
 import com.itbs.services.ProduitService;
+import com.itbs.services.UploadStore;
 
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -135,7 +136,7 @@ public class ProduitController implements Initializable {
 
         // Ajout des nouvelles colonnes
         colQuantity.setCellValueFactory(cellData ->
-                new SimpleStringProperty(cellData.getValue().getQuantity()));
+                new SimpleStringProperty(String.valueOf(cellData.getValue().getQuantity())));
         colImage.setCellValueFactory(cellData ->
                 new SimpleStringProperty(cellData.getValue().getImgProd()));
         colClub.setCellValueFactory(cellData -> {
@@ -232,25 +233,22 @@ public class ProduitController implements Initializable {
             produit.setDescProd(txtDescription.getText());
 
             // Ajouter les nouveaux champs
-            produit.setQuantity(txtQuantity.getText());
+            try {
+                produit.setQuantity(Integer.parseInt(txtQuantity.getText().trim()));
+            } catch (NumberFormatException e) {
+                showAlert(Alert.AlertType.ERROR, "Erreur", "Format de quantité invalide", "Veuillez saisir un nombre entier pour la quantité.");
+                return;
+            }
 
             // Gérer l'image sélectionnée
             if (txtImage.getText() != null && !txtImage.getText().isEmpty()) {
                 String imagePath = txtImage.getText();
-                String fileName = new File(imagePath).getName();
-                String targetDirectory = "src/main/resources/images/";
-                File targetDir = new File(targetDirectory);
-
-                if (!targetDir.exists()) {
-                    targetDir.mkdirs();
-                }
-
                 File sourceFile = new File(imagePath);
-                File targetFile = new File(targetDir, fileName);
 
                 try {
-                    Files.copy(sourceFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                    produit.setImgProd("images/" + fileName);
+                    // Stockage dédupliqué, nommé par l'empreinte du contenu
+                    String storedName = UploadStore.getInstance().store(sourceFile, UploadStore.Area.PRODUCTS);
+                    produit.setImgProd(UploadStore.Area.PRODUCTS.toColumnValue(storedName));
                 } catch (IOException e) {
                     showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la copie de l'image", e.getMessage());
                     return;
@@ -304,25 +302,24 @@ public class ProduitController implements Initializable {
             }
 
             currentProduit.setDescProd(txtDescription.getText());
-            currentProduit.setQuantity(txtQuantity.getText());
+            try {
+                currentProduit.setQuantity(Integer.parseInt(txtQuantity.getText().trim()));
+            } catch (NumberFormatException e) {
+                showAlert(Alert.AlertType.ERROR, "Erreur", "Format de quantité invalide", "Veuillez saisir un nombre entier pour la quantité.");
+                return;
+            }
 
             // Gérer l'image sélectionnée
-            if (txtImage.getText() != null && !txtImage.getText().isEmpty()) {
+            // (le champ contient l'image actuelle tant qu'aucun fichier n'est choisi)
+            if (txtImage.getText() != null && !txtImage.getText().isEmpty()
+                    && !txtImage.getText().equals(currentProduit.getImgProd())) {
                 String imagePath = txtImage.getText();
-                String fileName = new File(imagePath).getName();
-                String targetDirectory = "src/main/resources/images/";
-                File targetDir = new File(targetDirectory);
-
-                if (!targetDir.exists()) {
-                    targetDir.mkdirs();
-                }
-
                 File sourceFile = new File(imagePath);
-                File targetFile = new File(targetDir, fileName);
 
                 try {
-                    Files.copy(sourceFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                    currentProduit.setImgProd("images/" + fileName);
+                    String storedName = UploadStore.getInstance().store(sourceFile, UploadStore.Area.PRODUCTS);
+                    UploadStore.getInstance().release(UploadStore.Area.PRODUCTS, currentProduit.getImgProd());
+                    currentProduit.setImgProd(UploadStore.Area.PRODUCTS.toColumnValue(storedName));
                 } catch (IOException e) {
                     showAlert(Alert.AlertType.ERROR, "Erreur", "Erreur lors de la copie de l'image", e.getMessage());
                     return;
@@ -357,7 +354,7 @@ public class ProduitController implements Initializable {
         txtNom.setText(produit.getNomProd());
         txtPrix.setText(String.valueOf(produit.getPrix()));
         txtDescription.setText(produit.getDescProd());
-        txtQuantity.setText(produit.getQuantity());
+        txtQuantity.setText(String.valueOf(produit.getQuantity()));
         txtImage.setText(produit.getImgProd());
 
         // Sélectionner le club du produit
@@ -7,6 +7,8 @@ import java.time.LocalDateTime;
  * This aggregates activity data from multiple tables in the database.
  */
 public class ActivityLogEntry {
+    private long id; // activity_log.id, 0 until written
+    private int actorId; // User who did the action, 0 if unknown
     private LocalDateTime dateTime;
     private String activityType;
     private String description;
@@ -47,6 +49,22 @@ public class ActivityLogEntry {
     
     // Getters and Setters
     
+    public long getId() {
+        return id;
+    }
+    
+    public void setId(long id) {
+        this.id = id;
+    }
+    
+    public int getActorId() {
+        return actorId;
+    }
+    
+    public void setActorId(int actorId) {
+        this.actorId = actorId;
+    }
+    
     public LocalDateTime getDateTime() {
         return dateTime;
     }
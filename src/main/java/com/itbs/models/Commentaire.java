@@ -5,8 +5,12 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Pattern;
 
+import com.itbs.models.enums.CommentStatusEnum;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -37,6 +41,14 @@ public class Commentaire {
     @JoinColumn(name = "sondage_id")
     private Sondage sondage;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private CommentStatusEnum status = CommentStatusEnum.VISIBLE;
+
+    // Score de toxicité renvoyé par la modération IA (0 à 1), null si non analysé
+    @Column(name = "toxicity_score")
+    private Double toxicityScore;
+
     // Liste de mots inappropriés à filtrer
     @Transient
     private static final List<String> MOTS_INAPPROPRIES = Arrays.asList(
@@ -90,6 +102,31 @@ public class Commentaire {
         this.sondage = sondage;
     }
 
+    public CommentStatusEnum getStatus() {
+        return status;
+    }
+
+    public void setStatus(CommentStatusEnum status) {
+        this.status = status;
+    }
+
+    public Double getToxicityScore() {
+        return toxicityScore;
+    }
+
+    public void setToxicityScore(Double toxicityScore) {
+        this.toxicityScore = toxicityScore;
+    }
+
+    /**
+     * Vérifie si le commentaire a été signalé par la modération
+     *
+     * @return true si le statut est FLAGGED
+     */
+    public boolean isFlagged() {
+        return status == CommentStatusEnum.FLAGGED;
+    }
+
     /**
      * Vérifie si le commentaire est vide ou trop court
      * 
@@ -11,7 +11,7 @@ public class Produit {
     private float prix;
     private String imgProd;
     private LocalDateTime createdAt;
-    private String quantity;
+    private int quantity;
     private Club club;
     private List<Orderdetails> orderdetails = new ArrayList<>();
 
@@ -20,6 +20,9 @@ public class Produit {
     }
 
     public Produit(int produitId, String nomProd) {
+        this();
+        this.id = produitId;
+        this.nomProd = nomProd;
     }
 
     // Getters et setters
@@ -72,11 +75,11 @@ public class Produit {
         this.createdAt = createdAt;
     }
 
-    public String getQuantity() {
+    public int getQuantity() {
         return quantity;
     }
 
-    public void setQuantity(String quantity) {
+    public void setQuantity(int quantity) {
         this.quantity = quantity;
     }
 
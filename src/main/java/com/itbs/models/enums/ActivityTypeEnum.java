@@ -0,0 +1,32 @@
+package com.itbs.models.enums;
+
+/**
+ * Type d'une entrée du journal d'activité (colonne activity_log.activity_type)
+ */
+public enum ActivityTypeEnum {
+    LOGIN("Login"),
+    USER_MANAGEMENT("User Management"),
+    CLUB_MANAGEMENT("Club Management"),
+    EVENT_MANAGEMENT("Event Management"),
+    POLL_MANAGEMENT("Poll Management"),
+    ORDER_MANAGEMENT("Order Management"),
+    COMPETITION_MANAGEMENT("Competition Management");
+
+    private final String label;
+
+    ActivityTypeEnum(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public static ActivityTypeEnum fromString(String value) {
+        try {
+            return value != null ? ActivityTypeEnum.valueOf(value) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
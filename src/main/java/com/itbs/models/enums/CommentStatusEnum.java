@@ -0,0 +1,21 @@
+package com.itbs.models.enums;
+
+/**
+ * Statut de modération d'un commentaire (colonne commentaire.status)
+ */
+public enum CommentStatusEnum {
+    VISIBLE,
+    FLAGGED,
+    APPROVED;
+
+    public static CommentStatusEnum fromString(String value) {
+        if (value == null || value.isEmpty()) {
+            return VISIBLE;
+        }
+        try {
+            return CommentStatusEnum.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return VISIBLE;
+        }
+    }
+}
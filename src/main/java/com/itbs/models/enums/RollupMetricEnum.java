@@ -0,0 +1,17 @@
+package com.itbs.models.enums;
+
+/**
+ * Compteurs journaliers maintenus dans les tables de rollup du tableau de bord.
+ * La dimension (dim_id) vaut 0 pour les compteurs globaux, l'id du club pour
+ * les compteurs ventilés. Les ventes par produit et par club sont dans le cube
+ * des ventes (SalesCubeService).
+ */
+public enum RollupMetricEnum {
+    COMMENTS,
+    FLAGGED_COMMENTS,
+    VOTES,
+    ORDERS,
+    CLUB_MEMBERS;
+
+    public static final int NO_DIMENSION = 0;
+}
@@ -0,0 +1,242 @@
+package com.itbs.services;
+
+import com.itbs.models.ActivityLogEntry;
+import com.itbs.models.User;
+import com.itbs.models.enums.ActivityTypeEnum;
+import com.itbs.utils.DataSource;
+import com.itbs.utils.SessionManager;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Journal d'activité de l'administration (table activity_log).
+ *
+ * The services call {@link #record} after each successful write. The entry
+ * is stamped and queued in memory, and a background thread appends the
+ * queue to the table every {@link #FLUSH_DELAY_MS} milliseconds, one JDBC
+ * batch per {@link #BATCH_SIZE} entries, on its own connection: recording
+ * never waits for the database and never joins a transaction of the caller.
+ * The queue is bounded; when the database is unreachable for long, new
+ * entries are dropped with a warning rather than filling the memory.
+ *
+ * The feed reads the table newest first along idx_activity_log_time (or
+ * idx_activity_log_type_time when filtered), one page at a time, with the
+ * last entry of the previous page as cursor.
+ */
+public class ActivityLogService {
+    private static final Logger LOGGER = Logger.getLogger(ActivityLogService.class.getName());
+    private static ActivityLogService instance;
+
+    private static final long FLUSH_DELAY_MS = 500;
+    private static final int BATCH_SIZE = 200;
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int DESCRIPTION_LENGTH = 500;
+
+    private static final String SQL_INSERT = "INSERT INTO activity_log " +
+            "(created_at, activity_type, entity_type, entity_id, actor_id, description, ip_address) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_SELECT = "SELECT id, created_at, activity_type, entity_type, entity_id, " +
+            "description, ip_address FROM activity_log";
+    static final String SQL_ORDER = " ORDER BY created_at DESC, id DESC";
+
+    private final BlockingQueue<ActivityLogEntry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ScheduledExecutorService writer;
+    private final String ipAddress;
+    private Connection writeConnection;
+
+    private ActivityLogService() {
+        this.ipAddress = localAddress();
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "activity-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::flush, FLUSH_DELAY_MS, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        // Queued entries are written before the application exits
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "activity-log-shutdown"));
+    }
+
+    public static synchronized ActivityLogService getInstance() {
+        if (instance == null) {
+            instance = new ActivityLogService();
+        }
+        return instance;
+    }
+
+    /**
+     * Queues an entry for the logged-in user; returns immediately
+     * @param entityType Kind of row affected (User, Club, Event...)
+     * @param entityId   Id of that row, 0 if none
+     */
+    public void record(ActivityTypeEnum type, String entityType, int entityId, String description) {
+        User actor = SessionManager.getInstance().getCurrentUser();
+        ActivityLogEntry entry = new ActivityLogEntry(LocalDateTime.now(), type.name(),
+                truncate(description), ipAddress, entityId, entityType);
+        entry.setActorId(actor != null ? actor.getId() : 0);
+        if (!queue.offer(entry)) {
+            LOGGER.warning("Activity log queue full, entry dropped: " + description);
+        }
+    }
+
+    /**
+     * Writes the queued entries now (also run by the background thread)
+     */
+    public synchronized void flush() {
+        List<ActivityLogEntry> batch = new ArrayList<>(BATCH_SIZE);
+        while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+            if (!write(batch)) {
+                // Kept for the next flush, as far as the queue has room
+                for (ActivityLogEntry entry : batch) {
+                    if (!queue.offer(entry)) {
+                        LOGGER.warning("Activity log queue full, entry dropped: " + entry.getDescription());
+                    }
+                }
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    private boolean write(List<ActivityLogEntry> batch) {
+        try {
+            if (writeConnection == null || writeConnection.isClosed()) {
+                writeConnection = DataSource.getInstance().openConnection();
+            }
+            try (PreparedStatement pst = writeConnection.prepareStatement(SQL_INSERT)) {
+                for (ActivityLogEntry entry : batch) {
+                    pst.setTimestamp(1, Timestamp.valueOf(entry.getDateTime()));
+                    pst.setString(2, entry.getActivityType());
+                    pst.setString(3, entry.getEntityType());
+                    pst.setInt(4, entry.getEntityId());
+                    if (entry.getActorId() > 0) {
+                        pst.setInt(5, entry.getActorId());
+                    } else {
+                        pst.setNull(5, Types.INTEGER);
+                    }
+                    pst.setString(6, entry.getDescription());
+                    pst.setString(7, entry.getIpAddress());
+                    pst.addBatch();
+                }
+                pst.executeBatch();
+            }
+            return true;
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Unable to write " + batch.size() + " activity log entries", e);
+            closeWriteConnection();
+            return false;
+        }
+    }
+
+    private void closeWriteConnection() {
+        if (writeConnection != null) {
+            try {
+                writeConnection.close();
+            } catch (SQLException ignored) {
+                // Reopened on the next flush
+            }
+            writeConnection = null;
+        }
+    }
+
+    // ===== Reads =====
+
+    /**
+     * One page of the feed, newest first
+     * @param type  Only this type, null for all
+     * @param after Last entry of the previous page, null for the first page
+     * @param limit Maximum number of entries
+     */
+    public List<ActivityLogEntry> getPage(ActivityTypeEnum type, ActivityLogEntry after, int limit)
+            throws SQLException {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SQL_SELECT).append(where(type, params));
+        if (after != null) {
+            sql.append(type != null ? " AND" : " WHERE")
+                    .append(" (created_at < ? OR (created_at = ? AND id < ?))");
+            Timestamp at = Timestamp.valueOf(after.getDateTime());
+            params.addAll(Arrays.asList(at, at, after.getId()));
+        }
+        sql.append(SQL_ORDER).append(" LIMIT ?");
+        params.add(limit);
+
+        List<ActivityLogEntry> entries = new ArrayList<>();
+        Connection connection = DataSource.getInstance().getCnx();
+        try (PreparedStatement pst = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                pst.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(map(rs));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Label of the activity type, computed by the query (export)
+     */
+    static String typeLabelSql() {
+        StringBuilder sql = new StringBuilder("CASE activity_type");
+        for (ActivityTypeEnum type : ActivityTypeEnum.values()) {
+            sql.append(" WHEN '").append(type.name()).append("' THEN '").append(type.getLabel()).append("'");
+        }
+        return sql.append(" ELSE activity_type END").toString();
+    }
+
+    /**
+     * Filter of the feed and the export
+     */
+    static String where(ActivityTypeEnum type, List<Object> params) {
+        if (type == null) {
+            return "";
+        }
+        params.add(type.name());
+        return " WHERE activity_type = ?";
+    }
+
+    private static ActivityLogEntry map(ResultSet rs) throws SQLException {
+        ActivityTypeEnum type = ActivityTypeEnum.fromString(rs.getString("activity_type"));
+        ActivityLogEntry entry = new ActivityLogEntry(rs.getTimestamp("created_at").toLocalDateTime(),
+                type != null ? type.getLabel() : rs.getString("activity_type"),
+                rs.getString("description"), rs.getString("ip_address"),
+                rs.getInt("entity_id"), rs.getString("entity_type"));
+        entry.setId(rs.getLong("id"));
+        return entry;
+    }
+
+    private static String truncate(String description) {
+        if (description == null) {
+            return "";
+        }
+        return description.length() <= DESCRIPTION_LENGTH ? description
+                : description.substring(0, DESCRIPTION_LENGTH - 3) + "...";
+    }
+
+    private static String localAddress() {
+        try {
+            return InetAddress.getLocalHost().getHostAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -14,6 +15,7 @@ import org.json.JSONObject;
 public class AiValidationService {
 
     private static final Logger LOGGER = Logger.getLogger(AiValidationService.class.getName());
+    private static final String IMAGE_RESULT_CACHE_PREFIX = "image_validation_";
     private final HuggingFaceClient huggingFaceClient;
     private final String textModel;
     private final String violenceModel;
@@ -232,25 +234,55 @@ public class AiValidationService {
     }
 
     /**
-     * Validates a profile image using AI
+     * Validates a profile image using AI. Conclusive results are cached by
+     * the SHA-256 of the image, so uploading the same bytes again (any file
+     * name, any user) does not call the models.
      *
      * @param imageFile The image file to validate
      * @return ValidationResult with status and message
      */
     public ValidationResult validateProfileImage(File imageFile) {
+        String cacheKey = null;
+        try {
+            cacheKey = IMAGE_RESULT_CACHE_PREFIX + UploadStore.sha256(imageFile);
+            JSONObject cached = ContentValidationCache.getInstance().get(cacheKey);
+            if (cached != null) {
+                return new ValidationResult(cached.getBoolean("valid"), cached.getString("message"),
+                        cached.optString("caption", null));
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to hash image, validating without cache", e);
+        }
+
+        ValidationResult result = analyzeProfileImage(imageFile);
+
+        // Only cache actual verdicts, not the pass-through results of disabled or failing models
+        if (cacheKey != null && result.isVerdict()) {
+            JSONObject entry = new JSONObject();
+            entry.put("valid", result.isValid());
+            entry.put("message", result.getMessage());
+            if (result.getImageCaption() != null) {
+                entry.put("caption", result.getImageCaption());
+            }
+            ContentValidationCache.getInstance().put(cacheKey, entry, 24, TimeUnit.HOURS);
+        }
+        return result;
+    }
+
+    private ValidationResult analyzeProfileImage(File imageFile) {
         try {
             LOGGER.log(Level.INFO, "Starting image validation for file: {0}", imageFile.getName());
             
             // Skip validation if globally disabled
             if (!validationEnabled) {
                 LOGGER.log(Level.INFO, "Content validation disabled in config - skipping image validation");
-                return new ValidationResult(true, "Valid image (validation disabled)", null);
+                return ValidationResult.skipped("Valid image (validation disabled)");
             }
             
             // Check if API key is unavailable or empty
             if (huggingFaceClient.isApiKeyMissing()) {
                 LOGGER.log(Level.WARNING, "HuggingFace API key is missing - bypassing image validation");
-                return new ValidationResult(true, "Valid image (API key missing)", null);
+                return ValidationResult.skipped("Valid image (API key missing)");
             }
             
             // FIRST APPROACH: Direct NSFW detection
@@ -292,17 +324,17 @@ public class AiValidationService {
                 // If we already have NSFW detection, use that - otherwise we can't validate
                 if (nsfwScore > 0) {
                     // We have some NSFW detection but below threshold
-                    return new ValidationResult(true, "Valid image (based on NSFW score only)", null);
+                    return ValidationResult.skipped("Valid image (based on NSFW score only)");
                 }
                 
                 // Authentication errors should not trigger violations
                 if (captionResult != null && captionResult.optString("error", "").contains("Invalid credentials")) {
                     LOGGER.log(Level.WARNING, "API authentication failed - not a content violation");
-                    return new ValidationResult(true, "Valid image (auth error)", null);
+                    return ValidationResult.skipped("Valid image (auth error)");
                 }
                 
                 // For other technical errors, reject but don't increment warning count
-                return new ValidationResult(true, "Valid image (captioning failed)", null);
+                return ValidationResult.skipped("Valid image (captioning failed)");
             }
             
             // Extract caption from various possible response formats
@@ -313,10 +345,10 @@ public class AiValidationService {
                 
                 // If we already have NSFW detection, use that
                 if (nsfwScore > 0) {
-                    return new ValidationResult(true, "Valid image (based on NSFW score only)", null);
+                    return ValidationResult.skipped("Valid image (based on NSFW score only)");
                 }
                 
-                return new ValidationResult(true, "Valid image (no caption extracted)", null);
+                return ValidationResult.skipped("Valid image (no caption extracted)");
             }
             
             LOGGER.log(Level.INFO, "Image caption: \"{0}\"", imageCaption);
@@ -333,7 +365,7 @@ public class AiValidationService {
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error during image validation", e);
             // Technical exceptions shouldn't count as violations
-            return new ValidationResult(true, "Valid image (validation error)", null);
+            return ValidationResult.skipped("Valid image (validation error)");
         }
     }
     
@@ -484,11 +516,24 @@ public class AiValidationService {
         private final boolean valid;
         private final String message;
         private final String imageCaption;
+        private final boolean verdict;
 
         public ValidationResult(boolean valid, String message, String imageCaption) {
+            this(valid, message, imageCaption, true);
+        }
+
+        private ValidationResult(boolean valid, String message, String imageCaption, boolean verdict) {
             this.valid = valid;
             this.message = message;
             this.imageCaption = imageCaption;
+            this.verdict = verdict;
+        }
+
+        /**
+         * Accepted without a judgement (validation disabled, model unavailable or failing)
+         */
+        static ValidationResult skipped(String message) {
+            return new ValidationResult(true, message, null, false);
         }
 
         public boolean isValid() {
@@ -502,5 +547,12 @@ public class AiValidationService {
         public String getImageCaption() {
             return imageCaption;
         }
+
+        /**
+         * True when the models actually judged the content, false for a pass-through
+         */
+        public boolean isVerdict() {
+            return verdict;
+        }
     }
 }
\ No newline at end of file
@@ -563,6 +563,8 @@ public class AuthService implements AutoCloseable {
      */
     public void clearWarningTracking() {
         usersWithWarningsThisSession.clear();
+        // Cached warning counts are reloaded from the database on next access
+        ModerationStateCache.getInstance().clear();
     }
 
     /**
@@ -609,6 +611,7 @@ public class AuthService implements AutoCloseable {
             
             // Save updated user
             userService.modifier(user);
+            ModerationStateCache.getInstance().onWarningCountChanged(user.getId(), newWarningCount);
             
             // Important: Capture all user info needed for email BEFORE any other database operations
             final String userEmail = user.getEmail();
@@ -668,8 +671,7 @@ public class AuthService implements AutoCloseable {
      */
     public int getUserWarningCount(int userId) {
         try {
-            User user = userService.getById(userId);
-            return user != null ? user.getWarningCount() : 0;
+            return ModerationStateCache.getInstance().getWarningCount(userId);
         } catch (Exception e) {
             e.printStackTrace();
             return 0;
@@ -690,6 +692,7 @@ public class AuthService implements AutoCloseable {
             
             user.setWarningCount(0);
             userService.modifier(user);
+            ModerationStateCache.getInstance().onWarningCountChanged(userId, 0);
             return true;
         } catch (Exception e) {
             e.printStackTrace();
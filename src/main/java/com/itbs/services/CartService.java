@@ -0,0 +1,547 @@
+package com.itbs.services;
+
+import com.itbs.models.Commande;
+import com.itbs.models.Orderdetails;
+import com.itbs.models.Produit;
+import com.itbs.models.User;
+import com.itbs.models.enums.StatutCommandeEnum;
+import com.itbs.utils.DataSource;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Panier des utilisateurs, gardé en mémoire et persisté en arrière-plan.
+ *
+ * A cart is read once per user (the EN_COURS commande marked is_cart and
+ * its lines, one query; orders placed by checkout are never carts) and then
+ * served from memory: adding a product or changing a quantity only updates
+ * the in-memory lines and the cached item count used by the badges. Changed
+ * lines are written {@link #FLUSH_DELAY_MS} milliseconds after the last
+ * change, so a burst of clicks on the same product ends in a single write.
+ * A flush sends at most one batch each of UPDATE, INSERT and DELETE on
+ * orderdetails; the commande is created with its first line and deleted with
+ * its last one.
+ *
+ * Flushes write through their own connection, one transaction per flush
+ * (commande, lines and dashboard counters together). A failed flush is rolled
+ * back as a whole, its lines stay pending and it is retried after
+ * {@link #RETRY_DELAY_MS} milliseconds.
+ *
+ * A cart without a user (id <= 0) stays in memory only.
+ */
+public class CartService {
+    private static final Logger LOGGER = Logger.getLogger(CartService.class.getName());
+    private static CartService instance;
+
+    private static final long FLUSH_DELAY_MS = 500;
+    private static final long RETRY_DELAY_MS = 5000;
+
+    private static final String SQL_LOAD =
+            "SELECT c.id AS commande_id, c.date_comm, od.produit_id, od.quantity, od.price, " +
+            "p.nom_prod, p.desc_prod, p.prix, p.img_prod, p.quantity AS stock " +
+            "FROM commande c " +
+            "LEFT JOIN orderdetails od ON od.commande_id = c.id " +
+            "LEFT JOIN produit p ON p.id = od.produit_id " +
+            "WHERE c.id = (SELECT MAX(id) FROM commande WHERE user_id = ? AND is_cart = 1 AND statut = ?)";
+    private static final String SQL_INSERT_CART =
+            "INSERT INTO commande (date_comm, statut, user_id, is_cart) VALUES (?, ?, ?, 1)";
+    private static final String SQL_DELETE_CART =
+            "DELETE FROM commande WHERE id = ? AND is_cart = 1 AND statut = ?";
+    private static final String SQL_UPDATE_LINE =
+            "UPDATE orderdetails SET quantity = ?, price = ?, total = ? WHERE commande_id = ? AND produit_id = ?";
+    private static final String SQL_INSERT_LINE =
+            "INSERT INTO orderdetails (commande_id, produit_id, quantity, price, total) VALUES (?, ?, ?, ?, ?)";
+    private static final String SQL_DELETE_LINE =
+            "DELETE FROM orderdetails WHERE commande_id = ? AND produit_id = ?";
+
+    private final Connection connection;
+    private final Map<Integer, Cart> carts = new HashMap<>();
+    private final ScheduledExecutorService flusher;
+    // Connection of the flushes (flusher thread, release() and the shutdown hook), guarded by writeLock
+    private final Object writeLock = new Object();
+    private Connection writeConnection;
+
+    private CartService() {
+        this.connection = DataSource.getInstance().getCnx();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Pending changes are written before the application exits
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flushAll, "cart-flush-shutdown"));
+    }
+
+    public static synchronized CartService getInstance() {
+        if (instance == null) {
+            instance = new CartService();
+        }
+        return instance;
+    }
+
+    /**
+     * Adds a quantity of a product to the cart
+     * @return The new quantity of the product in the cart
+     */
+    public int add(int userId, Produit produit, int quantity) {
+        Cart cart = cart(userId);
+        synchronized (cart) {
+            Line line = cart.lines.get(produit.getId());
+            int newQuantity = (line != null ? line.quantity : 0) + quantity;
+            cart.set(produit, newQuantity);
+            schedule(cart);
+            return newQuantity;
+        }
+    }
+
+    /**
+     * Sets the quantity of a product already in the cart, 0 removes it
+     */
+    public void setQuantity(int userId, int produitId, int quantity) {
+        Cart cart = cart(userId);
+        synchronized (cart) {
+            Line line = cart.lines.get(produitId);
+            if (line == null) {
+                return;
+            }
+            cart.set(line.produit, quantity);
+            schedule(cart);
+        }
+    }
+
+    public void remove(int userId, int produitId) {
+        setQuantity(userId, produitId, 0);
+    }
+
+    /**
+     * Empties the cart, its commande is deleted on the next flush
+     */
+    public void clear(int userId) {
+        Cart cart = cart(userId);
+        synchronized (cart) {
+            for (Line line : new ArrayList<>(cart.lines.values())) {
+                cart.set(line.produit, 0);
+            }
+            schedule(cart);
+        }
+    }
+
+    /**
+     * Number of distinct products in the cart (badge), from memory
+     */
+    public int getItemCount(int userId) {
+        Cart cart = cart(userId);
+        synchronized (cart) {
+            return cart.lines.size();
+        }
+    }
+
+    /**
+     * Quantities in the cart, produit id to quantity
+     */
+    public Map<Integer, Integer> getQuantities(int userId) {
+        Cart cart = cart(userId);
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        synchronized (cart) {
+            for (Line line : cart.lines.values()) {
+                quantities.put(line.produit.getId(), line.quantity);
+            }
+        }
+        return quantities;
+    }
+
+    /**
+     * Copy of the cart as a commande (id 0 while it has not been written yet)
+     */
+    public Commande getCart(int userId) {
+        Cart cart = cart(userId);
+        synchronized (cart) {
+            return cart.toCommande(userId);
+        }
+    }
+
+    /**
+     * Writes the pending changes of the cart now and stops managing it, e.g.
+     * before the EN_COURS commande is confirmed. The next access reloads it.
+     * @return The written cart, null if it is empty
+     */
+    public Commande release(int userId) throws SQLException {
+        Cart cart;
+        synchronized (carts) {
+            cart = carts.remove(userId);
+        }
+        if (cart == null) {
+            cart = load(userId);
+        }
+        synchronized (cart) {
+            if (cart.pendingFlush != null) {
+                cart.pendingFlush.cancel(false);
+                cart.pendingFlush = null;
+            }
+            cart.released = true;
+        }
+        if (!flush(cart)) {
+            throw new SQLException("Le panier n'a pas pu être enregistré");
+        }
+        synchronized (cart) {
+            return cart.lines.isEmpty() ? null : cart.toCommande(userId);
+        }
+    }
+
+    /**
+     * Writes every pending change, e.g. on logout
+     */
+    public void flushAll() {
+        List<Cart> snapshot;
+        synchronized (carts) {
+            snapshot = new ArrayList<>(carts.values());
+        }
+        for (Cart cart : snapshot) {
+            flush(cart);
+        }
+    }
+
+    private Cart cart(int userId) {
+        synchronized (carts) {
+            Cart cart = carts.get(userId);
+            if (cart == null) {
+                cart = load(userId);
+                carts.put(userId, cart);
+            }
+            return cart;
+        }
+    }
+
+    // Debounce: each change pushes the write back
+    private void schedule(Cart cart) {
+        if (cart.userId <= 0 || cart.released) {
+            return;
+        }
+        if (cart.pendingFlush != null) {
+            cart.pendingFlush.cancel(false);
+        }
+        cart.pendingFlush = flusher.schedule(() -> flush(cart), FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private Cart load(int userId) {
+        Cart cart = new Cart(userId);
+        if (userId <= 0) {
+            return cart;
+        }
+        try (PreparedStatement pst = connection.prepareStatement(SQL_LOAD)) {
+            pst.setInt(1, userId);
+            pst.setString(2, StatutCommandeEnum.EN_COURS.name());
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    cart.commandeId = rs.getInt("commande_id");
+                    Date dateComm = rs.getDate("date_comm");
+                    cart.dateComm = dateComm != null ? dateComm.toLocalDate() : cart.dateComm;
+
+                    int produitId = rs.getInt("produit_id");
+                    if (rs.wasNull()) {
+                        continue;
+                    }
+                    Produit produit = new Produit(produitId, rs.getString("nom_prod"));
+                    produit.setDescProd(rs.getString("desc_prod"));
+                    produit.setPrix(rs.getFloat("prix"));
+                    produit.setImgProd(rs.getString("img_prod"));
+                    produit.setQuantity(rs.getInt("stock"));
+
+                    Line line = new Line(produit, rs.getInt("quantity"), rs.getDouble("price"));
+                    cart.lines.put(produitId, line);
+                    cart.persisted.add(produitId);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Unable to load the cart of user " + userId, e);
+        }
+        return cart;
+    }
+
+    /**
+     * Writes the changed lines of a cart. On failure they stay pending and the
+     * flush is retried after {@link #RETRY_DELAY_MS}, with the next change or
+     * {@link #flushAll()}.
+     * @return true if nothing is left to write
+     */
+    private boolean flush(Cart cart) {
+        if (cart.userId <= 0) {
+            return true;
+        }
+        // One flush at a time per cart, release() waits for a running one
+        synchronized (cart.flushLock) {
+            return flushPending(cart);
+        }
+    }
+
+    private boolean flushPending(Cart cart) {
+        List<Line> updates = new ArrayList<>();
+        List<Line> inserts = new ArrayList<>();
+        List<Integer> deletes = new ArrayList<>();
+        int commandeId;
+        boolean empty;
+        synchronized (cart) {
+            cart.pendingFlush = null;
+            if (cart.dirty.isEmpty()) {
+                return true;
+            }
+            for (int produitId : cart.dirty) {
+                Line line = cart.lines.get(produitId);
+                if (line == null) {
+                    if (cart.persisted.contains(produitId)) {
+                        deletes.add(produitId);
+                    }
+                } else if (cart.persisted.contains(produitId)) {
+                    updates.add(line.copy());
+                } else {
+                    inserts.add(line.copy());
+                }
+            }
+            cart.dirty.clear();
+            commandeId = cart.commandeId;
+            empty = cart.lines.isEmpty();
+        }
+
+        try {
+            synchronized (writeLock) {
+                Connection cnx = getWriteConnection();
+                try {
+                    boolean created = false;
+                    if (commandeId <= 0 && !inserts.isEmpty()) {
+                        commandeId = insertCart(cnx, cart);
+                        created = true;
+                    }
+                    if (commandeId > 0) {
+                        // Same accounting as CommandeService.updateCommande: remove the old state, add the new one
+                        DashboardRollupService rollups = DashboardRollupService.getInstance();
+                        if (!created) {
+                            rollups.applyOrder(cnx, commandeId, -1);
+                        }
+                        writeLines(cnx, commandeId, updates, inserts, deletes);
+                        if (empty) {
+                            deleteCart(cnx, commandeId);
+                        } else {
+                            rollups.applyOrder(cnx, commandeId, 1);
+                        }
+                    }
+                    cnx.commit();
+                } catch (SQLException | RuntimeException e) {
+                    rollback(cnx);
+                    throw e;
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Unable to save the cart of user " + cart.userId + ", will retry", e);
+            // Nothing was committed: persisted lines and commande id are unchanged, the lines are written again
+            synchronized (cart) {
+                for (Line line : updates) {
+                    cart.dirty.add(line.produit.getId());
+                }
+                for (Line line : inserts) {
+                    cart.dirty.add(line.produit.getId());
+                }
+                cart.dirty.addAll(deletes);
+                scheduleRetry(cart);
+            }
+            return false;
+        }
+
+        Set<Integer> written = new HashSet<>();
+        for (Line line : inserts) {
+            written.add(line.produit.getId());
+        }
+        synchronized (cart) {
+            cart.persisted.addAll(written);
+            cart.persisted.removeAll(deletes);
+            cart.commandeId = empty ? 0 : commandeId;
+        }
+        return true;
+    }
+
+    // A change scheduled meanwhile flushes sooner, a released cart is retried by its caller
+    private void scheduleRetry(Cart cart) {
+        if (cart.released || cart.pendingFlush != null) {
+            return;
+        }
+        cart.pendingFlush = flusher.schedule(() -> flush(cart), RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Called with writeLock held
+    private Connection getWriteConnection() throws SQLException {
+        if (writeConnection == null || writeConnection.isClosed()) {
+            writeConnection = DataSource.getInstance().openConnection();
+            writeConnection.setAutoCommit(false);
+        }
+        return writeConnection;
+    }
+
+    // Called with writeLock held; the connection is reopened by the next flush if it is broken
+    private void rollback(Connection cnx) {
+        try {
+            cnx.rollback();
+        } catch (SQLException e) {
+            try {
+                cnx.close();
+            } catch (SQLException ignored) {
+                // Reopened on the next flush
+            }
+            writeConnection = null;
+        }
+    }
+
+    private int insertCart(Connection cnx, Cart cart) throws SQLException {
+        try (PreparedStatement pst = cnx.prepareStatement(SQL_INSERT_CART, Statement.RETURN_GENERATED_KEYS)) {
+            pst.setDate(1, Date.valueOf(cart.dateComm));
+            pst.setString(2, StatutCommandeEnum.EN_COURS.name());
+            pst.setInt(3, cart.userId);
+            pst.executeUpdate();
+            try (ResultSet keys = pst.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("La création du panier a échoué, aucun ID généré.");
+                }
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private void deleteCart(Connection cnx, int commandeId) throws SQLException {
+        try (PreparedStatement pst = cnx.prepareStatement(SQL_DELETE_CART)) {
+            pst.setInt(1, commandeId);
+            pst.setString(2, StatutCommandeEnum.EN_COURS.name());
+            pst.executeUpdate();
+        }
+    }
+
+    private void writeLines(Connection cnx, int commandeId, List<Line> updates, List<Line> inserts,
+            List<Integer> deletes) throws SQLException {
+        if (!updates.isEmpty()) {
+            try (PreparedStatement pst = cnx.prepareStatement(SQL_UPDATE_LINE)) {
+                for (Line line : updates) {
+                    pst.setInt(1, line.quantity);
+                    pst.setDouble(2, line.price);
+                    pst.setDouble(3, line.price * line.quantity);
+                    pst.setInt(4, commandeId);
+                    pst.setInt(5, line.produit.getId());
+                    pst.addBatch();
+                }
+                pst.executeBatch();
+            }
+        }
+        if (!inserts.isEmpty()) {
+            try (PreparedStatement pst = cnx.prepareStatement(SQL_INSERT_LINE)) {
+                for (Line line : inserts) {
+                    pst.setInt(1, commandeId);
+                    pst.setInt(2, line.produit.getId());
+                    pst.setInt(3, line.quantity);
+                    pst.setDouble(4, line.price);
+                    pst.setDouble(5, line.price * line.quantity);
+                    pst.addBatch();
+                }
+                pst.executeBatch();
+            }
+        }
+        if (!deletes.isEmpty()) {
+            try (PreparedStatement pst = cnx.prepareStatement(SQL_DELETE_LINE)) {
+                for (int produitId : deletes) {
+                    pst.setInt(1, commandeId);
+                    pst.setInt(2, produitId);
+                    pst.addBatch();
+                }
+                pst.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * In-memory cart of a user, guarded by its own monitor
+     */
+    private static class Cart {
+        private final int userId;
+        private final Object flushLock = new Object();
+        private final Map<Integer, Line> lines = new LinkedHashMap<>();
+        // Products whose line exists in orderdetails
+        private final Set<Integer> persisted = new HashSet<>();
+        // Products changed since the last flush
+        private final Set<Integer> dirty = new LinkedHashSet<>();
+        private int commandeId;
+        private LocalDate dateComm = LocalDate.now();
+        private ScheduledFuture<?> pendingFlush;
+        private boolean released;
+
+        Cart(int userId) {
+            this.userId = userId;
+        }
+
+        void set(Produit produit, int quantity) {
+            if (quantity <= 0) {
+                lines.remove(produit.getId());
+            } else {
+                Line line = lines.get(produit.getId());
+                if (line == null) {
+                    lines.put(produit.getId(), new Line(produit, quantity, produit.getPrix()));
+                } else {
+                    line.quantity = quantity;
+                }
+            }
+            dirty.add(produit.getId());
+        }
+
+        Commande toCommande(int userId) {
+            Commande commande = new Commande();
+            commande.setId(commandeId);
+            commande.setDateComm(dateComm);
+            commande.setStatut(StatutCommandeEnum.EN_COURS);
+            User user = new User();
+            user.setId(userId);
+            commande.setUser(user);
+
+            List<Orderdetails> details = new ArrayList<>();
+            for (Line line : lines.values()) {
+                Orderdetails detail = new Orderdetails();
+                detail.setProduit(line.produit);
+                detail.setQuantity(line.quantity);
+                detail.setPrice(line.price);
+                detail.setCommande(commande);
+                details.add(detail);
+            }
+            commande.setOrderDetails(details);
+            return commande;
+        }
+    }
+
+    private static class Line {
+        private final Produit produit;
+        private int quantity;
+        private final double price;
+
+        Line(Produit produit, int quantity, double price) {
+            this.produit = produit;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        Line copy() {
+            return new Line(produit, quantity, price);
+        }
+    }
+}
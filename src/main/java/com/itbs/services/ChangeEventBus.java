@@ -0,0 +1,173 @@
+package com.itbs.services;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Notifications de modification des données, des services vers les écrans.
+ *
+ * A service publishes a {@link ChangeEvent} (entity, id, operation) after a
+ * successful write; a screen subscribes to the entities it shows and patches
+ * the changed rows of its lists instead of reloading them.
+ *
+ * Events are delivered on the JavaFX thread, after the action that published
+ * them has returned. Events published before a delivery are coalesced: a
+ * listener receives each (entity, id) once, with the last operation, so a
+ * bulk write costs one callback per row. Listeners should treat CREATED and
+ * UPDATED alike (read the row, then replace or insert it).
+ */
+public class ChangeEventBus {
+    private static final Logger LOGGER = Logger.getLogger(ChangeEventBus.class.getName());
+    private static ChangeEventBus instance;
+
+    /**
+     * Tables whose changes are published
+     */
+    public enum Entity {
+        USER,
+        SONDAGE,
+        COMMENTAIRE
+    }
+
+    public enum Operation {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Map<Entity, List<Consumer<ChangeEvent>>> listeners = new EnumMap<>(Entity.class);
+    // Events waiting for the next delivery, by entity and id
+    private final Map<String, ChangeEvent> pending = new LinkedHashMap<>();
+    private boolean deliveryScheduled;
+
+    private ChangeEventBus() {
+        for (Entity entity : Entity.values()) {
+            listeners.put(entity, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    public static synchronized ChangeEventBus getInstance() {
+        if (instance == null) {
+            instance = new ChangeEventBus();
+        }
+        return instance;
+    }
+
+    /**
+     * Event: a row was written; may be called from any thread
+     */
+    public void publish(Entity entity, int id, Operation operation) {
+        synchronized (pending) {
+            pending.put(entity + ":" + id, new ChangeEvent(entity, id, operation));
+            if (deliveryScheduled) {
+                return;
+            }
+            deliveryScheduled = true;
+        }
+        try {
+            Platform.runLater(this::deliver);
+        } catch (IllegalStateException e) {
+            // No screen to notify
+            synchronized (pending) {
+                pending.clear();
+                deliveryScheduled = false;
+            }
+            LOGGER.fine("JavaFX not running, change not published");
+        }
+    }
+
+    /**
+     * Calls the listener for every change of an entity, until cancelled
+     */
+    public Subscription subscribe(Entity entity, Consumer<ChangeEvent> listener) {
+        List<Consumer<ChangeEvent>> entityListeners = listeners.get(entity);
+        entityListeners.add(listener);
+        return () -> entityListeners.remove(listener);
+    }
+
+    /**
+     * Subscribes while the node is in a scene: the screen stops receiving
+     * events (and can be collected) once it has been replaced
+     */
+    public void subscribeWhileShowing(Node node, Entity entity, Consumer<ChangeEvent> listener) {
+        Subscription[] subscription = new Subscription[1];
+        if (node.getScene() != null) {
+            subscription[0] = subscribe(entity, listener);
+        }
+        node.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene == null && subscription[0] != null) {
+                subscription[0].cancel();
+                subscription[0] = null;
+            } else if (newScene != null && subscription[0] == null) {
+                subscription[0] = subscribe(entity, listener);
+            }
+        });
+    }
+
+    private void deliver() {
+        List<ChangeEvent> events;
+        synchronized (pending) {
+            events = new ArrayList<>(pending.values());
+            pending.clear();
+            deliveryScheduled = false;
+        }
+        for (ChangeEvent event : events) {
+            for (Consumer<ChangeEvent> listener : listeners.get(event.entity)) {
+                try {
+                    listener.accept(event);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Change listener failed on " + event, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returned by {@link #subscribe}
+     */
+    public interface Subscription {
+        void cancel();
+    }
+
+    /**
+     * One row written
+     */
+    public static final class ChangeEvent {
+        private final Entity entity;
+        private final int id;
+        private final Operation operation;
+
+        ChangeEvent(Entity entity, int id, Operation operation) {
+            this.entity = entity;
+            this.id = id;
+            this.operation = operation;
+        }
+
+        public Entity getEntity() {
+            return entity;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        @Override
+        public String toString() {
+            return operation + " " + entity + " " + id;
+        }
+    }
+}
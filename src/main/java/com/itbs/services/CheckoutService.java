@@ -0,0 +1,295 @@
+package com.itbs.services;
+
+import com.itbs.models.Commande;
+import com.itbs.models.Orderdetails;
+import com.itbs.utils.DataSource;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Passe une commande en une seule transaction.
+ *
+ * The stock of every line is reserved with a conditional decrement
+ * (quantity - ? ... WHERE quantity >= ?), so two buyers can never take the
+ * same last items: the database checks and updates the stock in one step and
+ * a line that does not fit simply updates no row. The decrements and the
+ * line items are each sent as one JDBC batch. If any line cannot be served
+ * nothing is written and the result lists, line by line, what went wrong.
+ * Committed reservations are reported to {@link InventoryCache}. The order is
+ * stored with stock_reserved set, so {@link CommandeService} gives the stock
+ * back if it is cancelled or deleted before being validated.
+ */
+public class CheckoutService {
+    private static final Logger LOGGER = Logger.getLogger(CheckoutService.class.getName());
+    private static CheckoutService instance;
+
+    private static final String SQL_RESERVE_STOCK =
+            "UPDATE produit SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+    private static final String SQL_INSERT_COMMANDE =
+            "INSERT INTO commande (date_comm, statut, user_id, total, stock_reserved) VALUES (?, ?, ?, ?, 1)";
+    private static final String SQL_INSERT_DETAIL =
+            "INSERT INTO orderdetails (commande_id, produit_id, quantity, price, total) VALUES (?, ?, ?, ?, ?)";
+
+    private final Connection connection;
+
+    private CheckoutService() {
+        this.connection = DataSource.getInstance().getCnx();
+    }
+
+    public static synchronized CheckoutService getInstance() {
+        if (instance == null) {
+            instance = new CheckoutService();
+        }
+        return instance;
+    }
+
+    /**
+     * Why a line of the order could not be served
+     */
+    public enum FailureReason {
+        INVALID_QUANTITY,
+        UNKNOWN_PRODUCT,
+        INSUFFICIENT_STOCK
+    }
+
+    /**
+     * Places the order: reserves the stock of every line, inserts the order and
+     * its line items, all or nothing. On success the id of the order is set.
+     * @param commande Order with its user and line items
+     * @return The result, with the failing lines when the order was not placed
+     * @throws SQLException If the database fails, the transaction is rolled back
+     */
+    public synchronized CheckoutResult checkout(Commande commande) throws SQLException {
+        if (commande.getUser() == null || commande.getUser().getId() <= 0) {
+            throw new SQLException("L'utilisateur doit être défini pour créer une commande");
+        }
+
+        // A product listed twice is reserved once with the summed quantity
+        Map<Integer, Integer> requested = new LinkedHashMap<>();
+        List<LineFailure> failures = new ArrayList<>();
+        for (Orderdetails detail : commande.getOrderDetails()) {
+            int produitId = detail.getProduit() != null ? detail.getProduit().getId() : 0;
+            if (detail.getQuantity() <= 0) {
+                failures.add(new LineFailure(produitId, detail.getQuantity(), -1, FailureReason.INVALID_QUANTITY));
+            } else {
+                requested.merge(produitId, detail.getQuantity(), Integer::sum);
+            }
+        }
+        if (requested.isEmpty() && failures.isEmpty()) {
+            throw new SQLException("La commande ne contient aucun produit");
+        }
+        if (!failures.isEmpty()) {
+            return CheckoutResult.failed(failures);
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            failures = reserveStock(requested);
+            if (!failures.isEmpty()) {
+                connection.rollback();
+                // The stock just read is the current one, correct the live counters with it
+                for (LineFailure failure : failures) {
+                    if (failure.getReason() == FailureReason.INSUFFICIENT_STOCK) {
+                        InventoryCache.getInstance().stockSet(failure.getProduitId(), failure.getAvailable());
+                    }
+                }
+                return CheckoutResult.failed(failures);
+            }
+
+            int commandeId = insertCommande(commande);
+            insertDetails(commandeId, commande.getOrderDetails());
+            // Same transaction, rolled back with the order
+            DashboardRollupService.getInstance().applyOrder(commandeId, 1);
+
+            connection.commit();
+            InventoryCache.getInstance().stockReserved(requested);
+            commande.setId(commandeId);
+            return CheckoutResult.placed(commandeId);
+        } catch (SQLException e) {
+            connection.rollback();
+            LOGGER.log(Level.WARNING, "Checkout failed for user " + commande.getUser().getId(), e);
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // One batch of conditional decrements; a line updating no row is out of stock or unknown
+    private List<LineFailure> reserveStock(Map<Integer, Integer> requested) throws SQLException {
+        List<Integer> produitIds = new ArrayList<>(requested.keySet());
+        int[] counts;
+        try (PreparedStatement pst = connection.prepareStatement(SQL_RESERVE_STOCK)) {
+            for (int produitId : produitIds) {
+                int quantity = requested.get(produitId);
+                pst.setInt(1, quantity);
+                pst.setInt(2, produitId);
+                pst.setInt(3, quantity);
+                pst.addBatch();
+            }
+            counts = pst.executeBatch();
+        }
+
+        List<Integer> rejected = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            // SUCCESS_NO_INFO still means the row matched the condition
+            if (counts[i] == 0 || counts[i] == Statement.EXECUTE_FAILED) {
+                rejected.add(produitIds.get(i));
+            }
+        }
+        if (rejected.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Only read on failure, to tell the user what is left
+        Map<Integer, Integer> available = readStock(rejected);
+        List<LineFailure> failures = new ArrayList<>();
+        for (int produitId : rejected) {
+            Integer stock = available.get(produitId);
+            failures.add(stock == null
+                    ? new LineFailure(produitId, requested.get(produitId), -1, FailureReason.UNKNOWN_PRODUCT)
+                    : new LineFailure(produitId, requested.get(produitId), stock, FailureReason.INSUFFICIENT_STOCK));
+        }
+        return failures;
+    }
+
+    private Map<Integer, Integer> readStock(List<Integer> produitIds) throws SQLException {
+        StringBuilder query = new StringBuilder("SELECT id, quantity FROM produit WHERE id IN (");
+        for (int i = 0; i < produitIds.size(); i++) {
+            query.append(i == 0 ? "?" : ", ?");
+        }
+        query.append(")");
+
+        Map<Integer, Integer> stock = new HashMap<>();
+        try (PreparedStatement pst = connection.prepareStatement(query.toString())) {
+            for (int i = 0; i < produitIds.size(); i++) {
+                pst.setInt(i + 1, produitIds.get(i));
+            }
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    stock.put(rs.getInt("id"), Math.max(0, rs.getInt("quantity")));
+                }
+            }
+        }
+        return stock;
+    }
+
+    private int insertCommande(Commande commande) throws SQLException {
+        double total = 0;
+        for (Orderdetails detail : commande.getOrderDetails()) {
+            total += detail.getTotal();
+        }
+        try (PreparedStatement pst = connection.prepareStatement(SQL_INSERT_COMMANDE, Statement.RETURN_GENERATED_KEYS)) {
+            pst.setDate(1, Date.valueOf(commande.getDateComm()));
+            pst.setString(2, commande.getStatut().name());
+            pst.setInt(3, commande.getUser().getId());
+            pst.setDouble(4, total);
+            pst.executeUpdate();
+            try (ResultSet keys = pst.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("La création de la commande a échoué, aucun ID généré.");
+                }
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private void insertDetails(int commandeId, List<Orderdetails> details) throws SQLException {
+        try (PreparedStatement pst = connection.prepareStatement(SQL_INSERT_DETAIL)) {
+            for (Orderdetails detail : details) {
+                pst.setInt(1, commandeId);
+                pst.setInt(2, detail.getProduit().getId());
+                pst.setInt(3, detail.getQuantity());
+                pst.setDouble(4, detail.getPrice());
+                pst.setDouble(5, detail.getTotal());
+                pst.addBatch();
+            }
+            pst.executeBatch();
+        }
+    }
+
+    /**
+     * Outcome of a checkout: the id of the placed order, or the failing lines
+     */
+    public static class CheckoutResult {
+        private final int commandeId;
+        private final List<LineFailure> failures;
+
+        private CheckoutResult(int commandeId, List<LineFailure> failures) {
+            this.commandeId = commandeId;
+            this.failures = Collections.unmodifiableList(failures);
+        }
+
+        static CheckoutResult placed(int commandeId) {
+            return new CheckoutResult(commandeId, Collections.emptyList());
+        }
+
+        static CheckoutResult failed(List<LineFailure> failures) {
+            return new CheckoutResult(-1, failures);
+        }
+
+        public boolean isPlaced() {
+            return failures.isEmpty();
+        }
+
+        /**
+         * @return ID de la commande, -1 if it was not placed
+         */
+        public int getCommandeId() {
+            return commandeId;
+        }
+
+        public List<LineFailure> getFailures() {
+            return failures;
+        }
+    }
+
+    /**
+     * A line of the order that could not be served
+     */
+    public static class LineFailure {
+        private final int produitId;
+        private final int requested;
+        private final int available;
+        private final FailureReason reason;
+
+        LineFailure(int produitId, int requested, int available, FailureReason reason) {
+            this.produitId = produitId;
+            this.requested = requested;
+            this.available = available;
+            this.reason = reason;
+        }
+
+        public int getProduitId() {
+            return produitId;
+        }
+
+        public int getRequested() {
+            return requested;
+        }
+
+        /**
+         * @return Stock left at checkout time, -1 when not applicable
+         */
+        public int getAvailable() {
+            return available;
+        }
+
+        public FailureReason getReason() {
+            return reason;
+        }
+    }
+}
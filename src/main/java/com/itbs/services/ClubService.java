@@ -2,7 +2,9 @@ package com.itbs.services;
 
 import com.itbs.models.Club;
 import com.itbs.models.User;
+import com.itbs.models.enums.ActivityTypeEnum;
 import com.itbs.models.enums.RoleEnum;
+import com.itbs.models.enums.RollupMetricEnum;
 import com.itbs.utils.DataSource;
 
 import java.sql.*;
@@ -28,7 +30,7 @@ public class ClubService {
     public void ajouter(Club club) {
         String query = "INSERT INTO club (president_id, nom_c, description, status, image, points) VALUES (?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = cnx.prepareStatement(query)) {
+        try (PreparedStatement stmt = cnx.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setInt(1, club.getPresidentId());
             stmt.setString(2, club.getNomC());
             stmt.setString(3, club.getDescription());
@@ -36,6 +38,16 @@ public class ClubService {
             stmt.setString(5, club.getImage());
             stmt.setInt(6, club.getPoints());
             stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    club.setId(keys.getInt(1));
+                }
+            }
+            ReferenceDataCache.getInstance().invalidateClubs();
+            SearchService.getInstance().update(SearchService.Domain.CLUB, club.getId(),
+                    club.getNomC(), club.getDescription());
+            ActivityLogService.getInstance().record(ActivityTypeEnum.CLUB_MANAGEMENT, "Club", club.getId(),
+                    "Club created: " + club.getNomC());
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RuntimeException("Erreur lors de l'ajout du club: " + e.getMessage());
@@ -54,6 +66,11 @@ public class ClubService {
             stmt.setInt(6, club.getPoints());
             stmt.setInt(7, club.getId());
             stmt.executeUpdate();
+            ReferenceDataCache.getInstance().invalidateClubs();
+            SearchService.getInstance().update(SearchService.Domain.CLUB, club.getId(),
+                    club.getNomC(), club.getDescription());
+            ActivityLogService.getInstance().record(ActivityTypeEnum.CLUB_MANAGEMENT, "Club", club.getId(),
+                    "Club updated: " + club.getNomC() + " (" + club.getStatus() + ")");
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RuntimeException("Erreur lors de la modification du club: " + e.getMessage());
@@ -66,6 +83,10 @@ public class ClubService {
         try (PreparedStatement stmt = cnx.prepareStatement(query)) {
             stmt.setInt(1, id);
             stmt.executeUpdate();
+            ReferenceDataCache.getInstance().invalidateClubs();
+            SearchService.getInstance().remove(SearchService.Domain.CLUB, id);
+            ActivityLogService.getInstance().record(ActivityTypeEnum.CLUB_MANAGEMENT, "Club", id,
+                    "Club deleted (ID: " + id + ")");
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RuntimeException("Erreur lors de la suppression du club: " + e.getMessage());
@@ -229,20 +250,20 @@ public class ClubService {
 
     public List<Object[]> getClubsByPopularity() {
         List<Object[]> stats = new ArrayList<>();
-        String query = "SELECT c.nom_c, " +
-                "COUNT(CASE WHEN pm.statut = 'accepte' THEN pm.id ELSE NULL END) as participation_count " +
+        // Membres acceptés lus dans les rollups (aucun parcours de participation_membre)
+        String query = "SELECT c.nom_c, COALESCE(t.value, 0) as participation_count " +
                 "FROM club c " +
-                "LEFT JOIN participation_membre pm ON c.id = pm.club_id " +
-                "GROUP BY c.nom_c " +
+                "LEFT JOIN stat_rollup_total t ON t.metric = ? AND t.dim_id = c.id " +
                 "ORDER BY participation_count DESC";
 
-        try (PreparedStatement stmt = cnx.prepareStatement(query);
-                ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                String clubName = rs.getString("nom_c");
-                int participationCount = rs.getInt("participation_count");
-                stats.add(new Object[] { clubName, participationCount });
-                System.out.println("Donnée brute: Club = " + clubName + ", Count = " + participationCount);
+        try (PreparedStatement stmt = cnx.prepareStatement(query)) {
+            stmt.setString(1, RollupMetricEnum.CLUB_MEMBERS.name());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String clubName = rs.getString("nom_c");
+                    int participationCount = rs.getInt("participation_count");
+                    stats.add(new Object[] { clubName, participationCount });
+                }
             }
         } catch (SQLException e) {
             System.err.println("SQLException in getClubsByPopularity: " + e.getMessage());
@@ -4,12 +4,23 @@ import com.itbs.models.Commande;
 import com.itbs.models.Orderdetails;
 import com.itbs.models.Produit;
 import com.itbs.models.User;
+import com.itbs.models.enums.ActivityTypeEnum;
 import com.itbs.models.enums.StatutCommandeEnum;
 import com.itbs.utils.DataSource;
+import com.itbs.utils.TextIndex;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class CommandeService {
 
@@ -76,37 +87,43 @@ public class CommandeService {
                 throw new SQLException("L'utilisateur doit être défini pour créer une commande");
             }
 
-            String insertCommandeSQL = "INSERT INTO commande (date_comm, statut, user_id) VALUES (?, ?, ?)";
-            PreparedStatement ps = connection.prepareStatement(insertCommandeSQL, Statement.RETURN_GENERATED_KEYS);
-            ps.setDate(1, Date.valueOf(commande.getDateComm()));
-            ps.setString(2, commande.getStatut().name());
-            ps.setInt(3, commande.getUser().getId());
+            // The order, its lines and the dashboard counters are written together
+            DataSource.getInstance().inTransaction(() -> {
+                String insertCommandeSQL = "INSERT INTO commande (date_comm, statut, user_id) VALUES (?, ?, ?)";
+                PreparedStatement ps = connection.prepareStatement(insertCommandeSQL, Statement.RETURN_GENERATED_KEYS);
+                ps.setDate(1, Date.valueOf(commande.getDateComm()));
+                ps.setString(2, commande.getStatut().name());
+                ps.setInt(3, commande.getUser().getId());
             
-            int affectedRows = ps.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("La création de la commande a échoué, aucune ligne affectée.");
-            }
+                int affectedRows = ps.executeUpdate();
+                if (affectedRows == 0) {
+                    throw new SQLException("La création de la commande a échoué, aucune ligne affectée.");
+                }
 
-            ResultSet rs = ps.getGeneratedKeys();
-            if (rs.next()) {
-                int commandeId = rs.getInt(1);
-                commande.setId(commandeId);
-
-                // Insérer les détails de la commande si présents
-                if (commande.getOrderDetails() != null && !commande.getOrderDetails().isEmpty()) {
-                    for (Orderdetails detail : commande.getOrderDetails()) {
-                        String insertDetailSQL = "INSERT INTO orderdetails (commande_id, produit_id, quantity, price, total) VALUES (?, ?, ?, ?, ?)";
-                        PreparedStatement detailPs = connection.prepareStatement(insertDetailSQL);
-                        detailPs.setInt(1, commandeId);
-                        detailPs.setInt(2, detail.getProduit().getId());
-                        detailPs.setInt(3, detail.getQuantity());
-                        detailPs.setDouble(4, detail.getPrice());
-                        detailPs.setDouble(5, detail.getTotal());
-                        detailPs.executeUpdate();
+                ResultSet rs = ps.getGeneratedKeys();
+                if (rs.next()) {
+                    int commandeId = rs.getInt(1);
+                    commande.setId(commandeId);
+
+                    // Insérer les détails de la commande si présents
+                    if (commande.getOrderDetails() != null && !commande.getOrderDetails().isEmpty()) {
+                        for (Orderdetails detail : commande.getOrderDetails()) {
+                            String insertDetailSQL = "INSERT INTO orderdetails (commande_id, produit_id, quantity, price, total) VALUES (?, ?, ?, ?, ?)";
+                            PreparedStatement detailPs = connection.prepareStatement(insertDetailSQL);
+                            detailPs.setInt(1, commandeId);
+                            detailPs.setInt(2, detail.getProduit().getId());
+                            detailPs.setInt(3, detail.getQuantity());
+                            detailPs.setDouble(4, detail.getPrice());
+                            detailPs.setDouble(5, detail.getTotal());
+                            detailPs.executeUpdate();
+                        }
                     }
-                }
-            }
 
+                    DashboardRollupService.getInstance().applyOrder(commandeId, 1);
+                }
+            });
+            ActivityLogService.getInstance().record(ActivityTypeEnum.ORDER_MANAGEMENT, "Order", commande.getId(),
+                    "Order " + commande.getStatut().name() + " for user " + commande.getUser().getId());
             System.out.println("Commande créée avec succès pour l'utilisateur ID: " + commande.getUser().getId());
         } catch (SQLException e) {
             e.printStackTrace();
@@ -116,33 +133,11 @@ public class CommandeService {
 
     public void supprimerCommande(int id) {
         try {
-            connection.setAutoCommit(false);
-
-            try {
-                String deleteDetailsSQL = "DELETE FROM orderdetails WHERE commande_id = ?";
-                PreparedStatement ps1 = connection.prepareStatement(deleteDetailsSQL);
-                ps1.setInt(1, id);
-                int detailsDeleted = ps1.executeUpdate();
-                System.out.println("Order details deleted: " + detailsDeleted);
-
-                String deleteCommandeSQL = "DELETE FROM commande WHERE id = ?";
-                PreparedStatement ps2 = connection.prepareStatement(deleteCommandeSQL);
-                ps2.setInt(1, id);
-                int commandesDeleted = ps2.executeUpdate();
-                System.out.println("Commands deleted: " + commandesDeleted);
-
-                if (commandesDeleted > 0) {
-                    connection.commit();
-                    System.out.println("Commande supprimée avec succès.");
-                } else {
-                    connection.rollback();
-                    System.out.println("Commande avec ID " + id + " non trouvée.");
-                }
-            } catch (SQLException e) {
-                connection.rollback();
-                throw e;
-            } finally {
-                connection.setAutoCommit(true);
+            Map<Integer, BulkOutcome> outcomes = supprimerCommandes(Collections.singletonList(id));
+            if (outcomes.get(id) == BulkOutcome.DONE) {
+                System.out.println("Commande supprimée avec succès.");
+            } else {
+                System.out.println("Commande avec ID " + id + " non trouvée.");
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -152,32 +147,234 @@ public class CommandeService {
 
     public void validerCommande(int id) {
         try {
-            String updateSQL = "UPDATE commande SET statut = ? WHERE id = ?";
-            PreparedStatement ps = connection.prepareStatement(updateSQL);
-            ps.setString(1, StatutCommandeEnum.CONFIRMEE.name());
-            ps.setInt(2, id);
-            ps.executeUpdate();
-
-            System.out.println("Commande validée.");
+            BulkOutcome outcome = validerCommandes(Collections.singletonList(id)).get(id);
+            if (outcome == BulkOutcome.DONE) {
+                System.out.println("Commande validée.");
+            } else if (outcome == BulkOutcome.INVALID_STATUS) {
+                System.out.println("Commande avec ID " + id + " non validée: elle n'est plus en cours.");
+            } else {
+                System.out.println("Commande avec ID " + id + " non trouvée.");
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Résultat d'une opération groupée, par commande
+     */
+    public enum BulkOutcome {
+        DONE,
+        NOT_FOUND,
+        // Only orders still EN_COURS can be validated or cancelled
+        INVALID_STATUS
+    }
+
+    /**
+     * Passe les commandes EN_COURS au statut CONFIRMEE, en une transaction
+     * @return Outcome of each id, in the order given
+     */
+    public Map<Integer, BulkOutcome> validerCommandes(Collection<Integer> ids) throws SQLException {
+        return applyBulk(ids, StatutCommandeEnum.CONFIRMEE);
+    }
+
+    /**
+     * Passe les commandes EN_COURS au statut ANNULEE, en une transaction. Le
+     * stock réservé par les commandes passées (checkout) est rendu.
+     * @return Outcome of each id, in the order given
+     */
+    public Map<Integer, BulkOutcome> annulerCommandes(Collection<Integer> ids) throws SQLException {
+        return applyBulk(ids, StatutCommandeEnum.ANNULEE);
+    }
+
+    /**
+     * Supprime les commandes et leurs lignes, quel que soit leur statut, en une
+     * transaction. Le stock encore réservé (commande passée, ni confirmée ni
+     * annulée) est rendu.
+     * @return Outcome of each id, in the order given
+     */
+    public Map<Integer, BulkOutcome> supprimerCommandes(Collection<Integer> ids) throws SQLException {
+        return applyBulk(ids, null);
+    }
+
+    /**
+     * Locks the orders, checks them, then writes every eligible one with a
+     * single statement per table. The rollups are taken out and put back for
+     * all the orders at once, inside the same transaction.
+     *
+     * Orders placed through {@link CheckoutService} hold their stock until
+     * they leave EN_COURS (stock_reserved = 1). Cancelling or deleting such an
+     * order puts the stock back and validating it keeps it sold; either way
+     * the flag is cleared under the same row lock, so the stock is returned
+     * once at most. The live counters of {@link InventoryCache} are set once
+     * the transaction is committed. Carts, seeded orders and orders already
+     * confirmed or cancelled hold no stock.
+     * @param target New status, null to delete
+     */
+    private Map<Integer, BulkOutcome> applyBulk(Collection<Integer> ids, StatutCommandeEnum target) throws SQLException {
+        Set<Integer> distinct = new LinkedHashSet<>(ids);
+        Map<Integer, BulkOutcome> outcomes = new LinkedHashMap<>();
+        if (distinct.isEmpty()) {
+            return outcomes;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(distinct.size(), "?"));
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            Map<Integer, String> statuts = new HashMap<>();
+            Set<Integer> reserved = new HashSet<>();
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id, statut, stock_reserved FROM commande WHERE id IN (" + placeholders + ") FOR UPDATE")) {
+                bindIds(ps, 1, distinct);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        statuts.put(rs.getInt("id"), rs.getString("statut"));
+                        if (rs.getBoolean("stock_reserved")) {
+                            reserved.add(rs.getInt("id"));
+                        }
+                    }
+                }
+            }
+
+            List<Integer> eligible = new ArrayList<>();
+            List<Integer> restock = new ArrayList<>();
+            for (int id : distinct) {
+                if (!statuts.containsKey(id)) {
+                    outcomes.put(id, BulkOutcome.NOT_FOUND);
+                } else if (target != null && !StatutCommandeEnum.EN_COURS.name().equals(statuts.get(id))) {
+                    outcomes.put(id, BulkOutcome.INVALID_STATUS);
+                } else {
+                    outcomes.put(id, BulkOutcome.DONE);
+                    eligible.add(id);
+                    if (target != StatutCommandeEnum.CONFIRMEE && reserved.contains(id)) {
+                        restock.add(id);
+                    }
+                }
+            }
+
+            Map<Integer, Integer> restocked = Collections.emptyMap();
+            if (!eligible.isEmpty()) {
+                String eligiblePlaceholders = String.join(", ", Collections.nCopies(eligible.size(), "?"));
+                DashboardRollupService rollups = DashboardRollupService.getInstance();
+                rollups.applyOrders(eligible, -1);
+                // Before the lines are deleted
+                restocked = restoreStock(restock);
+
+                if (target == null) {
+                    try (PreparedStatement ps = connection.prepareStatement(
+                            "DELETE FROM orderdetails WHERE commande_id IN (" + eligiblePlaceholders + ")")) {
+                        bindIds(ps, 1, eligible);
+                        ps.executeUpdate();
+                    }
+                    try (PreparedStatement ps = connection.prepareStatement(
+                            "DELETE FROM commande WHERE id IN (" + eligiblePlaceholders + ")")) {
+                        bindIds(ps, 1, eligible);
+                        ps.executeUpdate();
+                    }
+                } else {
+                    // Confirmed or cancelled, the order no longer holds stock
+                    try (PreparedStatement ps = connection.prepareStatement(
+                            "UPDATE commande SET statut = ?, stock_reserved = 0 WHERE id IN (" + eligiblePlaceholders + ")")) {
+                        ps.setString(1, target.name());
+                        bindIds(ps, 2, eligible);
+                        ps.executeUpdate();
+                    }
+                    rollups.applyOrders(eligible, 1);
+                }
+            }
+
+            connection.commit();
+            for (Map.Entry<Integer, Integer> stock : restocked.entrySet()) {
+                InventoryCache.getInstance().stockSet(stock.getKey(), stock.getValue());
+            }
+            ActivityLogService activityLog = ActivityLogService.getInstance();
+            for (int id : eligible) {
+                activityLog.record(ActivityTypeEnum.ORDER_MANAGEMENT, "Order", id,
+                        target != null ? "Order " + target.name() + " (ID: " + id + ")" : "Order deleted (ID: " + id + ")");
+            }
+            return outcomes;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Gives back the quantities of the lines of these orders to the products,
+     * in the current transaction
+     * @return New stock of each product touched, produit id to quantity
+     */
+    private Map<Integer, Integer> restoreStock(List<Integer> commandeIds) throws SQLException {
+        Map<Integer, Integer> stock = new HashMap<>();
+        if (commandeIds.isEmpty()) {
+            return stock;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(commandeIds.size(), "?"));
+        // Summed per product first: a multi-table UPDATE changes each produit row once
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE produit p JOIN (SELECT produit_id, SUM(quantity) AS quantity FROM orderdetails " +
+                "WHERE commande_id IN (" + placeholders + ") GROUP BY produit_id) d ON d.produit_id = p.id " +
+                "SET p.quantity = p.quantity + d.quantity")) {
+            bindIds(ps, 1, commandeIds);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT id, quantity FROM produit WHERE id IN " +
+                "(SELECT produit_id FROM orderdetails WHERE commande_id IN (" + placeholders + "))")) {
+            bindIds(ps, 1, commandeIds);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    stock.put(rs.getInt("id"), rs.getInt("quantity"));
+                }
+            }
+        }
+        return stock;
+    }
+
+    private static void bindIds(PreparedStatement ps, int firstIndex, Collection<Integer> ids) throws SQLException {
+        int index = firstIndex;
+        for (int id : ids) {
+            ps.setInt(index++, id);
+        }
+    }
+
+    // The status is a closed set: the keyword is matched against the statuses
+    // in memory (accents and case ignored) and the query filters on the column value
+    private static List<StatutCommandeEnum> matchingStatuts(String keyword) {
+        String folded = TextIndex.fold(keyword).replaceAll("[^a-z0-9]+", " ").trim();
+        List<StatutCommandeEnum> statuts = new ArrayList<>();
+        for (StatutCommandeEnum statut : StatutCommandeEnum.values()) {
+            if (statut.getValue().replace('_', ' ').contains(folded)) {
+                statuts.add(statut);
+            }
+        }
+        return statuts;
+    }
+
     public List<Commande> getAllCommandes(String keyword) {
         List<Commande> commandes = new ArrayList<>();
         try {
             String query = "SELECT c.*, u.id as user_id, u.nom as user_nom, u.prenom as user_prenom, u.email as user_email " +
                     "FROM commande c " +
                     "LEFT JOIN user u ON c.user_id = u.id";
+            List<StatutCommandeEnum> statuts = null;
             if (keyword != null && !keyword.isEmpty()) {
-                query += " WHERE c.statut LIKE ?";
+                statuts = matchingStatuts(keyword);
+                if (statuts.isEmpty()) {
+                    return commandes;
+                }
+                query += " WHERE c.statut IN (" + String.join(", ", Collections.nCopies(statuts.size(), "?")) + ")";
             }
             query += " ORDER BY c.date_comm DESC";
 
             PreparedStatement ps = connection.prepareStatement(query);
-            if (keyword != null && !keyword.isEmpty()) {
-                ps.setString(1, "%" + keyword + "%");
+            if (statuts != null) {
+                for (int i = 0; i < statuts.size(); i++) {
+                    ps.setString(i + 1, statuts.get(i).name());
+                }
             }
 
             ResultSet rs = ps.executeQuery();
@@ -248,24 +445,38 @@ public class CommandeService {
         return commandes;
     }
 
+    /**
+     * Nombre de commandes par statut, en une requête
+     */
+    public Map<StatutCommandeEnum, Integer> countByStatut() throws SQLException {
+        Map<StatutCommandeEnum, Integer> counts = new EnumMap<>(StatutCommandeEnum.class);
+        for (StatutCommandeEnum statut : StatutCommandeEnum.values()) {
+            counts.put(statut, 0);
+        }
+        String sql = "SELECT statut, COUNT(*) AS total FROM commande WHERE statut IS NOT NULL GROUP BY statut";
+        try (PreparedStatement ps = connection.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String statut = rs.getString("statut");
+                try {
+                    counts.put(StatutCommandeEnum.valueOf(statut), rs.getInt("total"));
+                } catch (IllegalArgumentException e) {
+                    // Valeur inconnue en base (ancienne donnée), ignorée dans les compteurs
+                    System.err.println("Statut de commande inconnu ignoré: " + statut);
+                }
+            }
+        }
+        return counts;
+    }
+
     public List<Object[]> getTopProduits() {
         List<Object[]> stats = new ArrayList<>();
         try {
-            String sql = "SELECT p.nom_prod, SUM(od.quantity) as total_ventes " +
-                    "FROM produit p " +
-                    "JOIN orderdetails od ON p.id = od.produit_id " +
-                    "GROUP BY p.id " +
-                    "ORDER BY total_ventes DESC";
-            Statement st = connection.createStatement();
-            ResultSet rs = st.executeQuery(sql);
-
-            while (rs.next()) {
-                String nomProd = rs.getString("nom_prod");
-                int totalVentes = rs.getInt("total_ventes");
-                System.out.println("Product: " + nomProd + ", Sales: " + totalVentes);
-                stats.add(new Object[] { nomProd, totalVentes });
+            // Lu dans le cube des ventes au lieu d'agréger orderdetails
+            for (SalesCubeService.CubeTotal total : SalesCubeService.getInstance()
+                    .getTopProducts(SalesCubeService.Measure.UNITS, null, null, null, 0)) {
+                stats.add(new Object[] { total.getName(), (int) total.getValue() });
             }
-
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -273,13 +484,13 @@ public class CommandeService {
     }
     
     /**
-     * Get the current cart (commande with EN_COURS status) for a user
+     * Get the current cart (EN_COURS commande marked is_cart) for a user
      * @param userId User ID
      * @return Cart commande or null if no cart exists
      */
     public Commande getCartForUser(int userId) {
         try {
-            String query = "SELECT c.* FROM commande c WHERE c.user_id = ? AND c.statut = ? ORDER BY c.id DESC LIMIT 1";
+            String query = "SELECT c.* FROM commande c WHERE c.user_id = ? AND c.is_cart = 1 AND c.statut = ? ORDER BY c.id DESC LIMIT 1";
             PreparedStatement ps = connection.prepareStatement(query);
             ps.setInt(1, userId);
             ps.setString(2, StatutCommandeEnum.EN_COURS.name());
@@ -318,7 +529,7 @@ public class CommandeService {
                     produit.setNomProd(detailsRs.getString("nom_prod"));
                     produit.setDescProd(detailsRs.getString("desc_prod"));
                     produit.setPrix(detailsRs.getFloat("prix"));
-                    produit.setQuantity(String.valueOf(detailsRs.getInt("quantity")));
+                    produit.setQuantity(detailsRs.getInt("quantity"));
                     produit.setImgProd(detailsRs.getString("img_prod"));
                     
                     detail.setProduit(produit);
@@ -349,12 +560,32 @@ public class CommandeService {
             connection.setAutoCommit(false);
             
             try {
+                DashboardRollupService rollups = DashboardRollupService.getInstance();
+                rollups.applyOrder(commande.getId(), -1);
+
+                // Leaving EN_COURS releases the reserved stock, given back if the order is cancelled
+                boolean stillReserved = commande.getStatut() == StatutCommandeEnum.EN_COURS;
+                Map<Integer, Integer> restocked = Collections.emptyMap();
+                if (commande.getStatut() == StatutCommandeEnum.ANNULEE) {
+                    try (PreparedStatement lock = connection.prepareStatement(
+                            "SELECT stock_reserved FROM commande WHERE id = ? FOR UPDATE")) {
+                        lock.setInt(1, commande.getId());
+                        try (ResultSet rs = lock.executeQuery()) {
+                            if (rs.next() && rs.getBoolean("stock_reserved")) {
+                                // Before the lines are replaced
+                                restocked = restoreStock(Collections.singletonList(commande.getId()));
+                            }
+                        }
+                    }
+                }
+
                 // Update the commande
-                String updateCommandeSQL = "UPDATE commande SET date_comm = ?, statut = ? WHERE id = ?";
+                String updateCommandeSQL = "UPDATE commande SET date_comm = ?, statut = ?, stock_reserved = stock_reserved AND ? WHERE id = ?";
                 PreparedStatement ps = connection.prepareStatement(updateCommandeSQL);
                 ps.setDate(1, Date.valueOf(commande.getDateComm()));
                 ps.setString(2, commande.getStatut().name());
-                ps.setInt(3, commande.getId());
+                ps.setBoolean(3, stillReserved);
+                ps.setInt(4, commande.getId());
                 ps.executeUpdate();
                 
                 // Delete existing order details
@@ -374,8 +605,14 @@ public class CommandeService {
                     detailPs.setDouble(5, detail.getTotal());
                     detailPs.executeUpdate();
                 }
-                
+
+                rollups.applyOrder(commande.getId(), 1);
                 connection.commit();
+                for (Map.Entry<Integer, Integer> stock : restocked.entrySet()) {
+                    InventoryCache.getInstance().stockSet(stock.getKey(), stock.getValue());
+                }
+                ActivityLogService.getInstance().record(ActivityTypeEnum.ORDER_MANAGEMENT, "Order", commande.getId(),
+                        "Order updated (ID: " + commande.getId() + ", " + commande.getStatut().name() + ")");
                 System.out.println("Commande updated successfully: ID " + commande.getId());
             } catch (SQLException e) {
                 connection.rollback();
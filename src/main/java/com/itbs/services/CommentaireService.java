@@ -2,6 +2,8 @@ package com.itbs.services;
 
 import com.itbs.models.Commentaire;
 import com.itbs.models.User;
+import com.itbs.models.enums.CommentStatusEnum;
+import com.itbs.models.enums.RollupMetricEnum;
 import com.itbs.utils.DataSource;
 import com.itbs.utils.AiService; // Use the utils version explicitly
 import com.itbs.utils.EmailService; // Use the utils version explicitly
@@ -12,7 +14,9 @@ import javafx.collections.ObservableList;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -22,10 +26,14 @@ public class CommentaireService {
     private OpenAIService openAIService; // Service pour la génération de résumés
     private EmailService emailService; // Service for sending warning emails
     private UserService userService; // Service for updating user warnings
+    private final ModerationStateCache moderationCache = ModerationStateCache.getInstance();
 
     // The warning message prefix that marks a toxic comment
     private static final String TOXIC_COMMENT_PREFIX = "⚠️ Comment hidden: This content was flagged by our AI moderation system";
 
+    // Content shown once a moderator approved a flagged comment (the original text is not kept)
+    private static final String APPROVED_COMMENT_CONTENT = "[Comment was reviewed and approved by moderator]";
+
     public CommentaireService() {
         connection = DataSource.getInstance().getCnx();
         aiService = new AiService();
@@ -39,23 +47,20 @@ public class CommentaireService {
     }
 
     public void add(Commentaire commentaire) throws SQLException {
-        // First check if user is banned from commenting by counting their toxic comments
+        // First check if user is banned from commenting (cached moderation state)
         User user = commentaire.getUser();
-        if (user != null) {
-            int toxicCommentCount = countUserToxicComments(user.getId());
-            if (toxicCommentCount >= 3) {
-                throw new SecurityException("This user is banned from commenting due to multiple violations of our community guidelines.");
-            }
+        if (user != null && moderationCache.isBannedFromCommenting(user.getId())) {
+            throw new SecurityException("This user is banned from commenting due to multiple violations of our community guidelines.");
         }
         
-        // Analyze the content for toxicity
+        // Analyze the content for toxicity (single AI call, reused for the email)
         String originalContent = commentaire.getContenuComment();
-        boolean isToxic = aiService.isToxic(originalContent);
+        JSONObject toxicityAnalysis = aiService.analyzeToxicity(originalContent);
+        boolean isToxic = toxicityAnalysis.optBoolean("isToxic", false);
+        commentaire.setToxicityScore(aiService.getToxicityScore(toxicityAnalysis));
+        commentaire.setStatus(isToxic ? CommentStatusEnum.FLAGGED : CommentStatusEnum.VISIBLE);
         
         if (isToxic) {
-            // Get toxicity details for the email
-            JSONObject toxicityAnalysis = aiService.analyzeToxicity(originalContent);
-            
             // Replace the content with a warning message
             String warningMessage = TOXIC_COMMENT_PREFIX + " for potentially inappropriate language. " +
                                   "We encourage respectful and constructive discussions. " +
@@ -64,30 +69,52 @@ public class CommentaireService {
             
             // Send warning email to the user
             if (user != null && user.getEmail() != null && !user.getEmail().isEmpty()) {
-                int warningLevel = countUserToxicComments(user.getId()) + 1; // +1 for the current comment
+                int warningLevel = moderationCache.getToxicCommentCount(user.getId()) + 1; // +1 for the current comment
                 sendWarningEmail(user, originalContent, toxicityAnalysis, warningLevel);
             }
         }
 
-        String query = "INSERT INTO commentaire (contenu_comment, date_comment, user_id, sondage_id) VALUES (?, ?, ?, ?)";
+        String query = "INSERT INTO commentaire (contenu_comment, date_comment, user_id, sondage_id, status, toxicity_score) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement pst = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-            pst.setString(1, commentaire.getContenuComment());
-            
-            // Conversion de LocalDate en Timestamp pour la base de données
-            LocalDate date = commentaire.getDateComment();
-            pst.setTimestamp(2, date != null ? Timestamp.valueOf(date.atStartOfDay()) : Timestamp.valueOf(LocalDate.now().atStartOfDay()));
-            
-            pst.setInt(3, commentaire.getUser().getId());
-            pst.setInt(4, commentaire.getSondage().getId());
+        // Conversion de LocalDate en Timestamp pour la base de données
+        LocalDate date = commentaire.getDateComment();
 
-            pst.executeUpdate();
+        // The comment, the author's toxic counter and the dashboard counters
+        // are written in the same transaction
+        LocalDate day = date != null ? date : LocalDate.now();
+        DashboardRollupService rollups = DashboardRollupService.getInstance();
+        DataSource.getInstance().inTransaction(() -> {
+            try (PreparedStatement pst = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                pst.setString(1, commentaire.getContenuComment());
+                pst.setTimestamp(2, Timestamp.valueOf(day.atStartOfDay()));
 
-            ResultSet rs = pst.getGeneratedKeys();
-            if (rs.next()) {
-                commentaire.setId(rs.getInt(1));
+                pst.setInt(3, commentaire.getUser().getId());
+                pst.setInt(4, commentaire.getSondage().getId());
+                pst.setString(5, commentaire.getStatus().name());
+                pst.setDouble(6, commentaire.getToxicityScore());
+
+                pst.executeUpdate();
+
+                ResultSet rs = pst.getGeneratedKeys();
+                if (rs.next()) {
+                    commentaire.setId(rs.getInt(1));
+                }
+            }
+
+            if (isToxic) {
+                moderationCache.updateToxicCounter(commentaire.getUser().getId(), 1);
             }
+            rollups.increment(RollupMetricEnum.COMMENTS, day, 1);
+            if (isToxic) {
+                rollups.increment(RollupMetricEnum.FLAGGED_COMMENTS, day, 1);
+            }
+        });
+
+        if (isToxic) {
+            moderationCache.onToxicCountChanged(commentaire.getUser().getId(), 1);
         }
+        commentChanged(commentaire.getId(), ChangeEventBus.Operation.CREATED);
     }
 
     public void update(Commentaire commentaire) throws SQLException {
@@ -108,6 +135,7 @@ public class CommentaireService {
             pst.setInt(3, commentaire.getId());
             pst.executeUpdate();
         }
+        commentChanged(commentaire.getId(), ChangeEventBus.Operation.UPDATED);
     }
 
     /**
@@ -123,12 +151,7 @@ public class CommentaireService {
             throw new SecurityException("User not authorized to delete this comment");
         }
 
-        String query = "DELETE FROM commentaire WHERE id = ?";
-
-        try (PreparedStatement pst = connection.prepareStatement(query)) {
-            pst.setInt(1, commentId);
-            pst.executeUpdate();
-        }
+        deleteComment(commentId);
     }
     
     /**
@@ -140,13 +163,53 @@ public class CommentaireService {
      * @throws SQLException En cas d'erreur SQL
      */
     public boolean delete(int commentId) throws SQLException {
+        deleteComment(commentId);
+        return false;
+    }
+
+    private void deleteComment(int commentId) throws SQLException {
         String query = "DELETE FROM commentaire WHERE id = ?";
 
+        // Read before the delete: the poll card shows the comment count
+        int[] sondageId = new int[1];
+        Map<Integer, Integer> released = new HashMap<>();
+        DataSource.getInstance().inTransaction(() -> {
+            released.putAll(moderationCache.releaseFlaggedComment(commentId));
+            try (PreparedStatement pst = connection.prepareStatement("SELECT sondage_id FROM commentaire WHERE id = ?")) {
+                pst.setInt(1, commentId);
+                try (ResultSet rs = pst.executeQuery()) {
+                    if (rs.next()) {
+                        sondageId[0] = rs.getInt(1);
+                    }
+                }
+            }
+            DashboardRollupService.getInstance().applyComment(commentId, -1);
+            try (PreparedStatement pst = connection.prepareStatement(query)) {
+                pst.setInt(1, commentId);
+                pst.executeUpdate();
+            }
+        });
+        moderationCache.onFlaggedReleased(released);
+        commentChanged(commentId, ChangeEventBus.Operation.DELETED);
+        if (sondageId[0] > 0) {
+            ChangeEventBus.getInstance().publish(ChangeEventBus.Entity.SONDAGE, sondageId[0],
+                    ChangeEventBus.Operation.UPDATED);
+        }
+    }
+
+    /**
+     * Récupère un commentaire par son ID
+     * @return null s'il n'existe plus
+     */
+    public Commentaire getById(int commentId) throws SQLException {
+        String query = "SELECT * FROM commentaire WHERE id = ?";
+
         try (PreparedStatement pst = connection.prepareStatement(query)) {
             pst.setInt(1, commentId);
-            pst.executeUpdate();
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() ? mapResultSetToCommentaire(rs) : null;
+            }
         }
-        return false;
     }
 
     public ObservableList<Commentaire> getBySondage(int sondageId) throws SQLException {
@@ -181,6 +244,74 @@ public class CommentaireService {
         return commentaires;
     }
 
+    /**
+     * Récupère les commentaires ayant un statut de modération donné
+     * (parcours de l'index (status, date_comment))
+     */
+    public ObservableList<Commentaire> getByStatus(CommentStatusEnum status) throws SQLException {
+        ObservableList<Commentaire> commentaires = FXCollections.observableArrayList();
+        String query = "SELECT * FROM commentaire WHERE status = ? ORDER BY date_comment DESC";
+
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setString(1, status.name());
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    commentaires.add(mapResultSetToCommentaire(rs));
+                }
+            }
+        }
+        return commentaires;
+    }
+
+    /**
+     * Récupère les commentaires signalés d'un sondage (index (sondage_id, status))
+     */
+    public ObservableList<Commentaire> getFlaggedBySondage(int sondageId) throws SQLException {
+        ObservableList<Commentaire> commentaires = FXCollections.observableArrayList();
+        String query = "SELECT * FROM commentaire WHERE sondage_id = ? AND status = ? ORDER BY date_comment DESC";
+
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setInt(1, sondageId);
+            pst.setString(2, CommentStatusEnum.FLAGGED.name());
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    commentaires.add(mapResultSetToCommentaire(rs));
+                }
+            }
+        }
+        return commentaires;
+    }
+
+    /**
+     * Marque un commentaire signalé comme revu et approuvé par un modérateur
+     *
+     * @param commentId ID du commentaire
+     */
+    public void approve(int commentId) throws SQLException {
+        DashboardRollupService rollups = DashboardRollupService.getInstance();
+
+        String query = "UPDATE commentaire SET status = ?, contenu_comment = ? WHERE id = ?";
+        Map<Integer, Integer> released = new HashMap<>();
+        DataSource.getInstance().inTransaction(() -> {
+            // An approved comment no longer counts towards its author's ban
+            released.putAll(moderationCache.releaseFlaggedComment(commentId));
+            rollups.applyComment(commentId, -1);
+            try (PreparedStatement pst = connection.prepareStatement(query)) {
+                pst.setString(1, CommentStatusEnum.APPROVED.name());
+                pst.setString(2, APPROVED_COMMENT_CONTENT);
+                pst.setInt(3, commentId);
+                pst.executeUpdate();
+            }
+            rollups.applyComment(commentId, 1);
+        });
+        moderationCache.onFlaggedReleased(released);
+        commentChanged(commentId, ChangeEventBus.Operation.UPDATED);
+    }
+
+    private static void commentChanged(int commentId, ChangeEventBus.Operation operation) {
+        ChangeEventBus.getInstance().publish(ChangeEventBus.Entity.COMMENTAIRE, commentId, operation);
+    }
+
     private Commentaire mapResultSetToCommentaire(ResultSet rs) throws SQLException {
         Commentaire commentaire = new Commentaire();
         commentaire.setId(rs.getInt("id"));
@@ -190,6 +321,10 @@ public class CommentaireService {
         Timestamp timestamp = rs.getTimestamp("date_comment");
         commentaire.setDateComment(timestamp != null ? timestamp.toLocalDateTime().toLocalDate() : LocalDate.now());
 
+        commentaire.setStatus(CommentStatusEnum.fromString(rs.getString("status")));
+        double score = rs.getDouble("toxicity_score");
+        commentaire.setToxicityScore(rs.wasNull() ? null : score);
+
         // Load user and poll
         UserService userService = new UserService();
         SondageService sondageService = SondageService.getInstance();
@@ -215,38 +350,17 @@ public class CommentaireService {
         return false;
     }
 
-    // Méthodes statistiques
+    // Méthodes statistiques (lues dans les rollups du tableau de bord)
     public int getTotalComments() throws SQLException {
-        String query = "SELECT COUNT(*) FROM commentaire";
-        try (Statement st = connection.createStatement();
-                ResultSet rs = st.executeQuery(query)) {
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
-        }
-        return 0;
+        return (int) DashboardRollupService.getInstance().getTotal(RollupMetricEnum.COMMENTS);
     }
 
     public int getTodayComments() throws SQLException {
-        String query = "SELECT COUNT(*) FROM commentaire WHERE DATE(date_comment) = CURRENT_DATE";
-        try (Statement st = connection.createStatement();
-                ResultSet rs = st.executeQuery(query)) {
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
-        }
-        return 0;
+        return (int) DashboardRollupService.getInstance().getDayValue(RollupMetricEnum.COMMENTS, LocalDate.now());
     }
 
     public int getFlaggedComments() throws SQLException {
-        String query = "SELECT COUNT(*) FROM commentaire WHERE contenu_comment LIKE '%⚠️%'";
-        try (Statement st = connection.createStatement();
-                ResultSet rs = st.executeQuery(query)) {
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
-        }
-        return 0;
+        return (int) DashboardRollupService.getInstance().getTotal(RollupMetricEnum.FLAGGED_COMMENTS);
     }
 
     // Add this new method to generate a summary of comments
@@ -316,16 +430,16 @@ public class CommentaireService {
 
     /**
      * Counts how many toxic comments a user has posted
-     * A toxic comment is identified by the prefix in the content
+     * Uses the (user_id, status) index instead of matching the content prefix
      * 
      * @param userId The user ID to check
      * @return The count of toxic comments by this user
      */
     public int countUserToxicComments(int userId) throws SQLException {
-        String query = "SELECT COUNT(*) FROM commentaire WHERE user_id = ? AND contenu_comment LIKE ?";
+        String query = "SELECT COUNT(*) FROM commentaire WHERE user_id = ? AND status = ?";
         try (PreparedStatement pst = connection.prepareStatement(query)) {
             pst.setInt(1, userId);
-            pst.setString(2, TOXIC_COMMENT_PREFIX + "%");
+            pst.setString(2, CommentStatusEnum.FLAGGED.name());
             
             try (ResultSet rs = pst.executeQuery()) {
                 if (rs.next()) {
@@ -338,12 +452,13 @@ public class CommentaireService {
     
     /**
      * Checks if a user is banned from commenting based on their toxic comment count
+     * Answered from the in-memory moderation state, no query once the user is cached
      * 
      * @param userId The user ID to check
      * @return True if the user has 3 or more toxic comments and is therefore banned
      */
     public boolean isUserBannedFromCommenting(int userId) throws SQLException {
-        return countUserToxicComments(userId) >= 3;
+        return moderationCache.isBannedFromCommenting(userId);
     }
     
     /**
@@ -490,10 +605,7 @@ public class CommentaireService {
      * @return true if the comment is flagged as toxic
      */
     public boolean isCommentFlaggedAsToxic(Commentaire comment) {
-        if (comment == null || comment.getContenuComment() == null) {
-            return false;
-        }
-        return comment.getContenuComment().startsWith(TOXIC_COMMENT_PREFIX);
+        return comment != null && comment.isFlagged();
     }
     
     /**
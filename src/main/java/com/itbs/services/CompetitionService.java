@@ -3,6 +3,7 @@ package com.itbs.services;
 import com.itbs.models.Competition;
 import com.itbs.models.Saison;
 import com.itbs.utils.DataSource;
+import com.itbs.models.enums.ActivityTypeEnum;
 import com.itbs.models.enums.GoalTypeEnum;
 
 import java.sql.*;
@@ -61,6 +62,8 @@ public class CompetitionService implements IServiceIsmail<Competition> {
                     throw new SQLException("Failed to get generated competition ID");
                 }
             }
+            ActivityLogService.getInstance().record(ActivityTypeEnum.COMPETITION_MANAGEMENT, "Competition",
+                    competition.getId(), "Competition created: " + competition.getNomComp() + " (" + competition.getStatus() + ")");
         } catch (SQLException e) {
             System.err.println("Error adding competition: " + e.getMessage());
             throw e;
@@ -112,6 +115,8 @@ public class CompetitionService implements IServiceIsmail<Competition> {
                 getMissionProgressService().initializeMissionProgressForAllClubs(competition);
                 System.out.println("Ensured mission progress records exist for updated competition: " + competition.getNomComp());
             }
+            ActivityLogService.getInstance().record(ActivityTypeEnum.COMPETITION_MANAGEMENT, "Competition",
+                    competition.getId(), "Competition updated: " + competition.getNomComp() + " (" + competition.getStatus() + ")");
         } catch (SQLException e) {
             System.err.println("Error updating competition: " + e.getMessage());
             throw e;
@@ -134,6 +139,8 @@ public class CompetitionService implements IServiceIsmail<Competition> {
                     ps.setString(1, competition.getStatus());
                     ps.setInt(2, competition.getId());
                     ps.executeUpdate();
+                    ActivityLogService.getInstance().record(ActivityTypeEnum.COMPETITION_MANAGEMENT, "Competition",
+                            competition.getId(), "Competition " + competition.getStatus() + ": " + competition.getNomComp());
 
                     // If competition was activated and is now deactivated, reset progress
                     if ("deactivated".equals(competition.getStatus()) && "activated".equals(oldStatus)) {
@@ -162,6 +169,8 @@ public class CompetitionService implements IServiceIsmail<Competition> {
             if (rowsDeleted == 0) {
                 throw new SQLException("Delete failed, no rows affected. Competition with ID " + id + " not found.");
             }
+            ActivityLogService.getInstance().record(ActivityTypeEnum.COMPETITION_MANAGEMENT, "Competition", id,
+                    "Competition deleted (ID: " + id + ")");
         }
     }
 
@@ -0,0 +1,432 @@
+package com.itbs.services;
+
+import com.itbs.models.enums.CommentStatusEnum;
+import com.itbs.models.enums.RollupMetricEnum;
+import com.itbs.utils.DataSource;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Maintains the per-day dashboard counters (stat_daily_rollup) and their
+ * running totals (stat_rollup_total).
+ *
+ * Write paths call the increment/apply methods in the same transaction as
+ * their own statements (see {@link DataSource#inTransaction}): a counter
+ * that can't be updated rolls the write back, so the counters never drift
+ * from the source tables. {@link #rebuild()} recomputes everything from the
+ * source tables in one batch.
+ */
+public class DashboardRollupService {
+    private static final Logger LOGGER = Logger.getLogger(DashboardRollupService.class.getName());
+    private static DashboardRollupService instance;
+
+    private static final String UPSERT_DAILY = "INSERT INTO stat_daily_rollup (metric, day, dim_id, value) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE value = value + VALUES(value)";
+    private static final String UPSERT_TOTAL = "INSERT INTO stat_rollup_total (metric, dim_id, value) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE value = value + VALUES(value)";
+
+    // Backfill queries, each returning (day, dim_id, value) for one metric
+    private static final Map<RollupMetricEnum, String> BACKFILL_QUERIES = new EnumMap<>(RollupMetricEnum.class);
+
+    static {
+        BACKFILL_QUERIES.put(RollupMetricEnum.COMMENTS,
+                "SELECT DATE(date_comment), 0, COUNT(*) FROM commentaire " +
+                "WHERE date_comment IS NOT NULL GROUP BY DATE(date_comment)");
+        BACKFILL_QUERIES.put(RollupMetricEnum.FLAGGED_COMMENTS,
+                "SELECT DATE(date_comment), 0, COUNT(*) FROM commentaire " +
+                "WHERE date_comment IS NOT NULL AND status = '" + CommentStatusEnum.FLAGGED.name() + "' " +
+                "GROUP BY DATE(date_comment)");
+        BACKFILL_QUERIES.put(RollupMetricEnum.VOTES,
+                "SELECT DATE(date_reponse), 0, COUNT(*) FROM reponse " +
+                "WHERE date_reponse IS NOT NULL GROUP BY DATE(date_reponse)");
+        BACKFILL_QUERIES.put(RollupMetricEnum.ORDERS,
+                "SELECT date_comm, 0, COUNT(*) FROM commande " +
+                "WHERE date_comm IS NOT NULL GROUP BY date_comm");
+        BACKFILL_QUERIES.put(RollupMetricEnum.CLUB_MEMBERS,
+                "SELECT DATE(date_request), club_id, COUNT(*) FROM participation_membre " +
+                "WHERE statut = 'accepte' AND date_request IS NOT NULL AND club_id IS NOT NULL " +
+                "GROUP BY DATE(date_request), club_id");
+    }
+
+    private final Connection connection;
+    private final SalesCubeService salesCube;
+
+    private DashboardRollupService() {
+        this.connection = DataSource.getInstance().getCnx();
+        // The first call may come from inside a write transaction: the backfill
+        // runs on its own connection and leaves that transaction alone
+        ensureBackfilled();
+        salesCube = SalesCubeService.getInstance();
+    }
+
+    public static synchronized DashboardRollupService getInstance() {
+        if (instance == null) {
+            instance = new DashboardRollupService();
+        }
+        return instance;
+    }
+
+    /**
+     * Adds delta to one counter for the given day
+     */
+    public void increment(RollupMetricEnum metric, LocalDate day, int dimId, long delta) throws SQLException {
+        List<Delta> deltas = new ArrayList<>();
+        deltas.add(new Delta(metric, day, dimId, delta));
+        applyDeltas(deltas);
+    }
+
+    public void increment(RollupMetricEnum metric, LocalDate day, long delta) throws SQLException {
+        increment(metric, day, RollupMetricEnum.NO_DIMENSION, delta);
+    }
+
+    /**
+     * Adds (sign = 1) or removes (sign = -1) a stored comment from the
+     * COMMENTS and FLAGGED_COMMENTS counters. Must be called while the row
+     * still exists, i.e. before a delete.
+     */
+    public void applyComment(int commentId, int sign) throws SQLException {
+        applyComments("WHERE id = ?", commentId, sign);
+    }
+
+    public void applyCommentsForPoll(int sondageId, int sign) throws SQLException {
+        applyComments("WHERE sondage_id = ?", sondageId, sign);
+    }
+
+    private void applyComments(String where, int param, int sign) throws SQLException {
+        String query = "SELECT DATE(date_comment) AS day, COUNT(*) AS total, " +
+                "SUM(status = ?) AS flagged FROM commentaire " + where +
+                " AND date_comment IS NOT NULL GROUP BY DATE(date_comment)";
+        List<Delta> deltas = new ArrayList<>();
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setString(1, CommentStatusEnum.FLAGGED.name());
+            pst.setInt(2, param);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate day = rs.getDate("day").toLocalDate();
+                    deltas.add(new Delta(RollupMetricEnum.COMMENTS, day, RollupMetricEnum.NO_DIMENSION, sign * rs.getLong("total")));
+                    deltas.add(new Delta(RollupMetricEnum.FLAGGED_COMMENTS, day, RollupMetricEnum.NO_DIMENSION, sign * rs.getLong("flagged")));
+                }
+            }
+        }
+        applyDeltas(deltas);
+    }
+
+    /**
+     * Adds or removes the stored votes of a user on a poll from the VOTES
+     * counter. Must be called before the votes are deleted.
+     */
+    public void applyVotes(int userId, int sondageId, int sign) throws SQLException {
+        String query = "SELECT DATE(date_reponse) AS day, COUNT(*) AS total FROM reponse " +
+                "WHERE user_id = ? AND sondage_id = ? AND date_reponse IS NOT NULL GROUP BY DATE(date_reponse)";
+        applyGrouped(query, RollupMetricEnum.VOTES, sign, userId, sondageId);
+    }
+
+    public void applyVotesForPoll(int sondageId, int sign) throws SQLException {
+        String query = "SELECT DATE(date_reponse) AS day, COUNT(*) AS total FROM reponse " +
+                "WHERE sondage_id = ? AND date_reponse IS NOT NULL GROUP BY DATE(date_reponse)";
+        applyGrouped(query, RollupMetricEnum.VOTES, sign, sondageId);
+    }
+
+    public void applyVote(int reponseId, int sign) throws SQLException {
+        String query = "SELECT DATE(date_reponse) AS day, COUNT(*) AS total FROM reponse " +
+                "WHERE id = ? AND date_reponse IS NOT NULL GROUP BY DATE(date_reponse)";
+        applyGrouped(query, RollupMetricEnum.VOTES, sign, reponseId);
+    }
+
+    /**
+     * Adds or removes an order from the ORDERS counter and its lines from the
+     * sales cube ({@link SalesCubeService}), reading its current status and
+     * lines in a single query. Call with -1 before changing or deleting the
+     * order and with +1 once the change is written.
+     */
+    public void applyOrder(int commandeId, int sign) throws SQLException {
+        applyOrders(connection, Collections.singletonList(commandeId), sign);
+    }
+
+    /**
+     * Same as {@link #applyOrder(int, int)} through the connection of a
+     * background writer, in its transaction
+     */
+    public void applyOrder(Connection source, int commandeId, int sign) throws SQLException {
+        applyOrders(source, Collections.singletonList(commandeId), sign);
+    }
+
+    /**
+     * Same as {@link #applyOrder} for a set of orders, with one query and one
+     * batch per table whatever the number of orders.
+     */
+    public void applyOrders(Collection<Integer> commandeIds, int sign) throws SQLException {
+        applyOrders(connection, commandeIds, sign);
+    }
+
+    private void applyOrders(Connection source, Collection<Integer> commandeIds, int sign) throws SQLException {
+        if (commandeIds.isEmpty()) {
+            return;
+        }
+        StringBuilder query = new StringBuilder(
+                "SELECT c.id, c.date_comm, c.statut, od.produit_id, od.quantity, od.price, od.total, p.club_id " +
+                "FROM commande c " +
+                "LEFT JOIN orderdetails od ON od.commande_id = c.id " +
+                "LEFT JOIN produit p ON od.produit_id = p.id " +
+                "WHERE c.id IN (");
+        for (int i = 0; i < commandeIds.size(); i++) {
+            query.append(i == 0 ? "?" : ", ?");
+        }
+        query.append(")");
+
+        List<Delta> deltas = new ArrayList<>();
+        List<SalesCubeService.Cell> cells = new ArrayList<>();
+        Set<Integer> counted = new HashSet<>();
+        try (PreparedStatement pst = source.prepareStatement(query.toString())) {
+            int index = 1;
+            for (int commandeId : commandeIds) {
+                pst.setInt(index++, commandeId);
+            }
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    Date dateComm = rs.getDate("date_comm");
+                    if (dateComm == null) {
+                        continue;
+                    }
+                    LocalDate day = dateComm.toLocalDate();
+                    // One row per line, the order itself is counted once
+                    if (counted.add(rs.getInt("id"))) {
+                        deltas.add(new Delta(RollupMetricEnum.ORDERS, day, RollupMetricEnum.NO_DIMENSION, sign));
+                    }
+
+                    int produitId = rs.getInt("produit_id");
+                    if (rs.wasNull()) {
+                        continue;
+                    }
+                    int quantity = rs.getInt("quantity");
+                    double total = rs.getDouble("total");
+                    if (rs.wasNull()) {
+                        total = quantity * rs.getDouble("price");
+                    }
+                    int clubId = rs.getInt("club_id");
+                    cells.add(new SalesCubeService.Cell(day, produitId, clubId, rs.getString("statut"),
+                            (long) sign * quantity, sign, sign * total));
+                }
+            }
+        }
+        applyDeltas(source, deltas);
+        salesCube.applyCells(source, cells);
+    }
+
+    /**
+     * Adds or removes an accepted membership from the CLUB_MEMBERS counter.
+     * Non accepted requests are ignored.
+     */
+    public void applyMembership(int participationId, int sign) throws SQLException {
+        String query = "SELECT DATE(date_request) AS day, club_id, COUNT(*) AS total FROM participation_membre " +
+                "WHERE id = ? AND statut = 'accepte' AND date_request IS NOT NULL AND club_id IS NOT NULL " +
+                "GROUP BY DATE(date_request), club_id";
+        List<Delta> deltas = new ArrayList<>();
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setInt(1, participationId);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    deltas.add(new Delta(RollupMetricEnum.CLUB_MEMBERS, rs.getDate("day").toLocalDate(),
+                            rs.getInt("club_id"), sign * rs.getLong("total")));
+                }
+            }
+        }
+        applyDeltas(deltas);
+    }
+
+    private void applyGrouped(String query, RollupMetricEnum metric, int sign, int... params) throws SQLException {
+        List<Delta> deltas = new ArrayList<>();
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            for (int i = 0; i < params.length; i++) {
+                pst.setInt(i + 1, params[i]);
+            }
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    deltas.add(new Delta(metric, rs.getDate("day").toLocalDate(),
+                            RollupMetricEnum.NO_DIMENSION, sign * rs.getLong("total")));
+                }
+            }
+        }
+        applyDeltas(deltas);
+    }
+
+    /**
+     * Writes a set of deltas with one JDBC batch per rollup table.
+     */
+    private void applyDeltas(List<Delta> deltas) throws SQLException {
+        applyDeltas(connection, deltas);
+    }
+
+    private void applyDeltas(Connection source, List<Delta> deltas) throws SQLException {
+        deltas.removeIf(delta -> delta.value == 0 || delta.day == null);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        // Merge deltas hitting the same counter before going to the database
+        Map<String, Delta> daily = new LinkedHashMap<>();
+        Map<String, Delta> totals = new LinkedHashMap<>();
+        for (Delta delta : deltas) {
+            daily.merge(delta.metric + "|" + delta.day + "|" + delta.dimId, delta, Delta::plus);
+            totals.merge(delta.metric + "|" + delta.dimId, delta, Delta::plus);
+        }
+
+        try (PreparedStatement dailyPst = source.prepareStatement(UPSERT_DAILY);
+             PreparedStatement totalPst = source.prepareStatement(UPSERT_TOTAL)) {
+            for (Delta delta : daily.values()) {
+                dailyPst.setString(1, delta.metric.name());
+                dailyPst.setDate(2, Date.valueOf(delta.day));
+                dailyPst.setInt(3, delta.dimId);
+                dailyPst.setLong(4, delta.value);
+                dailyPst.addBatch();
+            }
+            for (Delta delta : totals.values()) {
+                totalPst.setString(1, delta.metric.name());
+                totalPst.setInt(2, delta.dimId);
+                totalPst.setLong(3, delta.value);
+                totalPst.addBatch();
+            }
+            dailyPst.executeBatch();
+            totalPst.executeBatch();
+        }
+    }
+
+    /**
+     * Recomputes every counter from the source tables. Each metric is
+     * aggregated server side with a single INSERT ... SELECT, and the whole
+     * rebuild runs in one transaction so dashboards never see partial data.
+     *
+     * Runs on its own connection, never inside a transaction of the shared
+     * one. In READ COMMITTED the source tables are read without locks, so
+     * rows still locked by an open write don't block the rebuild; that write
+     * applies its own deltas once the rebuild is done.
+     */
+    public void rebuild() throws SQLException {
+        try (Connection rebuildConnection = DataSource.getInstance().openConnection()) {
+            rebuildConnection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            rebuildConnection.setAutoCommit(false);
+            rebuild(rebuildConnection);
+        }
+    }
+
+    private void rebuild(Connection rebuildConnection) throws SQLException {
+        try (Statement st = rebuildConnection.createStatement()) {
+            st.executeUpdate("DELETE FROM stat_daily_rollup");
+            st.executeUpdate("DELETE FROM stat_rollup_total");
+
+            for (Map.Entry<RollupMetricEnum, String> entry : BACKFILL_QUERIES.entrySet()) {
+                String insert = "INSERT INTO stat_daily_rollup (metric, day, dim_id, value) " +
+                        "SELECT '" + entry.getKey().name() + "', src.* FROM (" + entry.getValue() + ") src";
+                int rows = st.executeUpdate(insert);
+                LOGGER.info("Rollup " + entry.getKey() + " backfilled: " + rows + " day rows");
+            }
+
+            st.executeUpdate("INSERT INTO stat_rollup_total (metric, dim_id, value) " +
+                    "SELECT metric, dim_id, SUM(value) FROM stat_daily_rollup GROUP BY metric, dim_id");
+            rebuildConnection.commit();
+        } catch (SQLException e) {
+            rebuildConnection.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the initial backfill when the rollup tables are still empty
+     * (first start after the migration).
+     */
+    private void ensureBackfilled() {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT 1 FROM stat_rollup_total LIMIT 1")) {
+            if (!rs.next()) {
+                LOGGER.info("Dashboard rollups empty, running initial backfill");
+                rebuild();
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Dashboard rollups unavailable, run migrations/001_dashboard_rollups.sql", e);
+        }
+    }
+
+    // ===== Reads (primary key lookups) =====
+
+    public long getTotal(RollupMetricEnum metric) throws SQLException {
+        return getTotal(metric, RollupMetricEnum.NO_DIMENSION);
+    }
+
+    public long getTotal(RollupMetricEnum metric, int dimId) throws SQLException {
+        String query = "SELECT value FROM stat_rollup_total WHERE metric = ? AND dim_id = ?";
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setString(1, metric.name());
+            pst.setInt(2, dimId);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    public long getDayValue(RollupMetricEnum metric, LocalDate day) throws SQLException {
+        String query = "SELECT value FROM stat_daily_rollup WHERE metric = ? AND day = ? AND dim_id = ?";
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setString(1, metric.name());
+            pst.setDate(2, Date.valueOf(day));
+            pst.setInt(3, RollupMetricEnum.NO_DIMENSION);
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Per-day values of a global counter between two dates (inclusive).
+     */
+    public Map<LocalDate, Long> getDailySeries(RollupMetricEnum metric, LocalDate from, LocalDate to) throws SQLException {
+        Map<LocalDate, Long> series = new LinkedHashMap<>();
+        String query = "SELECT day, value FROM stat_daily_rollup " +
+                "WHERE metric = ? AND dim_id = ? AND day BETWEEN ? AND ? ORDER BY day";
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setString(1, metric.name());
+            pst.setInt(2, RollupMetricEnum.NO_DIMENSION);
+            pst.setDate(3, Date.valueOf(from));
+            pst.setDate(4, Date.valueOf(to));
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    series.put(rs.getDate("day").toLocalDate(), rs.getLong("value"));
+                }
+            }
+        }
+        return series;
+    }
+
+    /**
+     * A single counter change. Kept small and immutable so deltas can be
+     * merged before being written.
+     */
+    private static class Delta {
+        private final RollupMetricEnum metric;
+        private final LocalDate day;
+        private final int dimId;
+        private final long value;
+
+        Delta(RollupMetricEnum metric, LocalDate day, int dimId, long value) {
+            this.metric = metric;
+            this.day = day;
+            this.dimId = dimId;
+            this.value = value;
+        }
+
+        Delta plus(Delta other) {
+            return new Delta(metric, day, dimId, value + other.value);
+        }
+    }
+}
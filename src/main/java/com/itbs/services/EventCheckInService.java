@@ -0,0 +1,305 @@
+package com.itbs.services;
+
+import com.itbs.models.User;
+import com.itbs.utils.DataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Door check-in session for one event.
+ *
+ * Signed QR tokens are verified with the keys and revocations loaded by
+ * {@link QRTokenService}. Older unsigned codes are refused, except during the
+ * migration period configured in QRTokenService, where they are checked
+ * against the participant list loaded when the session opens. Validating a
+ * scan needs no database access. The revocations are synced again on every flush when the
+ * database is reachable. Accepted check-ins are queued and
+ * written to participation_event.checked_in_at in batches, either when
+ * {@link #BATCH_SIZE} scans are pending or every {@link #FLUSH_INTERVAL_MS}
+ * milliseconds; {@link #close()} writes what is left. The flusher writes
+ * through its own connection, so a batch never interleaves with the
+ * statements of the screen on the shared one.
+ */
+public class EventCheckInService implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(EventCheckInService.class.getName());
+
+    private static final int BATCH_SIZE = 50;
+    private static final long FLUSH_INTERVAL_MS = 2000;
+
+    /**
+     * Outcome of a scan
+     */
+    public enum CheckInResult {
+        ACCEPTED,
+        ALREADY_CHECKED_IN,
+        NOT_REGISTERED,
+        WRONG_EVENT,
+        EXPIRED,
+        REVOKED,
+        UNSIGNED,
+        INVALID,
+        // Scan received after close()
+        CLOSED
+    }
+
+    private final long eventId;
+    private final Connection cnx;
+    private final Set<Long> participants = new HashSet<>();
+    private final Set<Long> checkedIn = new HashSet<>();
+    private final List<PendingCheckIn> pending = new ArrayList<>();
+    private final ScheduledExecutorService flusher;
+    private final QRTokenService tokens = QRTokenService.getInstance();
+    // Opened by the first flush, reopened after a failure; guarded by flushLock
+    private final Object flushLock = new Object();
+    private Connection flushConnection;
+    private boolean closed;
+
+    /**
+     * Opens a session and preloads the participants of the event
+     * @param eventId ID de l'événement
+     */
+    public EventCheckInService(long eventId) throws SQLException {
+        this.eventId = eventId;
+        this.cnx = DataSource.getInstance().getCnx();
+
+        for (User participant : new ServiceParticipation().getParticipantsByEvent(eventId)) {
+            participants.add((long) participant.getId());
+        }
+        String query = "SELECT user_id FROM participation_event WHERE evenement_id = ? AND checked_in_at IS NOT NULL";
+        try (PreparedStatement pst = cnx.prepareStatement(query)) {
+            pst.setLong(1, eventId);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    checkedIn.add(rs.getLong("user_id"));
+                }
+            }
+        }
+
+        tokens.refreshKeys();
+        tokens.refreshRevocations();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkin-flush-" + eventId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Validates a scanned QR code content and records the check-in if accepted.
+     * No database access, the write is queued.
+     * @param qrContent Decoded QR content, a signed token or userId:eventId:... for older codes
+     * @return Outcome of the scan
+     */
+    public CheckInResult checkIn(String qrContent) {
+        if (QRTokenService.isSignedToken(qrContent)) {
+            QRTokenService.VerifiedToken token = tokens.verify(qrContent);
+            switch (token.getStatus()) {
+                case VALID:
+                    return checkIn(token.getUserId(), token.getEventId(), true);
+                case EXPIRED:
+                    return CheckInResult.EXPIRED;
+                case REVOKED:
+                    return CheckInResult.REVOKED;
+                default:
+                    return CheckInResult.INVALID;
+            }
+        }
+
+        if (!tokens.acceptsLegacyCodes()) {
+            return CheckInResult.UNSIGNED;
+        }
+        long userId;
+        long scannedEventId;
+        String[] parts = qrContent == null ? new String[0] : qrContent.split(":");
+        if (parts.length != 3) {
+            return CheckInResult.INVALID;
+        }
+        try {
+            userId = Long.parseLong(parts[0]);
+            scannedEventId = Long.parseLong(parts[1]);
+        } catch (NumberFormatException e) {
+            return CheckInResult.INVALID;
+        }
+        return checkIn(userId, scannedEventId, false);
+    }
+
+    /**
+     * User id carried by a scanned content, -1 if it cannot be read
+     */
+    public static long scannedUserId(String qrContent) {
+        String[] parts = qrContent == null ? new String[0] : qrContent.split(":");
+        int index = QRTokenService.isSignedToken(qrContent) ? 2 : 0;
+        try {
+            return parts.length > index ? Long.parseLong(parts[index]) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // A valid signed token proves the registration, even one made after the session opened
+    private CheckInResult checkIn(long userId, long scannedEventId, boolean signed) {
+        if (scannedEventId != eventId) {
+            return CheckInResult.WRONG_EVENT;
+        }
+        boolean flushNow;
+        synchronized (this) {
+            if (closed) {
+                return CheckInResult.CLOSED;
+            }
+            if (signed) {
+                participants.add(userId);
+            } else if (!participants.contains(userId)) {
+                return CheckInResult.NOT_REGISTERED;
+            }
+            if (!checkedIn.add(userId)) {
+                return CheckInResult.ALREADY_CHECKED_IN;
+            }
+            pending.add(new PendingCheckIn(userId, new Timestamp(System.currentTimeMillis())));
+            flushNow = pending.size() >= BATCH_SIZE;
+        }
+        if (flushNow) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // close() started after this scan was queued, its final flush writes it
+            }
+        }
+        return CheckInResult.ACCEPTED;
+    }
+
+    public synchronized int getParticipantCount() {
+        return participants.size();
+    }
+
+    public synchronized int getCheckedInCount() {
+        return checkedIn.size();
+    }
+
+    /**
+     * Writes the pending check-ins in a single UPDATE. On failure they are put
+     * back in the queue and retried on the next flush.
+     */
+    private void flush() {
+        synchronized (flushLock) {
+            try {
+                tokens.refreshRevocations(getFlushConnection());
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Revocations not synced, database unreachable", e);
+                closeFlushConnection();
+            }
+        }
+
+        List<PendingCheckIn> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        // One statement for the whole batch: the timestamp of each row is picked with a CASE
+        StringBuilder query = new StringBuilder("UPDATE participation_event SET checked_in_at = CASE user_id");
+        for (int i = 0; i < batch.size(); i++) {
+            query.append(" WHEN ? THEN ?");
+        }
+        query.append(" END WHERE evenement_id = ? AND checked_in_at IS NULL AND user_id IN (");
+        for (int i = 0; i < batch.size(); i++) {
+            query.append(i == 0 ? "?" : ", ?");
+        }
+        query.append(")");
+
+        synchronized (flushLock) {
+            write(batch, query.toString());
+        }
+    }
+
+    private void write(List<PendingCheckIn> batch, String query) {
+        try {
+            try (PreparedStatement pst = getFlushConnection().prepareStatement(query)) {
+                int index = 1;
+                for (PendingCheckIn checkIn : batch) {
+                    pst.setLong(index++, checkIn.userId);
+                    pst.setTimestamp(index++, checkIn.scannedAt);
+                }
+                pst.setLong(index++, eventId);
+                for (PendingCheckIn checkIn : batch) {
+                    pst.setLong(index++, checkIn.userId);
+                }
+                pst.executeUpdate();
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Unable to write " + batch.size() + " check-in(s), will retry", e);
+            synchronized (this) {
+                pending.addAll(0, batch);
+            }
+            closeFlushConnection();
+        }
+    }
+
+    // Called with flushLock held
+    private Connection getFlushConnection() throws SQLException {
+        if (flushConnection == null || flushConnection.isClosed()) {
+            flushConnection = DataSource.getInstance().openConnection();
+        }
+        return flushConnection;
+    }
+
+    private void closeFlushConnection() {
+        synchronized (flushLock) {
+            if (flushConnection != null) {
+                try {
+                    flushConnection.close();
+                } catch (SQLException ignored) {
+                    // Reopened on the next flush
+                }
+                flushConnection = null;
+            }
+        }
+    }
+
+    /**
+     * Stops the periodic flush, writes the remaining check-ins and closes the
+     * flush connection. Later scans are refused with {@link CheckInResult#CLOSED}.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        closeFlushConnection();
+    }
+
+    private static class PendingCheckIn {
+        private final long userId;
+        private final Timestamp scannedAt;
+
+        PendingCheckIn(long userId, Timestamp scannedAt) {
+            this.userId = userId;
+            this.scannedAt = scannedAt;
+        }
+    }
+}
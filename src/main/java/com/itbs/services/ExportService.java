@@ -0,0 +1,297 @@
+package com.itbs.services;
+
+import com.itbs.models.enums.ActivityTypeEnum;
+import com.itbs.models.enums.StatutCommandeEnum;
+import com.itbs.utils.CsvRowWriter;
+import com.itbs.utils.DataSource;
+import com.itbs.utils.PdfTableWriter;
+import com.itbs.utils.RowWriter;
+import javafx.concurrent.Task;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Exports CSV et PDF des tables d'administration.
+ *
+ * An export reads its rows from a forward-only cursor on a dedicated
+ * connection (see {@link DataSource#openStreamingConnection()}), FETCH_SIZE
+ * rows at a time, and writes each row to the file as soon as it is read: no
+ * list of rows is ever built, whatever the size of the table. It runs as a
+ * {@link Task} so the screen can show its progress and cancel it; a cancelled
+ * or failed export deletes its partial file.
+ */
+public class ExportService {
+    private static final Logger LOGGER = Logger.getLogger(ExportService.class.getName());
+    private static ExportService instance;
+
+    // Rows per round trip of the server cursor
+    private static final int FETCH_SIZE = 1000;
+    // Rows between two progress updates
+    private static final int PROGRESS_STEP = 1000;
+
+    private ExportService() {
+    }
+
+    public static synchronized ExportService getInstance() {
+        if (instance == null) {
+            instance = new ExportService();
+        }
+        return instance;
+    }
+
+    /**
+     * Output file format
+     */
+    public enum Format {
+        CSV("csv", "Fichiers CSV"),
+        PDF("pdf", "Documents PDF");
+
+        private final String extension;
+        private final String description;
+
+        Format(String extension, String description) {
+            this.extension = extension;
+            this.description = description;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        RowWriter open(OutputStream out, String title) throws IOException {
+            return this == CSV ? new CsvRowWriter(out) : new PdfTableWriter(out, title);
+        }
+    }
+
+    // ===== Predefined exports =====
+
+    /**
+     * Orders with their customer, newest first
+     * @param statut Only this status, null for all
+     */
+    public Export orders(StatutCommandeEnum statut) {
+        String where = statut != null ? " WHERE c.statut = ?" : "";
+        List<Object> params = statut != null ? Collections.singletonList(statut.name()) : Collections.emptyList();
+        return Export.query("Commandes",
+                Arrays.asList("ID", "Date", "Client", "Email", "Statut", "Total"),
+                "SELECT COUNT(*) FROM commande c" + where,
+                "SELECT c.id, c.date_comm, CONCAT(u.prenom, ' ', u.nom), u.email, c.statut, c.total " +
+                        "FROM commande c LEFT JOIN user u ON u.id = c.user_id" + where + " ORDER BY c.id DESC",
+                params);
+    }
+
+    /**
+     * Comments with their author and poll, newest first
+     */
+    public Export comments() {
+        return Export.query("Commentaires",
+                Arrays.asList("ID", "Date", "Auteur", "Sondage", "Commentaire", "Statut", "Toxicité"),
+                "SELECT COUNT(*) FROM commentaire",
+                "SELECT c.id, c.date_comment, CONCAT(u.prenom, ' ', u.nom), s.question, c.contenu_comment, " +
+                        "c.status, c.toxicity_score " +
+                        "FROM commentaire c LEFT JOIN user u ON u.id = c.user_id " +
+                        "LEFT JOIN sondage s ON s.id = c.sondage_id ORDER BY c.id DESC",
+                Collections.emptyList());
+    }
+
+    /**
+     * User accounts, without credentials or tokens
+     */
+    public Export users() {
+        return Export.query("Utilisateurs",
+                Arrays.asList("ID", "Prénom", "Nom", "Email", "Rôle", "Statut", "Inscrit le", "Dernière connexion"),
+                "SELECT COUNT(*) FROM user",
+                "SELECT id, prenom, nom, email, role, status, created_at, last_login_at FROM user ORDER BY id",
+                Collections.emptyList());
+    }
+
+    /**
+     * Progress of every club in every competition
+     */
+    public Export missionProgress() {
+        return Export.query("Progression des missions",
+                Arrays.asList("Club", "Compétition", "Type", "Objectif", "Progression", "Terminée", "Points"),
+                "SELECT COUNT(*) FROM mission_progress",
+                "SELECT cl.nom_c, co.nom_comp, co.goal_type, co.goal_value, mp.progress, " +
+                        "IF(mp.is_completed, 'Oui', 'Non'), co.points " +
+                        "FROM mission_progress mp JOIN club cl ON cl.id = mp.club_id " +
+                        "JOIN competition co ON co.id = mp.competition_id ORDER BY co.id, mp.progress DESC",
+                Collections.emptyList());
+    }
+
+    /**
+     * Activity log, newest first
+     * @param type Only this type, null for all
+     */
+    public Export activityLog(ActivityTypeEnum type) {
+        List<Object> params = new ArrayList<>();
+        String where = ActivityLogService.where(type, params);
+        return Export.query("Activity log",
+                Arrays.asList("Date and Time", "Activity Type", "Description", "IP Address", "Entity Type", "Entity ID"),
+                "SELECT COUNT(*) FROM activity_log" + where,
+                "SELECT created_at, " + ActivityLogService.typeLabelSql() + ", description, ip_address, " +
+                        "entity_type, entity_id FROM activity_log" + where + ActivityLogService.SQL_ORDER,
+                params);
+    }
+
+    /**
+     * Background task writing an export to a file
+     */
+    public Task<Long> newTask(Export export, Format format, File file) {
+        return new ExportTask(export, format, file);
+    }
+
+    /**
+     * What to export: a title, column titles and the query reading the rows,
+     * one column per selected expression
+     */
+    public static class Export {
+        private final String title;
+        private final List<String> columns;
+        private final String countSql;
+        private final String sql;
+        private final List<Object> params;
+
+        private Export(String title, List<String> columns, String countSql, String sql, List<Object> params) {
+            this.title = title;
+            this.columns = columns;
+            this.countSql = countSql;
+            this.sql = sql;
+            this.params = params;
+        }
+
+        /**
+         * @param countSql Query counting the rows, for the progress bar (null if unknown)
+         */
+        public static Export query(String title, List<String> columns, String countSql, String sql,
+                List<Object> params) {
+            return new Export(title, columns, countSql, sql, params);
+        }
+
+        public String getTitle() {
+            return title;
+        }
+    }
+
+    private static class ExportTask extends Task<Long> {
+        private final Export export;
+        private final Format format;
+        private final File file;
+        private long rows;
+        private long total;
+
+        ExportTask(Export export, Format format, File file) {
+            this.export = export;
+            this.format = format;
+            this.file = file;
+        }
+
+        @Override
+        protected Long call() throws Exception {
+            updateMessage("Préparation de l'export...");
+            boolean complete = false;
+            try (OutputStream out = new FileOutputStream(file);
+                    RowWriter writer = format.open(out, export.title)) {
+                writer.writeHeader(export.columns);
+                copyQuery(writer);
+                complete = !isCancelled();
+            } finally {
+                if (!complete) {
+                    deletePartialFile();
+                }
+            }
+            updateProgress(rows, Math.max(rows, 1));
+            updateMessage(rows + " lignes exportées");
+            LOGGER.info("Export " + export.title + " (" + format + "): " + rows + " rows to " + file);
+            return rows;
+        }
+
+        private void copyQuery(RowWriter writer) throws SQLException, IOException {
+            try (Connection connection = DataSource.getInstance().openStreamingConnection()) {
+                total = count(connection);
+                try (PreparedStatement pst = connection.prepareStatement(export.sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    pst.setFetchSize(FETCH_SIZE);
+                    for (int i = 0; i < export.params.size(); i++) {
+                        pst.setObject(i + 1, export.params.get(i));
+                    }
+                    try (ResultSet rs = pst.executeQuery()) {
+                        int columns = rs.getMetaData().getColumnCount();
+                        while (!isCancelled() && rs.next()) {
+                            Object[] values = new Object[columns];
+                            for (int i = 0; i < columns; i++) {
+                                values[i] = rs.getObject(i + 1);
+                            }
+                            write(writer, values);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void write(RowWriter writer, Object[] values) throws IOException {
+            writer.writeRow(values);
+            rows++;
+            if (rows % PROGRESS_STEP == 0) {
+                reportProgress();
+            }
+        }
+
+        private void reportProgress() {
+            if (total > 0) {
+                updateProgress(Math.min(rows, total), total);
+                updateMessage(rows + " / " + total + " lignes");
+            } else {
+                updateMessage(rows + " lignes");
+            }
+        }
+
+        /**
+         * Rows to export, -1 if unknown (the bar stays indeterminate)
+         */
+        private long count(Connection connection) {
+            if (export.countSql == null) {
+                return -1;
+            }
+            try (PreparedStatement pst = connection.prepareStatement(export.countSql)) {
+                for (int i = 0; i < export.params.size(); i++) {
+                    pst.setObject(i + 1, export.params.get(i));
+                }
+                try (ResultSet rs = pst.executeQuery()) {
+                    long count = rs.next() ? rs.getLong(1) : -1;
+                    updateMessage("0 / " + count + " lignes");
+                    return count;
+                }
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Unable to count the rows of " + export.title, e);
+                return -1;
+            }
+        }
+
+        private void deletePartialFile() {
+            try {
+                Files.deleteIfExists(file.toPath());
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Unable to delete the partial export " + file, e);
+            }
+        }
+    }
+}
@@ -333,8 +333,10 @@ public class HuggingFaceClient {
      */
     public JSONObject classifyImage(String model, File imageFile) {
         try {
-            // Create cache key based on model and file
-            String cacheKey = model + "_" + imageFile.getAbsolutePath() + "_" + imageFile.lastModified();
+            // Read the image, the cache key is the hash of its bytes so any
+            // copy of the same image reuses the result
+            byte[] imageBytes = Files.readAllBytes(imageFile.toPath());
+            String cacheKey = model + "_" + UploadStore.sha256(imageBytes);
             
             // Check cache first
             JSONObject cachedResult = cache.get(cacheKey);
@@ -346,8 +348,7 @@ public class HuggingFaceClient {
             // Log the request details
             LOGGER.log(Level.INFO, "Sending image to model: {0}", model);
             
-            // Read and encode the image
-            byte[] imageBytes = Files.readAllBytes(imageFile.toPath());
+            // Encode the image
             String base64Image = Base64.getEncoder().encodeToString(imageBytes);
             
             // Create payload based on model type
@@ -0,0 +1,121 @@
+package com.itbs.services;
+
+import com.itbs.models.Produit;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Live stock of the products, shared by every screen of the process.
+ *
+ * Counters are seeded from the products the screens already load and then
+ * kept up to date by change events: {@link CheckoutService} reports the
+ * quantities it reserved, {@link ProduitService} the stock set on create or
+ * edit. Reading the stock of a product never goes back to the database.
+ *
+ * Counters are updated lock free from any thread. Cards observe
+ * {@link #availableProperty(int)}, refreshed on the JavaFX thread.
+ */
+public class InventoryCache {
+    private static final Logger LOGGER = Logger.getLogger(InventoryCache.class.getName());
+    private static InventoryCache instance;
+
+    private final ConcurrentHashMap<Integer, AtomicInteger> counters = new ConcurrentHashMap<>();
+    // Only accessed on the JavaFX thread
+    private final Map<Integer, ReadOnlyIntegerWrapper> properties = new HashMap<>();
+
+    private InventoryCache() {
+    }
+
+    public static synchronized InventoryCache getInstance() {
+        if (instance == null) {
+            instance = new InventoryCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Seeds the counters with freshly loaded products
+     */
+    public void track(Collection<Produit> produits) {
+        for (Produit produit : produits) {
+            stockSet(produit.getId(), produit.getQuantity());
+        }
+    }
+
+    /**
+     * @return Stock of the product, -1 if it is not tracked yet
+     */
+    public int getAvailable(int produitId) {
+        AtomicInteger counter = counters.get(produitId);
+        return counter != null ? counter.get() : -1;
+    }
+
+    /**
+     * Stock of a product, kept up to date on the JavaFX thread (read-only).
+     * Must be called from the JavaFX thread.
+     */
+    public ReadOnlyIntegerProperty availableProperty(int produitId) {
+        return property(produitId).getReadOnlyProperty();
+    }
+
+    /**
+     * Event: a committed order took these quantities (produit id to quantity)
+     */
+    public void stockReserved(Map<Integer, Integer> quantities) {
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            AtomicInteger counter = counters.get(entry.getKey());
+            // Untracked products are seeded by the next screen that loads them
+            if (counter != null) {
+                counter.addAndGet(-entry.getValue());
+                publish(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Event: the stock of a product was set (creation, edit)
+     */
+    public void stockSet(int produitId, int quantity) {
+        counters.computeIfAbsent(produitId, id -> new AtomicInteger()).set(quantity);
+        publish(produitId);
+    }
+
+    /**
+     * Event: a product was deleted
+     */
+    public void removed(int produitId) {
+        counters.remove(produitId);
+        publish(produitId);
+    }
+
+    private ReadOnlyIntegerWrapper property(int produitId) {
+        return properties.computeIfAbsent(produitId, id -> new ReadOnlyIntegerWrapper(Math.max(0, getAvailable(id))));
+    }
+
+    // The property reads the counter when the update runs, so bursts of events collapse
+    private void publish(int produitId) {
+        Runnable update = () -> {
+            ReadOnlyIntegerWrapper property = properties.get(produitId);
+            if (property != null) {
+                property.set(Math.max(0, getAvailable(produitId)));
+            }
+        };
+        if (Platform.isFxApplicationThread()) {
+            update.run();
+            return;
+        }
+        try {
+            Platform.runLater(update);
+        } catch (IllegalStateException e) {
+            LOGGER.fine("JavaFX not running, stock change not published");
+        }
+    }
+}
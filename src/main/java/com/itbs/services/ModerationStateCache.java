@@ -0,0 +1,208 @@
+package com.itbs.services;
+
+import com.itbs.models.enums.CommentStatusEnum;
+import com.itbs.utils.DataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * In-memory moderation state per user (toxic comment count, warning count,
+ * comment ban), backed by the user.toxic_comment_count and
+ * user.warning_count columns.
+ *
+ * Entries are loaded once with a primary key lookup and then patched in
+ * place when a comment is flagged or released and when warnings change, so
+ * the check done before every comment is a map lookup.
+ */
+public class ModerationStateCache {
+    private static final Logger LOGGER = Logger.getLogger(ModerationStateCache.class.getName());
+    private static ModerationStateCache instance;
+
+    // Number of flagged comments after which a user can no longer comment
+    public static final int MAX_TOXIC_COMMENTS = 3;
+
+    private final Map<Integer, ModerationState> states = new ConcurrentHashMap<>();
+    private final Connection connection;
+
+    private ModerationStateCache() {
+        this.connection = DataSource.getInstance().getCnx();
+    }
+
+    public static synchronized ModerationStateCache getInstance() {
+        if (instance == null) {
+            instance = new ModerationStateCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Get the moderation state of a user, loading it on first access
+     * @param userId User ID
+     * @return Current state (all zeros if the user does not exist)
+     */
+    public ModerationState getState(int userId) throws SQLException {
+        ModerationState state = states.get(userId);
+        if (state == null) {
+            state = load(userId);
+            ModerationState existing = states.putIfAbsent(userId, state);
+            if (existing != null) {
+                state = existing;
+            }
+        }
+        return state;
+    }
+
+    public boolean isBannedFromCommenting(int userId) throws SQLException {
+        return getState(userId).isBanned();
+    }
+
+    public int getToxicCommentCount(int userId) throws SQLException {
+        return getState(userId).getToxicCount();
+    }
+
+    public int getWarningCount(int userId) throws SQLException {
+        return getState(userId).getWarningCount();
+    }
+
+    private ModerationState load(int userId) throws SQLException {
+        String query = "SELECT toxic_comment_count, warning_count FROM user WHERE id = ?";
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setInt(1, userId);
+            try (ResultSet rs = pst.executeQuery()) {
+                if (rs.next()) {
+                    return new ModerationState(rs.getInt("toxic_comment_count"), rs.getInt("warning_count"));
+                }
+            }
+        }
+        return new ModerationState(0, 0);
+    }
+
+    /**
+     * Updates the toxic comment counter column. Runs on the shared connection,
+     * so it is part of the caller's transaction when one is open; call
+     * {@link #onToxicCountChanged(int, int)} once that transaction is committed.
+     */
+    public void updateToxicCounter(int userId, int delta) throws SQLException {
+        String query = "UPDATE user SET toxic_comment_count = GREATEST(toxic_comment_count + ?, 0) WHERE id = ?";
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setInt(1, delta);
+            pst.setInt(2, userId);
+            pst.executeUpdate();
+        }
+    }
+
+    /**
+     * Applies a committed toxic count change to the cached state
+     */
+    public void onToxicCountChanged(int userId, int delta) {
+        states.computeIfPresent(userId, (id, state) -> state.withToxicCount(state.getToxicCount() + delta));
+    }
+
+    /**
+     * Applies a committed warning count change to the cached state
+     */
+    public void onWarningCountChanged(int userId, int warningCount) {
+        states.computeIfPresent(userId, (id, state) -> state.withWarningCount(warningCount));
+    }
+
+    /**
+     * Removes a flagged comment from its author's toxic count, before the
+     * comment is deleted or approved. Does nothing if it is not flagged.
+     * Call it inside the transaction of the delete or approval, then pass the
+     * result to {@link #onFlaggedReleased(Map)} once that transaction is committed.
+     * @return Released count per user id
+     */
+    public Map<Integer, Integer> releaseFlaggedComment(int commentId) throws SQLException {
+        return releaseFlagged("id = ?", commentId);
+    }
+
+    /**
+     * Same as {@link #releaseFlaggedComment(int)} for every flagged comment of a poll
+     */
+    public Map<Integer, Integer> releaseFlaggedCommentsOfPoll(int sondageId) throws SQLException {
+        return releaseFlagged("sondage_id = ?", sondageId);
+    }
+
+    /**
+     * Applies committed releases (user id to released count) to the cached state
+     */
+    public void onFlaggedReleased(Map<Integer, Integer> released) {
+        for (Map.Entry<Integer, Integer> entry : released.entrySet()) {
+            onToxicCountChanged(entry.getKey(), -entry.getValue());
+        }
+    }
+
+    private Map<Integer, Integer> releaseFlagged(String where, int param) throws SQLException {
+        // Resolved through the (sondage_id, status) index, or the primary key
+        String query = "SELECT user_id, COUNT(*) AS flagged FROM commentaire WHERE " + where +
+                " AND status = ? AND user_id IS NOT NULL GROUP BY user_id";
+        Map<Integer, Integer> flaggedByUser = new LinkedHashMap<>();
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setInt(1, param);
+            pst.setString(2, CommentStatusEnum.FLAGGED.name());
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    flaggedByUser.put(rs.getInt("user_id"), rs.getInt("flagged"));
+                }
+            }
+        }
+        for (Map.Entry<Integer, Integer> entry : flaggedByUser.entrySet()) {
+            updateToxicCounter(entry.getKey(), -entry.getValue());
+        }
+        return flaggedByUser;
+    }
+
+    /**
+     * Drop a single cached entry, it will be reloaded on next access
+     */
+    public void evict(int userId) {
+        states.remove(userId);
+    }
+
+    /**
+     * Clear the entire cache
+     */
+    public void clear() {
+        states.clear();
+    }
+
+    /**
+     * Immutable snapshot of a user's moderation state
+     */
+    public static class ModerationState {
+        private final int toxicCount;
+        private final int warningCount;
+
+        public ModerationState(int toxicCount, int warningCount) {
+            this.toxicCount = Math.max(toxicCount, 0);
+            this.warningCount = Math.max(warningCount, 0);
+        }
+
+        public int getToxicCount() {
+            return toxicCount;
+        }
+
+        public int getWarningCount() {
+            return warningCount;
+        }
+
+        public boolean isBanned() {
+            return toxicCount >= MAX_TOXIC_COMMENTS;
+        }
+
+        ModerationState withToxicCount(int newToxicCount) {
+            return new ModerationState(newToxicCount, warningCount);
+        }
+
+        ModerationState withWarningCount(int newWarningCount) {
+            return new ModerationState(toxicCount, newWarningCount);
+        }
+    }
+}
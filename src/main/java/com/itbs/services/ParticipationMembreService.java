@@ -3,6 +3,7 @@ package com.itbs.services;
 import com.itbs.models.Club;
 import com.itbs.models.ParticipationMembre;
 import com.itbs.models.User;
+import com.itbs.models.enums.ActivityTypeEnum;
 import com.itbs.utils.DataSource;
 
 import java.sql.*;
@@ -141,15 +142,22 @@ public class ParticipationMembreService {
      * Update participation status (accept or refuse)
      */
     public void modifier(ParticipationMembre participation) throws SQLException {
+        // Only accepted requests count as members, re-count around the status change
+        DashboardRollupService rollups = DashboardRollupService.getInstance();
         String query = "UPDATE participation_membre SET statut = ?, description = ? WHERE id = ?";
-        
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            stmt.setString(1, participation.getStatut());
-            stmt.setString(2, participation.getDescription());
-            stmt.setInt(3, participation.getId());
-            
-            stmt.executeUpdate();
-        }
+
+        DataSource.getInstance().inTransaction(() -> {
+            rollups.applyMembership(participation.getId(), -1);
+            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                stmt.setString(1, participation.getStatut());
+                stmt.setString(2, participation.getDescription());
+                stmt.setInt(3, participation.getId());
+
+                stmt.executeUpdate();
+            }
+            rollups.applyMembership(participation.getId(), 1);
+        });
+        recordMembership(participation, "Club membership " + String.valueOf(participation.getStatut()).toLowerCase());
     }
 
     /**
@@ -159,20 +167,33 @@ public class ParticipationMembreService {
         String query = "INSERT INTO participation_membre (date_request, statut, user_id, club_id, description) " +
                       "VALUES (?, ?, ?, ?, ?)";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setTimestamp(1, Timestamp.valueOf(participation.getDateRequest()));
-            stmt.setString(2, participation.getStatut());
-            stmt.setInt(3, participation.getUser().getId());
-            stmt.setInt(4, participation.getClub().getId());
-            stmt.setString(5, participation.getDescription());
-            
-            stmt.executeUpdate();
-            
-            ResultSet generatedKeys = stmt.getGeneratedKeys();
-            if (generatedKeys.next()) {
-                participation.setId(generatedKeys.getInt(1));
+        DataSource.getInstance().inTransaction(() -> {
+            try (PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setTimestamp(1, Timestamp.valueOf(participation.getDateRequest()));
+                stmt.setString(2, participation.getStatut());
+                stmt.setInt(3, participation.getUser().getId());
+                stmt.setInt(4, participation.getClub().getId());
+                stmt.setString(5, participation.getDescription());
+
+                stmt.executeUpdate();
+
+                ResultSet generatedKeys = stmt.getGeneratedKeys();
+                if (generatedKeys.next()) {
+                    participation.setId(generatedKeys.getInt(1));
+                    DashboardRollupService.getInstance().applyMembership(participation.getId(), 1);
+                }
             }
-        }
+        });
+        recordMembership(participation, "Club membership requested");
+    }
+
+    private static void recordMembership(ParticipationMembre participation, String action) {
+        User user = participation.getUser();
+        Club club = participation.getClub();
+        ActivityLogService.getInstance().record(ActivityTypeEnum.CLUB_MANAGEMENT, "Club",
+                club != null ? club.getId() : 0,
+                action + (user != null ? " for user " + user.getId() : "")
+                        + (club != null ? " in club " + club.getId() : "") + " (request " + participation.getId() + ")");
     }
 
     /**
@@ -180,21 +201,34 @@ public class ParticipationMembreService {
      */
     public void supprimer(int id) throws SQLException {
         String query = "DELETE FROM participation_membre WHERE id = ?";
-        
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            stmt.setInt(1, id);
-            stmt.executeUpdate();
-        }
+
+        DataSource.getInstance().inTransaction(() -> {
+            DashboardRollupService.getInstance().applyMembership(id, -1);
+            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                stmt.setInt(1, id);
+                stmt.executeUpdate();
+            }
+        });
+        ActivityLogService.getInstance().record(ActivityTypeEnum.CLUB_MANAGEMENT, "Membership", id,
+                "Club membership request deleted (ID: " + id + ")");
     }
 
     public boolean supprimer2(int id) throws SQLException {
         String query = "DELETE FROM participation_membre WHERE id = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            stmt.setInt(1, id);
-            int affectedRows = stmt.executeUpdate();
-            return affectedRows > 0;
+        int[] affectedRows = new int[1];
+        DataSource.getInstance().inTransaction(() -> {
+            DashboardRollupService.getInstance().applyMembership(id, -1);
+            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                stmt.setInt(1, id);
+                affectedRows[0] = stmt.executeUpdate();
+            }
+        });
+        if (affectedRows[0] > 0) {
+            ActivityLogService.getInstance().record(ActivityTypeEnum.CLUB_MANAGEMENT, "Membership", id,
+                    "Club membership request deleted (ID: " + id + ")");
         }
+        return affectedRows[0] > 0;
     }
 
     /**
@@ -2,6 +2,7 @@ package com.itbs.services;
 
 import com.itbs.models.Club;
 import com.itbs.models.Produit;
+import com.itbs.models.enums.StatutCommandeEnum;
 import com.itbs.utils.DataSource;
 
 import java.sql.*;
@@ -34,7 +35,7 @@ public class ProduitService {
             stmt.setFloat(3, produit.getPrix());
             stmt.setString(4, produit.getImgProd());
             stmt.setTimestamp(5, Timestamp.valueOf(produit.getCreatedAt()));
-            stmt.setString(6, produit.getQuantity());
+            stmt.setInt(6, produit.getQuantity());
             stmt.setInt(7, produit.getClub() != null ? produit.getClub().getId() : null);
 
             stmt.executeUpdate();
@@ -42,6 +43,9 @@ public class ProduitService {
             ResultSet generatedKeys = stmt.getGeneratedKeys();
             if (generatedKeys.next()) {
                 produit.setId(generatedKeys.getInt(1));
+                InventoryCache.getInstance().stockSet(produit.getId(), produit.getQuantity());
+                SearchService.getInstance().update(SearchService.Domain.PRODUIT, produit.getId(),
+                        produit.getNomProd(), produit.getDescProd());
             }
         }
     }
@@ -59,7 +63,7 @@ public class ProduitService {
                 produit.setPrix(rs.getFloat("prix"));
                 produit.setImgProd(rs.getString("img_prod"));
                 produit.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-                produit.setQuantity(rs.getString("quantity"));
+                produit.setQuantity(rs.getInt("quantity"));
 
                 int clubId = rs.getInt("club_id");
                 if (!rs.wasNull()) {
@@ -71,6 +75,7 @@ public class ProduitService {
                 produits.add(produit);
             }
         }
+        InventoryCache.getInstance().track(produits);
         return produits;
     }
 
@@ -86,10 +91,13 @@ public class ProduitService {
             stmt.setFloat(3, produit.getPrix());
             stmt.setString(4, produit.getImgProd());
             stmt.setTimestamp(5, Timestamp.valueOf(produit.getCreatedAt()));
-            stmt.setString(6, produit.getQuantity());
+            stmt.setInt(6, produit.getQuantity());
             stmt.setInt(7, produit.getClub() != null ? produit.getClub().getId() : null);
             stmt.setInt(8, produit.getId());
             stmt.executeUpdate();
+            InventoryCache.getInstance().stockSet(produit.getId(), produit.getQuantity());
+            SearchService.getInstance().update(SearchService.Domain.PRODUIT, produit.getId(),
+                    produit.getNomProd(), produit.getDescProd());
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RuntimeException("Erreur lors de la mise à jour du produit avec ID " + produit.getId(), e);
@@ -101,6 +109,8 @@ public class ProduitService {
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             stmt.executeUpdate();
+            InventoryCache.getInstance().removed(id);
+            SearchService.getInstance().remove(SearchService.Domain.PRODUIT, id);
         }
     }
 
@@ -117,7 +127,7 @@ public class ProduitService {
                 produit.setPrix(rs.getFloat("prix"));
                 produit.setImgProd(rs.getString("img_prod"));
                 produit.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-                produit.setQuantity(rs.getString("quantity"));
+                produit.setQuantity(rs.getInt("quantity"));
 
                 int clubId = rs.getInt("club_id");
                 if (!rs.wasNull()) {
@@ -134,6 +144,112 @@ public class ProduitService {
         return null;
     }
 
+    /**
+     * Une page du catalogue, filtrée et triée en base.
+     *
+     * Keyset pagination: the next page starts after the last row of the
+     * previous one (WHERE sort key, id after the cursor) instead of an OFFSET,
+     * so every page costs the same and reads along the (sort key, id) indexes
+     * of migration 010. Rows inserted or deleted meanwhile never shift a page.
+     * @param query Filters, sort order and page size
+     * @param after Cursor returned with the previous page, null for the first page
+     */
+    public CatalogPage getCatalogPage(CatalogQuery query, CatalogCursor after) throws SQLException {
+        return getCatalogPage(conn, query, after);
+    }
+
+    /**
+     * Same page read through the given connection, for callers off the FX
+     * thread (the catalog prefetch) that must not use the shared one.
+     */
+    public CatalogPage getCatalogPage(Connection cnx, CatalogQuery query, CatalogCursor after) throws SQLException {
+        CatalogSort sort = query.sort;
+        StringBuilder sql = new StringBuilder(
+                "SELECT p.*, c.nom_c FROM produit p LEFT JOIN club c ON c.id = p.club_id WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (query.clubId != null) {
+            sql.append(" AND p.club_id = ?");
+            params.add(query.clubId);
+        }
+        if (query.minPrice != null) {
+            sql.append(" AND p.prix >= ?");
+            params.add(query.minPrice);
+        }
+        if (query.maxPrice != null) {
+            sql.append(" AND p.prix <= ?");
+            params.add(query.maxPrice);
+        }
+        if (query.inStockOnly) {
+            sql.append(" AND p.quantity > 0");
+        }
+        if (SearchService.hasQuery(query.text)) {
+            // The text index resolves the matching ids, the page keeps its sort order
+            List<Integer> ids = SearchService.getInstance().search(SearchService.Domain.PRODUIT, query.text, 0);
+            if (ids.isEmpty()) {
+                return new CatalogPage(new ArrayList<>(), null);
+            }
+            sql.append(" AND p.id IN (");
+            for (int i = 0; i < ids.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(")");
+            params.addAll(ids);
+        }
+        if (after != null) {
+            String op = sort.descending ? "<" : ">";
+            sql.append(" AND (p.").append(sort.column).append(' ').append(op).append(" ?")
+                    .append(" OR (p.").append(sort.column).append(" = ? AND p.id ").append(op).append(" ?))");
+            params.add(after.sortValue);
+            params.add(after.sortValue);
+            params.add(after.id);
+        }
+        String direction = sort.descending ? " DESC" : " ASC";
+        sql.append(" ORDER BY p.").append(sort.column).append(direction).append(", p.id").append(direction);
+        // One extra row tells whether a next page exists
+        sql.append(" LIMIT ?");
+        params.add(query.pageSize + 1);
+
+        List<Produit> produits = new ArrayList<>();
+        try (PreparedStatement stmt = cnx.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Produit produit = new Produit();
+                    produit.setId(rs.getInt("id"));
+                    produit.setNomProd(rs.getString("nom_prod"));
+                    produit.setDescProd(rs.getString("desc_prod"));
+                    produit.setPrix(rs.getFloat("prix"));
+                    produit.setImgProd(rs.getString("img_prod"));
+                    produit.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+                    produit.setQuantity(rs.getInt("quantity"));
+
+                    int clubId = rs.getInt("club_id");
+                    if (!rs.wasNull()) {
+                        Club club = new Club();
+                        club.setId(clubId);
+                        club.setNomC(rs.getString("nom_c"));
+                        produit.setClub(club);
+                    }
+                    produits.add(produit);
+                }
+            }
+        }
+
+        boolean hasMore = produits.size() > query.pageSize;
+        if (hasMore) {
+            produits.remove(produits.size() - 1);
+        }
+        InventoryCache.getInstance().track(produits);
+        CatalogCursor next = null;
+        if (hasMore) {
+            Produit last = produits.get(produits.size() - 1);
+            next = new CatalogCursor(sort.keyOf(last), last.getId());
+        }
+        return new CatalogPage(produits, next);
+    }
+
     public List<Produit> getProduitsByClub(int clubId) throws SQLException {
         List<Produit> produits = new ArrayList<>();
         String sql = "SELECT * FROM produit WHERE club_id = ?";
@@ -149,7 +265,7 @@ public class ProduitService {
                 produit.setPrix(rs.getFloat("prix"));
                 produit.setImgProd(rs.getString("img_prod"));
                 produit.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-                produit.setQuantity(rs.getString("quantity"));
+                produit.setQuantity(rs.getInt("quantity"));
 
                 Club club = new Club();
                 club.setId(clubId);
@@ -164,24 +280,11 @@ public class ProduitService {
 
     public List<Object[]> getTopClubsByProducts() throws SQLException {
         List<Object[]> result = new ArrayList<>();
-        String query = "SELECT c.name, COUNT(od.produit_id) as total_sales " +
-                "FROM club c " +
-                "JOIN produit p ON c.id = p.club_id " +
-                "JOIN orderdetails od ON p.id = od.produit_id " +
-                "JOIN commande cmd ON od.commande_id = cmd.id " +
-                "WHERE cmd.statut = 'CONFIRMEE' " +
-                "GROUP BY c.id, c_name " +
-                "ORDER BY total_sales DESC " +
-                "LIMIT 5";
-
-        try (PreparedStatement stmt = conn.prepareStatement(query);
-             ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                Object[] row = new Object[2];
-                row[0] = rs.getString("name"); // Update to match the column name
-                row[1] = rs.getInt("total_sales");
-                result.add(row);
+        // Lignes de commandes confirmées par club, lues dans le cube des ventes
+        try {
+            for (SalesCubeService.CubeTotal total : SalesCubeService.getInstance().getTopClubs(
+                    SalesCubeService.Measure.LINES, null, null, List.of(StatutCommandeEnum.CONFIRMEE), 5)) {
+                result.add(new Object[] { total.getName(), (int) total.getValue() });
             }
         } catch (SQLException e) {
             throw new SQLException("Error fetching top clubs by products: " + e.getMessage(), e);
@@ -189,4 +292,118 @@ public class ProduitService {
 
         return result;
     }
+
+    /**
+     * Ordres de tri du catalogue, départagés par l'id
+     */
+    public enum CatalogSort {
+        NEWEST("created_at", true),
+        PRICE_ASC("prix", false),
+        PRICE_DESC("prix", true),
+        NAME("nom_prod", false);
+
+        private final String column;
+        private final boolean descending;
+
+        CatalogSort(String column, boolean descending) {
+            this.column = column;
+            this.descending = descending;
+        }
+
+        Object keyOf(Produit produit) {
+            switch (this) {
+                case NEWEST:
+                    return Timestamp.valueOf(produit.getCreatedAt());
+                case NAME:
+                    return produit.getNomProd();
+                default:
+                    return produit.getPrix();
+            }
+        }
+    }
+
+    /**
+     * Filtres du catalogue; null or false means no filter
+     */
+    public static class CatalogQuery {
+        private Integer clubId;
+        private Float minPrice;
+        private Float maxPrice;
+        private boolean inStockOnly;
+        private String text;
+        private CatalogSort sort = CatalogSort.NEWEST;
+        private int pageSize = 20;
+
+        public CatalogQuery club(Integer clubId) {
+            this.clubId = clubId;
+            return this;
+        }
+
+        public CatalogQuery priceBetween(Float minPrice, Float maxPrice) {
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+            return this;
+        }
+
+        public CatalogQuery inStockOnly(boolean inStockOnly) {
+            this.inStockOnly = inStockOnly;
+            return this;
+        }
+
+        /**
+         * Words searched in the name and description, see {@link SearchService}
+         */
+        public CatalogQuery text(String text) {
+            this.text = text;
+            return this;
+        }
+
+        public CatalogQuery sort(CatalogSort sort) {
+            this.sort = sort != null ? sort : CatalogSort.NEWEST;
+            return this;
+        }
+
+        public CatalogQuery pageSize(int pageSize) {
+            this.pageSize = Math.max(1, pageSize);
+            return this;
+        }
+    }
+
+    /**
+     * Position after the last product of a page (sort key and id)
+     */
+    public static class CatalogCursor {
+        private final Object sortValue;
+        private final int id;
+
+        CatalogCursor(Object sortValue, int id) {
+            this.sortValue = sortValue;
+            this.id = id;
+        }
+    }
+
+    public static class CatalogPage {
+        private final List<Produit> produits;
+        private final CatalogCursor next;
+
+        CatalogPage(List<Produit> produits, CatalogCursor next) {
+            this.produits = produits;
+            this.next = next;
+        }
+
+        public List<Produit> getProduits() {
+            return produits;
+        }
+
+        /**
+         * @return Cursor of the next page, null on the last page
+         */
+        public CatalogCursor getNext() {
+            return next;
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+    }
 }
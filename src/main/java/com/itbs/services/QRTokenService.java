@@ -0,0 +1,421 @@
+package com.itbs.services;
+
+import com.itbs.utils.DataSource;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Signed participation tokens carried by the confirmation QR codes.
+ *
+ * Format: {@code CK2:<key id>:<user id>:<event id>:<issued at>:<expires at>:<signature>}
+ * with the issue time in epoch milliseconds (seconds for the first tokens),
+ * the expiry in epoch seconds and a truncated HMAC-SHA256 of everything
+ * before the signature, base64url encoded. A scanner verifies a token with
+ * the signing keys and the revocation list it loaded, without querying the
+ * participation table.
+ *
+ * Keys live in qr_signing_key. The newest non-retired key signs, every
+ * non-retired key verifies, so rotating keeps the codes already issued valid;
+ * retiring a key invalidates them. Cancelled participations are written to
+ * qr_token_revocation: a token is revoked when it was issued before the
+ * cancellation, a new registration gets a new token. Both times are compared
+ * in milliseconds, so a registration made again right after a cancellation
+ * is not revoked with it.
+ *
+ * Unsigned codes (userId:eventId:timestamp, issued before the signed tokens)
+ * are refused, unless {@code qr.legacy.codes.until} in config.properties
+ * gives the last day (yyyy-MM-dd) they are still accepted during a migration.
+ */
+public class QRTokenService {
+    private static final Logger LOGGER = Logger.getLogger(QRTokenService.class.getName());
+    private static QRTokenService instance;
+
+    private static final String PREFIX = "CK2";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_BYTES = 16;
+    private static final int KEY_BYTES = 32;
+    // A new signing key is created when the active one is older than this
+    private static final long KEY_ROTATION_DAYS = 30;
+    // Validity when the event has no end date
+    private static final long DEFAULT_VALIDITY_DAYS = 30;
+    // Check-in stays possible the day after the event ends
+    private static final long EXPIRY_GRACE_SECONDS = TimeUnit.DAYS.toSeconds(1);
+    // Issue times below this are epoch seconds (tokens issued before the millisecond format)
+    private static final long MILLIS_THRESHOLD = 100_000_000_000L;
+    private static final String LEGACY_CODES_PROPERTY = "qr.legacy.codes.until";
+
+    /**
+     * Outcome of a token verification
+     */
+    public enum TokenStatus {
+        VALID,
+        MALFORMED,
+        UNKNOWN_KEY,
+        BAD_SIGNATURE,
+        EXPIRED,
+        REVOKED
+    }
+
+    private final Connection connection;
+    private final SecureRandom random = new SecureRandom();
+
+    // Verification keys by id, and the active signing key
+    private final Map<String, SigningKey> keys = new ConcurrentHashMap<>();
+    private volatile SigningKey activeKey;
+    // "userId:eventId" -> cancellation time (epoch milliseconds)
+    private final Map<String, Long> revocations = new ConcurrentHashMap<>();
+    private volatile Timestamp revocationsSyncedAt;
+    // Tokens already issued, so the same QR code is shown until it expires or the key changes
+    private final Map<String, VerifiedToken> issued = new ConcurrentHashMap<>();
+    // Last day unsigned codes are accepted, null when they are refused
+    private final LocalDate legacyCodesUntil;
+
+    private QRTokenService() {
+        this.connection = DataSource.getInstance().getCnx();
+        this.legacyCodesUntil = loadLegacyCodesUntil();
+    }
+
+    public static synchronized QRTokenService getInstance() {
+        if (instance == null) {
+            instance = new QRTokenService();
+        }
+        return instance;
+    }
+
+    /**
+     * Signed token for a participation, reused while still valid
+     * @param userId ID de l'utilisateur
+     * @param eventId ID de l'événement
+     * @param eventEnd Fin de l'événement, null if unknown
+     */
+    public String issue(long userId, long eventId, Date eventEnd) throws SQLException {
+        SigningKey key = getSigningKey();
+        long issuedAt = System.currentTimeMillis();
+        long now = issuedAt / 1000;
+
+        VerifiedToken previous = issued.get(participationKey(userId, eventId));
+        if (previous != null && previous.keyId.equals(key.id) && previous.expiresAt > now) {
+            return previous.token;
+        }
+
+        long expiresAt = eventEnd != null
+                ? eventEnd.getTime() / 1000 + EXPIRY_GRACE_SECONDS
+                : now + TimeUnit.DAYS.toSeconds(DEFAULT_VALIDITY_DAYS);
+        String body = PREFIX + ":" + key.id + ":" + userId + ":" + eventId + ":" + issuedAt + ":" + expiresAt;
+        String token = body + ":" + sign(key.secret, body);
+
+        issued.put(participationKey(userId, eventId),
+                new VerifiedToken(TokenStatus.VALID, token, key.id, userId, eventId, issuedAt, expiresAt));
+        return token;
+    }
+
+    public static boolean isSignedToken(String content) {
+        return content != null && content.startsWith(PREFIX + ":");
+    }
+
+    /**
+     * Whether unsigned codes are still accepted (migration period set in config.properties)
+     */
+    public boolean acceptsLegacyCodes() {
+        return legacyCodesUntil != null && !LocalDate.now().isAfter(legacyCodesUntil);
+    }
+
+    /**
+     * Verifies a scanned token with the keys and revocations already loaded.
+     * An unknown key id triggers one reload of the keys.
+     */
+    public VerifiedToken verify(String content) {
+        String[] parts = content == null ? new String[0] : content.split(":");
+        if (parts.length != 7 || !PREFIX.equals(parts[0])) {
+            return VerifiedToken.rejected(TokenStatus.MALFORMED, content);
+        }
+
+        long userId;
+        long eventId;
+        long issuedAt;
+        long expiresAt;
+        try {
+            userId = Long.parseLong(parts[2]);
+            eventId = Long.parseLong(parts[3]);
+            issuedAt = Long.parseLong(parts[4]);
+            expiresAt = Long.parseLong(parts[5]);
+            if (issuedAt < MILLIS_THRESHOLD) {
+                issuedAt *= 1000;
+            }
+        } catch (NumberFormatException e) {
+            return VerifiedToken.rejected(TokenStatus.MALFORMED, content);
+        }
+
+        SigningKey key = keys.get(parts[1]);
+        if (key == null) {
+            try {
+                refreshKeys();
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Unable to reload QR signing keys", e);
+            }
+            key = keys.get(parts[1]);
+        }
+        if (key == null) {
+            return VerifiedToken.rejected(TokenStatus.UNKNOWN_KEY, content);
+        }
+
+        String body = content.substring(0, content.lastIndexOf(':'));
+        byte[] expected = sign(key.secret, body).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, parts[6].getBytes(StandardCharsets.US_ASCII))) {
+            return VerifiedToken.rejected(TokenStatus.BAD_SIGNATURE, content);
+        }
+
+        TokenStatus status = TokenStatus.VALID;
+        Long revokedAt = revocations.get(participationKey(userId, eventId));
+        if (revokedAt != null && revokedAt >= issuedAt) {
+            status = TokenStatus.REVOKED;
+        } else if (expiresAt < System.currentTimeMillis() / 1000) {
+            status = TokenStatus.EXPIRED;
+        }
+        return new VerifiedToken(status, content, key.id, userId, eventId, issuedAt, expiresAt);
+    }
+
+    /**
+     * Revokes the tokens issued so far for a participation, called when it is
+     * cancelled. Runs on the shared connection, inside the transaction of the
+     * cancellation: if the revocation can't be written the cancellation fails.
+     */
+    public void revoke(long userId, long eventId) throws SQLException {
+        long now = System.currentTimeMillis();
+        String query = "INSERT INTO qr_token_revocation (user_id, evenement_id, revoked_at) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE revoked_at = VALUES(revoked_at)";
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setLong(1, userId);
+            pst.setLong(2, eventId);
+            pst.setTimestamp(3, new Timestamp(now));
+            pst.executeUpdate();
+        }
+        issued.remove(participationKey(userId, eventId));
+        revocations.merge(participationKey(userId, eventId), now, Math::max);
+    }
+
+    /**
+     * Loads the revocations recorded since the last call (all of them the first time)
+     */
+    public void refreshRevocations() throws SQLException {
+        refreshRevocations(connection);
+    }
+
+    /**
+     * Same, through the given connection (background flushers have their own)
+     */
+    public synchronized void refreshRevocations(Connection source) throws SQLException {
+        Timestamp since = revocationsSyncedAt;
+        Timestamp syncedAt = new Timestamp(System.currentTimeMillis());
+        String query = "SELECT user_id, evenement_id, revoked_at FROM qr_token_revocation" +
+                (since != null ? " WHERE revoked_at >= ?" : "");
+        try (PreparedStatement pst = source.prepareStatement(query)) {
+            if (since != null) {
+                pst.setTimestamp(1, since);
+            }
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    revocations.merge(participationKey(rs.getLong("user_id"), rs.getLong("evenement_id")),
+                            rs.getTimestamp("revoked_at").getTime(), Math::max);
+                }
+            }
+        }
+        revocationsSyncedAt = syncedAt;
+    }
+
+    /**
+     * Loads the non-retired keys; the newest one becomes the signing key
+     */
+    public synchronized void refreshKeys() throws SQLException {
+        Map<String, SigningKey> loaded = new HashMap<>();
+        SigningKey newest = null;
+        String query = "SELECT kid, secret, created_at FROM qr_signing_key WHERE retired_at IS NULL ORDER BY created_at";
+        try (Statement st = connection.createStatement();
+                ResultSet rs = st.executeQuery(query)) {
+            while (rs.next()) {
+                newest = new SigningKey(rs.getString("kid"), rs.getBytes("secret"),
+                        rs.getTimestamp("created_at").getTime());
+                loaded.put(newest.id, newest);
+            }
+        }
+        keys.keySet().retainAll(loaded.keySet());
+        keys.putAll(loaded);
+        activeKey = newest;
+    }
+
+    /**
+     * Creates a new signing key. Tokens signed with the previous keys stay valid.
+     */
+    public synchronized void rotateKey() throws SQLException {
+        byte[] secret = new byte[KEY_BYTES];
+        random.nextBytes(secret);
+        byte[] id = new byte[6];
+        random.nextBytes(id);
+        String kid = Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+
+        String query = "INSERT INTO qr_signing_key (kid, secret, created_at) VALUES (?, ?, NOW())";
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setString(1, kid);
+            pst.setBytes(2, secret);
+            pst.executeUpdate();
+        }
+        LOGGER.log(Level.INFO, "New QR signing key {0}", kid);
+        refreshKeys();
+    }
+
+    /**
+     * Retires a key (e.g. leaked): every token it signed becomes invalid
+     */
+    public synchronized void retireKey(String kid) throws SQLException {
+        String query = "UPDATE qr_signing_key SET retired_at = NOW() WHERE kid = ?";
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setString(1, kid);
+            pst.executeUpdate();
+        }
+        issued.values().removeIf(token -> token.keyId.equals(kid));
+        refreshKeys();
+    }
+
+    private synchronized SigningKey getSigningKey() throws SQLException {
+        if (activeKey == null) {
+            refreshKeys();
+        }
+        long maxAge = TimeUnit.DAYS.toMillis(KEY_ROTATION_DAYS);
+        if (activeKey == null || System.currentTimeMillis() - activeKey.createdAt > maxAge) {
+            rotateKey();
+        }
+        return activeKey;
+    }
+
+    private static String sign(byte[] secret, String body) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            byte[] signature = Arrays.copyOf(mac.doFinal(body.getBytes(StandardCharsets.UTF_8)), SIGNATURE_BYTES);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    }
+
+    private static String participationKey(long userId, long eventId) {
+        return userId + ":" + eventId;
+    }
+
+    private static LocalDate loadLegacyCodesUntil() {
+        Properties config = new Properties();
+        File file = new File("config.properties");
+        try (InputStream in = file.isFile() ? new FileInputStream(file)
+                : QRTokenService.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (in != null) {
+                config.load(in);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not load config.properties, unsigned QR codes refused", e);
+        }
+        String until = config.getProperty(LEGACY_CODES_PROPERTY, "").trim();
+        if (until.isEmpty()) {
+            return null;
+        }
+        try {
+            LocalDate date = LocalDate.parse(until);
+            LOGGER.log(Level.INFO, "Unsigned QR codes accepted until {0}", date);
+            return date;
+        } catch (DateTimeParseException e) {
+            LOGGER.log(Level.WARNING, "Invalid " + LEGACY_CODES_PROPERTY + " value: " + until);
+            return null;
+        }
+    }
+
+    private static class SigningKey {
+        private final String id;
+        private final byte[] secret;
+        private final long createdAt;
+
+        SigningKey(String id, byte[] secret, long createdAt) {
+            this.id = id;
+            this.secret = secret;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * Result of a verification, ids are 0 when the token is malformed or not authentic
+     */
+    public static class VerifiedToken {
+        private final TokenStatus status;
+        private final String token;
+        private final String keyId;
+        private final long userId;
+        private final long eventId;
+        private final long issuedAt;
+        private final long expiresAt;
+
+        VerifiedToken(TokenStatus status, String token, String keyId, long userId, long eventId,
+                long issuedAt, long expiresAt) {
+            this.status = status;
+            this.token = token;
+            this.keyId = keyId;
+            this.userId = userId;
+            this.eventId = eventId;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        static VerifiedToken rejected(TokenStatus status, String token) {
+            return new VerifiedToken(status, token, "", 0, 0, 0, 0);
+        }
+
+        public TokenStatus getStatus() {
+            return status;
+        }
+
+        public boolean isValid() {
+            return status == TokenStatus.VALID;
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+
+        public long getEventId() {
+            return eventId;
+        }
+
+        // Epoch milliseconds
+        public long getIssuedAt() {
+            return issuedAt;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.itbs.services;
+
+import com.itbs.utils.DataSource;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory id/name dictionaries of the small reference tables used by the
+ * event screens (categorie, club).
+ *
+ * Each table is read once and kept as an immutable snapshot, so filters and
+ * cards resolve a name or an id with a map lookup. ServiceCategorie and
+ * ClubService invalidate the snapshot of the table they modify; the next
+ * access reloads it.
+ *
+ * Screens that keep a list of names open (combo boxes) observe
+ * {@link #observeCategoryNames()} / {@link #observeClubNames()}: these lists
+ * are refreshed on the JavaFX thread after each invalidation, see
+ * {@link com.itbs.utils.ReferenceDataBinding}.
+ */
+public class ReferenceDataCache {
+    private static final Logger LOGGER = Logger.getLogger(ReferenceDataCache.class.getName());
+    private static ReferenceDataCache instance;
+
+    private static final String SQL_CATEGORIES = "SELECT id, nom_cat FROM categorie ORDER BY id";
+    private static final String SQL_CLUBS = "SELECT id, nom_c FROM club ORDER BY id";
+
+    private final Connection connection;
+    private volatile Dictionary categories;
+    private volatile Dictionary clubs;
+    // Published names, only modified on the JavaFX thread
+    private final ObservableList<String> categoryNames = FXCollections.observableArrayList();
+    private final ObservableList<String> clubNames = FXCollections.observableArrayList();
+    private boolean categoryNamesPublished;
+    private boolean clubNamesPublished;
+
+    private ReferenceDataCache() {
+        this.connection = DataSource.getInstance().getCnx();
+    }
+
+    public static synchronized ReferenceDataCache getInstance() {
+        if (instance == null) {
+            instance = new ReferenceDataCache();
+        }
+        return instance;
+    }
+
+    public List<String> getCategoryNames() {
+        return categories().names();
+    }
+
+    public List<String> getClubNames() {
+        return clubs().names();
+    }
+
+    /**
+     * Category names kept up to date on the JavaFX thread (read-only).
+     * Must be called from the JavaFX thread.
+     */
+    public ObservableList<String> observeCategoryNames() {
+        if (!categoryNamesPublished) {
+            categoryNamesPublished = true;
+            categoryNames.setAll(getCategoryNames());
+        }
+        return FXCollections.unmodifiableObservableList(categoryNames);
+    }
+
+    /**
+     * Club names kept up to date on the JavaFX thread (read-only).
+     * Must be called from the JavaFX thread.
+     */
+    public ObservableList<String> observeClubNames() {
+        if (!clubNamesPublished) {
+            clubNamesPublished = true;
+            clubNames.setAll(getClubNames());
+        }
+        return FXCollections.unmodifiableObservableList(clubNames);
+    }
+
+    /**
+     * @return Category id, -1 if unknown
+     */
+    public int getCategoryId(String name) {
+        return categories().idOf(name);
+    }
+
+    /**
+     * @return Club id, -1 if unknown
+     */
+    public int getClubId(String name) {
+        return clubs().idOf(name);
+    }
+
+    /**
+     * @return Category name, null if unknown
+     */
+    public String getCategoryName(int id) {
+        return categories().nameOf(id);
+    }
+
+    /**
+     * @return Club name, null if unknown
+     */
+    public String getClubName(int id) {
+        return clubs().nameOf(id);
+    }
+
+    /**
+     * Called after a category is added, renamed or deleted
+     */
+    public void invalidateCategories() {
+        synchronized (this) {
+            categories = null;
+        }
+        publish(() -> {
+            if (categoryNamesPublished) {
+                categoryNames.setAll(getCategoryNames());
+            }
+        });
+    }
+
+    /**
+     * Called after a club is added, renamed or deleted
+     */
+    public void invalidateClubs() {
+        synchronized (this) {
+            clubs = null;
+        }
+        publish(() -> {
+            if (clubNamesPublished) {
+                clubNames.setAll(getClubNames());
+            }
+        });
+    }
+
+    // Change notifications are delivered on the JavaFX thread, never outside the application
+    private static void publish(Runnable update) {
+        if (Platform.isFxApplicationThread()) {
+            update.run();
+            return;
+        }
+        try {
+            Platform.runLater(update);
+        } catch (IllegalStateException e) {
+            LOGGER.fine("JavaFX not running, reference data change not published");
+        }
+    }
+
+    private Dictionary categories() {
+        Dictionary snapshot = categories;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        // Loaded under the lock so an invalidation cannot be overwritten by an older read
+        synchronized (this) {
+            if (categories == null) {
+                categories = load(SQL_CATEGORIES, "nom_cat");
+            }
+            return categories != null ? categories : Dictionary.EMPTY;
+        }
+    }
+
+    private Dictionary clubs() {
+        Dictionary snapshot = clubs;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        // Loaded under the lock so an invalidation cannot be overwritten by an older read
+        synchronized (this) {
+            if (clubs == null) {
+                clubs = load(SQL_CLUBS, "nom_c");
+            }
+            return clubs != null ? clubs : Dictionary.EMPTY;
+        }
+    }
+
+    private Dictionary load(String query, String nameColumn) {
+        Map<Integer, String> namesById = new LinkedHashMap<>();
+        try (PreparedStatement pst = connection.prepareStatement(query);
+                ResultSet rs = pst.executeQuery()) {
+            while (rs.next()) {
+                namesById.put(rs.getInt("id"), rs.getString(nameColumn));
+            }
+        } catch (SQLException e) {
+            // Not kept, the next access tries again
+            LOGGER.log(Level.WARNING, "Unable to load reference data: " + query, e);
+            return null;
+        }
+        return new Dictionary(namesById);
+    }
+
+    /**
+     * Immutable id/name snapshot of a table
+     */
+    private static class Dictionary {
+        static final Dictionary EMPTY = new Dictionary(Collections.emptyMap());
+
+        private final Map<Integer, String> namesById;
+        private final Map<String, Integer> idsByName = new HashMap<>();
+        private final List<String> names;
+
+        Dictionary(Map<Integer, String> namesById) {
+            this.namesById = namesById;
+            for (Map.Entry<Integer, String> entry : namesById.entrySet()) {
+                if (entry.getValue() != null) {
+                    idsByName.putIfAbsent(entry.getValue(), entry.getKey());
+                }
+            }
+            this.names = Collections.unmodifiableList(new ArrayList<>(namesById.values()));
+        }
+
+        List<String> names() {
+            return names;
+        }
+
+        int idOf(String name) {
+            Integer id = name == null ? null : idsByName.get(name);
+            return id != null ? id : -1;
+        }
+
+        String nameOf(int id) {
+            return namesById.get(id);
+        }
+    }
+}
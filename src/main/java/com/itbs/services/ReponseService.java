@@ -3,6 +3,7 @@ package com.itbs.services;
 import com.itbs.models.Reponse;
 import com.itbs.models.ChoixSondage;
 import com.itbs.models.Sondage;
+import com.itbs.models.enums.RollupMetricEnum;
 import com.itbs.utils.DataSource;
 
 import javafx.collections.FXCollections;
@@ -27,26 +28,32 @@ public class ReponseService {
      * Ajoute un vote (méthode déjà existante)
      */
     public void addVote(Reponse reponse) throws SQLException {
-        // Vérifier si l'utilisateur a déjà voté
-        if (hasUserVoted(reponse.getUser().getId(), reponse.getSondage().getId())) {
-            // Supprimer l'ancien vote
-            deleteUserVote(reponse.getUser().getId(), reponse.getSondage().getId());
-        }
-
         String query = "INSERT INTO reponse (date_reponse, user_id, choix_sondage_id, sondage_id) VALUES (?, ?, ?, ?)";
 
-        try (PreparedStatement pst = connection.prepareStatement(query)) {
-            // Conversion de LocalDateTime en Timestamp pour la BDD
-            LocalDateTime date = reponse.getDateReponse();
-            pst.setTimestamp(1, date != null ? Timestamp.valueOf(date) : Timestamp.valueOf(LocalDateTime.now()));
+        // Conversion de LocalDateTime en Timestamp pour la BDD
+        LocalDateTime date = reponse.getDateReponse() != null ? reponse.getDateReponse() : LocalDateTime.now();
 
+        // The old vote is replaced, never lost or doubled
+        DataSource.getInstance().inTransaction(() -> {
+            // Vérifier si l'utilisateur a déjà voté
+            if (hasUserVoted(reponse.getUser().getId(), reponse.getSondage().getId())) {
+                // Supprimer l'ancien vote
+                deleteUserVote(reponse.getUser().getId(), reponse.getSondage().getId());
+            }
 
-            pst.setInt(2, reponse.getUser().getId());
-            pst.setInt(3, reponse.getChoixSondage().getId());
-            pst.setInt(4, reponse.getSondage().getId());
+            try (PreparedStatement pst = connection.prepareStatement(query)) {
+                pst.setTimestamp(1, Timestamp.valueOf(date));
 
-            pst.executeUpdate();
-        }
+
+                pst.setInt(2, reponse.getUser().getId());
+                pst.setInt(3, reponse.getChoixSondage().getId());
+                pst.setInt(4, reponse.getSondage().getId());
+
+                pst.executeUpdate();
+            }
+            DashboardRollupService.getInstance().increment(RollupMetricEnum.VOTES, date.toLocalDate(), 1);
+        });
+        pollChanged(reponse.getSondage().getId());
     }
 
     /**
@@ -55,41 +62,55 @@ public class ReponseService {
     public void add(Reponse reponse) throws SQLException {
         String query = "INSERT INTO reponse (date_reponse, user_id, choix_sondage_id, sondage_id) VALUES (?, ?, ?, ?)";
 
-        try (PreparedStatement pst = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-            // Conversion de LocalDateTime en Timestamp pour la BDD
-            LocalDateTime date = reponse.getDateReponse();
-            pst.setTimestamp(1, date != null ? Timestamp.valueOf(date) : Timestamp.valueOf(LocalDateTime.now()));
+        // Conversion de LocalDateTime en Timestamp pour la BDD
+        LocalDateTime date = reponse.getDateReponse() != null ? reponse.getDateReponse() : LocalDateTime.now();
 
+        DataSource.getInstance().inTransaction(() -> {
+            try (PreparedStatement pst = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                pst.setTimestamp(1, Timestamp.valueOf(date));
 
-            pst.setInt(2, reponse.getUser().getId());
-            pst.setInt(3, reponse.getChoixSondage().getId());
-            pst.setInt(4, reponse.getSondage().getId());
 
-            pst.executeUpdate();
+                pst.setInt(2, reponse.getUser().getId());
+                pst.setInt(3, reponse.getChoixSondage().getId());
+                pst.setInt(4, reponse.getSondage().getId());
 
-            ResultSet rs = pst.getGeneratedKeys();
-            if (rs.next()) {
-                reponse.setId(rs.getInt(1));
+                pst.executeUpdate();
+
+                ResultSet rs = pst.getGeneratedKeys();
+                if (rs.next()) {
+                    reponse.setId(rs.getInt(1));
+                }
             }
-        }
+            DashboardRollupService.getInstance().increment(RollupMetricEnum.VOTES, date.toLocalDate(), 1);
+        });
+        pollChanged(reponse.getSondage().getId());
     }
 
     /**
      * Met à jour une réponse existante
      */
     public void update(Reponse reponse) throws SQLException {
+        // The vote may move to another day, re-count it around the update
+        DashboardRollupService rollups = DashboardRollupService.getInstance();
         String query = "UPDATE reponse SET date_reponse = ?, choix_sondage_id = ? WHERE id = ?";
 
-        try (PreparedStatement pst = connection.prepareStatement(query)) {
-            // Conversion de LocalDateTime en Timestamp pour la BDD
-            LocalDateTime date = reponse.getDateReponse();
-            pst.setTimestamp(1, date != null ? Timestamp.valueOf(date) : Timestamp.valueOf(LocalDateTime.now()));
+        DataSource.getInstance().inTransaction(() -> {
+            rollups.applyVote(reponse.getId(), -1);
+            try (PreparedStatement pst = connection.prepareStatement(query)) {
+                // Conversion de LocalDateTime en Timestamp pour la BDD
+                LocalDateTime date = reponse.getDateReponse();
+                pst.setTimestamp(1, date != null ? Timestamp.valueOf(date) : Timestamp.valueOf(LocalDateTime.now()));
 
 
-            pst.setInt(2, reponse.getChoixSondage().getId());
-            pst.setInt(3, reponse.getId());
+                pst.setInt(2, reponse.getChoixSondage().getId());
+                pst.setInt(3, reponse.getId());
 
-            pst.executeUpdate();
+                pst.executeUpdate();
+            }
+            rollups.applyVote(reponse.getId(), 1);
+        });
+        if (reponse.getSondage() != null) {
+            pollChanged(reponse.getSondage().getId());
         }
     }
 
@@ -99,10 +120,13 @@ public class ReponseService {
     public void delete(Integer id) throws SQLException {
         String query = "DELETE FROM reponse WHERE id = ?";
 
-        try (PreparedStatement pst = connection.prepareStatement(query)) {
-            pst.setInt(1, id);
-            pst.executeUpdate();
-        }
+        DataSource.getInstance().inTransaction(() -> {
+            DashboardRollupService.getInstance().applyVote(id, -1);
+            try (PreparedStatement pst = connection.prepareStatement(query)) {
+                pst.setInt(1, id);
+                pst.executeUpdate();
+            }
+        });
     }
 
     /**
@@ -111,11 +135,15 @@ public class ReponseService {
     public void deleteUserVote(int userId, int sondageId) throws SQLException {
         String query = "DELETE FROM reponse WHERE user_id = ? AND sondage_id = ?";
 
-        try (PreparedStatement pst = connection.prepareStatement(query)) {
-            pst.setInt(1, userId);
-            pst.setInt(2, sondageId);
-            pst.executeUpdate();
-        }
+        DataSource.getInstance().inTransaction(() -> {
+            DashboardRollupService.getInstance().applyVotes(userId, sondageId, -1);
+            try (PreparedStatement pst = connection.prepareStatement(query)) {
+                pst.setInt(1, userId);
+                pst.setInt(2, sondageId);
+                pst.executeUpdate();
+            }
+        });
+        pollChanged(sondageId);
     }
 
     /**
@@ -309,15 +337,19 @@ public class ReponseService {
         String query = "INSERT INTO reponse (user_id, sondage_id, choix_sondage_id, date_reponse) VALUES (?, ?, ?, ?)";
 
 
-        try (PreparedStatement pst = connection.prepareStatement(query)) {
-            pst.setInt(1, userId);
-            pst.setInt(2, sondageId);
-            pst.setInt(3, choixId);
-            pst.setDate(4, Date.valueOf(LocalDate.now()));
+        DataSource.getInstance().inTransaction(() -> {
+            try (PreparedStatement pst = connection.prepareStatement(query)) {
+                pst.setInt(1, userId);
+                pst.setInt(2, sondageId);
+                pst.setInt(3, choixId);
+                pst.setDate(4, Date.valueOf(LocalDate.now()));
 
 
-            pst.executeUpdate();
-        }
+                pst.executeUpdate();
+            }
+            DashboardRollupService.getInstance().increment(RollupMetricEnum.VOTES, LocalDate.now(), 1);
+        });
+        pollChanged(sondageId);
     }
 
 
@@ -325,18 +357,30 @@ public class ReponseService {
      * Update a user's existing vote
      */
     public void updateUserVote(int userId, int sondageId, int newChoixId) throws SQLException {
+        DashboardRollupService rollups = DashboardRollupService.getInstance();
         String query = "UPDATE reponse SET choix_sondage_id = ?, date_reponse = ? WHERE user_id = ? AND sondage_id = ?";
 
+        DataSource.getInstance().inTransaction(() -> {
+            rollups.applyVotes(userId, sondageId, -1);
+            try (PreparedStatement pst = connection.prepareStatement(query)) {
+                pst.setInt(1, newChoixId);
+                pst.setDate(2, Date.valueOf(LocalDate.now()));
+                pst.setInt(3, userId);
+                pst.setInt(4, sondageId);
 
-        try (PreparedStatement pst = connection.prepareStatement(query)) {
-            pst.setInt(1, newChoixId);
-            pst.setDate(2, Date.valueOf(LocalDate.now()));
-            pst.setInt(3, userId);
-            pst.setInt(4, sondageId);
 
+                pst.executeUpdate();
+            }
+            rollups.applyVotes(userId, sondageId, 1);
+        });
+        pollChanged(sondageId);
+    }
 
-            pst.executeUpdate();
-        }
+    /**
+     * The results shown on the poll card have changed
+     */
+    private static void pollChanged(int sondageId) {
+        ChangeEventBus.getInstance().publish(ChangeEventBus.Entity.SONDAGE, sondageId, ChangeEventBus.Operation.UPDATED);
     }
 
 
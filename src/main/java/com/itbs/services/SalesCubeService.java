@@ -0,0 +1,348 @@
+package com.itbs.services;
+
+import com.itbs.models.enums.StatutCommandeEnum;
+import com.itbs.utils.DataSource;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cube des ventes: units, order lines and revenue by (day, product, club, status).
+ *
+ * Maintained incrementally with the other dashboard counters: every write
+ * to an order goes through {@link DashboardRollupService#applyOrder}, which
+ * removes the order's cells before the change and adds them back after, so a
+ * status change (validerCommande) moves the lines from one status to the
+ * other. {@link #rebuild()} recomputes the cube from orderdetails.
+ *
+ * Reads (top N, daily series, per-club breakdown) aggregate cube cells
+ * only: at most one row per product, day and status instead of every line.
+ */
+public class SalesCubeService {
+    private static final Logger LOGGER = Logger.getLogger(SalesCubeService.class.getName());
+    private static SalesCubeService instance;
+
+    // Orders aggregated per statement of the rebuild
+    private static final int REBUILD_CHUNK = 5000;
+
+    private static final String UPSERT_CELL = "INSERT INTO stat_sales_cube " +
+            "(day, produit_id, club_id, statut, units, line_count, revenue) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE units = units + VALUES(units), line_count = line_count + VALUES(line_count), " +
+            "revenue = revenue + VALUES(revenue)";
+    private static final String REBUILD_CHUNK_SQL = "INSERT INTO stat_sales_cube " +
+            "(day, produit_id, club_id, statut, units, line_count, revenue) " +
+            "SELECT c.date_comm, od.produit_id, COALESCE(p.club_id, 0), c.statut, " +
+            "SUM(od.quantity), COUNT(*), SUM(COALESCE(od.total, od.quantity * od.price)) " +
+            "FROM orderdetails od " +
+            "JOIN commande c ON c.id = od.commande_id " +
+            "LEFT JOIN produit p ON p.id = od.produit_id " +
+            "WHERE od.commande_id > ? AND od.commande_id <= ? " +
+            "AND c.date_comm IS NOT NULL AND c.statut IS NOT NULL AND od.produit_id IS NOT NULL " +
+            "GROUP BY c.date_comm, od.produit_id, COALESCE(p.club_id, 0), c.statut " +
+            "ON DUPLICATE KEY UPDATE units = units + VALUES(units), line_count = line_count + VALUES(line_count), " +
+            "revenue = revenue + VALUES(revenue)";
+
+    private final Connection connection;
+
+    private SalesCubeService() {
+        this.connection = DataSource.getInstance().getCnx();
+        // Like the rollups, the first call may come from inside a write
+        // transaction: the backfill runs on its own connection
+        ensureBackfilled();
+    }
+
+    public static synchronized SalesCubeService getInstance() {
+        if (instance == null) {
+            instance = new SalesCubeService();
+        }
+        return instance;
+    }
+
+    /**
+     * Measure summed by the reads
+     */
+    public enum Measure {
+        UNITS("units"),
+        LINES("line_count"),
+        REVENUE("revenue");
+
+        private final String column;
+
+        Measure(String column) {
+            this.column = column;
+        }
+    }
+
+    /**
+     * Writes a set of cell changes with one JDBC batch, through the connection
+     * (and transaction) of the order write. A failure is propagated so that
+     * write is rolled back, like the other dashboard counters.
+     */
+    void applyCells(Connection source, List<Cell> cells) throws SQLException {
+        // Lines of the same product in one order hit the same cell
+        Map<String, Cell> merged = new LinkedHashMap<>();
+        for (Cell cell : cells) {
+            if (cell.day != null && cell.statut != null) {
+                merged.merge(cell.day + "|" + cell.produitId + "|" + cell.clubId + "|" + cell.statut, cell, Cell::plus);
+            }
+        }
+        merged.values().removeIf(cell -> cell.units == 0 && cell.lines == 0 && cell.revenue == 0);
+        if (merged.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement pst = source.prepareStatement(UPSERT_CELL)) {
+            for (Cell cell : merged.values()) {
+                pst.setDate(1, Date.valueOf(cell.day));
+                pst.setInt(2, cell.produitId);
+                pst.setInt(3, cell.clubId);
+                pst.setString(4, cell.statut);
+                pst.setLong(5, cell.units);
+                pst.setLong(6, cell.lines);
+                pst.setDouble(7, cell.revenue);
+                pst.addBatch();
+            }
+            pst.executeBatch();
+        }
+    }
+
+    /**
+     * Recomputes the cube from orderdetails in one transaction. The lines are
+     * aggregated server side, one range of order ids per statement (read along
+     * the commande_id index), so no statement scans the whole table at once.
+     *
+     * Runs on its own connection in READ COMMITTED, like
+     * {@link DashboardRollupService#rebuild()}: the shared connection and its
+     * transaction are left alone, and orderdetails rows locked by an open write
+     * don't block the rebuild.
+     */
+    public void rebuild() throws SQLException {
+        try (Connection rebuildConnection = DataSource.getInstance().openConnection()) {
+            rebuildConnection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            rebuildConnection.setAutoCommit(false);
+            rebuild(rebuildConnection);
+        }
+    }
+
+    private void rebuild(Connection rebuildConnection) throws SQLException {
+        try (Statement st = rebuildConnection.createStatement()) {
+            st.executeUpdate("DELETE FROM stat_sales_cube");
+
+            int maxId;
+            try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(commande_id), 0) FROM orderdetails")) {
+                maxId = rs.next() ? rs.getInt(1) : 0;
+            }
+            int cells = 0;
+            try (PreparedStatement pst = rebuildConnection.prepareStatement(REBUILD_CHUNK_SQL)) {
+                for (int from = 0; from < maxId; from += REBUILD_CHUNK) {
+                    pst.setInt(1, from);
+                    pst.setInt(2, from + REBUILD_CHUNK);
+                    cells += pst.executeUpdate();
+                }
+            }
+            rebuildConnection.commit();
+            LOGGER.info("Sales cube rebuilt up to order " + maxId + ": " + cells + " cell writes");
+        } catch (SQLException e) {
+            rebuildConnection.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the initial backfill when the cube is still empty (first start
+     * after the migration).
+     */
+    private void ensureBackfilled() {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT 1 FROM stat_sales_cube LIMIT 1")) {
+            if (!rs.next()) {
+                LOGGER.info("Sales cube empty, running initial backfill");
+                rebuild();
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Sales cube unavailable, run migrations/011_sales_cube.sql", e);
+        }
+    }
+
+    // ===== Reads =====
+
+    /**
+     * Best selling products
+     * @param from    First day, null for no lower bound
+     * @param to      Last day (inclusive), null for no upper bound
+     * @param statuts Order statuses counted, null or empty for all
+     * @param limit   Maximum number of products, 0 for no limit
+     */
+    public List<CubeTotal> getTopProducts(Measure measure, LocalDate from, LocalDate to,
+            Collection<StatutCommandeEnum> statuts, int limit) throws SQLException {
+        return getTop("produit_id", "SELECT p.id, p.nom_prod AS name, t.value FROM (%s) t JOIN produit p ON p.id = t.dim",
+                measure, from, to, statuts, limit);
+    }
+
+    /**
+     * Sales per club, best first; with no limit this is the per-club breakdown
+     * @see #getTopProducts
+     */
+    public List<CubeTotal> getTopClubs(Measure measure, LocalDate from, LocalDate to,
+            Collection<StatutCommandeEnum> statuts, int limit) throws SQLException {
+        return getTop("club_id", "SELECT c.id, c.nom_c AS name, t.value FROM (%s) t JOIN club c ON c.id = t.dim",
+                measure, from, to, statuts, limit);
+    }
+
+    /**
+     * Value of a measure per day between two dates (inclusive), days without
+     * sales are absent
+     * @param clubId    Only this club, null for all
+     * @param produitId Only this product, null for all
+     */
+    public Map<LocalDate, Double> getDailySeries(Measure measure, LocalDate from, LocalDate to,
+            Collection<StatutCommandeEnum> statuts, Integer clubId, Integer produitId) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT day, SUM(").append(measure.column)
+                .append(") AS value FROM stat_sales_cube WHERE day BETWEEN ? AND ?");
+        params.add(Date.valueOf(from));
+        params.add(Date.valueOf(to));
+        if (clubId != null) {
+            sql.append(" AND club_id = ?");
+            params.add(clubId);
+        }
+        if (produitId != null) {
+            sql.append(" AND produit_id = ?");
+            params.add(produitId);
+        }
+        appendStatuts(sql, params, statuts);
+        sql.append(" GROUP BY day ORDER BY day");
+
+        Map<LocalDate, Double> series = new LinkedHashMap<>();
+        try (PreparedStatement pst = connection.prepareStatement(sql.toString())) {
+            bind(pst, params);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    series.put(rs.getDate("day").toLocalDate(), rs.getDouble("value"));
+                }
+            }
+        }
+        return series;
+    }
+
+    private List<CubeTotal> getTop(String dimension, String namedQuery, Measure measure, LocalDate from, LocalDate to,
+            Collection<StatutCommandeEnum> statuts, int limit) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        StringBuilder cube = new StringBuilder("SELECT ").append(dimension).append(" AS dim, SUM(")
+                .append(measure.column).append(") AS value FROM stat_sales_cube WHERE 1 = 1");
+        if (from != null) {
+            cube.append(" AND day >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            cube.append(" AND day <= ?");
+            params.add(Date.valueOf(to));
+        }
+        appendStatuts(cube, params, statuts);
+        cube.append(" GROUP BY ").append(dimension).append(" HAVING value > 0");
+
+        StringBuilder sql = new StringBuilder(String.format(namedQuery, cube)).append(" ORDER BY t.value DESC");
+        if (limit > 0) {
+            sql.append(" LIMIT ?");
+            params.add(limit);
+        }
+
+        List<CubeTotal> totals = new ArrayList<>();
+        try (PreparedStatement pst = connection.prepareStatement(sql.toString())) {
+            bind(pst, params);
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    totals.add(new CubeTotal(rs.getInt(1), rs.getString("name"), rs.getDouble("value")));
+                }
+            }
+        }
+        return totals;
+    }
+
+    private static void appendStatuts(StringBuilder sql, List<Object> params, Collection<StatutCommandeEnum> statuts) {
+        if (statuts == null || statuts.isEmpty()) {
+            return;
+        }
+        sql.append(" AND statut IN (");
+        boolean first = true;
+        for (StatutCommandeEnum statut : statuts) {
+            sql.append(first ? "?" : ", ?");
+            params.add(statut.name());
+            first = false;
+        }
+        sql.append(")");
+    }
+
+    private static void bind(PreparedStatement pst, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pst.setObject(i + 1, params.get(i));
+        }
+    }
+
+    /**
+     * A product or club with its summed measure
+     */
+    public static class CubeTotal {
+        private final int id;
+        private final String name;
+        private final double value;
+
+        CubeTotal(int id, String name, double value) {
+            this.id = id;
+            this.name = name;
+            this.value = value;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * A change to one cell of the cube, signed like the order it comes from
+     */
+    static class Cell {
+        private final LocalDate day;
+        private final int produitId;
+        private final int clubId;
+        private final String statut;
+        private final long units;
+        private final long lines;
+        private final double revenue;
+
+        Cell(LocalDate day, int produitId, int clubId, String statut, long units, long lines, double revenue) {
+            this.day = day;
+            this.produitId = produitId;
+            this.clubId = clubId;
+            this.statut = statut;
+            this.units = units;
+            this.lines = lines;
+            this.revenue = revenue;
+        }
+
+        Cell plus(Cell other) {
+            return new Cell(day, produitId, clubId, statut, units + other.units, lines + other.lines,
+                    revenue + other.revenue);
+        }
+    }
+}
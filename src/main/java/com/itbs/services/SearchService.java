@@ -0,0 +1,167 @@
+package com.itbs.services;
+
+import com.itbs.utils.DataSource;
+import com.itbs.utils.TextIndex;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Recherche plein texte sur les événements, produits, clubs, sondages et utilisateurs.
+ *
+ * Each domain has its own {@link TextIndex}, built from one SELECT the first
+ * time it is searched, then kept in step by the services: they call
+ * {@link #update} after an insert or an edit and {@link #remove} after a
+ * delete. A search returns ranked ids only; the screens load the matching
+ * rows in one query.
+ */
+public class SearchService {
+    private static final Logger LOGGER = Logger.getLogger(SearchService.class.getName());
+    private static SearchService instance;
+
+    /**
+     * Searchable tables, with the indexed columns and their weights
+     */
+    public enum Domain {
+        EVENEMENT("SELECT id, nom_event, desc_event, lieux FROM evenement", 3, 1, 2),
+        PRODUIT("SELECT id, nom_prod, desc_prod FROM produit", 3, 1),
+        CLUB("SELECT id, nom_c, description FROM club", 3, 1),
+        SONDAGE("SELECT id, question FROM sondage", 1),
+        USER("SELECT id, prenom, nom, email FROM user", 2, 2, 1);
+
+        private final String query;
+        private final int[] weights;
+
+        Domain(String query, int... weights) {
+            this.query = query;
+            this.weights = weights;
+        }
+    }
+
+    private final Connection connection;
+    private final Map<Domain, Slot> slots = new EnumMap<>(Domain.class);
+
+    private SearchService() {
+        this.connection = DataSource.getInstance().getCnx();
+        for (Domain domain : Domain.values()) {
+            slots.put(domain, new Slot());
+        }
+    }
+
+    public static synchronized SearchService getInstance() {
+        if (instance == null) {
+            instance = new SearchService();
+        }
+        return instance;
+    }
+
+    /**
+     * Ids matching every word of the query (accents and case ignored, each word
+     * also matches as a prefix), best match first
+     * @param domain Table searched
+     * @param query  Free text
+     * @param limit  Maximum number of ids, 0 for no limit
+     * @return Ranked ids, empty if nothing matches or the query has no usable word
+     */
+    public List<Integer> search(Domain domain, String query, int limit) {
+        TextIndex index = index(domain);
+        return index != null ? index.search(query, limit) : Collections.emptyList();
+    }
+
+    /**
+     * True if the user typed something, so the results must be filtered by it.
+     * A query made only of stop words or single letters still filters: it has
+     * no word the index can search and {@link #search} matches nothing, rather
+     * than dropping the filter and showing everything.
+     */
+    public static boolean hasQuery(String query) {
+        return query != null && !query.isBlank();
+    }
+
+    /**
+     * Event: a row was inserted or edited
+     * @param fields Indexed columns, in the order of the domain
+     */
+    public void update(Domain domain, int id, String... fields) {
+        if (id <= 0) {
+            return;
+        }
+        Slot slot = slots.get(domain);
+        // Not built yet: the first search reads the row from the table
+        synchronized (slot) {
+            if (slot.index != null) {
+                slot.index.put(id, fields, domain.weights);
+            }
+        }
+    }
+
+    /**
+     * Event: a row was deleted
+     */
+    public void remove(Domain domain, int id) {
+        Slot slot = slots.get(domain);
+        synchronized (slot) {
+            if (slot.index != null) {
+                slot.index.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Drops the index of a domain, the next search rebuilds it
+     */
+    public void invalidate(Domain domain) {
+        Slot slot = slots.get(domain);
+        synchronized (slot) {
+            slot.index = null;
+        }
+    }
+
+    private TextIndex index(Domain domain) {
+        Slot slot = slots.get(domain);
+        TextIndex index = slot.index;
+        if (index != null) {
+            return index;
+        }
+        // Built under the lock so a concurrent update is applied after the load, not lost
+        synchronized (slot) {
+            if (slot.index == null) {
+                slot.index = load(domain);
+            }
+            return slot.index;
+        }
+    }
+
+    private TextIndex load(Domain domain) {
+        TextIndex index = new TextIndex();
+        int columns = domain.weights.length;
+        try (PreparedStatement pst = connection.prepareStatement(domain.query);
+                ResultSet rs = pst.executeQuery()) {
+            while (rs.next()) {
+                String[] fields = new String[columns];
+                for (int i = 0; i < columns; i++) {
+                    fields[i] = rs.getString(i + 2);
+                }
+                index.put(rs.getInt(1), fields, domain.weights);
+            }
+        } catch (SQLException e) {
+            // Not kept, the next search tries again
+            LOGGER.log(Level.WARNING, "Unable to build the search index of " + domain, e);
+            return null;
+        }
+        LOGGER.fine("Search index of " + domain + " built, " + index.size() + " documents");
+        return index;
+    }
+
+    private static class Slot {
+        private volatile TextIndex index;
+    }
+}
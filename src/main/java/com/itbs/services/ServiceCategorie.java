@@ -24,6 +24,7 @@ public class ServiceCategorie implements IService<Categorie> {
         PreparedStatement preparedStatement = connection.prepareStatement(req);
         preparedStatement.setString(1, categorie.getNom_cat()); // Ajout du nom de la catégorie
         preparedStatement.executeUpdate();
+        ReferenceDataCache.getInstance().invalidateCategories();
         System.out.println("Catégorie ajoutée");
     }
 
@@ -35,6 +36,7 @@ public class ServiceCategorie implements IService<Categorie> {
         preparedStatement.setString(1, categorie.getNom_cat());
         preparedStatement.setInt(2, categorie.getId());
         preparedStatement.executeUpdate();
+        ReferenceDataCache.getInstance().invalidateCategories();
         System.out.println("Catégorie modifiée");
     }
 
@@ -44,6 +46,7 @@ public class ServiceCategorie implements IService<Categorie> {
         PreparedStatement preparedStatement = connection.prepareStatement(req);
         preparedStatement.setInt(1, id);
         preparedStatement.executeUpdate();
+        ReferenceDataCache.getInstance().invalidateCategories();
         System.out.println("Catégorie supprimée");
     }
 
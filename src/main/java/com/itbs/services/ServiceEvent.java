@@ -5,13 +5,30 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import com.itbs.models.Evenement;
+import com.itbs.models.enums.ActivityTypeEnum;
 import com.itbs.utils.DataSource;
 
 public class ServiceEvent {
+    // Calendar window queries: one fixed statement text per filter combination,
+    // so each is prepared once on the server and reused from the driver cache
+    private static final String SQL_OVERLAPPING = "SELECT * FROM evenement WHERE start_date < ? " +
+            "AND (end_date >= ? OR (end_date IS NULL AND start_date >= ?))";
+    private static final String SQL_OVERLAPPING_ALL = SQL_OVERLAPPING + " ORDER BY start_date";
+    private static final String SQL_OVERLAPPING_BY_CATEGORY = SQL_OVERLAPPING +
+            " AND categorie_id = ? ORDER BY start_date";
+    private static final String SQL_OVERLAPPING_BY_CLUB = SQL_OVERLAPPING +
+            " AND club_id = ? ORDER BY start_date";
+    private static final String SQL_OVERLAPPING_BY_CATEGORY_AND_CLUB = SQL_OVERLAPPING +
+            " AND categorie_id = ? AND club_id = ? ORDER BY start_date";
+
     private Connection conn;
+    private final ReferenceDataCache referenceData = ReferenceDataCache.getInstance();
 
     public ServiceEvent() {
         conn = DataSource.getInstance().getCnx();
@@ -22,7 +39,7 @@ public class ServiceEvent {
         String query = "INSERT INTO evenement (nom_event, type, desc_event, image_description, lieux, club_id, categorie_id, start_date, end_date) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement pst = conn.prepareStatement(query)) {
+        try (PreparedStatement pst = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             pst.setString(1, e.getNom_event());
 
             // Vérifier et gérer 'type' pour ne pas insérer de null
@@ -41,6 +58,15 @@ public class ServiceEvent {
             pst.setDate(9, new java.sql.Date(e.getEnd_date().getTime()));
 
             pst.executeUpdate();
+            try (ResultSet keys = pst.getGeneratedKeys()) {
+                if (keys.next()) {
+                    e.setId(keys.getInt(1));
+                }
+            }
+            SearchService.getInstance().update(SearchService.Domain.EVENEMENT, e.getId(),
+                    e.getNom_event(), e.getDesc_event(), e.getLieux());
+            ActivityLogService.getInstance().record(ActivityTypeEnum.EVENT_MANAGEMENT, "Event", e.getId(),
+                    "Event created: " + e.getNom_event() + " for club " + e.getClub_id());
             // Update mission progress for EVENT_COUNT missions
             MissionProgressService.getInstance().incrementEventCountProgress(e.getClub_id());
 
@@ -50,110 +76,31 @@ public class ServiceEvent {
     }
 
 
+    // Noms et ids des catégories et clubs : dictionnaire en mémoire (ReferenceDataCache)
     public ObservableList<String> getAllCategoriesNames() {
-        ObservableList<String> categories = FXCollections.observableArrayList();
-
-        try {
-            String query = "SELECT nom_cat FROM categorie";
-            Statement st = conn.createStatement();
-            ResultSet rs = st.executeQuery(query);
-
-            while (rs.next()) {
-                categories.add(rs.getString("nom_cat"));
-            }
-        } catch (SQLException ex) {
-            System.err.println("Erreur lors de la récupération des catégories: " + ex.getMessage());
-        }
-
-        return categories;
+        return FXCollections.observableArrayList(referenceData.getCategoryNames());
     }
 
     public ObservableList<String> getAllClubsNames() {
-        ObservableList<String> clubs = FXCollections.observableArrayList();
-
-        try {
-            String query = "SELECT nom_c FROM club";
-            Statement st = conn.createStatement();
-            ResultSet rs = st.executeQuery(query);
-
-            while (rs.next()) {
-                clubs.add(rs.getString("nom_c"));
-            }
-        } catch (SQLException ex) {
-            System.err.println("Erreur lors de la récupération des clubs: " + ex.getMessage());
-        }
-
-        return clubs;
+        return FXCollections.observableArrayList(referenceData.getClubNames());
     }
 
     public int getClubIdByName(String clubName) {
-        int clubId = -1;
-
-        try {
-            String query = "SELECT id FROM club WHERE nom_c = ?";
-            PreparedStatement pst = conn.prepareStatement(query);
-            pst.setString(1, clubName);
-
-            ResultSet rs = pst.executeQuery();
-            if (rs.next()) {
-                clubId = rs.getInt("id");
-            }
-        } catch (SQLException ex) {
-            System.err.println("Erreur lors de la récupération de l'ID du club: " + ex.getMessage());
-        }
-
-        return clubId;
+        return referenceData.getClubId(clubName);
     }
 
     public int getCategorieIdByName(String categorieName) {
-        int categorieId = -1;
-
-        try {
-            String query = "SELECT id FROM categorie WHERE nom_cat = ?";
-            PreparedStatement pst = conn.prepareStatement(query);
-            pst.setString(1, categorieName);
-
-            ResultSet rs = pst.executeQuery();
-            if (rs.next()) {
-                categorieId = rs.getInt("id");
-            }
-        } catch (SQLException ex) {
-            System.err.println("Erreur lors de la récupération de l'ID de la catégorie: " + ex.getMessage());
-        }
-
-        return categorieId;
+        return referenceData.getCategoryId(categorieName);
     }
+
     public String getClubNameById(int clubId) {
-        String clubName = null;
-        try {
-            String query = "SELECT nom_c FROM club WHERE id = ?";
-            PreparedStatement pst = conn.prepareStatement(query);
-            pst.setInt(1, clubId);
-            ResultSet rs = pst.executeQuery();
-            if (rs.next()) {
-                clubName = rs.getString("nom_c");
-            }
-        } catch (SQLException ex) {
-            System.err.println("Erreur lors de la récupération du nom du club: " + ex.getMessage());
-        }
-        return clubName;
+        return referenceData.getClubName(clubId);
     }
 
     public String getCategoryNameById(int categoryId) {
-        String categoryName = null;
-        try {
-            String query = "SELECT nom_cat FROM categorie WHERE id = ?";
-            PreparedStatement pst = conn.prepareStatement(query);
-            pst.setInt(1, categoryId);
-            ResultSet rs = pst.executeQuery();
-            if (rs.next()) {
-                categoryName = rs.getString("nom_cat");
-            }
-        } catch (SQLException ex) {
-            System.err.println("Erreur lors de la récupération du nom de la catégorie: " + ex.getMessage());
-        }
-        return categoryName;
+        return referenceData.getCategoryName(categoryId);
     }
+
     // Méthode pour récupérer un événement par son ID
     public Evenement getOne(int id) {
         Evenement event = null;
@@ -184,6 +131,59 @@ public class ServiceEvent {
 
         return event;
     }
+    /**
+     * Événements qui chevauchent la période [from, to] (bornes incluses)
+     *
+     * @param categoryId Catégorie, 0 pour toutes
+     * @param clubId     Club, 0 pour tous
+     */
+    public List<Evenement> getEventsOverlapping(LocalDate from, LocalDate to, int categoryId, int clubId) {
+        List<Evenement> events = new ArrayList<>();
+        // Range predicates usable by idx_evenement_dates; an event without end date lasts one day
+        String query;
+        if (categoryId > 0 && clubId > 0) {
+            query = SQL_OVERLAPPING_BY_CATEGORY_AND_CLUB;
+        } else if (categoryId > 0) {
+            query = SQL_OVERLAPPING_BY_CATEGORY;
+        } else if (clubId > 0) {
+            query = SQL_OVERLAPPING_BY_CLUB;
+        } else {
+            query = SQL_OVERLAPPING_ALL;
+        }
+
+        try (PreparedStatement pst = conn.prepareStatement(query)) {
+            int index = 1;
+            pst.setDate(index++, java.sql.Date.valueOf(to.plusDays(1)));
+            pst.setDate(index++, java.sql.Date.valueOf(from));
+            pst.setDate(index++, java.sql.Date.valueOf(from));
+            if (categoryId > 0) {
+                pst.setInt(index++, categoryId);
+            }
+            if (clubId > 0) {
+                pst.setInt(index++, clubId);
+            }
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    Evenement event = new Evenement();
+                    event.setId(rs.getInt("id"));
+                    event.setNom_event(rs.getString("nom_event"));
+                    event.setType(rs.getString("type"));
+                    event.setDesc_event(rs.getString("desc_event"));
+                    event.setImage_description(rs.getString("image_description"));
+                    event.setLieux(rs.getString("lieux"));
+                    event.setClub_id(rs.getInt("club_id"));
+                    event.setCategorie_id(rs.getInt("categorie_id"));
+                    event.setStart_date(rs.getDate("start_date"));
+                    event.setEnd_date(rs.getDate("end_date"));
+                    events.add(event);
+                }
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erreur lors de la récupération des événements de la période: " + ex.getMessage());
+        }
+        return events;
+    }
+
     // Add this method to your ServiceEvent class
     public boolean supprimerEvenement(int eventId) {
         String query = "DELETE FROM evenement WHERE id = ?";
@@ -191,6 +191,11 @@ public class ServiceEvent {
         try (PreparedStatement pst = conn.prepareStatement(query)) {
             pst.setInt(1, eventId);
             int rowsAffected = pst.executeUpdate();
+            SearchService.getInstance().remove(SearchService.Domain.EVENEMENT, eventId);
+            if (rowsAffected > 0) {
+                ActivityLogService.getInstance().record(ActivityTypeEnum.EVENT_MANAGEMENT, "Event", eventId,
+                        "Event deleted (ID: " + eventId + ")");
+            }
             return rowsAffected > 0;
         } catch (SQLException ex) {
             System.err.println("Erreur lors de la suppression de l'événement: " + ex.getMessage());
@@ -225,6 +230,10 @@ public class ServiceEvent {
             pst.setInt(10, e.getId());
 
             pst.executeUpdate();
+            SearchService.getInstance().update(SearchService.Domain.EVENEMENT, e.getId(),
+                    e.getNom_event(), e.getDesc_event(), e.getLieux());
+            ActivityLogService.getInstance().record(ActivityTypeEnum.EVENT_MANAGEMENT, "Event", e.getId(),
+                    "Event updated: " + e.getNom_event());
             System.out.println("Événement mis à jour avec succès");
         } catch (SQLException ex) {
             System.err.println("Erreur lors de la mise à jour de l'événement: " + ex.getMessage());
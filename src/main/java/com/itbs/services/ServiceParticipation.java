@@ -9,7 +9,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ServiceParticipation {
     private Connection cnx;
@@ -49,7 +52,7 @@ public class ServiceParticipation {
      */
     public boolean participationExists(long userId, long eventId) {
         try {
-            String requete = "SELECT * FROM participation_event WHERE user_id = ? AND evenement_id = ?";
+            String requete = "SELECT 1 FROM participation_event WHERE user_id = ? AND evenement_id = ? LIMIT 1";
             PreparedStatement pst = cnx.prepareStatement(requete);
             pst.setLong(1, userId);
             pst.setLong(2, eventId);
@@ -72,12 +75,20 @@ public class ServiceParticipation {
     public boolean annulerParticipation(long userId, long eventId) {
         try {
             String requete = "DELETE FROM participation_event WHERE user_id = ? AND evenement_id = ?";
-            PreparedStatement pst = cnx.prepareStatement(requete);
-            pst.setLong(1, userId);
-            pst.setLong(2, eventId);
-
-            int result = pst.executeUpdate();
-            return result > 0;
+            int[] result = new int[1];
+            // La révocation est écrite dans la même transaction: sans elle, l'annulation échoue
+            DataSource.getInstance().inTransaction(() -> {
+                try (PreparedStatement pst = cnx.prepareStatement(requete)) {
+                    pst.setLong(1, userId);
+                    pst.setLong(2, eventId);
+                    result[0] = pst.executeUpdate();
+                }
+                if (result[0] > 0) {
+                    // Les QR codes déjà émis pour cette participation ne sont plus acceptés
+                    QRTokenService.getInstance().revoke(userId, eventId);
+                }
+            });
+            return result[0] > 0;
         } catch (SQLException ex) {
             System.err.println(ex.getMessage());
             return false;
@@ -167,6 +178,49 @@ public class ServiceParticipation {
         return 0;
     }
 
+    /**
+     * Nombre de participants et inscription de l'utilisateur pour une page
+     * d'événements, en une seule requête groupée
+     *
+     * @param eventIds IDs des événements affichés
+     * @param userId   ID de l'utilisateur connecté
+     * @return Résumé par ID d'événement (un résumé vide pour les événements sans participant)
+     */
+    public Map<Integer, ParticipationSummary> getParticipationSummaries(Collection<Integer> eventIds, long userId) {
+        Map<Integer, ParticipationSummary> summaries = new HashMap<>();
+        for (Integer eventId : eventIds) {
+            summaries.put(eventId, ParticipationSummary.EMPTY);
+        }
+        if (eventIds.isEmpty()) {
+            return summaries;
+        }
+
+        StringBuilder requete = new StringBuilder(
+                "SELECT evenement_id, COUNT(*) AS participants, MAX(user_id = ?) AS registered " +
+                        "FROM participation_event WHERE evenement_id IN (");
+        for (int i = 0; i < summaries.size(); i++) {
+            requete.append(i == 0 ? "?" : ", ?");
+        }
+        requete.append(") GROUP BY evenement_id");
+
+        try (PreparedStatement pst = cnx.prepareStatement(requete.toString())) {
+            int index = 1;
+            pst.setLong(index++, userId);
+            for (Integer eventId : summaries.keySet()) {
+                pst.setInt(index++, eventId);
+            }
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    summaries.put(rs.getInt("evenement_id"),
+                            new ParticipationSummary(rs.getInt("participants"), rs.getInt("registered") == 1));
+                }
+            }
+        } catch (SQLException ex) {
+            System.err.println("Erreur lors du comptage des participants: " + ex.getMessage());
+        }
+        return summaries;
+    }
+
     /**
      * Récupère la liste des utilisateurs qui participent à un événement spécifique
      * 
@@ -221,6 +275,29 @@ public class ServiceParticipation {
         return participants;
     }
 
+    /**
+     * Participation à un événement vue par l'utilisateur connecté
+     */
+    public static class ParticipationSummary {
+        public static final ParticipationSummary EMPTY = new ParticipationSummary(0, false);
+
+        private final int participantCount;
+        private final boolean registered;
+
+        public ParticipationSummary(int participantCount, boolean registered) {
+            this.participantCount = participantCount;
+            this.registered = registered;
+        }
+
+        public int getParticipantCount() {
+            return participantCount;
+        }
+
+        public boolean isRegistered() {
+            return registered;
+        }
+    }
+
     /**
      * Vérifie si la classe User a un champ pour stocker la date d'inscription
      * 
@@ -1,14 +1,18 @@
 package com.itbs.services;
 
+import com.itbs.models.Club;
 import com.itbs.models.Sondage;
 import com.itbs.models.ChoixSondage;
+import com.itbs.models.enums.ActivityTypeEnum;
 import com.itbs.utils.DataSource;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SondageService {
     private Connection connection;
@@ -40,11 +44,16 @@ public class SondageService {
             ResultSet rs = pst.getGeneratedKeys();
             if (rs.next()) {
                 sondage.setId(rs.getInt(1));
+                SearchService.getInstance().update(SearchService.Domain.SONDAGE, sondage.getId(), sondage.getQuestion());
 
                 // Ajouter les choix
                 for (ChoixSondage choix : sondage.getChoix()) {
                     addChoix(choix, sondage.getId());
                 }
+                ActivityLogService.getInstance().record(ActivityTypeEnum.POLL_MANAGEMENT, "Poll", sondage.getId(),
+                        "Poll created: \"" + sondage.getQuestion() + "\" for club " + sondage.getClub().getId());
+                ChangeEventBus.getInstance().publish(ChangeEventBus.Entity.SONDAGE, sondage.getId(),
+                        ChangeEventBus.Operation.CREATED);
             }
         }
     }
@@ -56,16 +65,36 @@ public class SondageService {
             pst.setString(1, sondage.getQuestion());
             pst.setInt(2, sondage.getId());
             pst.executeUpdate();
+            SearchService.getInstance().update(SearchService.Domain.SONDAGE, sondage.getId(), sondage.getQuestion());
+            ActivityLogService.getInstance().record(ActivityTypeEnum.POLL_MANAGEMENT, "Poll", sondage.getId(),
+                    "Poll updated: \"" + sondage.getQuestion() + "\"");
+            ChangeEventBus.getInstance().publish(ChangeEventBus.Entity.SONDAGE, sondage.getId(),
+                    ChangeEventBus.Operation.UPDATED);
         }
     }
 
     public void delete(int id) throws SQLException {
+        // Comments and votes are removed by ON DELETE CASCADE, take them out of the counters first
+        DashboardRollupService rollups = DashboardRollupService.getInstance();
+        ModerationStateCache moderationCache = ModerationStateCache.getInstance();
+
         String query = "DELETE FROM sondage WHERE id = ?";
 
-        try (PreparedStatement pst = connection.prepareStatement(query)) {
-            pst.setInt(1, id);
-            pst.executeUpdate();
-        }
+        Map<Integer, Integer> released = new HashMap<>();
+        DataSource.getInstance().inTransaction(() -> {
+            released.putAll(moderationCache.releaseFlaggedCommentsOfPoll(id));
+            rollups.applyCommentsForPoll(id, -1);
+            rollups.applyVotesForPoll(id, -1);
+            try (PreparedStatement pst = connection.prepareStatement(query)) {
+                pst.setInt(1, id);
+                pst.executeUpdate();
+            }
+        });
+        moderationCache.onFlaggedReleased(released);
+        SearchService.getInstance().remove(SearchService.Domain.SONDAGE, id);
+        ActivityLogService.getInstance().record(ActivityTypeEnum.POLL_MANAGEMENT, "Poll", id,
+                "Poll deleted (ID: " + id + ")");
+        ChangeEventBus.getInstance().publish(ChangeEventBus.Entity.SONDAGE, id, ChangeEventBus.Operation.DELETED);
     }
 
     public Sondage getById(int id) throws SQLException {
@@ -106,6 +135,95 @@ public class SondageService {
         return sondages;
     }
 
+    /**
+     * Récupère une page de sondages, du plus récent au plus ancien
+     *
+     * @param offset Nombre de sondages déjà chargés
+     * @param limit  Taille de la page
+     * @return Les sondages de la page (liste vide après le dernier)
+     */
+    public List<Sondage> getPage(int offset, int limit) throws SQLException {
+        List<Sondage> sondages = new ArrayList<>();
+        String query = "SELECT * FROM sondage ORDER BY created_at DESC, id DESC LIMIT ? OFFSET ?";
+
+        // Ensure the connection is valid before executing the query
+        if (connection == null || connection.isClosed()) {
+            connection = DataSource.getInstance().getCnx();
+        }
+
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setInt(1, limit);
+            pst.setInt(2, offset);
+
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    sondages.add(mapResultSetToSondage(rs));
+                }
+            }
+        }
+        return sondages;
+    }
+
+    /**
+     * Récupère une page de sondages d'un club, du plus récent au plus ancien
+     *
+     * @param clubId ID du club
+     * @param offset Nombre de sondages déjà chargés
+     * @param limit  Taille de la page
+     * @return Les sondages de la page (liste vide après le dernier)
+     */
+    public List<Sondage> getPageByClub(int clubId, int offset, int limit) throws SQLException {
+        List<Sondage> sondages = new ArrayList<>();
+        String query = "SELECT * FROM sondage WHERE club_id = ? ORDER BY created_at DESC, id DESC LIMIT ? OFFSET ?";
+
+        // Ensure the connection is valid before executing the query
+        if (connection == null || connection.isClosed()) {
+            connection = DataSource.getInstance().getCnx();
+        }
+
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setInt(1, clubId);
+            pst.setInt(2, limit);
+            pst.setInt(3, offset);
+
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    sondages.add(mapResultSetToSondage(rs));
+                }
+            }
+        }
+        return sondages;
+    }
+
+    /**
+     * Récupère les clubs ayant au moins un sondage, triés par nom.
+     * Seuls l'ID et le nom sont chargés (pas d'hydratation des sondages).
+     *
+     * @return Liste des clubs (id, nomC)
+     */
+    public List<Club> getClubsWithPolls() throws SQLException {
+        List<Club> clubs = new ArrayList<>();
+        String query = "SELECT c.id, c.nom_c FROM club c " +
+                "WHERE EXISTS (SELECT 1 FROM sondage s WHERE s.club_id = c.id) " +
+                "ORDER BY c.nom_c";
+
+        // Ensure the connection is valid before executing the query
+        if (connection == null || connection.isClosed()) {
+            connection = DataSource.getInstance().getCnx();
+        }
+
+        try (Statement st = connection.createStatement();
+                ResultSet rs = st.executeQuery(query)) {
+            while (rs.next()) {
+                Club club = new Club();
+                club.setId(rs.getInt("id"));
+                club.setNomC(rs.getString("nom_c"));
+                clubs.add(club);
+            }
+        }
+        return clubs;
+    }
+
     private Sondage mapResultSetToSondage(ResultSet rs) throws SQLException {
         Sondage sondage = new Sondage();
         sondage.setId(rs.getInt("id"));
@@ -247,12 +365,19 @@ public class SondageService {
      * Delete all comments related to a poll
      */
     public void deleteCommentsByPollId(int pollId) throws SQLException {
+        ModerationStateCache moderationCache = ModerationStateCache.getInstance();
         String query = "DELETE FROM commentaire WHERE sondage_id = ?";
 
-        try (PreparedStatement pst = connection.prepareStatement(query)) {
-            pst.setInt(1, pollId);
-            pst.executeUpdate();
-        }
+        Map<Integer, Integer> released = new HashMap<>();
+        DataSource.getInstance().inTransaction(() -> {
+            released.putAll(moderationCache.releaseFlaggedCommentsOfPoll(pollId));
+            DashboardRollupService.getInstance().applyCommentsForPoll(pollId, -1);
+            try (PreparedStatement pst = connection.prepareStatement(query)) {
+                pst.setInt(1, pollId);
+                pst.executeUpdate();
+            }
+        });
+        moderationCache.onFlaggedReleased(released);
     }
 
     /**
@@ -261,10 +386,13 @@ public class SondageService {
     public void deleteResponsesByPollId(int pollId) throws SQLException {
         String query = "DELETE FROM reponse WHERE sondage_id = ?";
 
-        try (PreparedStatement pst = connection.prepareStatement(query)) {
-            pst.setInt(1, pollId);
-            pst.executeUpdate();
-        }
+        DataSource.getInstance().inTransaction(() -> {
+            DashboardRollupService.getInstance().applyVotesForPoll(pollId, -1);
+            try (PreparedStatement pst = connection.prepareStatement(query)) {
+                pst.setInt(1, pollId);
+                pst.executeUpdate();
+            }
+        });
     }
 
     /**
@@ -0,0 +1,321 @@
+package com.itbs.services;
+
+import com.itbs.utils.DataSource;
+import com.itbs.utils.ThumbnailService;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed storage for uploaded images.
+ *
+ * A file is stored once per upload area under the SHA-256 of its bytes
+ * (e.g. uploads/clubs/3f2a...c9.png), so uploading the same image again costs
+ * no disk. The upload_blob table keeps a reference count per stored file;
+ * {@link #collectOrphans()} recounts the references from the columns that
+ * point to each area and deletes the files nobody uses anymore.
+ *
+ * The stored names are compatible with the existing readers: each area keeps
+ * its directory and the value written in the entity column is unchanged in
+ * format (see {@link Area#toColumnValue(String)}).
+ */
+public class UploadStore {
+    private static final Logger LOGGER = Logger.getLogger(UploadStore.class.getName());
+    private static UploadStore instance;
+
+    // Unreferenced files are kept this long, an upload is referenced only once its form is saved
+    private static final int ORPHAN_GRACE_HOURS = 24;
+    private static final Pattern STORED_NAME = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]{1,5})?");
+
+    /**
+     * Upload areas: storage directory, prefix of the value saved in the entity
+     * column, and the columns referencing files of the area
+     */
+    public enum Area {
+        PROFILES("uploads/profiles/", "", new String[][] { { "user", "profile_picture", "" } }),
+        CLUBS("uploads/clubs/", "uploads/clubs/", new String[][] { { "club", "image", "uploads/clubs/" } }),
+        PRODUCTS("src/main/resources/images/", "images/", new String[][] { { "produit", "img_prod", "images/" } }),
+        IMAGES("uploads/images/", "uploads/images/", new String[][] {
+                { "evenement", "image_description", "uploads/images/" },
+                { "saison", "image", "" } });
+
+        private final String directory;
+        private final String columnPrefix;
+        private final String[][] references;
+
+        Area(String directory, String columnPrefix, String[][] references) {
+            this.directory = directory;
+            this.columnPrefix = columnPrefix;
+            this.references = references;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        /**
+         * Value to save in the entity column for a stored file name
+         */
+        public String toColumnValue(String storedName) {
+            return columnPrefix + storedName;
+        }
+
+        /**
+         * Stored file name from an entity column value, null if it is not a stored file
+         */
+        public String fromColumnValue(String value) {
+            if (value == null) {
+                return null;
+            }
+            String name = value.replace('\\', '/');
+            int slash = name.lastIndexOf('/');
+            name = slash >= 0 ? name.substring(slash + 1) : name;
+            return STORED_NAME.matcher(name).matches() ? name : null;
+        }
+    }
+
+    private final Connection connection;
+
+    private UploadStore() {
+        this.connection = DataSource.getInstance().getCnx();
+    }
+
+    public static synchronized UploadStore getInstance() {
+        if (instance == null) {
+            instance = new UploadStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Store an uploaded file (or reuse the identical one already stored) and
+     * take a reference on it.
+     *
+     * @param source File chosen by the user
+     * @param area   Upload area
+     * @return Stored file name, hash plus original extension
+     */
+    public String store(File source, Area area) throws IOException {
+        String hash = sha256(source);
+        String storedName = hash + extensionOf(source.getName());
+
+        File directory = new File(area.getDirectory());
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        File target = new File(directory, storedName);
+        if (!target.isFile()) {
+            // Copied under a temporary name first so a partial file is never served
+            Path temporary = Files.createTempFile(directory.toPath(), hash, ".tmp");
+            try {
+                Files.copy(source.toPath(), temporary, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temporary, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            ThumbnailService.getInstance().submit(target);
+        } else {
+            LOGGER.log(Level.INFO, "Upload deduplicated: {0}", storedName);
+        }
+
+        String query = "INSERT INTO upload_blob (area, file_name, sha256, size_bytes, ref_count, created_at) " +
+                "VALUES (?, ?, ?, ?, 1, NOW()) " +
+                "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, released_at = NULL";
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setString(1, area.name());
+            pst.setString(2, storedName);
+            pst.setString(3, hash);
+            pst.setLong(4, target.length());
+            pst.executeUpdate();
+        } catch (SQLException e) {
+            // The count is rebuilt from the entity columns by collectOrphans
+            LOGGER.log(Level.WARNING, "Unable to reference stored upload " + storedName, e);
+        }
+        return storedName;
+    }
+
+    /**
+     * Drop a reference, e.g. when an entity gets another image or is deleted.
+     * Values that are not stored files (older uploads) are ignored.
+     *
+     * @param columnValue Value of the entity column
+     */
+    public void release(Area area, String columnValue) {
+        String storedName = area.fromColumnValue(columnValue);
+        if (storedName == null) {
+            return;
+        }
+        String query = "UPDATE upload_blob SET ref_count = GREATEST(ref_count - 1, 0), released_at = NOW() " +
+                "WHERE area = ? AND file_name = ?";
+        try (PreparedStatement pst = connection.prepareStatement(query)) {
+            pst.setString(1, area.name());
+            pst.setString(2, storedName);
+            pst.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Unable to release stored upload " + storedName, e);
+        }
+    }
+
+    /**
+     * Recount the references of every stored file from the entity columns,
+     * then delete the files (and their thumbnails) unreferenced for longer
+     * than the grace period.
+     *
+     * @return Number of files deleted
+     */
+    public int collectOrphans() throws SQLException {
+        recountReferences();
+
+        List<String[]> orphans = new ArrayList<>();
+        String query = "SELECT area, file_name FROM upload_blob WHERE ref_count = 0 " +
+                "AND COALESCE(released_at, created_at) < NOW() - INTERVAL " + ORPHAN_GRACE_HOURS + " HOUR";
+        try (Statement st = connection.createStatement();
+                ResultSet rs = st.executeQuery(query)) {
+            while (rs.next()) {
+                orphans.add(new String[] { rs.getString("area"), rs.getString("file_name") });
+            }
+        }
+
+        int deleted = 0;
+        String delete = "DELETE FROM upload_blob WHERE area = ? AND file_name = ? AND ref_count = 0";
+        try (PreparedStatement pst = connection.prepareStatement(delete)) {
+            for (String[] orphan : orphans) {
+                Area area = Area.valueOf(orphan[0]);
+                File file = new File(area.getDirectory(), orphan[1]);
+
+                pst.setString(1, orphan[0]);
+                pst.setString(2, orphan[1]);
+                if (pst.executeUpdate() == 0) {
+                    continue; // Referenced again meanwhile
+                }
+
+                for (ThumbnailService.Size size : ThumbnailService.Size.values()) {
+                    File thumbnail = ThumbnailService.getInstance().getThumbnailFile(file, size);
+                    if (thumbnail.isFile() && !thumbnail.delete()) {
+                        LOGGER.warning("Unable to delete thumbnail " + thumbnail);
+                    }
+                }
+                if (!file.exists() || file.delete()) {
+                    deleted++;
+                } else {
+                    LOGGER.warning("Unable to delete orphan upload " + file);
+                }
+            }
+        }
+        LOGGER.log(Level.INFO, "Upload GC: {0} orphan file(s) deleted", deleted);
+        return deleted;
+    }
+
+    private void recountReferences() throws SQLException {
+        for (Area area : Area.values()) {
+            Map<String, Integer> counts = new HashMap<>();
+            for (String[] reference : area.references) {
+                String query = "SELECT " + reference[1] + " AS value, COUNT(*) AS refs FROM " + reference[0] +
+                        " WHERE " + reference[1] + " IS NOT NULL GROUP BY " + reference[1];
+                try (Statement st = connection.createStatement();
+                        ResultSet rs = st.executeQuery(query)) {
+                    while (rs.next()) {
+                        String value = rs.getString("value");
+                        if (!value.startsWith(reference[2])) {
+                            continue;
+                        }
+                        String storedName = area.fromColumnValue(value);
+                        if (storedName != null) {
+                            counts.merge(storedName, rs.getInt("refs"), Integer::sum);
+                        }
+                    }
+                }
+            }
+
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement reset = connection.prepareStatement(
+                    "UPDATE upload_blob SET ref_count = 0 WHERE area = ?");
+                    PreparedStatement update = connection.prepareStatement(
+                            "UPDATE upload_blob SET ref_count = ? WHERE area = ? AND file_name = ?")) {
+                reset.setString(1, area.name());
+                reset.executeUpdate();
+                for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                    update.setInt(1, entry.getValue());
+                    update.setString(2, area.name());
+                    update.setString(3, entry.getKey());
+                    update.addBatch();
+                }
+                update.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * SHA-256 of a file, lowercase hex
+     */
+    public static String sha256(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream input = Files.newInputStream(file.toPath())) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * SHA-256 of bytes already in memory, lowercase hex
+     */
+    public static String sha256(byte[] bytes) {
+        return toHex(newDigest().digest(bytes));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static String extensionOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0 || dot == fileName.length() - 1) {
+            return "";
+        }
+        String extension = fileName.substring(dot).toLowerCase(Locale.ROOT);
+        return extension.length() <= 6 ? extension : "";
+    }
+}
@@ -3,10 +3,15 @@ package com.itbs.services;
 
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.itbs.models.User;
+import com.itbs.models.enums.ActivityTypeEnum;
 
 import com.itbs.utils.DataSource;
 import jakarta.persistence.EntityManager;
@@ -111,6 +116,11 @@ public class UserService implements Service<User>, AutoCloseable {
                 em.flush(); // Force immediate insert to verify operation
                 System.out.println("Persisted: " + user.getId());
             });
+            indexUser(user);
+            ActivityLogService.getInstance().record(ActivityTypeEnum.USER_MANAGEMENT, "User", user.getId(),
+                    "User account created (ID: " + user.getId() + ")");
+            ChangeEventBus.getInstance().publish(ChangeEventBus.Entity.USER, user.getId(),
+                    ChangeEventBus.Operation.CREATED);
         } catch (Exception e) {
             System.err.println("Persistence Error: " + e.getMessage());
             e.printStackTrace();
@@ -137,6 +147,11 @@ public class UserService implements Service<User>, AutoCloseable {
                 em.flush();
             }
         });
+        indexUser(user);
+        ActivityLogService.getInstance().record(ActivityTypeEnum.USER_MANAGEMENT, "User", user.getId(),
+                "User account updated (ID: " + user.getId() + ", status: " + user.getStatus() + ")");
+        ChangeEventBus.getInstance().publish(ChangeEventBus.Entity.USER, user.getId(),
+                ChangeEventBus.Operation.UPDATED);
     }
 
     @Override
@@ -145,6 +160,16 @@ public class UserService implements Service<User>, AutoCloseable {
             User managedUser = em.merge(user);
             em.remove(managedUser);
         });
+        SearchService.getInstance().remove(SearchService.Domain.USER, user.getId());
+        ActivityLogService.getInstance().record(ActivityTypeEnum.USER_MANAGEMENT, "User", user.getId(),
+                "User account deleted (ID: " + user.getId() + ")");
+        ChangeEventBus.getInstance().publish(ChangeEventBus.Entity.USER, user.getId(),
+                ChangeEventBus.Operation.DELETED);
+    }
+
+    private static void indexUser(User user) {
+        SearchService.getInstance().update(SearchService.Domain.USER, user.getId(),
+                user.getFirstName(), user.getLastName(), user.getEmail());
     }
 
     @Override
@@ -156,12 +181,25 @@ public class UserService implements Service<User>, AutoCloseable {
         return em.find(User.class, id);
     }
 
+    /**
+     * Utilisateurs dont le prénom, le nom ou l'email contient les mots cherchés
+     * (accents ignorés, début de mot accepté), les plus pertinents en premier
+     */
     public List<User> rechercherParNom(String keyword) {
-        TypedQuery<User> query = em.createQuery(
-                "SELECT u FROM User u WHERE u.lastName LIKE :keyword OR u.firstName LIKE :keyword",
-                User.class);
-        query.setParameter("keyword", "%" + keyword + "%");
-        return query.getResultList();
+        List<Integer> ids = SearchService.getInstance().search(SearchService.Domain.USER, keyword, 0);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // One query for every match, then back to the rank order of the index
+        List<User> users = new ArrayList<>(em.createQuery("SELECT u FROM User u WHERE u.id IN :ids", User.class)
+                .setParameter("ids", ids)
+                .getResultList());
+        Map<Integer, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            rank.put(ids.get(i), i);
+        }
+        users.sort(Comparator.comparing(u -> rank.get(u.getId())));
+        return users;
     }
 
     public User findByEmail(String email) {
@@ -225,6 +263,7 @@ public class UserService implements Service<User>, AutoCloseable {
                     .setParameter("id", userId)
                     .executeUpdate();
         });
+        ActivityLogService.getInstance().record(ActivityTypeEnum.LOGIN, "User", userId, "User login (ID: " + userId + ")");
     }
 
 
@@ -56,7 +56,7 @@ public class AiService {
             
             JSONObject systemMessage = new JSONObject();
             systemMessage.put("role", "system");
-            systemMessage.put("content", "You are a content moderator. Analyze the following text for toxic content, profanity, or inappropriate language. Respond with a JSON object containing: isToxic (boolean), toxicWords (array of toxic words found), and reason (explanation).");
+            systemMessage.put("content", "You are a content moderator. Analyze the following text for toxic content, profanity, or inappropriate language. Respond with a JSON object containing: isToxic (boolean), toxicityScore (number between 0 and 1), toxicWords (array of toxic words found), and reason (explanation).");
             messages.put(systemMessage);
             
             JSONObject userMessage = new JSONObject();
@@ -148,6 +148,22 @@ public class AiService {
         return analysis.getBoolean("isToxic");
     }
     
+    /**
+     * Extracts the toxicity score of an analysis, falling back to 1 or 0
+     * when the model did not return one
+     *
+     * @param analysis Result of analyzeToxicity
+     * @return Score between 0 and 1
+     */
+    public double getToxicityScore(JSONObject analysis) {
+        double fallback = analysis.optBoolean("isToxic", false) ? 1.0 : 0.0;
+        double score = analysis.optDouble("toxicityScore", fallback);
+        if (Double.isNaN(score)) {
+            return fallback;
+        }
+        return Math.max(0.0, Math.min(1.0, score));
+    }
+
     /**
      * Basic fallback analysis for when API is not available
      */
@@ -187,6 +203,8 @@ public class AiService {
     private JSONObject createSimpleToxicityResponse(boolean isToxic, List<String> toxicWords, String reason) {
         JSONObject response = new JSONObject();
         response.put("isToxic", isToxic);
+        // One flagged word is already enough to hide the comment, each extra word raises the score
+        response.put("toxicityScore", isToxic ? Math.min(1.0, 0.5 + 0.25 * (toxicWords.size() - 1)) : 0.0);
         response.put("toxicWords", toxicWords);
         response.put("reason", reason);
         return response;
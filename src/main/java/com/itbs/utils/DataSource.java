@@ -9,7 +9,9 @@ public class DataSource {
     private static DataSource instance;
     private Connection cnx;
 
-    private final String url = "jdbc:mysql://localhost:3306/itbs_clubs_events";
+    // Server-side prepared statements, cached by the driver and reused across prepareStatement calls
+    private final String url = "jdbc:mysql://localhost:3306/itbs_clubs_events"
+            + "?useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=256&prepStmtCacheSqlLimit=2048";
     private final String user = "root";
     private final String password = "";
 
@@ -41,6 +43,58 @@ public class DataSource {
         return cnx;
     }
 
+    /**
+     * Statements run by {@link #inTransaction}
+     */
+    @FunctionalInterface
+    public interface SqlWork {
+        void run() throws SQLException;
+    }
+
+    /**
+     * Runs work on the shared connection as one transaction: committed when it
+     * returns, rolled back when it throws. Called while a transaction is already
+     * open (autoCommit off), the work simply joins it; committing or rolling
+     * back is then left to the caller.
+     */
+    public void inTransaction(SqlWork work) throws SQLException {
+        if (!cnx.getAutoCommit()) {
+            work.run();
+            return;
+        }
+        cnx.setAutoCommit(false);
+        try {
+            work.run();
+            cnx.commit();
+        } catch (SQLException | RuntimeException e) {
+            cnx.rollback();
+            throw e;
+        } finally {
+            cnx.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Opens a separate connection for a background writer, so its statements
+     * never run inside a transaction opened on the shared connection. The
+     * caller closes it.
+     */
+    public Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    /**
+     * Opens a separate read-only connection for long reads (exports). Rows are
+     * fetched from a server-side cursor, setFetchSize rows at a time, so a
+     * large result never sits in memory and the shared connection stays free.
+     * The caller closes it.
+     */
+    public Connection openStreamingConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url + "&useCursorFetch=true", user, password);
+        connection.setReadOnly(true);
+        return connection;
+    }
+
     // Méthode pour vérifier la connexion
     public boolean isConnected() {
         try {
@@ -0,0 +1,108 @@
+package com.itbs.utils;
+
+import com.itbs.services.ExportService;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Lance un export depuis un écran: choix du fichier, fenêtre de progression
+ * avec annulation, message de fin.
+ *
+ * The export itself runs on a background thread ({@link ExportService#newTask});
+ * the screen stays usable while it runs.
+ */
+public final class ExportRunner {
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    private ExportRunner() {
+    }
+
+    /**
+     * Asks for the destination file, then exports in the background
+     * @param owner    Window of the screen, for the dialogs
+     * @param fileName Suggested file name, without extension
+     */
+    public static void run(Window owner, ExportService.Export export, ExportService.Format format, String fileName) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Exporter " + export.getTitle());
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter(format.getDescription(), "*." + format.getExtension()));
+        fileChooser.setInitialFileName(fileName + "_" + LocalDateTime.now().format(FILE_STAMP)
+                + "." + format.getExtension());
+        File file = fileChooser.showSaveDialog(owner);
+        if (file == null) {
+            return;
+        }
+
+        Task<Long> task = ExportService.getInstance().newTask(export, format, file);
+        Stage progressStage = progressStage(owner, export, task);
+
+        task.setOnSucceeded(e -> {
+            progressStage.close();
+            alert(owner, Alert.AlertType.INFORMATION, "Export terminé",
+                    task.getValue() + " lignes exportées dans " + file.getName());
+        });
+        task.setOnCancelled(e -> progressStage.close());
+        task.setOnFailed(e -> {
+            progressStage.close();
+            Throwable error = task.getException();
+            alert(owner, Alert.AlertType.ERROR, "Échec de l'export",
+                    "L'export n'a pas pu être écrit: " + (error != null ? error.getMessage() : "erreur inconnue"));
+        });
+
+        Thread thread = new Thread(task, "export");
+        thread.setDaemon(true);
+        progressStage.show();
+        thread.start();
+    }
+
+    private static Stage progressStage(Window owner, ExportService.Export export, Task<Long> task) {
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(320);
+        progressBar.progressProperty().bind(task.progressProperty());
+
+        Label message = new Label();
+        message.textProperty().bind(task.messageProperty());
+
+        Button cancel = new Button("Annuler");
+        cancel.setOnAction(e -> task.cancel());
+
+        VBox root = new VBox(12, new Label("Export: " + export.getTitle()), progressBar, message, cancel);
+        root.setAlignment(Pos.CENTER);
+        root.setPadding(new Insets(20));
+
+        Stage stage = new Stage();
+        stage.initOwner(owner);
+        stage.initModality(Modality.NONE);
+        stage.setTitle("Export en cours");
+        stage.setResizable(false);
+        stage.setScene(new Scene(root));
+        // Closing the window cancels the export
+        stage.setOnCloseRequest(e -> task.cancel());
+        return stage;
+    }
+
+    private static void alert(Window owner, Alert.AlertType type, String title, String content) {
+        Alert alert = new Alert(type);
+        alert.initOwner(owner);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(content);
+        alert.showAndWait();
+    }
+}
@@ -0,0 +1,301 @@
+package com.itbs.utils;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Central image loader for avatars, club logos, event and product pictures.
+ *
+ * Files are decoded in the background by JavaFX and downscaled to the size
+ * requested by the caller, so a 80px card never holds a full resolution
+ * bitmap. Decoded images are kept in an LRU bounded by an estimate of their
+ * pixel memory and keyed by (path, last modified, requested size), which
+ * makes a replaced file a cache miss without explicit invalidation.
+ *
+ * Placeholder images (default profile, club, product) are loaded once and
+ * shared by every view.
+ */
+public class ImageCache {
+    private static final Logger LOGGER = Logger.getLogger(ImageCache.class.getName());
+    private static ImageCache instance;
+
+    // Budget for decoded pixels (ARGB, 4 bytes per pixel)
+    private static final long MAX_CACHE_BYTES = 64L * 1024 * 1024;
+    // Charged for an image decoded at its natural size until its real size is known
+    private static final long UNKNOWN_SIZE_BYTES = 1024L * 1024;
+    // ImageView property holding the key of the last image requested for it
+    private static final String VIEW_KEY = "imageCache.key";
+
+    public static final String DEFAULT_PROFILE = "profile";
+    public static final String DEFAULT_USER = "user";
+    public static final String DEFAULT_CLUB = "club";
+    public static final String DEFAULT_PRODUCT = "product";
+    public static final String DEFAULT_EVENT = "event";
+
+    private static final Map<String, String[]> PLACEHOLDER_RESOURCES = Map.of(
+            DEFAULT_PROFILE, new String[] { "/com/itbs/images/default-profile.png", "/images/default-profile.png",
+                    "/com/itbs/images/default-profile-png.png" },
+            DEFAULT_USER, new String[] { "/com/itbs/images/user.png", "/images/user.png" },
+            DEFAULT_CLUB, new String[] { "/images/default-club.png", "/com/itbs/images/default.PNG" },
+            DEFAULT_PRODUCT, new String[] { "/images/default-product.png", "/com/itbs/images/default.PNG" },
+            DEFAULT_EVENT, new String[] { "/images/default-profile.png", "/com/itbs/images/default.PNG" });
+
+    private final LinkedHashMap<String, CachedImage> images = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Image> sharedImages = new ConcurrentHashMap<>();
+    private long cachedBytes = 0;
+
+    private ImageCache() {
+    }
+
+    public static synchronized ImageCache getInstance() {
+        if (instance == null) {
+            instance = new ImageCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Get an image for a local file, decoded in the background and scaled to fit
+     * the requested box (0 keeps the natural size on that axis).
+     *
+     * @return The cached image, possibly still loading, or null if the file does not exist
+     */
+    public Image load(File file, double width, double height) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        // Small boxes are served from the generated thumbnails when available
+        File source = ThumbnailService.getInstance().resolve(file, width, height);
+        return load(keyOf(source, width, height), source.toURI().toString(), width, height);
+    }
+
+    /**
+     * Same as {@link #load(File, double, double)} for an image bundled in the classpath
+     *
+     * @return The cached image, possibly still loading, or null if the resource does not exist
+     */
+    public Image loadResource(String path, double width, double height) {
+        URL url = getClass().getResource(path);
+        if (url == null) {
+            return null;
+        }
+        return load(url + "|" + (int) width + "x" + (int) height, url.toString(), width, height);
+    }
+
+    private Image load(String key, String url, double width, double height) {
+        synchronized (this) {
+            CachedImage cached = images.get(key);
+            if (cached != null) {
+                return cached.image;
+            }
+        }
+
+        Image image = new Image(url, width, height, true, true, true);
+        CachedImage entry = new CachedImage(image, estimateBytes(width, height));
+        synchronized (this) {
+            CachedImage existing = images.putIfAbsent(key, entry);
+            if (existing != null) {
+                return existing.image;
+            }
+            cachedBytes += entry.bytes;
+            trim();
+        }
+
+        image.progressProperty().addListener((obs, oldValue, newValue) -> {
+            if (newValue.doubleValue() >= 1.0) {
+                onLoaded(key, entry);
+            }
+        });
+        return image;
+    }
+
+    /**
+     * Shows an image file in a view: the placeholder is displayed until the
+     * background decode completes, or kept if the file is missing or unreadable.
+     * Safe for recycled cells, a late image never replaces a newer request.
+     */
+    public void loadInto(ImageView view, File file, double width, double height, Image placeholder) {
+        show(view, load(file, width, height), placeholder);
+    }
+
+    /**
+     * Shows a product image: img_prod is either a classpath resource or a file path
+     */
+    public void loadProductImage(ImageView view, String imagePath, double width, double height) {
+        Image image = null;
+        if (imagePath != null && !imagePath.isEmpty()) {
+            URL url = getClass().getResource("/" + imagePath);
+            if (url != null && "file".equals(url.getProtocol())) {
+                // Exploded classpath: go through the file so thumbnails can be used
+                try {
+                    image = load(new File(url.toURI()), width, height);
+                } catch (Exception e) {
+                    image = null;
+                }
+            }
+            if (image == null) {
+                image = loadResource("/" + imagePath, width, height);
+            }
+            if (image == null) {
+                image = load(new File(imagePath), width, height);
+            }
+        }
+        show(view, image, getPlaceholder(DEFAULT_PRODUCT));
+    }
+
+    private void show(ImageView view, Image image, Image placeholder) {
+        if (image == null) {
+            view.getProperties().remove(VIEW_KEY);
+            view.setImage(placeholder);
+            return;
+        }
+
+        if (image.getProgress() >= 1.0) {
+            view.getProperties().remove(VIEW_KEY);
+            view.setImage(image.isError() ? placeholder : image);
+            return;
+        }
+
+        // Identity of the pending image, a recycled view may be given another one meanwhile
+        Object key = new Object();
+        view.getProperties().put(VIEW_KEY, key);
+        view.setImage(placeholder);
+        image.progressProperty().addListener((obs, oldValue, newValue) -> {
+            if (newValue.doubleValue() >= 1.0 && view.getProperties().get(VIEW_KEY) == key) {
+                view.getProperties().remove(VIEW_KEY);
+                view.setImage(image.isError() ? placeholder : image);
+            }
+        });
+    }
+
+    /**
+     * Shows a profile picture stored in uploads/profiles, or the default one
+     */
+    public void loadProfilePicture(ImageView view, String fileName, double size) {
+        File file = fileName == null || fileName.isEmpty() ? null : new File("uploads/profiles/" + fileName);
+        loadInto(view, file, size, size, getPlaceholder(DEFAULT_PROFILE));
+    }
+
+    /**
+     * Get a shared placeholder image (DEFAULT_PROFILE, DEFAULT_CLUB, ...).
+     * Loaded once; an empty image is returned if no resource is available.
+     */
+    public Image getPlaceholder(String name) {
+        return sharedImages.computeIfAbsent("placeholder:" + name, k -> {
+            String[] candidates = PLACEHOLDER_RESOURCES.getOrDefault(name, new String[0]);
+            for (String candidate : candidates) {
+                Image image = readResource(candidate);
+                if (image != null) {
+                    return image;
+                }
+            }
+            LOGGER.warning("No placeholder resource found for " + name);
+            return new WritableImage(1, 1);
+        });
+    }
+
+    /**
+     * Get a shared image from the classpath (icons, banners...), loaded once
+     *
+     * @return The image, or null if the resource does not exist
+     */
+    public Image getResource(String path) {
+        Image image = sharedImages.get(path);
+        if (image == null) {
+            image = readResource(path);
+            if (image != null) {
+                sharedImages.putIfAbsent(path, image);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Drop every cached size of a file, e.g. before it is overwritten in place
+     */
+    public synchronized void invalidate(File file) {
+        String prefix = file.getAbsolutePath() + "|";
+        images.entrySet().removeIf(entry -> {
+            if (entry.getKey().startsWith(prefix)) {
+                cachedBytes -= entry.getValue().bytes;
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public synchronized void clear() {
+        images.clear();
+        cachedBytes = 0;
+    }
+
+    private Image readResource(String path) {
+        URL url = getClass().getResource(path);
+        if (url == null) {
+            return null;
+        }
+        try (InputStream stream = url.openStream()) {
+            Image image = new Image(stream);
+            return image.isError() ? null : image;
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Unable to read image resource " + path, e);
+            return null;
+        }
+    }
+
+    private synchronized void onLoaded(String key, CachedImage entry) {
+        if (images.get(key) != entry) {
+            return;
+        }
+        if (entry.image.isError()) {
+            // Do not keep failures, the file may be fixed later
+            images.remove(key);
+            cachedBytes -= entry.bytes;
+            return;
+        }
+        long actualBytes = (long) (entry.image.getWidth() * entry.image.getHeight() * 4);
+        cachedBytes += actualBytes - entry.bytes;
+        entry.bytes = actualBytes;
+        trim();
+    }
+
+    // Evict least recently used images until the budget is met
+    private void trim() {
+        var iterator = images.entrySet().iterator();
+        while (cachedBytes > MAX_CACHE_BYTES && images.size() > 1 && iterator.hasNext()) {
+            cachedBytes -= iterator.next().getValue().bytes;
+            iterator.remove();
+        }
+    }
+
+    private static String keyOf(File file, double width, double height) {
+        return file.getAbsolutePath() + "|" + file.lastModified() + "|" + (int) width + "x" + (int) height;
+    }
+
+    private static long estimateBytes(double width, double height) {
+        if (width > 0 && height > 0) {
+            return (long) (width * height * 4);
+        }
+        return UNKNOWN_SIZE_BYTES;
+    }
+
+    private static class CachedImage {
+        private final Image image;
+        private long bytes;
+
+        CachedImage(Image image, long bytes) {
+            this.image = image;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.itbs.utils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Immutable index of items spanning a date range (events...), answering
+ * "which items overlap this day / this period" without expanding each item
+ * over every day it covers.
+ *
+ * Items are sorted by start date, with the running maximum of the end dates
+ * alongside. A query binary searches the first item whose running maximum
+ * reaches the period start and the last item starting before the period end,
+ * then only scans that slice; memory stays one entry per item whatever the
+ * length of the intervals.
+ *
+ * @param <T> Indexed item type
+ */
+public class IntervalIndex<T> {
+    private final List<T> items;
+    private final LocalDate[] starts;
+    private final LocalDate[] ends;
+    // maxEnds[i] = latest end among items 0..i, non decreasing
+    private final LocalDate[] maxEnds;
+
+    /**
+     * @param items Items to index
+     * @param start Start date of an item
+     * @param end   End date of an item (inclusive), null means the item lasts one day
+     */
+    public IntervalIndex(Collection<T> items, Function<T, LocalDate> start, Function<T, LocalDate> end) {
+        List<T> sorted = new ArrayList<>();
+        for (T item : items) {
+            if (start.apply(item) != null) {
+                sorted.add(item);
+            }
+        }
+        sorted.sort(Comparator.comparing(start));
+
+        int size = sorted.size();
+        this.items = sorted;
+        this.starts = new LocalDate[size];
+        this.ends = new LocalDate[size];
+        this.maxEnds = new LocalDate[size];
+        for (int i = 0; i < size; i++) {
+            T item = sorted.get(i);
+            starts[i] = start.apply(item);
+            LocalDate itemEnd = end.apply(item);
+            ends[i] = itemEnd == null || itemEnd.isBefore(starts[i]) ? starts[i] : itemEnd;
+            maxEnds[i] = i == 0 || ends[i].isAfter(maxEnds[i - 1]) ? ends[i] : maxEnds[i - 1];
+        }
+    }
+
+    /**
+     * Items overlapping the period [from, to] (inclusive), ordered by start date
+     */
+    public List<T> overlapping(LocalDate from, LocalDate to) {
+        List<T> result = new ArrayList<>();
+        int first = firstReaching(from);
+        int last = lastStartingBy(to);
+        for (int i = first; i <= last; i++) {
+            if (!ends[i].isBefore(from)) {
+                result.add(items.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Items taking place on a given day
+     */
+    public List<T> on(LocalDate day) {
+        return overlapping(day, day);
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    // First index whose running max end is >= date (size if none)
+    private int firstReaching(LocalDate date) {
+        int low = 0;
+        int high = maxEnds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (maxEnds[middle].isBefore(date)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Last index whose start is <= date (-1 if none)
+    private int lastStartingBy(LocalDate date) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle].isAfter(date)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low - 1;
+    }
+}
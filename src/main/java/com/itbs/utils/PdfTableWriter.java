@@ -0,0 +1,209 @@
+package com.itbs.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a table as a PDF document, one page at a time.
+ *
+ * Only the rows of the current page are kept; a full page is written to the
+ * stream as soon as it is complete, and the document structure (page tree,
+ * cross-reference table) is written at close from the object offsets. The
+ * memory used grows with the number of pages (two offsets per page), never
+ * with the content of the rows.
+ *
+ * Uses the standard Helvetica fonts (no embedding) with WinAnsi encoding:
+ * French accents are kept, characters outside Latin-1 are printed as '?'.
+ * Cells too long for their column are cut with "...".
+ */
+public class PdfTableWriter implements RowWriter {
+    // A4 landscape, in points
+    private static final float PAGE_WIDTH = 842;
+    private static final float PAGE_HEIGHT = 595;
+    private static final float MARGIN = 36;
+    private static final float FONT_SIZE = 8;
+    private static final float TITLE_SIZE = 12;
+    private static final float ROW_HEIGHT = 12;
+    // Average Helvetica glyph width, as a fraction of the font size
+    private static final float CHAR_WIDTH = 0.5f;
+
+    // Fixed objects; the page objects follow
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FONT = 3;
+    private static final int FONT_BOLD = 4;
+
+    private final CountingOutputStream out;
+    private final String title;
+    private final List<Long> offsets = new ArrayList<>();
+    private final List<Integer> pageObjects = new ArrayList<>();
+    private final int rowsPerPage;
+    private List<String> columns = new ArrayList<>();
+    private float columnWidth;
+    private StringBuilder page;
+    private int rowsOnPage;
+
+    public PdfTableWriter(OutputStream out, String title) throws IOException {
+        this.out = new CountingOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.title = title;
+        // Title and header lines take the first rows of each page
+        this.rowsPerPage = (int) ((PAGE_HEIGHT - 2 * MARGIN) / ROW_HEIGHT) - 3;
+
+        write("%PDF-1.4\n%âãÏÓ\n");
+        // Offsets are indexed by object number, 0 is the free-list head
+        offsets.add(0L);
+        offsets.add(-1L);
+        offsets.add(-1L);
+        writeObject(FONT, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>");
+        writeObject(FONT_BOLD, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>");
+    }
+
+    @Override
+    public void writeHeader(List<String> columns) {
+        this.columns = new ArrayList<>(columns);
+        this.columnWidth = (PAGE_WIDTH - 2 * MARGIN) / Math.max(1, columns.size());
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        if (page == null) {
+            startPage();
+        }
+        float y = PAGE_HEIGHT - MARGIN - (rowsOnPage + 3) * ROW_HEIGHT;
+        writeCells(values, y, "/F1");
+        rowsOnPage++;
+        if (rowsOnPage == rowsPerPage) {
+            endPage();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (page != null || pageObjects.isEmpty()) {
+                // An empty export still gets a page with its header
+                if (page == null) {
+                    startPage();
+                }
+                endPage();
+            }
+
+            StringBuilder kids = new StringBuilder();
+            for (int pageObject : pageObjects) {
+                kids.append(pageObject).append(" 0 R ");
+            }
+            writeObject(PAGES, "<< /Type /Pages /Count " + pageObjects.size() + " /Kids [" + kids + "] >>");
+            writeObject(CATALOG, "<< /Type /Catalog /Pages " + PAGES + " 0 R >>");
+
+            long xref = out.count;
+            StringBuilder table = new StringBuilder();
+            table.append("xref\n0 ").append(offsets.size()).append('\n');
+            table.append("0000000000 65535 f \n");
+            for (int i = 1; i < offsets.size(); i++) {
+                table.append(String.format("%010d 00000 n \n", offsets.get(i)));
+            }
+            table.append("trailer\n<< /Size ").append(offsets.size()).append(" /Root ").append(CATALOG)
+                    .append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+            write(table.toString());
+        } finally {
+            out.close();
+        }
+    }
+
+    private void startPage() {
+        page = new StringBuilder();
+        rowsOnPage = 0;
+        float top = PAGE_HEIGHT - MARGIN;
+        text("/F2", TITLE_SIZE, MARGIN, top, title + "  -  page " + (pageObjects.size() + 1)
+                + "  -  " + LocalDateTime.now().format(RowWriter.DATE_TIME_FORMAT));
+        float headerY = top - 2 * ROW_HEIGHT;
+        writeCells(columns.toArray(), headerY, "/F2");
+        float lineY = headerY - 3;
+        page.append("0.5 w ").append(MARGIN).append(' ').append(lineY).append(" m ")
+                .append(PAGE_WIDTH - MARGIN).append(' ').append(lineY).append(" l S\n");
+    }
+
+    private void endPage() throws IOException {
+        byte[] content = page.toString().getBytes(StandardCharsets.ISO_8859_1);
+        int contentObject = offsets.size();
+        offsets.add(out.count);
+        write(contentObject + " 0 obj\n<< /Length " + content.length + " >>\nstream\n");
+        out.write(content);
+        write("\nendstream\nendobj\n");
+
+        int pageObject = offsets.size();
+        writeObject(pageObject, "<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox [0 0 " + PAGE_WIDTH + " " + PAGE_HEIGHT
+                + "] /Resources << /Font << /F1 " + FONT + " 0 R /F2 " + FONT_BOLD + " 0 R >> >> /Contents "
+                + contentObject + " 0 R >>");
+        pageObjects.add(pageObject);
+        page = null;
+    }
+
+    private void writeCells(Object[] values, float y, String font) {
+        int maxChars = Math.max(1, (int) ((columnWidth - 4) / (FONT_SIZE * CHAR_WIDTH)));
+        for (int i = 0; i < values.length && i < Math.max(1, columns.size()); i++) {
+            String cell = RowWriter.text(values[i]).replace('\r', ' ').replace('\n', ' ');
+            if (cell.length() > maxChars) {
+                cell = cell.substring(0, Math.max(0, maxChars - 3)) + "...";
+            }
+            text(font, FONT_SIZE, MARGIN + i * columnWidth, y, cell);
+        }
+    }
+
+    private void text(String font, float size, float x, float y, String value) {
+        page.append("BT ").append(font).append(' ').append(size).append(" Tf ")
+                .append(x).append(' ').append(y).append(" Td (");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                page.append('\\').append(c);
+            } else if (c < 32 || c > 255) {
+                page.append(c == 'œ' ? "oe" : c == '€' ? "EUR" : "?");
+            } else {
+                page.append(c);
+            }
+        }
+        page.append(") Tj ET\n");
+    }
+
+    private void writeObject(int number, String body) throws IOException {
+        while (offsets.size() <= number) {
+            offsets.add(-1L);
+        }
+        offsets.set(number, out.count);
+        write(number + " 0 obj\n" + body + "\nendobj\n");
+    }
+
+    private void write(String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Byte offset of the next write, needed by the cross-reference table
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -8,76 +8,77 @@ import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileSystems;
-import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 /**
- * Utility class for generating and handling QR codes for event participation
+ * Utility class for generating and handling QR codes for event participation.
+ *
+ * The QR content of a participation (a signed token, see
+ * {@link com.itbs.services.QRTokenService}) is reused until it expires, so the
+ * encoded matrix is computed once per content and kept in a small LRU. Images
+ * are rendered straight from the matrix in memory; a PNG is only written when
+ * the user exports the code.
  */
 public class QRCodeUtil {
+    private static final Logger LOGGER = Logger.getLogger(QRCodeUtil.class.getName());
 
+    // Folder where older versions wrote one timestamped PNG per generation
     private static final String QR_CODE_DIRECTORY = "src/main/resources/qrcodes/";
+    private static final Pattern LEGACY_FILE_NAME = Pattern.compile("qrcode_\\d+_\\d+_\\d+\\.png");
     private static final int QR_CODE_SIZE = 300;
+    private static final int MAX_CACHED_MATRICES = 256;
+
+    private static final int DARK = 0xFF000000;
+    private static final int LIGHT = 0xFFFFFFFF;
+
+    private static final Map<String, BitMatrix> MATRICES = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BitMatrix> eldest) {
+            return size() > MAX_CACHED_MATRICES;
+        }
+    };
+    private static final AtomicBoolean LEGACY_FILES_PURGED = new AtomicBoolean(false);
 
     /**
-     * Generates a QR code for event participation
-     * @param userId The user ID
-     * @param eventId The event ID
-     * @param fileName The filename to save the QR code
-     * @return Path to the generated QR code image
+     * Creates a JavaFX Image of a QR code without saving to file
+     * @param payload The text to encode
+     * @return JavaFX Image containing the QR code
      * @throws WriterException If an error occurs during QR code generation
-     * @throws IOException If an error occurs during file operations
      */
-    public static String generateQRCode(Long userId, Long eventId, String fileName) throws WriterException, IOException {
-        // Create directory if it doesn't exist
-        File directory = new File(QR_CODE_DIRECTORY);
-        if (!directory.exists()) {
-            directory.mkdirs();
-        }
-
-        // Create the QR code content (format: userId:eventId:timestamp for uniqueness)
-        String qrCodeData = userId + ":" + eventId + ":" + System.currentTimeMillis();
-
-        // Configure QR code parameters
-        Map<EncodeHintType, Object> hints = new HashMap<>();
-        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.H);
-        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
-        hints.put(EncodeHintType.MARGIN, 1);
-
-        // Generate the QR code
-        BitMatrix matrix = new MultiFormatWriter().encode(
-                qrCodeData,
-                BarcodeFormat.QR_CODE,
-                QR_CODE_SIZE,
-                QR_CODE_SIZE,
-                hints
-        );
-
-        // Save QR code as image file
-        Path path = FileSystems.getDefault().getPath(QR_CODE_DIRECTORY + fileName);
-        MatrixToImageWriter.writeToPath(matrix, "PNG", path);
-
-        return path.toString();
+    public static Image createQRCodeImage(String payload) throws WriterException {
+        purgeLegacyFilesOnce();
+        return toImage(getMatrix(payload));
     }
 
     /**
-     * Creates a JavaFX Image from a QR code without saving to file
-     * @param userId The user ID
-     * @param eventId The event ID
-     * @return JavaFX Image containing the QR code
+     * Writes a QR code as a PNG, e.g. to a location chosen by the user
+     * @param payload The text to encode
+     * @param target The file to write
      * @throws WriterException If an error occurs during QR code generation
-     * @throws IOException If an error occurs during image creation
+     * @throws IOException If an error occurs during file operations
      */
-    public static Image createQRCodeImage(Long userId, Long eventId) throws WriterException, IOException {
-        // Create the QR code content
-        String qrCodeData = userId + ":" + eventId + ":" + System.currentTimeMillis();
+    public static void exportQRCode(String payload, File target) throws WriterException, IOException {
+        MatrixToImageWriter.writeToPath(getMatrix(payload), "PNG", target.toPath());
+    }
+
+    private static BitMatrix getMatrix(String payload) throws WriterException {
+        synchronized (MATRICES) {
+            BitMatrix cached = MATRICES.get(payload);
+            if (cached != null) {
+                return cached;
+            }
+        }
 
         // Configure QR code parameters
         Map<EncodeHintType, Object> hints = new HashMap<>();
@@ -87,28 +88,61 @@ public class QRCodeUtil {
 
         // Generate the QR code
         BitMatrix matrix = new MultiFormatWriter().encode(
-                qrCodeData,
+                payload,
                 BarcodeFormat.QR_CODE,
                 QR_CODE_SIZE,
                 QR_CODE_SIZE,
                 hints
         );
+        synchronized (MATRICES) {
+            MATRICES.putIfAbsent(payload, matrix);
+        }
+        return matrix;
+    }
 
-        // Convert to JavaFX Image
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        MatrixToImageWriter.writeToStream(matrix, "PNG", outputStream);
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-
-        return new Image(inputStream);
+    // Render the modules directly into the image pixels, no PNG encode/decode round trip
+    private static WritableImage toImage(BitMatrix matrix) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                pixels[offset + x] = matrix.get(x, y) ? DARK : LIGHT;
+            }
+        }
+        WritableImage image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return image;
     }
 
     /**
-     * Generates a unique filename for the QR code based on user and event IDs
-     * @param userId The user ID
-     * @param eventId The event ID
-     * @return A unique filename for the QR code
+     * Deletes the timestamped PNG files written by previous versions
+     * @return Number of files deleted
      */
-    public static String generateQRCodeFileName(Long userId, Long eventId) {
-        return "qrcode_" + userId + "_" + eventId + "_" + System.currentTimeMillis() + ".png";
+    public static int purgeLegacyFiles() {
+        File[] files = new File(QR_CODE_DIRECTORY).listFiles(
+                (dir, name) -> LEGACY_FILE_NAME.matcher(name).matches());
+        if (files == null) {
+            return 0;
+        }
+        int deleted = 0;
+        for (File file : files) {
+            if (file.delete()) {
+                deleted++;
+            } else {
+                LOGGER.warning("Unable to delete legacy QR code " + file);
+            }
+        }
+        if (deleted > 0) {
+            LOGGER.log(Level.INFO, "Deleted {0} legacy QR code file(s)", deleted);
+        }
+        return deleted;
+    }
+
+    private static void purgeLegacyFilesOnce() {
+        if (LEGACY_FILES_PURGED.compareAndSet(false, true)) {
+            purgeLegacyFiles();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package com.itbs.utils;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+import javafx.scene.control.ComboBox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a combo box in sync with a list of reference names (categories,
+ * clubs) published by {@link com.itbs.services.ReferenceDataCache}.
+ *
+ * The combo box owns the listener and the source only holds it weakly, so a
+ * closed screen is collected without unregistering anything.
+ */
+public final class ReferenceDataBinding {
+    private static final String BINDING_KEY = "referenceData.binding";
+
+    private ReferenceDataBinding() {
+    }
+
+    /**
+     * Fill a combo box with the names and refill it when they change. The
+     * selection is kept while the selected name still exists.
+     *
+     * @param combo     Combo box to fill
+     * @param names     Observed names, e.g. ReferenceDataCache.observeCategoryNames()
+     * @param allOption First item meaning "no filter" (selected when the selection disappears), or null
+     */
+    public static void bind(ComboBox<String> combo, ObservableList<String> names, String allOption) {
+        Runnable refill = () -> {
+            String selected = combo.getValue();
+            List<String> items = new ArrayList<>(names.size() + 1);
+            if (allOption != null) {
+                items.add(allOption);
+            }
+            items.addAll(names);
+            combo.getItems().setAll(items);
+            if (selected != null && items.contains(selected)) {
+                combo.setValue(selected);
+            } else if (allOption != null) {
+                combo.setValue(allOption);
+            } else {
+                combo.setValue(null);
+            }
+        };
+
+        Binding binding = new Binding(names, change -> refill.run());
+        Object previous = combo.getProperties().put(BINDING_KEY, binding);
+        if (previous instanceof Binding) {
+            ((Binding) previous).unbind();
+        }
+        names.addListener(binding.weakListener);
+        refill.run();
+    }
+
+    private static class Binding {
+        private final ObservableList<String> names;
+        // Strong reference, held by the combo box properties
+        private final ListChangeListener<String> listener;
+        private final WeakListChangeListener<String> weakListener;
+
+        Binding(ObservableList<String> names, ListChangeListener<String> listener) {
+            this.names = names;
+            this.listener = listener;
+            this.weakListener = new WeakListChangeListener<>(listener);
+        }
+
+        void unbind() {
+            names.removeListener(weakListener);
+        }
+    }
+}
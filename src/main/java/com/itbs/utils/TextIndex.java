@@ -0,0 +1,200 @@
+package com.itbs.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over short French texts (names, descriptions...).
+ *
+ * Texts are folded before being split into terms: lower case, accents
+ * removed (é, è, ê -> e; ç -> c; œ -> oe), so "Événement" and "evenement"
+ * are the same term. Common French stop words are dropped.
+ *
+ * Postings are kept in a sorted map so a query term also matches every term
+ * it is a prefix of ("info" finds "informatique"); a document must match all
+ * the terms of the query. Results are ranked by the sum, over the query
+ * terms, of field weight x term frequency x idf, exact terms counting double
+ * a prefix match.
+ *
+ * Documents are added, replaced or removed one at a time, so the owner can
+ * keep the index in step with its writes. Safe for concurrent use.
+ */
+public class TextIndex {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final Set<String> STOP_WORDS = Set.of(
+            "le", "la", "les", "un", "une", "des", "du", "de", "et", "ou", "en", "au", "aux",
+            "a", "l", "d", "ce", "ces", "cet", "cette", "pour", "par", "sur", "dans", "avec",
+            "est", "sont", "qui", "que", "se", "sa", "son", "ses", "the", "of", "and");
+
+    // term -> document id -> weighted frequency
+    private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    // document id -> its terms, to remove a document without scanning the postings
+    private final Map<Integer, Set<String>> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Lower case, accents removed, ligatures expanded
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = text.toLowerCase(Locale.ROOT).replace("œ", "oe").replace("æ", "ae");
+        return COMBINING_MARKS.matcher(Normalizer.normalize(folded, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    /**
+     * Folded terms of a text, stop words and single letters removed
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String term : SEPARATORS.split(fold(text))) {
+            if (term.length() >= MIN_TERM_LENGTH && !STOP_WORDS.contains(term)) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Adds or replaces a document
+     * @param id     Document id
+     * @param fields Text of each field
+     * @param weights Weight of each field, same order as the fields
+     */
+    public void put(int id, String[] fields, int[] weights) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            for (String term : tokenize(fields[i])) {
+                frequencies.merge(term, weights[i], Integer::sum);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(id, entry.getValue());
+            }
+            documents.put(id, frequencies.keySet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the documents matching every term of the query, best first
+     * @param query Free text, each term also matches as a prefix
+     * @param limit Maximum number of ids, 0 for no limit
+     * @return Ranked ids, empty if the query has no usable term
+     */
+    public List<Integer> search(String query, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+        if (queryTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Integer, Double> scores = null;
+        lock.readLock().lock();
+        try {
+            int documentCount = Math.max(1, documents.size());
+            for (String queryTerm : queryTerms) {
+                Map<Integer, Double> termScores = new HashMap<>();
+                // Every indexed term starting with the query term
+                for (Map.Entry<String, Map<Integer, Integer>> entry
+                        : postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false).entrySet()) {
+                    Map<Integer, Integer> docs = entry.getValue();
+                    double idf = Math.log(1.0 + (double) documentCount / docs.size());
+                    double boost = entry.getKey().equals(queryTerm) ? 2.0 : 1.0;
+                    for (Map.Entry<Integer, Integer> doc : docs.entrySet()) {
+                        termScores.merge(doc.getKey(), boost * doc.getValue() * idf, Math::max);
+                    }
+                }
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // All terms must match
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((a, b) -> {
+            int byScore = Double.compare(b.getValue(), a.getValue());
+            return byScore != 0 ? byScore : Integer.compare(b.getKey(), a.getKey());
+        });
+        int size = limit > 0 ? Math.min(limit, ranked.size()) : ranked.size();
+        List<Integer> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(ranked.get(i).getKey());
+        }
+        return ids;
+    }
+
+    private void removeLocked(int id) {
+        Set<String> terms = documents.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Integer, Integer> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(id);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
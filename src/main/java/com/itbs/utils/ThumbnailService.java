@@ -0,0 +1,304 @@
+package com.itbs.utils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Generates small JPEG thumbnails for uploaded images (club logos, product,
+ * event and profile pictures) so list screens never decode the originals.
+ *
+ * Thumbnails are written in a "thumbs" folder next to the original, one per
+ * {@link Size}, and are regenerated when the original is newer. Their name
+ * keeps the original extension (photo.png gives photo_png_80.jpg) so two
+ * uploads differing only by extension get distinct thumbnails. Generation
+ * runs on a single background worker fed by a bounded queue; when the queue
+ * is full the request is dropped and the thumbnail is created on a later
+ * request or by the backfill ({@link com.itbs.ThumbnailBackfill}).
+ */
+public class ThumbnailService {
+    private static final Logger LOGGER = Logger.getLogger(ThumbnailService.class.getName());
+    private static ThumbnailService instance;
+
+    private static final String THUMBS_DIRECTORY = "thumbs";
+    private static final int QUEUE_CAPACITY = 64;
+    private static final float JPEG_QUALITY = 0.82f;
+    private static final Set<String> SUPPORTED_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "bmp");
+
+    /**
+     * Thumbnail sizes, bounding box of the longest side in pixels
+     */
+    public enum Size {
+        SMALL(80),
+        MEDIUM(320);
+
+        private final int pixels;
+
+        Size(int pixels) {
+            this.pixels = pixels;
+        }
+
+        public int getPixels() {
+            return pixels;
+        }
+
+        /**
+         * Smallest size covering the requested box, or null if the original is needed
+         */
+        public static Size covering(double width, double height) {
+            double requested = Math.max(width, height);
+            if (requested <= 0) {
+                return null;
+            }
+            for (Size size : values()) {
+                if (size.pixels >= requested) {
+                    return size;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final ThreadPoolExecutor worker;
+    // Originals already queued, to avoid queueing the same file twice
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private ThumbnailService() {
+        worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-worker");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static synchronized ThumbnailService getInstance() {
+        if (instance == null) {
+            instance = new ThumbnailService();
+        }
+        return instance;
+    }
+
+    /**
+     * Queue thumbnail generation for an uploaded image, returns immediately
+     *
+     * @return false if the file is not an image or the queue is full
+     */
+    public boolean submit(File original) {
+        if (!isSupported(original) || isUpToDate(original)) {
+            return false;
+        }
+        String key = original.getAbsolutePath();
+        if (!pending.add(key)) {
+            return true;
+        }
+        try {
+            worker.execute(() -> {
+                try {
+                    generate(original);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Thumbnail generation failed for " + original, e);
+                } finally {
+                    pending.remove(key);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            LOGGER.fine("Thumbnail queue full, skipping " + original);
+            return false;
+        }
+    }
+
+    /**
+     * File to display for the requested box: the covering thumbnail when it is
+     * up to date, the original otherwise (a generation is then queued).
+     */
+    public File resolve(File original, double width, double height) {
+        Size size = Size.covering(width, height);
+        if (size == null || !isSupported(original)) {
+            return original;
+        }
+        File thumbnail = getThumbnailFile(original, size);
+        if (thumbnail.isFile() && thumbnail.lastModified() >= original.lastModified()) {
+            return thumbnail;
+        }
+        submit(original);
+        return original;
+    }
+
+    public File getThumbnailFile(File original, Size size) {
+        String name = original.getName();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot > 0 ? name.substring(0, dot) + "_" + name.substring(dot + 1).toLowerCase(Locale.ROOT) : name;
+        File directory = new File(original.getAbsoluteFile().getParentFile(), THUMBS_DIRECTORY);
+        return new File(directory, baseName + "_" + size.getPixels() + ".jpg");
+    }
+
+    /**
+     * Generate the thumbnails of every image of a directory (and its sub
+     * directories) that has none or an outdated one. Runs on the calling thread.
+     *
+     * @return Number of originals processed
+     */
+    public int backfill(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        int processed = 0;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                if (!THUMBS_DIRECTORY.equals(file.getName())) {
+                    processed += backfill(file);
+                }
+            } else if (isSupported(file) && !isUpToDate(file)) {
+                try {
+                    generate(file);
+                    processed++;
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Thumbnail generation failed for " + file, e);
+                }
+            }
+        }
+        return processed;
+    }
+
+    /**
+     * Write every thumbnail size of an original
+     */
+    public void generate(File original) throws IOException {
+        BufferedImage source = ImageIO.read(original);
+        if (source == null) {
+            throw new IOException("Unsupported image format: " + original);
+        }
+
+        for (Size size : Size.values()) {
+            File target = getThumbnailFile(original, size);
+            File directory = target.getParentFile();
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Unable to create " + directory);
+            }
+            writeJpeg(scale(source, size.getPixels()), target);
+        }
+    }
+
+    private boolean isUpToDate(File original) {
+        for (Size size : Size.values()) {
+            File thumbnail = getThumbnailFile(original, size);
+            if (!thumbnail.isFile() || thumbnail.lastModified() < original.lastModified()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSupported(File file) {
+        if (file == null || !file.isFile()) {
+            return false;
+        }
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && SUPPORTED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    // Downscale to fit the box, never upscale; transparency is flattened on white for JPEG.
+    // The size is halved step by step down to the box: a single bilinear step
+    // from a large original only samples a few source pixels and aliases badly.
+    private static BufferedImage scale(BufferedImage source, int box) {
+        double ratio = Math.min(1.0, (double) box / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = flatten(source);
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height) {
+            current = resize(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != width || current.getHeight() != height) {
+            current = resize(current, width, height);
+        }
+        return current;
+    }
+
+    private static BufferedImage flatten(BufferedImage source) {
+        if (source.getType() == BufferedImage.TYPE_INT_RGB) {
+            return source;
+        }
+        BufferedImage opaque = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = opaque.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, source.getWidth(), source.getHeight());
+            graphics.drawImage(source, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return opaque;
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static void writeJpeg(BufferedImage image, File target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG writer available");
+        }
+        ImageWriter writer = writers.next();
+        // Written to a temporary file first so readers never see a partial thumbnail
+        File temporary = new File(target.getParentFile(), target.getName() + ".tmp");
+        try {
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temporary)) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            if (target.exists() && !target.delete()) {
+                throw new IOException("Unable to replace " + target);
+            }
+            if (!temporary.renameTo(target)) {
+                throw new IOException("Unable to write " + target);
+            }
+        } finally {
+            // Nothing left behind when encoding or the rename failed
+            if (temporary.exists() && !temporary.delete()) {
+                LOGGER.warning("Unable to delete " + temporary);
+            }
+        }
+    }
+}